@@ -0,0 +1,158 @@
+package com.gasagency.alert;
+
+import com.gasagency.entity.AlertConfiguration;
+import com.gasagency.entity.InventoryStock;
+import com.gasagency.repository.InventoryStockRepository;
+import com.gasagency.service.AlertConfigurationService;
+import com.gasagency.service.AlertNotificationService;
+import com.gasagency.service.AlertNotificationService.AlertSpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Real-time LOW_STOCK_WAREHOUSE alerts for stock touched by committed
+ * operations.
+ *
+ * Committed StockChangedEvents only queue their (warehouse, variant) pairs.
+ * A single drain task on the io executor takes everything queued so far,
+ * reads those stock rows in one query and writes the resulting alerts in one
+ * batch, so a burst of sales on the same variants is evaluated once.
+ */
+@Component
+public class LowStockEventListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(LowStockEventListener.class);
+    private static final String ALERT_TYPE = "LOW_STOCK_WAREHOUSE";
+
+    private final InventoryStockRepository inventoryStockRepository;
+    private final AlertConfigurationService configService;
+    private final AlertNotificationService notificationService;
+    private final Executor executor;
+
+    private final Set<StockKey> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+
+    public LowStockEventListener(InventoryStockRepository inventoryStockRepository,
+            AlertConfigurationService configService,
+            AlertNotificationService notificationService,
+            @Qualifier("ioExecutor") Executor executor) {
+        this.inventoryStockRepository = inventoryStockRepository;
+        this.configService = configService;
+        this.notificationService = notificationService;
+        this.executor = executor;
+    }
+
+    private record StockKey(Long warehouseId, Long variantId) {
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onStockChanged(StockChangedEvent event) {
+        if (event.warehouseId() == null) {
+            return;
+        }
+        for (Long variantId : event.variantIds()) {
+            pending.add(new StockKey(event.warehouseId(), variantId));
+        }
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            while (!pending.isEmpty()) {
+                Set<StockKey> batch = new HashSet<>();
+                Iterator<StockKey> it = pending.iterator();
+                while (it.hasNext()) {
+                    batch.add(it.next());
+                    it.remove();
+                }
+                evaluate(batch);
+            }
+        } catch (Exception e) {
+            logger.error("Error evaluating low stock alerts", e);
+        } finally {
+            draining.set(false);
+            // Pairs queued after the last check but before the flag was cleared
+            if (!pending.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    private void evaluate(Set<StockKey> keys) {
+        Optional<AlertConfiguration> configOpt = configService.getConfigOptional(ALERT_TYPE);
+        if (configOpt.isEmpty() || !configOpt.get().getEnabled()) {
+            return; // Alert disabled
+        }
+        AlertConfiguration config = configOpt.get();
+        int filledThreshold = config.getFilledCylinderThreshold() != null ? config.getFilledCylinderThreshold()
+                : 50;
+        int emptyThreshold = config.getEmptyCylinderThreshold() != null ? config.getEmptyCylinderThreshold() : 50;
+
+        Set<Long> warehouseIds = new HashSet<>();
+        Set<Long> variantIds = new HashSet<>();
+        for (StockKey key : keys) {
+            warehouseIds.add(key.warehouseId());
+            variantIds.add(key.variantId());
+        }
+
+        List<AlertSpec> alerts = new ArrayList<>();
+        for (InventoryStock stock : inventoryStockRepository.findWithDetailsByWarehouseIdsAndVariantIds(
+                warehouseIds, variantIds)) {
+            Long warehouseId = stock.getWarehouse().getId();
+            Long variantId = stock.getVariant().getId();
+            if (!keys.contains(new StockKey(warehouseId, variantId))) {
+                continue;
+            }
+            String warehouseName = stock.getWarehouse().getName();
+            String variantName = stock.getVariant().getName() != null ? stock.getVariant().getName()
+                    : "Variant " + variantId;
+
+            long filledQty = stock.getFilledQty() != null ? stock.getFilledQty() : 0;
+            if (filledQty < filledThreshold) {
+                alerts.add(new AlertSpec(ALERT_TYPE,
+                        "LOW_STOCK_FILLED_WH_" + warehouseId + "_VAR_" + variantId,
+                        warehouseId,
+                        null,
+                        warehouseName + " - " + variantName + ": Only " + filledQty +
+                                " filled cylinders (threshold: " + filledThreshold + ")",
+                        "warning"));
+            }
+
+            long emptyQty = stock.getEmptyQty() != null ? stock.getEmptyQty() : 0;
+            if (emptyQty < emptyThreshold) {
+                alerts.add(new AlertSpec(ALERT_TYPE,
+                        "LOW_STOCK_EMPTY_WH_" + warehouseId + "_VAR_" + variantId,
+                        warehouseId,
+                        null,
+                        warehouseName + " - " + variantName + ": Only " + emptyQty +
+                                " empty cylinders (threshold: " + emptyThreshold + ")",
+                        "warning"));
+            }
+        }
+
+        if (!alerts.isEmpty()) {
+            notificationService.createOrUpdateAlerts(alerts);
+            logger.warn("ALERT: {} real-time low stock alerts raised for {} stock rows", alerts.size(), keys.size());
+        }
+    }
+}
@@ -1,39 +1,44 @@
 package com.gasagency.alert;
 
-import com.gasagency.entity.Customer;
-import com.gasagency.repository.CustomerRepository;
+import com.gasagency.entity.AlertNotification;
+import com.gasagency.repository.CustomerCylinderLedgerRepository;
 import com.gasagency.service.AlertConfigurationService;
 import com.gasagency.service.AlertNotificationService;
-import com.gasagency.service.CustomerCylinderLedgerService;
+import com.gasagency.service.AlertNotificationService.AlertSpec;
 import com.gasagency.entity.AlertConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Alert detector for PENDING RETURN CYLINDERS
  * Monitors cylinders pending return from customers
+ *
+ * All customers over the threshold come from one aggregate query; the result
+ * is diffed against the active alerts so only new or changed alerts are
+ * written, and alerts of customers back under the threshold are expired.
  */
 @Component
 public class PendingReturnDetector implements AlertDetector {
 
     private static final Logger logger = LoggerFactory.getLogger(PendingReturnDetector.class);
     private static final String ALERT_TYPE = "PENDING_RETURN_CYLINDERS";
+    private static final String KEY_PREFIX = "PENDING_RETURN_CUST_";
 
-    private final CustomerRepository customerRepository;
-    private final CustomerCylinderLedgerService ledgerService;
+    private final CustomerCylinderLedgerRepository ledgerRepository;
     private final AlertConfigurationService configService;
     private final AlertNotificationService notificationService;
 
-    public PendingReturnDetector(CustomerRepository customerRepository,
-            CustomerCylinderLedgerService ledgerService,
+    public PendingReturnDetector(CustomerCylinderLedgerRepository ledgerRepository,
             AlertConfigurationService configService,
             AlertNotificationService notificationService) {
-        this.customerRepository = customerRepository;
-        this.ledgerService = ledgerService;
+        this.ledgerRepository = ledgerRepository;
         this.configService = configService;
         this.notificationService = notificationService;
     }
@@ -56,35 +61,35 @@ public class PendingReturnDetector implements AlertDetector {
             AlertConfiguration config = configOpt.get();
             int pendingThreshold = config.getPendingReturnThreshold() != null ? config.getPendingReturnThreshold() : 10;
 
-            // Get all customers
-            List<Customer> allCustomers = customerRepository.findAll();
-
-            for (Customer customer : allCustomers) {
-                try {
-                    // Get count of pending return cylinders for this customer
-                    long pendingCount = ledgerService.getPendingReturnCountForCustomer(customer.getId());
+            Map<String, AlertNotification> active = new HashMap<>();
+            for (AlertNotification alert : notificationService.getActiveAlerts(ALERT_TYPE)) {
+                active.put(alert.getAlertKey(), alert);
+            }
 
-                    if (pendingCount >= pendingThreshold) {
-                        String alertKey = "PENDING_RETURN_CUST_" + customer.getId();
-                        String message = customer.getName() +
-                                ": " + pendingCount + " cylinders pending return (threshold: " + pendingThreshold + ")";
+            List<AlertSpec> changed = new ArrayList<>();
+            for (Object[] row : ledgerRepository.sumPositiveEmptyInPerCustomerAtLeast(pendingThreshold)) {
+                Long customerId = (Long) row[0];
+                long pendingCount = ((Number) row[2]).longValue();
+                String alertKey = KEY_PREFIX + customerId;
+                String message = row[1] +
+                        ": " + pendingCount + " cylinders pending return (threshold: " + pendingThreshold + ")";
 
-                        notificationService.createOrUpdateAlert(
-                                ALERT_TYPE,
-                                alertKey,
-                                null,
-                                customer.getId(),
-                                message,
-                                "warning");
-                        logger.info("Pending return alert created for customer: {}", customer.getName());
-                    }
-                } catch (Exception e) {
-                    logger.warn("Error checking pending returns for customer {}: {}", customer.getId(), e.getMessage());
+                AlertNotification current = active.remove(alertKey);
+                if (current == null || !message.equals(current.getMessage())) {
+                    changed.add(new AlertSpec(ALERT_TYPE, alertKey, null, customerId, message, "warning"));
                 }
             }
+
+            // Whatever is still in the map belongs to customers no longer over the threshold
+            List<AlertNotification> resolved = new ArrayList<>(active.values());
+            notificationService.createOrUpdateAlerts(changed);
+            notificationService.expireAlerts(resolved);
+            if (!changed.isEmpty() || !resolved.isEmpty()) {
+                logger.info("Pending return alerts: {} created or updated, {} expired", changed.size(),
+                        resolved.size());
+            }
         } catch (Exception e) {
             logger.error("Error detecting pending return alerts", e);
         }
     }
 }
-
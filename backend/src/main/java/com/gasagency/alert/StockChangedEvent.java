@@ -0,0 +1,16 @@
+package com.gasagency.alert;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Published when an operation changed the stock of some variants in a
+ * warehouse. Low-stock thresholds are evaluated for these variants after the
+ * publishing transaction commits.
+ */
+public record StockChangedEvent(Long warehouseId, List<Long> variantIds) {
+
+    public StockChangedEvent(Long warehouseId, Collection<Long> variantIds) {
+        this(warehouseId, List.copyOf(variantIds));
+    }
+}
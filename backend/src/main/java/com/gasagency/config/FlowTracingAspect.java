@@ -0,0 +1,29 @@
+package com.gasagency.config;
+
+import com.gasagency.tracing.FlowTracer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Traces controller -> service flow into sampled spans (see FlowTracer).
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "app.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class FlowTracingAspect {
+
+    private final FlowTracer tracer;
+
+    public FlowTracingAspect(FlowTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Around("within(com.gasagency.controller..*) || within(com.gasagency.service..*)")
+    public Object traceFlow(ProceedingJoinPoint joinPoint) throws Throwable {
+        return tracer.trace(() -> joinPoint.getSignature().getDeclaringType().getSimpleName()
+                + "." + joinPoint.getSignature().getName(), joinPoint::proceed);
+    }
+}
@@ -57,6 +57,14 @@ public class CustomerController {
         return ResponseEntity.ok(ApiResponseUtil.success("Active customers retrieved successfully", customers));
     }
 
+    @GetMapping("/active/search")
+    public ResponseEntity<ApiResponse<List<CustomerDTO>>> searchActiveCustomers(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        List<CustomerDTO> customers = service.searchActiveCustomers(q, Math.max(1, Math.min(limit, 50)));
+        return ResponseEntity.ok(ApiResponseUtil.success("Customers retrieved successfully", customers));
+    }
+
     @GetMapping("/active")
     public ResponseEntity<ApiResponse<PagedResponseDTO<CustomerDTO>>> getActiveCustomersPaged(
             @RequestParam(defaultValue = "0") int page,
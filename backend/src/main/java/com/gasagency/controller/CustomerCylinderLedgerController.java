@@ -1,6 +1,7 @@
 
 package com.gasagency.controller;
 
+import com.gasagency.dto.response.CursorPageDTO;
 import com.gasagency.dto.response.CustomerBalanceDTO;
 import com.gasagency.dto.response.CustomerCylinderLedgerDTO;
 import com.gasagency.dto.response.CustomerDueAmountDTO;
@@ -10,10 +11,11 @@ import com.gasagency.dto.response.ReturnPendingSummaryDTO;
 import com.gasagency.dto.request.LedgerUpdateRequestDTO;
 import com.gasagency.dto.request.PaymentRequestDTO;
 import com.gasagency.dto.response.PaymentsSummaryDTO;
-import com.gasagency.dto.response.SimpleStatusDTO;
+import com.gasagency.dto.response.BalanceRepairProgressDTO;
 import com.gasagency.dto.request.EmptyReturnRequestDTO;
 import com.gasagency.dto.response.PagedResponseDTO;
 import com.gasagency.service.ApiIdempotencyService;
+import com.gasagency.service.BalanceRepairJobService;
 import com.gasagency.service.CustomerCylinderLedgerService;
 import com.gasagency.util.ApiResponse;
 import com.gasagency.util.ApiResponseUtil;
@@ -68,11 +70,14 @@ public class CustomerCylinderLedgerController {
 
     private final CustomerCylinderLedgerService service;
     private final ApiIdempotencyService apiIdempotencyService;
+    private final BalanceRepairJobService balanceRepairJobService;
 
     public CustomerCylinderLedgerController(CustomerCylinderLedgerService service,
-            ApiIdempotencyService apiIdempotencyService) {
+            ApiIdempotencyService apiIdempotencyService,
+            BalanceRepairJobService balanceRepairJobService) {
         this.service = service;
         this.apiIdempotencyService = apiIdempotencyService;
+        this.balanceRepairJobService = balanceRepairJobService;
     }
 
     @GetMapping("/{id}")
@@ -178,12 +183,14 @@ public class CustomerCylinderLedgerController {
                 service.getLedgerByCustomer(customerId, pageable)));
     }
 
-    // Endpoint: Get all stock movements (ledger entries) for inventory movement
-    // history
+    // Endpoint: Stock movement history (ledger entries and transfers), newest
+    // first, one keyset page at a time; pass nextCursor back as cursor
     @GetMapping("/movements")
-    public ResponseEntity<ApiResponse<List<CustomerCylinderLedgerDTO>>> getAllMovements() {
+    public ResponseEntity<ApiResponse<CursorPageDTO<CustomerCylinderLedgerDTO>>> getAllMovements(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
         return ResponseEntity.ok(ApiResponseUtil.success("Stock movements retrieved successfully",
-                service.getAllMovements()));
+                service.getMovementsByCursor(null, cursor, size, null, null, true)));
     }
 
     // Paginated movements (optionally include transfers)
@@ -204,12 +211,29 @@ public class CustomerCylinderLedgerController {
         return ResponseEntity.ok(ApiResponseUtil.success("Stock movements retrieved successfully", movements));
     }
 
-    // Endpoint: Get stock movements for a specific warehouse
+    // Keyset-paginated movements; pass nextCursor from the previous page as cursor
+    @GetMapping("/movements/cursor")
+    public ResponseEntity<ApiResponse<CursorPageDTO<CustomerCylinderLedgerDTO>>> getAllMovementsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) Long variantId,
+            @RequestParam(required = false) String refType,
+            @RequestParam(defaultValue = "true") boolean includeTransfers) {
+        return ResponseEntity.ok(ApiResponseUtil.success("Stock movements retrieved successfully",
+                service.getMovementsByCursor(null, cursor, size, variantId, refType, includeTransfers)));
+    }
+
+    // Endpoint: Stock movements of a specific warehouse, one keyset page at a time
     @GetMapping("/movements/warehouse/{warehouseId}")
-    public ResponseEntity<ApiResponse<List<CustomerCylinderLedgerDTO>>> getMovementsByWarehouse(
-            @PathVariable Long warehouseId) {
+    public ResponseEntity<ApiResponse<CursorPageDTO<CustomerCylinderLedgerDTO>>> getMovementsByWarehouse(
+            @PathVariable Long warehouseId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) Long variantId,
+            @RequestParam(required = false) String refType,
+            @RequestParam(defaultValue = "true") boolean includeTransfers) {
         return ResponseEntity.ok(ApiResponseUtil.success("Warehouse movements retrieved successfully",
-                service.getMovementsByWarehouse(warehouseId)));
+                service.getMovementsByCursor(warehouseId, cursor, size, variantId, refType, includeTransfers)));
     }
 
     // Paginated warehouse movements (optionally include transfers)
@@ -231,6 +255,19 @@ public class CustomerCylinderLedgerController {
         return ResponseEntity.ok(ApiResponseUtil.success("Warehouse movements retrieved successfully", movements));
     }
 
+    // Keyset-paginated warehouse movements
+    @GetMapping("/movements/warehouse/{warehouseId}/cursor")
+    public ResponseEntity<ApiResponse<CursorPageDTO<CustomerCylinderLedgerDTO>>> getMovementsByWarehouseByCursor(
+            @PathVariable Long warehouseId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) Long variantId,
+            @RequestParam(required = false) String refType,
+            @RequestParam(defaultValue = "true") boolean includeTransfers) {
+        return ResponseEntity.ok(ApiResponseUtil.success("Warehouse movements retrieved successfully",
+                service.getMovementsByCursor(warehouseId, cursor, size, variantId, refType, includeTransfers)));
+    }
+
     @GetMapping("/customer/{customerId}/variant/{variantId}")
     public ResponseEntity<ApiResponse<List<CustomerCylinderLedgerDTO>>> getLedgerByCustomerAndVariant(
             @PathVariable Long customerId, @PathVariable Long variantId) {
@@ -385,12 +422,26 @@ public class CustomerCylinderLedgerController {
                 service.updateLedgerEntry(ledgerId, updateData)));
     }
 
-    // Admin endpoint to repair/recalculate all balances with correct formula
+    // Admin endpoint to repair/recalculate all balances with correct formula.
+    // Runs as a background job; poll GET /admin/repair-balances for progress.
     @PostMapping("/admin/repair-balances")
-    public ResponseEntity<ApiResponse<SimpleStatusDTO>> repairAllBalances() {
-        service.recalculateAllBalances();
-        return ResponseEntity.ok(ApiResponseUtil.success("All balances have been recalculated",
-                new SimpleStatusDTO("success")));
+    public ResponseEntity<ApiResponse<BalanceRepairProgressDTO>> repairAllBalances(
+            @RequestParam(defaultValue = "false") boolean dryRun,
+            @RequestParam(defaultValue = "false") boolean resume) {
+        return ResponseEntity.accepted().body(ApiResponseUtil.success("Balance repair started",
+                balanceRepairJobService.start(dryRun, resume)));
+    }
+
+    @GetMapping("/admin/repair-balances")
+    public ResponseEntity<ApiResponse<BalanceRepairProgressDTO>> getRepairBalancesProgress() {
+        return ResponseEntity.ok(ApiResponseUtil.success("Balance repair progress retrieved successfully",
+                balanceRepairJobService.getProgress()));
+    }
+
+    @PostMapping("/admin/repair-balances/cancel")
+    public ResponseEntity<ApiResponse<BalanceRepairProgressDTO>> cancelRepairBalances() {
+        return ResponseEntity.ok(ApiResponseUtil.success("Balance repair cancellation requested",
+                balanceRepairJobService.requestCancel()));
     }
 }
 
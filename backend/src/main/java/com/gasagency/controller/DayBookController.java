@@ -88,12 +88,14 @@ public class DayBookController {
 
     /**
      * Get summary for a specific date (all transactions, no pagination)
+     * includeTransactions=false returns the totals only
      */
     @GetMapping("/summary")
     public ResponseEntity<ApiResponse<DayBookSummaryDTO>> getSummaryByDate(
             @RequestParam(required = false) String date,
             @RequestParam(required = false) String createdBy,
             @RequestParam(required = false) String transactionType,
+            @RequestParam(defaultValue = "true") boolean includeTransactions,
             Authentication authentication) {
 
         LocalDate transactionDate;
@@ -113,7 +115,7 @@ public class DayBookController {
         String effectiveCreatedBy = resolveCreatedBy(authentication, createdBy);
         String effectiveTransactionType = resolveTransactionType(authentication, transactionType);
         DayBookSummaryDTO summary = dayBookService.getTransactionsByDateSummary(transactionDate, effectiveCreatedBy,
-                effectiveTransactionType);
+                effectiveTransactionType, includeTransactions);
         return ResponseEntity.ok(ApiResponseUtil.success("Daybook summary retrieved successfully", summary));
     }
 
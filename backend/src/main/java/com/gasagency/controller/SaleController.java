@@ -6,16 +6,20 @@ import com.gasagency.dto.response.SaleDTO;
 import com.gasagency.dto.response.SaleSummaryDTO;
 import com.gasagency.dto.response.PaymentModeSummaryDTO;
 import com.gasagency.dto.response.PagedResponseDTO;
+import com.gasagency.dto.response.SliceResponseDTO;
 import com.gasagency.service.ApiIdempotencyService;
+import com.gasagency.service.DailySalesRollupService;
 import com.gasagency.service.SaleService;
 import com.gasagency.util.ApiResponse;
 import com.gasagency.util.ApiResponseUtil;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import jakarta.validation.Valid;
@@ -27,10 +31,13 @@ import java.util.List;
 public class SaleController {
     private final SaleService service;
     private final ApiIdempotencyService apiIdempotencyService;
+    private final DailySalesRollupService salesRollupService;
 
-    public SaleController(SaleService service, ApiIdempotencyService apiIdempotencyService) {
+    public SaleController(SaleService service, ApiIdempotencyService apiIdempotencyService,
+            DailySalesRollupService salesRollupService) {
         this.service = service;
         this.apiIdempotencyService = apiIdempotencyService;
+        this.salesRollupService = salesRollupService;
     }
 
     @GetMapping("/recent")
@@ -78,12 +85,12 @@ public class SaleController {
             @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             Authentication authentication) {
         String username = authentication != null ? authentication.getName() : "anonymous";
-        SaleDTO created = apiIdempotencyService.execute(
+        SaleDTO created = apiIdempotencyService.executeInOwnTransaction(
                 "POST:/api/sales",
                 idempotencyKey,
                 username,
                 request,
-                () -> service.createSale(request),
+                step -> service.createSale(request, step),
                 SaleDTO::getId,
                 service::getSaleById);
         return ResponseEntity.status(HttpStatus.CREATED)
@@ -122,6 +129,35 @@ public class SaleController {
         return ResponseEntity.ok(ApiResponseUtil.success("Sales retrieved successfully", sales));
     }
 
+    // Same filters as the paged list without the total count, for infinite scroll
+    @GetMapping("/slice")
+    public ResponseEntity<ApiResponse<SliceResponseDTO<SaleDTO>>> getSalesSlice(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String fromDate,
+            @RequestParam(required = false) String toDate,
+            @RequestParam(required = false) Long customerId,
+            @RequestParam(required = false) Long variantId,
+            @RequestParam(required = false) Double minAmount,
+            @RequestParam(required = false) Double maxAmount,
+            @RequestParam(required = false) String referenceNumber,
+            @RequestParam(required = false) String createdBy,
+            Authentication authentication) {
+        Pageable pageable = PageRequest.of(page, size);
+        String effectiveCreatedBy = resolveCreatedBy(authentication, createdBy);
+        Slice<SaleDTO> sales = service.getAllSalesSlice(pageable, fromDate, toDate, customerId, variantId,
+                minAmount, maxAmount, referenceNumber, effectiveCreatedBy);
+        return ResponseEntity.ok(ApiResponseUtil.success("Sales retrieved successfully", sales));
+    }
+
+    // Re-derive the daily sales rollup from the sale tables in the background
+    @PostMapping("/admin/rebuild-rollup")
+    @PreAuthorize("hasRole('OWNER')")
+    public ResponseEntity<ApiResponse<Void>> rebuildSalesRollup() {
+        salesRollupService.startRebuild();
+        return ResponseEntity.accepted().body(ApiResponseUtil.success("Sales rollup rebuild started"));
+    }
+
     private String resolveCreatedBy(Authentication authentication, String requestedCreatedBy) {
         if (authentication == null || authentication.getAuthorities() == null) {
             return requestedCreatedBy;
@@ -1,5 +1,6 @@
 package com.gasagency.controller;
 
+import com.gasagency.dto.response.CursorPageDTO;
 import com.gasagency.dto.response.WarehouseTransferDTO;
 import com.gasagency.dto.response.PagedResponseDTO;
 import com.gasagency.service.WarehouseTransferService;
@@ -12,10 +13,22 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import jakarta.validation.Valid;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -48,19 +61,6 @@ public class WarehouseTransferController {
         }
     }
 
-    /**
-     * GET /api/warehouse-transfers - Get all transfers (audit trail)
-     */
-    @GetMapping
-    public ResponseEntity<ApiResponse<List<WarehouseTransferDTO>>> getAllTransfers() {
-        try {
-            List<WarehouseTransferDTO> transfers = warehouseTransferService.getAllTransfers();
-            return ResponseEntity.ok(ApiResponseUtil.success("Transfers fetched successfully", transfers));
-        } catch (Exception e) {
-            return buildErrorResponse("Error fetching transfers", HttpStatus.INTERNAL_SERVER_ERROR);
-        }
-    }
-
     /**
      * GET /api/warehouse-transfers/paged - Paginated transfers
      */
@@ -76,6 +76,70 @@ public class WarehouseTransferController {
         return ResponseEntity.ok(ApiResponseUtil.success("Transfers fetched successfully", transfers));
     }
 
+    /**
+     * GET /api/warehouse-transfers/history - Keyset-paginated transfer history,
+     * newest first, optionally date-bounded and limited to a warehouse (either
+     * side), a source, a destination or a pair. Pass nextCursor from the
+     * previous page as cursor.
+     */
+    @GetMapping("/history")
+    public ResponseEntity<ApiResponse<CursorPageDTO<WarehouseTransferDTO>>> getTransferHistory(
+            @RequestParam(required = false) Long warehouseId,
+            @RequestParam(required = false) Long fromWarehouseId,
+            @RequestParam(required = false) Long toWarehouseId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            CursorPageDTO<WarehouseTransferDTO> transfers = warehouseTransferService.getTransferHistory(warehouseId,
+                    fromWarehouseId, toWarehouseId, fromDate, toDate, cursor, size);
+            return ResponseEntity.ok(ApiResponseUtil.success("Transfers fetched successfully", transfers));
+        } catch (InvalidOperationException | IllegalArgumentException e) {
+            return buildErrorResponse(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * GET /api/warehouse-transfers/export - CSV of all transfers in a date range,
+     * streamed to the client as it is read
+     */
+    @GetMapping(value = "/export", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> exportTransfers(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) {
+        if (fromDate.isAfter(toDate)) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write("Reference,Date,From,To,Variant,Filled,Empty,Created By,Notes\n");
+            warehouseTransferService.exportTransfers(fromDate, toDate, transfer -> {
+                try {
+                    writer.write(String.join(",",
+                            csv(transfer.getReferenceNumber()),
+                            csv(String.valueOf(transfer.getTransferDate())),
+                            csv(transfer.getFromWarehouseName()),
+                            csv(transfer.getToWarehouseName()),
+                            csv(transfer.getVariantName()),
+                            csv(String.valueOf(transfer.getFilledQty())),
+                            csv(String.valueOf(transfer.getEmptyQty())),
+                            csv(transfer.getCreatedBy()),
+                            csv(transfer.getNotes())));
+                    writer.write("\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"warehouse-transfers-" + fromDate + "-" + toDate + ".csv\"")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .body(body);
+    }
+
     /**
      * GET /api/warehouse-transfers/{id} - Get transfer by ID
      */
@@ -208,6 +272,16 @@ public class WarehouseTransferController {
         }
     }
 
+    private static String csv(String value) {
+        if (value == null || "null".equals(value)) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
     /**
      * Build error response helper
      */
@@ -0,0 +1,179 @@
+package com.gasagency.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BalanceRepairProgressDTO {
+    private String jobId;
+    private String status;
+    private boolean dryRun;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long totalCustomers;
+    private long processedCustomers;
+    private long rowsScanned;
+    private long rowsCorrected;
+    private Long lastCustomerId;
+    private String errorMessage;
+    private List<Correction> sampleCorrections = new ArrayList<>();
+
+    public BalanceRepairProgressDTO() {
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public long getTotalCustomers() {
+        return totalCustomers;
+    }
+
+    public void setTotalCustomers(long totalCustomers) {
+        this.totalCustomers = totalCustomers;
+    }
+
+    public long getProcessedCustomers() {
+        return processedCustomers;
+    }
+
+    public void setProcessedCustomers(long processedCustomers) {
+        this.processedCustomers = processedCustomers;
+    }
+
+    public long getRowsScanned() {
+        return rowsScanned;
+    }
+
+    public void setRowsScanned(long rowsScanned) {
+        this.rowsScanned = rowsScanned;
+    }
+
+    public long getRowsCorrected() {
+        return rowsCorrected;
+    }
+
+    public void setRowsCorrected(long rowsCorrected) {
+        this.rowsCorrected = rowsCorrected;
+    }
+
+    public Long getLastCustomerId() {
+        return lastCustomerId;
+    }
+
+    public void setLastCustomerId(Long lastCustomerId) {
+        this.lastCustomerId = lastCustomerId;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public List<Correction> getSampleCorrections() {
+        return sampleCorrections;
+    }
+
+    public void setSampleCorrections(List<Correction> sampleCorrections) {
+        this.sampleCorrections = sampleCorrections;
+    }
+
+    public static class Correction {
+        private Long ledgerId;
+        private Long customerId;
+        private Long variantId;
+        private Long storedBalance;
+        private Long expectedBalance;
+
+        public Correction() {
+        }
+
+        public Correction(Long ledgerId, Long customerId, Long variantId, Long storedBalance,
+                Long expectedBalance) {
+            this.ledgerId = ledgerId;
+            this.customerId = customerId;
+            this.variantId = variantId;
+            this.storedBalance = storedBalance;
+            this.expectedBalance = expectedBalance;
+        }
+
+        public Long getLedgerId() {
+            return ledgerId;
+        }
+
+        public void setLedgerId(Long ledgerId) {
+            this.ledgerId = ledgerId;
+        }
+
+        public Long getCustomerId() {
+            return customerId;
+        }
+
+        public void setCustomerId(Long customerId) {
+            this.customerId = customerId;
+        }
+
+        public Long getVariantId() {
+            return variantId;
+        }
+
+        public void setVariantId(Long variantId) {
+            this.variantId = variantId;
+        }
+
+        public Long getStoredBalance() {
+            return storedBalance;
+        }
+
+        public void setStoredBalance(Long storedBalance) {
+            this.storedBalance = storedBalance;
+        }
+
+        public Long getExpectedBalance() {
+            return expectedBalance;
+        }
+
+        public void setExpectedBalance(Long expectedBalance) {
+            this.expectedBalance = expectedBalance;
+        }
+    }
+}
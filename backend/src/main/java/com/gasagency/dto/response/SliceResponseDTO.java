@@ -0,0 +1,66 @@
+package com.gasagency.dto.response;
+
+import java.util.List;
+
+/**
+ * One page of a list served without a total count. hasNext tells whether
+ * the following page has any rows.
+ */
+public class SliceResponseDTO<T> {
+    private List<T> items;
+    private int page;
+    private int size;
+    private boolean first;
+    private boolean hasNext;
+
+    public SliceResponseDTO() {
+    }
+
+    public SliceResponseDTO(List<T> items, int page, int size, boolean first, boolean hasNext) {
+        this.items = items;
+        this.page = page;
+        this.size = size;
+        this.first = first;
+        this.hasNext = hasNext;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public boolean isFirst() {
+        return first;
+    }
+
+    public void setFirst(boolean first) {
+        this.first = first;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+}
@@ -10,7 +10,8 @@ import java.time.LocalDateTime;
                 "idempotency_key", "username", "endpoint"
         })
 }, indexes = {
-        @Index(name = "idx_idempotency_lookup", columnList = "idempotency_key,username,endpoint")
+        @Index(name = "idx_idempotency_lookup", columnList = "idempotency_key,username,endpoint"),
+        @Index(name = "idx_idempotency_created_at", columnList = "created_at")
 })
 public class ApiIdempotencyRecord {
     @Id
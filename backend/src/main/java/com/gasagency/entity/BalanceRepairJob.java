@@ -0,0 +1,145 @@
+package com.gasagency.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Persisted state of a balance repair run. last_customer_id is written in the
+ * same transaction as each chunk, so after a crash or restart the run can be
+ * resumed right after the last chunk that committed.
+ */
+@Entity
+@Table(name = "balance_repair_job", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_balance_repair_job_id", columnNames = "job_id")
+})
+public class BalanceRepairJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_id", nullable = false, length = 36)
+    private String jobId;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "dry_run", nullable = false)
+    private boolean dryRun;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "total_customers", nullable = false)
+    private long totalCustomers;
+
+    @Column(name = "processed_customers", nullable = false)
+    private long processedCustomers;
+
+    @Column(name = "rows_scanned", nullable = false)
+    private long rowsScanned;
+
+    @Column(name = "rows_corrected", nullable = false)
+    private long rowsCorrected;
+
+    @Column(name = "last_customer_id", nullable = false)
+    private Long lastCustomerId;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public long getTotalCustomers() {
+        return totalCustomers;
+    }
+
+    public void setTotalCustomers(long totalCustomers) {
+        this.totalCustomers = totalCustomers;
+    }
+
+    public long getProcessedCustomers() {
+        return processedCustomers;
+    }
+
+    public void setProcessedCustomers(long processedCustomers) {
+        this.processedCustomers = processedCustomers;
+    }
+
+    public long getRowsScanned() {
+        return rowsScanned;
+    }
+
+    public void setRowsScanned(long rowsScanned) {
+        this.rowsScanned = rowsScanned;
+    }
+
+    public long getRowsCorrected() {
+        return rowsCorrected;
+    }
+
+    public void setRowsCorrected(long rowsCorrected) {
+        this.rowsCorrected = rowsCorrected;
+    }
+
+    public Long getLastCustomerId() {
+        return lastCustomerId;
+    }
+
+    public void setLastCustomerId(Long lastCustomerId) {
+        this.lastCustomerId = lastCustomerId;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+}
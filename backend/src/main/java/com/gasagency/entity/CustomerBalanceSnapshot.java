@@ -0,0 +1,128 @@
+package com.gasagency.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Current position of a customer, maintained in the same transaction as every
+ * ledger write.
+ *
+ * One row per (customer, variant) carries the latest cylinder balance for that
+ * variant. One additional row per customer with a NULL variant carries the
+ * customer-level position (latest due amount across all variants, including
+ * PAYMENT entries which have no variant).
+ */
+@Entity
+// idx_cbs_customer_variant treats NULL variants as distinct, so it does not cover the
+// customer-level row. On PostgreSQL, CustomerBalanceSnapshotService creates the partial
+// unique index idx_cbs_customer_row (customer_id) WHERE variant_id IS NULL at startup;
+// JPA cannot declare a partial index here.
+@Table(name = "customer_balance_snapshot", indexes = {
+        @Index(name = "idx_cbs_customer_variant", columnList = "customer_id, variant_id", unique = true),
+        @Index(name = "idx_cbs_latest_ledger", columnList = "latest_ledger_id"),
+        @Index(name = "idx_cbs_variant_balance", columnList = "variant_id, balance"),
+        @Index(name = "idx_cbs_due_amount", columnList = "due_amount")
+})
+public class CustomerBalanceSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "customer_id", nullable = false)
+    private Customer customer;
+
+    // NULL for the customer-level (due) row
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "variant_id", nullable = true)
+    private CylinderVariant variant;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "latest_ledger_id", nullable = false)
+    private CustomerCylinderLedger latestLedger;
+
+    @Column(nullable = false)
+    private Long balance = 0L;
+
+    @Column(name = "due_amount", nullable = true)
+    private BigDecimal dueAmount;
+
+    @Column(name = "last_transaction_date", nullable = true)
+    private LocalDate lastTransactionDate;
+
+    @Column(name = "refreshed_at", nullable = false)
+    private LocalDateTime refreshedAt;
+
+    public CustomerBalanceSnapshot() {
+    }
+
+    public CustomerBalanceSnapshot(Customer customer, CylinderVariant variant) {
+        this.customer = customer;
+        this.variant = variant;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        refreshedAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    public void setCustomer(Customer customer) {
+        this.customer = customer;
+    }
+
+    public CylinderVariant getVariant() {
+        return variant;
+    }
+
+    public void setVariant(CylinderVariant variant) {
+        this.variant = variant;
+    }
+
+    public CustomerCylinderLedger getLatestLedger() {
+        return latestLedger;
+    }
+
+    public void setLatestLedger(CustomerCylinderLedger latestLedger) {
+        this.latestLedger = latestLedger;
+    }
+
+    public Long getBalance() {
+        return balance;
+    }
+
+    public void setBalance(Long balance) {
+        this.balance = balance;
+    }
+
+    public BigDecimal getDueAmount() {
+        return dueAmount;
+    }
+
+    public void setDueAmount(BigDecimal dueAmount) {
+        this.dueAmount = dueAmount;
+    }
+
+    public LocalDate getLastTransactionDate() {
+        return lastTransactionDate;
+    }
+
+    public void setLastTransactionDate(LocalDate lastTransactionDate) {
+        this.lastTransactionDate = lastTransactionDate;
+    }
+
+    public LocalDateTime getRefreshedAt() {
+        return refreshedAt;
+    }
+}
@@ -12,11 +12,18 @@ import java.util.Objects;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 
 @Entity
+@NamedEntityGraph(name = CustomerCylinderLedger.LIST_GRAPH, attributeNodes = {
+        @NamedAttributeNode("customer"),
+        @NamedAttributeNode("variant"),
+        @NamedAttributeNode("warehouse"),
+        @NamedAttributeNode("bankAccount")
+})
 @Table(name = "customer_cylinder_ledger", indexes = {
         // Performance indexes for due payment and transaction queries
         @Index(name = "idx_ccl_customer_trans_date", columnList = "customer_id, transaction_date"),
         @Index(name = "idx_ccl_warehouse_date", columnList = "warehouse_id, transaction_date"),
         @Index(name = "idx_ccl_transaction_date", columnList = "transaction_date"),
+        @Index(name = "idx_ccl_movement_order", columnList = "transaction_date, created_date, id"),
         @Index(name = "idx_ccl_ref_type_date", columnList = "ref_type, transaction_date"),
         @Index(name = "idx_ccl_customer_variant", columnList = "customer_id, variant_id"),
         
@@ -30,7 +37,12 @@ import com.fasterxml.jackson.annotation.JsonBackReference;
         @Index(name = "idx_ledger_customer_variant_id", columnList = "customer_id, variant_id, id"),
         @Index(name = "idx_ccl_verification_status_bank_date", columnList = "verification_status, bank_account_id, transaction_date")
 })
+// Movement keyset pages seek on created_date (idx_ccl_movement_order), so it is required
+@AttributeOverride(name = "createdDate", column = @Column(name = "created_date", nullable = false, updatable = false))
 public class CustomerCylinderLedger extends Auditable {
+    // Associations read when listing entries; applied by the list queries in the repository
+    public static final String LIST_GRAPH = "CustomerCylinderLedger.list";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
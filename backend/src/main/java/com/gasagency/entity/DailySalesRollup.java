@@ -0,0 +1,158 @@
+package com.gasagency.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated sales per (sale date, warehouse, customer), recomputed for
+ * the affected group whenever a sale is created or edited.
+ *
+ * One row per variant sold carries the item quantities and amounts for that
+ * variant. One additional row with a NULL variant carries the sale-level
+ * totals of the group (number of sales, total amount, amount received).
+ */
+@Entity
+@Table(name = "daily_sales_rollup", indexes = {
+        @Index(name = "idx_dsr_group_variant", columnList = "sale_date, warehouse_id, customer_id, variant_id", unique = true),
+        @Index(name = "idx_dsr_date_variant", columnList = "sale_date, variant_id"),
+        @Index(name = "idx_dsr_customer_date", columnList = "customer_id, sale_date")
+})
+public class DailySalesRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "sale_date", nullable = false)
+    private LocalDate saleDate;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "warehouse_id", nullable = false)
+    private Warehouse warehouse;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "customer_id", nullable = false)
+    private Customer customer;
+
+    // NULL for the sale-level row of the group
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "variant_id", nullable = true)
+    private CylinderVariant variant;
+
+    @Column(name = "sale_count", nullable = false)
+    private Long saleCount = 0L;
+
+    @Column(name = "qty_issued", nullable = false)
+    private Long qtyIssued = 0L;
+
+    @Column(name = "qty_empty_received", nullable = false)
+    private Long qtyEmptyReceived = 0L;
+
+    @Column(name = "total_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    // Only populated on the sale-level row; payments are not split by variant
+    @Column(name = "amount_received", nullable = false, precision = 19, scale = 2)
+    private BigDecimal amountReceived = BigDecimal.ZERO;
+
+    @Column(name = "refreshed_at", nullable = false)
+    private LocalDateTime refreshedAt;
+
+    public DailySalesRollup() {
+    }
+
+    public DailySalesRollup(LocalDate saleDate, Warehouse warehouse, Customer customer, CylinderVariant variant) {
+        this.saleDate = saleDate;
+        this.warehouse = warehouse;
+        this.customer = customer;
+        this.variant = variant;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        refreshedAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDate getSaleDate() {
+        return saleDate;
+    }
+
+    public void setSaleDate(LocalDate saleDate) {
+        this.saleDate = saleDate;
+    }
+
+    public Warehouse getWarehouse() {
+        return warehouse;
+    }
+
+    public void setWarehouse(Warehouse warehouse) {
+        this.warehouse = warehouse;
+    }
+
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    public void setCustomer(Customer customer) {
+        this.customer = customer;
+    }
+
+    public CylinderVariant getVariant() {
+        return variant;
+    }
+
+    public void setVariant(CylinderVariant variant) {
+        this.variant = variant;
+    }
+
+    public Long getSaleCount() {
+        return saleCount;
+    }
+
+    public void setSaleCount(Long saleCount) {
+        this.saleCount = saleCount;
+    }
+
+    public Long getQtyIssued() {
+        return qtyIssued;
+    }
+
+    public void setQtyIssued(Long qtyIssued) {
+        this.qtyIssued = qtyIssued;
+    }
+
+    public Long getQtyEmptyReceived() {
+        return qtyEmptyReceived;
+    }
+
+    public void setQtyEmptyReceived(Long qtyEmptyReceived) {
+        this.qtyEmptyReceived = qtyEmptyReceived;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public BigDecimal getAmountReceived() {
+        return amountReceived;
+    }
+
+    public void setAmountReceived(BigDecimal amountReceived) {
+        this.amountReceived = amountReceived;
+    }
+
+    public LocalDateTime getRefreshedAt() {
+        return refreshedAt;
+    }
+}
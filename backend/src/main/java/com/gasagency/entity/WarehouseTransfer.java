@@ -11,12 +11,15 @@ import com.fasterxml.jackson.annotation.JsonBackReference;
 @Entity
 @Table(name = "warehouse_transfer", indexes = {
         @Index(name = "idx_wt_transfer_date", columnList = "transfer_date"),
+        @Index(name = "idx_wt_movement_order", columnList = "transfer_date, created_date, id"),
         @Index(name = "idx_wt_warehouses", columnList = "from_warehouse_id, to_warehouse_id, transfer_date"),
-        @Index(name = "idx_transfer_from_warehouse", columnList = "from_warehouse_id"),
-        @Index(name = "idx_transfer_to_warehouse", columnList = "to_warehouse_id"),
+        @Index(name = "idx_wt_from_date", columnList = "from_warehouse_id, transfer_date"),
+        @Index(name = "idx_wt_to_date", columnList = "to_warehouse_id, transfer_date"),
         @Index(name = "idx_transfer_variant", columnList = "variant_id"),
         @Index(name = "idx_transfer_reference_number", columnList = "reference_number", unique = true)
 })
+// Movement keyset pages seek on created_date (idx_wt_movement_order), so it is required
+@AttributeOverride(name = "createdDate", column = @Column(name = "created_date", nullable = false, updatable = false))
 public class WarehouseTransfer extends Auditable {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,21 @@
+package com.gasagency.mapper;
+
+import com.gasagency.dto.response.ExpenseCategoryDTO;
+import com.gasagency.entity.ExpenseCategory;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface ExpenseCategoryMapper {
+
+    ExpenseCategoryDTO toDTO(ExpenseCategory category);
+
+    // Id and audit fields are assigned on save, never taken from the request
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "expenses", ignore = true)
+    @Mapping(target = "createdBy", ignore = true)
+    @Mapping(target = "createdDate", ignore = true)
+    @Mapping(target = "updatedBy", ignore = true)
+    @Mapping(target = "updatedDate", ignore = true)
+    ExpenseCategory toEntity(ExpenseCategoryDTO dto);
+}
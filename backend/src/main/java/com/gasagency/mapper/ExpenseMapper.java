@@ -0,0 +1,17 @@
+package com.gasagency.mapper;
+
+import com.gasagency.dto.response.ExpenseDTO;
+import com.gasagency.entity.Expense;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface ExpenseMapper {
+
+    @Mapping(target = "category", source = "category.name")
+    @Mapping(target = "categoryId", source = "category.id")
+    @Mapping(target = "bankAccountId", source = "bankAccount.id")
+    @Mapping(target = "bankAccountName", source = "bankAccount.bankName")
+    @Mapping(target = "bankAccountNumber", source = "bankAccount.accountNumber")
+    ExpenseDTO toDTO(Expense expense);
+}
@@ -0,0 +1,20 @@
+package com.gasagency.mapper;
+
+import com.gasagency.dto.response.PaymentModeDTO;
+import com.gasagency.entity.PaymentMode;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface PaymentModeMapper {
+
+    PaymentModeDTO toDTO(PaymentMode mode);
+
+    // Id and audit fields are assigned on save, never taken from the request
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "createdBy", ignore = true)
+    @Mapping(target = "createdDate", ignore = true)
+    @Mapping(target = "updatedBy", ignore = true)
+    @Mapping(target = "updatedDate", ignore = true)
+    PaymentMode toEntity(PaymentModeDTO dto);
+}
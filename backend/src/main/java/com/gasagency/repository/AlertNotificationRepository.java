@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,8 +13,13 @@ import java.util.Optional;
 public interface AlertNotificationRepository extends JpaRepository<AlertNotification, Long> {
     List<AlertNotification> findByIsDismissedFalseAndExpiresAtGreaterThan(LocalDateTime now);
 
+    List<AlertNotification> findByAlertTypeAndIsDismissedFalseAndExpiresAtGreaterThan(String alertType,
+            LocalDateTime now);
+
     Optional<AlertNotification> findByAlertKey(String alertKey);
 
+    List<AlertNotification> findByAlertKeyIn(Collection<String> alertKeys);
+
     void deleteByExpiresAtLessThan(LocalDateTime now);
 }
 
@@ -2,8 +2,13 @@ package com.gasagency.repository;
 
 import com.gasagency.entity.ApiIdempotencyRecord;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +18,9 @@ public interface ApiIdempotencyRecordRepository extends JpaRepository<ApiIdempot
             String username,
             String endpoint
     );
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ApiIdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteByCreatedAtBefore(@Param("cutoff") LocalDateTime cutoff);
 }
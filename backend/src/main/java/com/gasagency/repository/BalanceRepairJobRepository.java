@@ -0,0 +1,52 @@
+package com.gasagency.repository;
+
+import com.gasagency.entity.BalanceRepairJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface BalanceRepairJobRepository extends JpaRepository<BalanceRepairJob, Long> {
+    Optional<BalanceRepairJob> findTopByOrderByIdDesc();
+
+    // Runs inside the chunk's transaction, so the resume position commits with the chunk
+    @Modifying
+    @Query("UPDATE BalanceRepairJob j SET j.lastCustomerId = :lastCustomerId, " +
+            "j.processedCustomers = :processedCustomers, j.rowsScanned = :rowsScanned, " +
+            "j.rowsCorrected = :rowsCorrected WHERE j.jobId = :jobId")
+    int recordChunk(@Param("jobId") String jobId,
+            @Param("lastCustomerId") Long lastCustomerId,
+            @Param("processedCustomers") long processedCustomers,
+            @Param("rowsScanned") long rowsScanned,
+            @Param("rowsCorrected") long rowsCorrected);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE BalanceRepairJob j SET j.totalCustomers = :totalCustomers WHERE j.jobId = :jobId")
+    int updateTotalCustomers(@Param("jobId") String jobId, @Param("totalCustomers") long totalCustomers);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE BalanceRepairJob j SET j.status = :status, j.errorMessage = :errorMessage, " +
+            "j.finishedAt = :finishedAt WHERE j.jobId = :jobId")
+    int finish(@Param("jobId") String jobId,
+            @Param("status") String status,
+            @Param("errorMessage") String errorMessage,
+            @Param("finishedAt") LocalDateTime finishedAt);
+
+    // Jobs still RUNNING at startup died with the previous process
+    @Modifying
+    @Transactional
+    @Query("UPDATE BalanceRepairJob j SET j.status = :failed, j.errorMessage = :errorMessage, " +
+            "j.finishedAt = :finishedAt WHERE j.status = :running")
+    int failInterrupted(@Param("running") String running,
+            @Param("failed") String failed,
+            @Param("errorMessage") String errorMessage,
+            @Param("finishedAt") LocalDateTime finishedAt);
+}
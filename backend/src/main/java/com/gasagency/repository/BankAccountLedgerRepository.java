@@ -4,17 +4,29 @@ import com.gasagency.entity.BankAccountLedger;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface BankAccountLedgerRepository extends JpaRepository<BankAccountLedger, Long> {
 
+        // Shared filter of findByFilters and summarizeByFilters
+        String FILTERS = "(:bankAccountId IS NULL OR bal.bankAccount.id = :bankAccountId) " +
+                        "AND (:transactionType IS NULL OR :transactionType = '' OR bal.transactionType = :transactionType) " +
+                        "AND (:startDate IS NULL OR bal.transactionDate >= :startDate) " +
+                        "AND (:endDate IS NULL OR bal.transactionDate <= :endDate) " +
+                        "AND (:referenceNumber IS NULL OR :referenceNumber = '' OR LOWER(bal.referenceNumber) LIKE LOWER(CONCAT('%', :referenceNumber, '%'))) ";
+
         @Query("SELECT bal FROM BankAccountLedger bal WHERE bal.bankAccount.id = :bankAccountId ORDER BY bal.transactionDate DESC")
         Page<BankAccountLedger> findByBankAccountId(@Param("bankAccountId") Long bankAccountId, Pageable pageable);
 
@@ -102,13 +114,7 @@ public interface BankAccountLedgerRepository extends JpaRepository<BankAccountLe
                         "AND EXTRACT(YEAR FROM bal.transactionDate) = EXTRACT(YEAR FROM CAST(:date AS DATE))")
         long countByCreatedAtMonthYear(@Param("date") LocalDate date);
 
-        @Query("SELECT bal FROM BankAccountLedger bal WHERE " +
-                        "(:bankAccountId IS NULL OR bal.bankAccount.id = :bankAccountId) " +
-                        "AND (:transactionType IS NULL OR :transactionType = '' OR bal.transactionType = :transactionType) " +
-                        "AND (:startDate IS NULL OR bal.transactionDate >= :startDate) " +
-                        "AND (:endDate IS NULL OR bal.transactionDate <= :endDate) " +
-                        "AND (:referenceNumber IS NULL OR :referenceNumber = '' OR LOWER(bal.referenceNumber) LIKE LOWER(CONCAT('%', :referenceNumber, '%'))) " +
-                        "ORDER BY bal.transactionDate DESC")
+        @Query("SELECT bal FROM BankAccountLedger bal WHERE " + FILTERS + "ORDER BY bal.transactionDate DESC")
         Page<BankAccountLedger> findByFilters(
                         @Param("bankAccountId") Long bankAccountId,
                         @Param("transactionType") String transactionType,
@@ -117,18 +123,56 @@ public interface BankAccountLedgerRepository extends JpaRepository<BankAccountLe
                         @Param("referenceNumber") String referenceNumber,
                         Pageable pageable);
 
-        @Query("SELECT bal FROM BankAccountLedger bal WHERE " +
-                        "(:bankAccountId IS NULL OR bal.bankAccount.id = :bankAccountId) " +
-                        "AND (:transactionType IS NULL OR :transactionType = '' OR bal.transactionType = :transactionType) " +
-                        "AND (:startDate IS NULL OR bal.transactionDate >= :startDate) " +
-                        "AND (:endDate IS NULL OR bal.transactionDate <= :endDate) " +
-                        "AND (:referenceNumber IS NULL OR :referenceNumber = '' OR LOWER(bal.referenceNumber) LIKE LOWER(CONCAT('%', :referenceNumber, '%'))) " +
-                        "ORDER BY bal.transactionDate DESC")
+        @Query("SELECT bal FROM BankAccountLedger bal WHERE " + FILTERS + "ORDER BY bal.transactionDate DESC")
         List<BankAccountLedger> findByFilters(
                         @Param("bankAccountId") Long bankAccountId,
                         @Param("transactionType") String transactionType,
                         @Param("startDate") LocalDateTime startDate,
                         @Param("endDate") LocalDateTime endDate,
                         @Param("referenceNumber") String referenceNumber);
-}
 
+        /**
+         * Columns: transactionType, bankAccountId, SUM(amount), COUNT
+         */
+        @Query("SELECT bal.transactionType, bal.bankAccount.id, COALESCE(SUM(bal.amount), 0), COUNT(bal) " +
+                        "FROM BankAccountLedger bal WHERE " + FILTERS +
+                        "GROUP BY bal.transactionType, bal.bankAccount.id")
+        List<Object[]> summarizeByFilters(
+                        @Param("bankAccountId") Long bankAccountId,
+                        @Param("transactionType") String transactionType,
+                        @Param("startDate") LocalDateTime startDate,
+                        @Param("endDate") LocalDateTime endDate,
+                        @Param("referenceNumber") String referenceNumber);
+
+        // Running balance of the account's latest entry
+        @Query(value = "SELECT l.balance_after FROM bank_account_ledger l WHERE l.bank_account_id = :bankAccountId " +
+                        "ORDER BY l.transaction_date DESC, l.id DESC LIMIT 1", nativeQuery = true)
+        Optional<BigDecimal> findLatestBalanceAfter(@Param("bankAccountId") Long bankAccountId);
+
+        /**
+         * Columns: bankAccountId, balanceAfter of each account's latest entry up
+         * to endDate (all entries when endDate is null).
+         */
+        @Query(value = "SELECT DISTINCT ON (l.bank_account_id) l.bank_account_id, l.balance_after " +
+                        "FROM bank_account_ledger l WHERE l.bank_account_id IN (:bankAccountIds) " +
+                        "AND (CAST(:endDate AS timestamp) IS NULL OR l.transaction_date <= CAST(:endDate AS timestamp)) " +
+                        "ORDER BY l.bank_account_id, l.transaction_date DESC, l.id DESC", nativeQuery = true)
+        List<Object[]> findLatestBalances(@Param("bankAccountIds") Collection<Long> bankAccountIds,
+                        @Param("endDate") LocalDateTime endDate);
+
+        @Query(value = "SELECT COALESCE(SUM(CASE WHEN l.transaction_type = 'WITHDRAWAL' THEN -l.amount " +
+                        "ELSE l.amount END), 0) FROM bank_account_ledger l WHERE l.bank_account_id = :bankAccountId",
+                        nativeQuery = true)
+        BigDecimal sumSignedAmounts(@Param("bankAccountId") Long bankAccountId);
+
+        boolean existsByBalanceAfterIsNull();
+
+        // Re-derive every running balance in insertion order; withdrawals subtract
+        @Modifying
+        @Transactional
+        @Query(value = "UPDATE bank_account_ledger b SET balance_after = r.running FROM (" +
+                        "SELECT l.id, SUM(CASE WHEN l.transaction_type = 'WITHDRAWAL' THEN -l.amount ELSE l.amount END) " +
+                        "OVER (PARTITION BY l.bank_account_id ORDER BY l.transaction_date, l.id) AS running " +
+                        "FROM bank_account_ledger l) r WHERE b.id = r.id", nativeQuery = true)
+        int recomputeBalances();
+}
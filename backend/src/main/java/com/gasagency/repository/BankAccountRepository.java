@@ -4,9 +4,11 @@ import com.gasagency.entity.BankAccount;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import jakarta.persistence.LockModeType;
 
 import java.util.List;
 import java.util.Optional;
@@ -25,5 +27,9 @@ public interface BankAccountRepository extends JpaRepository<BankAccount, Long>
 
     @Query("SELECT COUNT(ba) > 0 FROM BankAccount ba WHERE ba.isActive = true")
     boolean hasActiveAccounts();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT ba FROM BankAccount ba WHERE ba.id = :id")
+    Optional<BankAccount> findByIdForUpdate(@Param("id") Long id);
 }
 
@@ -0,0 +1,87 @@
+package com.gasagency.repository;
+
+import com.gasagency.entity.CustomerBalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface CustomerBalanceSnapshotRepository extends JpaRepository<CustomerBalanceSnapshot, Long> {
+        @Query("SELECT s FROM CustomerBalanceSnapshot s WHERE s.customer.id = :customerId")
+        List<CustomerBalanceSnapshot> findByCustomerId(@Param("customerId") Long customerId);
+
+        // Totals read the snapshot's own due_amount / balance columns (idx_cbs_due_amount,
+        // idx_cbs_variant_balance); only the paged entity lists go back to the ledger
+        @Query("SELECT COALESCE(SUM(s.dueAmount), 0) FROM CustomerBalanceSnapshot s " +
+                        "WHERE s.variant IS NULL AND s.dueAmount > 0")
+        BigDecimal sumDueAmounts();
+
+        @Query("SELECT COUNT(s) FROM CustomerBalanceSnapshot s WHERE s.variant IS NULL AND s.dueAmount > 0")
+        long countCustomersWithDue();
+
+        @Query("SELECT COALESCE(SUM(s.balance), 0) FROM CustomerBalanceSnapshot s " +
+                        "WHERE s.variant IS NOT NULL AND s.balance > 0 AND s.customer.active = true " +
+                        "AND s.customer.id = COALESCE(:customerId, s.customer.id) " +
+                        "AND s.variant.id = COALESCE(:variantId, s.variant.id) " +
+                        "AND (COALESCE(:search, '') = '' OR LOWER(s.customer.name) LIKE LOWER(CONCAT('%', :search, '%')) " +
+                        "OR s.customer.mobile LIKE CONCAT('%', :search, '%')) " +
+                        "AND (COALESCE(:status, '') = '' " +
+                        "OR (:status = 'PENDING' AND (:threshold IS NULL OR s.balance <= :threshold)) " +
+                        "OR (:status = 'HIGH_RISK' AND (:threshold IS NOT NULL AND s.balance > :threshold)))")
+        Long sumPendingReturnBalances(
+                        @Param("customerId") Long customerId,
+                        @Param("variantId") Long variantId,
+                        @Param("search") String search,
+                        @Param("status") String status,
+                        @Param("threshold") Long threshold);
+
+        @Query("SELECT COUNT(s) FROM CustomerBalanceSnapshot s " +
+                        "WHERE s.variant IS NOT NULL AND s.balance > 0 AND s.customer.active = true " +
+                        "AND s.customer.id = COALESCE(:customerId, s.customer.id) " +
+                        "AND s.variant.id = COALESCE(:variantId, s.variant.id) " +
+                        "AND (COALESCE(:search, '') = '' OR LOWER(s.customer.name) LIKE LOWER(CONCAT('%', :search, '%')) " +
+                        "OR s.customer.mobile LIKE CONCAT('%', :search, '%')) " +
+                        "AND (COALESCE(:status, '') = '' " +
+                        "OR (:status = 'PENDING' AND (:threshold IS NULL OR s.balance <= :threshold)) " +
+                        "OR (:status = 'HIGH_RISK' AND (:threshold IS NOT NULL AND s.balance > :threshold)))")
+        long countPendingReturnBalances(
+                        @Param("customerId") Long customerId,
+                        @Param("variantId") Long variantId,
+                        @Param("search") String search,
+                        @Param("status") String status,
+                        @Param("threshold") Long threshold);
+
+        @Query("SELECT COUNT(s) FROM CustomerBalanceSnapshot s " +
+                        "WHERE s.variant IS NOT NULL AND s.balance > :threshold AND s.customer.active = true " +
+                        "AND s.customer.id = COALESCE(:customerId, s.customer.id) " +
+                        "AND s.variant.id = COALESCE(:variantId, s.variant.id) " +
+                        "AND (COALESCE(:search, '') = '' OR LOWER(s.customer.name) LIKE LOWER(CONCAT('%', :search, '%')) " +
+                        "OR s.customer.mobile LIKE CONCAT('%', :search, '%'))")
+        long countHighRiskPendingReturnBalances(
+                        @Param("threshold") Long threshold,
+                        @Param("customerId") Long customerId,
+                        @Param("variantId") Long variantId,
+                        @Param("search") String search);
+
+        // Keeps the newest customer-level row per customer; older copies would block the unique index
+        @Modifying
+        @Transactional
+        @Query(value = "DELETE FROM customer_balance_snapshot WHERE variant_id IS NULL AND id NOT IN " +
+                        "(SELECT MAX(id) FROM customer_balance_snapshot WHERE variant_id IS NULL GROUP BY customer_id)",
+                        nativeQuery = true)
+        int deleteDuplicateCustomerRows();
+
+        // PostgreSQL only (partial index); see the note on CustomerBalanceSnapshot's indexes
+        @Modifying
+        @Transactional
+        @Query(value = "CREATE UNIQUE INDEX IF NOT EXISTS idx_cbs_customer_row " +
+                        "ON customer_balance_snapshot (customer_id) WHERE variant_id IS NULL",
+                        nativeQuery = true)
+        void createCustomerRowIndex();
+}
@@ -6,22 +6,40 @@ import com.gasagency.entity.CylinderVariant;
 import com.gasagency.entity.Warehouse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CustomerCylinderLedgerRepository extends JpaRepository<CustomerCylinderLedger, Long> {
+        @Override
+        @EntityGraph(CustomerCylinderLedger.LIST_GRAPH)
+        List<CustomerCylinderLedger> findAll();
+
+        @Override
+        @EntityGraph(CustomerCylinderLedger.LIST_GRAPH)
+        Page<CustomerCylinderLedger> findAll(Pageable pageable);
+
+        @EntityGraph(CustomerCylinderLedger.LIST_GRAPH)
         List<CustomerCylinderLedger> findByCustomer(Customer customer);
 
+        @EntityGraph(CustomerCylinderLedger.LIST_GRAPH)
         Page<CustomerCylinderLedger> findByCustomer(Customer customer, Pageable pageable);
 
 
@@ -40,19 +58,48 @@ public interface CustomerCylinderLedgerRepository extends JpaRepository<Customer
                         @Param("fromDate") LocalDate fromDate,
                         @Param("toDate") LocalDate toDate);
 
+        @EntityGraph(CustomerCylinderLedger.LIST_GRAPH)
         @Query("SELECT l FROM CustomerCylinderLedger l WHERE l.customer = :customer " +
                         "AND l.variant = :variant ORDER BY l.id ASC")
         List<CustomerCylinderLedger> findByCustomerAndVariant(@Param("customer") Customer customer,
                         @Param("variant") CylinderVariant variant);
 
-        // Get latest ledger entry for a customer-variant combination
-        @Query(value = "SELECT l FROM CustomerCylinderLedger l WHERE l.customer.id = :customerId " +
-                        "AND l.variant.id = :variantId ORDER BY l.id DESC")
-        List<CustomerCylinderLedger> findLatestLedger(@Param("customerId") Long customerId,
+        // Running position of a customer: values on the latest ledger row, read through
+        // the (customer_id, id) and (customer_id, variant_id, id) indexes without
+        // loading the customer's history
+        @Query("SELECT l.dueAmount FROM CustomerCylinderLedger l WHERE l.id = " +
+                        "(SELECT MAX(l2.id) FROM CustomerCylinderLedger l2 WHERE l2.customer.id = :customerId)")
+        Optional<BigDecimal> findLatestDueAmount(@Param("customerId") Long customerId);
+
+        @Query("SELECT l.balance FROM CustomerCylinderLedger l WHERE l.id = " +
+                        "(SELECT MAX(l2.id) FROM CustomerCylinderLedger l2 WHERE l2.customer.id = :customerId " +
+                        "AND l2.variant.id = :variantId)")
+        Optional<Long> findLatestBalance(@Param("customerId") Long customerId,
                         @Param("variantId") Long variantId);
 
+        // Same positions for a page of customers, one row per customer (and variant)
+        @Query("SELECT l.customer.id, l.dueAmount FROM CustomerCylinderLedger l WHERE l.id IN " +
+                        "(SELECT MAX(l2.id) FROM CustomerCylinderLedger l2 WHERE l2.customer.id IN :customerIds " +
+                        "GROUP BY l2.customer.id)")
+        List<Object[]> findLatestDueAmounts(@Param("customerIds") List<Long> customerIds);
+
+        /**
+         * Columns: customerId, variantId, balance, refType, filledOut
+         */
+        @Query("SELECT l.customer.id, l.variant.id, l.balance, l.refType, l.filledOut " +
+                        "FROM CustomerCylinderLedger l WHERE l.id IN " +
+                        "(SELECT MAX(l2.id) FROM CustomerCylinderLedger l2 WHERE l2.customer.id IN :customerIds " +
+                        "AND l2.variant IS NOT NULL GROUP BY l2.customer.id, l2.variant.id)")
+        List<Object[]> findLatestVariantPositions(@Param("customerIds") List<Long> customerIds);
+
+        @EntityGraph(CustomerCylinderLedger.LIST_GRAPH)
         List<CustomerCylinderLedger> findByVariant(CylinderVariant variant);
 
+        // Day book page: ledger rows by id with what the day book shows of them
+        @EntityGraph(CustomerCylinderLedger.LIST_GRAPH)
+        @Query("SELECT l FROM CustomerCylinderLedger l LEFT JOIN FETCH l.sale WHERE l.id IN :ids")
+        List<CustomerCylinderLedger> findWithDetailsByIdIn(@Param("ids") List<Long> ids);
+
         // Get all ledger entries by sale ID
         @Query("SELECT l FROM CustomerCylinderLedger l WHERE l.sale.id = :saleId")
         List<CustomerCylinderLedger> findBySaleId(@Param("saleId") Long saleId);
@@ -63,12 +110,15 @@ public interface CustomerCylinderLedgerRepository extends JpaRepository<Customer
                         @Param("variantId") Long variantId);
 
         // Get all ledger entries for a specific warehouse
+        @EntityGraph(CustomerCylinderLedger.LIST_GRAPH)
         @Query("SELECT l FROM CustomerCylinderLedger l WHERE l.warehouse.id = :warehouseId ORDER BY l.transactionDate DESC")
         List<CustomerCylinderLedger> findByWarehouseId(@Param("warehouseId") Long warehouseId);
 
+        @EntityGraph(CustomerCylinderLedger.LIST_GRAPH)
         @Query("SELECT l FROM CustomerCylinderLedger l WHERE l.warehouse.id = :warehouseId ORDER BY l.transactionDate DESC, l.id DESC")
         Page<CustomerCylinderLedger> findByWarehouseId(@Param("warehouseId") Long warehouseId, Pageable pageable);
 
+        @EntityGraph(CustomerCylinderLedger.LIST_GRAPH)
         @Query("SELECT l FROM CustomerCylinderLedger l " +
                         "WHERE (:variantId IS NULL OR l.variant.id = :variantId) " +
                         "AND (:refType IS NULL OR l.refType = :refType) " +
@@ -78,6 +128,7 @@ public interface CustomerCylinderLedgerRepository extends JpaRepository<Customer
                         @Param("refType") CustomerCylinderLedger.TransactionType refType,
                         Pageable pageable);
 
+        @EntityGraph(CustomerCylinderLedger.LIST_GRAPH)
         @Query("SELECT l FROM CustomerCylinderLedger l " +
                         "WHERE l.warehouse.id = :warehouseId " +
                         "AND (:variantId IS NULL OR l.variant.id = :variantId) " +
@@ -89,6 +140,79 @@ public interface CustomerCylinderLedgerRepository extends JpaRepository<Customer
                         @Param("refType") CustomerCylinderLedger.TransactionType refType,
                         Pageable pageable);
 
+        // Keyset pages for the movement history, newest first. Rows sort by
+        // (transactionDate, createdDate, id) descending, the order of idx_ccl_movement_order.
+        // Only rows strictly after the cursor position are returned.
+        @EntityGraph(CustomerCylinderLedger.LIST_GRAPH)
+        @Query("SELECT l FROM CustomerCylinderLedger l " +
+                        "WHERE (:variantId IS NULL OR l.variant.id = :variantId) " +
+                        "AND (:refType IS NULL OR l.refType = :refType) " +
+                        "AND l.transactionDate <= :cursorDate " +
+                        "AND (l.transactionDate < :cursorDate OR (l.transactionDate = :cursorDate " +
+                        "AND (l.createdDate < :cursorCreated " +
+                        "OR (l.createdDate = :cursorCreated AND l.id < :cursorId)))) " +
+                        "ORDER BY l.transactionDate DESC, l.createdDate DESC, l.id DESC")
+        List<CustomerCylinderLedger> findMovementsBefore(
+                        @Param("variantId") Long variantId,
+                        @Param("refType") CustomerCylinderLedger.TransactionType refType,
+                        @Param("cursorDate") LocalDate cursorDate,
+                        @Param("cursorCreated") LocalDateTime cursorCreated,
+                        @Param("cursorId") Long cursorId,
+                        Pageable pageable);
+
+        @EntityGraph(CustomerCylinderLedger.LIST_GRAPH)
+        @Query("SELECT l FROM CustomerCylinderLedger l " +
+                        "WHERE l.warehouse.id = :warehouseId " +
+                        "AND (:variantId IS NULL OR l.variant.id = :variantId) " +
+                        "AND (:refType IS NULL OR l.refType = :refType) " +
+                        "AND l.transactionDate <= :cursorDate " +
+                        "AND (l.transactionDate < :cursorDate OR (l.transactionDate = :cursorDate " +
+                        "AND (l.createdDate < :cursorCreated " +
+                        "OR (l.createdDate = :cursorCreated AND l.id < :cursorId)))) " +
+                        "ORDER BY l.transactionDate DESC, l.createdDate DESC, l.id DESC")
+        List<CustomerCylinderLedger> findMovementsBeforeByWarehouse(
+                        @Param("warehouseId") Long warehouseId,
+                        @Param("variantId") Long variantId,
+                        @Param("refType") CustomerCylinderLedger.TransactionType refType,
+                        @Param("cursorDate") LocalDate cursorDate,
+                        @Param("cursorCreated") LocalDateTime cursorCreated,
+                        @Param("cursorId") Long cursorId,
+                        Pageable pageable);
+
+        // Entries written before auditing was added take their transaction date
+        @Modifying
+        @Transactional
+        @Query(value = "UPDATE customer_cylinder_ledger SET created_date = CAST(transaction_date AS timestamp) " +
+                        "WHERE created_date IS NULL", nativeQuery = true)
+        int backfillCreatedDates();
+
+        // ddl-auto=update never tightens an existing column; run only while it is still nullable
+        @Modifying
+        @Transactional
+        @Query(value = "ALTER TABLE customer_cylinder_ledger ALTER COLUMN created_date SET NOT NULL",
+                        nativeQuery = true)
+        void requireCreatedDates();
+
+        // "YES" while created_date is still nullable; empty if the table is not visible
+        @Query(value = "SELECT is_nullable FROM information_schema.columns " +
+                        "WHERE LOWER(table_name) = 'customer_cylinder_ledger' AND LOWER(column_name) = 'created_date'",
+                        nativeQuery = true)
+        List<String> findCreatedDateNullability();
+
+        @Query("SELECT COUNT(l) FROM CustomerCylinderLedger l " +
+                        "WHERE (:variantId IS NULL OR l.variant.id = :variantId) " +
+                        "AND (:refType IS NULL OR l.refType = :refType)")
+        long countMovements(@Param("variantId") Long variantId,
+                        @Param("refType") CustomerCylinderLedger.TransactionType refType);
+
+        @Query("SELECT COUNT(l) FROM CustomerCylinderLedger l " +
+                        "WHERE l.warehouse.id = :warehouseId " +
+                        "AND (:variantId IS NULL OR l.variant.id = :variantId) " +
+                        "AND (:refType IS NULL OR l.refType = :refType)")
+        long countMovementsByWarehouse(@Param("warehouseId") Long warehouseId,
+                        @Param("variantId") Long variantId,
+                        @Param("refType") CustomerCylinderLedger.TransactionType refType);
+
         // Count EMPTY_RETURN entries for a warehouse in a specific month
         @Query("SELECT COUNT(l) FROM CustomerCylinderLedger l WHERE l.warehouse = :warehouse " +
                         "AND l.refType = 'EMPTY_RETURN' " +
@@ -127,27 +251,6 @@ public interface CustomerCylinderLedgerRepository extends JpaRepository<Customer
                         @Param("refTypes") List<CustomerCylinderLedger.TransactionType> refTypes,
                         @Param("createdBy") String createdBy);
 
-        @Query("SELECT l FROM CustomerCylinderLedger l " +
-                        "WHERE l.refType <> 'INITIAL_STOCK' " +
-                        "AND l.transactionDate >= COALESCE(:fromDate, l.transactionDate) " +
-                        "AND l.transactionDate <= COALESCE(:toDate, l.transactionDate) " +
-                        "AND l.customer.id = COALESCE(:customerId, l.customer.id) " +
-                        "AND (COALESCE(:paymentMode, '') = '' OR LOWER(COALESCE(l.paymentMode, '')) = LOWER(:paymentMode)) " +
-                        "AND COALESCE(l.bankAccount.id, -1) = COALESCE(:bankAccountId, COALESCE(l.bankAccount.id, -1)) " +
-                        "AND COALESCE(l.variant.id, -1) = COALESCE(:variantId, COALESCE(l.variant.id, -1)) " +
-                        "AND COALESCE(l.amountReceived, 0) >= COALESCE(:minAmount, COALESCE(l.amountReceived, 0)) " +
-                        "AND COALESCE(l.amountReceived, 0) <= COALESCE(:maxAmount, COALESCE(l.amountReceived, 0)) " +
-                        "ORDER BY l.transactionDate DESC, l.id DESC")
-        List<CustomerCylinderLedger> findForPaymentModeSummary(
-                        @Param("fromDate") LocalDate fromDate,
-                        @Param("toDate") LocalDate toDate,
-                        @Param("customerId") Long customerId,
-                        @Param("paymentMode") String paymentMode,
-                        @Param("bankAccountId") Long bankAccountId,
-                        @Param("variantId") Long variantId,
-                        @Param("minAmount") BigDecimal minAmount,
-                        @Param("maxAmount") BigDecimal maxAmount);
-
         @Query("SELECT l FROM CustomerCylinderLedger l WHERE l.customer.id = :customerId " +
                         "AND l.id <> :excludedId ORDER BY l.id DESC")
         List<CustomerCylinderLedger> findLatestByCustomerIdExcludingId(
@@ -159,6 +262,13 @@ public interface CustomerCylinderLedgerRepository extends JpaRepository<Customer
                         "WHERE l.customer.id = :customerId AND l.emptyIn IS NOT NULL AND l.emptyIn > 0")
         long sumPositiveEmptyInByCustomer(@Param("customerId") Long customerId);
 
+        // Same sum as sumPositiveEmptyInByCustomer for every customer at once, limited to
+        // customers at or over the threshold. Rows are { customerId, customerName, sum }
+        @Query("SELECT c.id, c.name, SUM(l.emptyIn) FROM CustomerCylinderLedger l JOIN l.customer c " +
+                        "WHERE l.emptyIn IS NOT NULL AND l.emptyIn > 0 " +
+                        "GROUP BY c.id, c.name HAVING SUM(l.emptyIn) >= :threshold")
+        List<Object[]> sumPositiveEmptyInPerCustomerAtLeast(@Param("threshold") long threshold);
+
         @Query("SELECT l FROM CustomerCylinderLedger l WHERE l.customer = :customer " +
                         "AND l.variant = :variant ORDER BY l.transactionDate ASC, l.id ASC")
         List<CustomerCylinderLedger> findByCustomerAndVariantOrdered(
@@ -177,6 +287,7 @@ public interface CustomerCylinderLedgerRepository extends JpaRepository<Customer
                         CustomerCylinderLedger.TransactionType refType);
 
         // Get empty return transactions with optional date range and customer/variant filtering
+        @EntityGraph(CustomerCylinderLedger.LIST_GRAPH)
         @Query("SELECT l FROM CustomerCylinderLedger l " +
                         "WHERE l.refType = 'EMPTY_RETURN' " +
                         "AND l.transactionDate >= COALESCE(:fromDate, l.transactionDate) " +
@@ -194,6 +305,7 @@ public interface CustomerCylinderLedgerRepository extends JpaRepository<Customer
                         Pageable pageable);
 
         // Get payment transactions with optional date range and customer/mode/bank filtering
+        @EntityGraph(CustomerCylinderLedger.LIST_GRAPH)
         @Query("SELECT l FROM CustomerCylinderLedger l " +
                         "WHERE l.refType = 'PAYMENT' " +
                         "AND l.transactionDate >= COALESCE(:fromDate, l.transactionDate) " +
@@ -228,6 +340,7 @@ public interface CustomerCylinderLedgerRepository extends JpaRepository<Customer
                         @Param("bankAccountId") Long bankAccountId,
                         @Param("createdBy") String createdBy);
 
+        @EntityGraph(CustomerCylinderLedger.LIST_GRAPH)
         @Query("SELECT l FROM CustomerCylinderLedger l " +
                         "WHERE COALESCE(l.amountReceived, 0) > 0 " +
                         "AND l.transactionDate >= COALESCE(:fromDate, l.transactionDate) " +
@@ -301,28 +414,60 @@ public interface CustomerCylinderLedgerRepository extends JpaRepository<Customer
                         @Param("variantId") Long variantId);
 
         @Query("SELECT l FROM CustomerCylinderLedger l WHERE l.id IN " +
-                        "(SELECT MAX(l2.id) FROM CustomerCylinderLedger l2 GROUP BY l2.customer.id) " +
+                        "(SELECT s.latestLedger.id FROM CustomerBalanceSnapshot s WHERE s.variant IS NULL) " +
                         "AND l.dueAmount IS NOT NULL AND l.dueAmount > 0 ORDER BY l.dueAmount DESC")
         Page<CustomerCylinderLedger> findLatestDuePerCustomer(Pageable pageable);
 
         @Query("SELECT l FROM CustomerCylinderLedger l WHERE l.id IN " +
-                        "(SELECT MAX(l2.id) FROM CustomerCylinderLedger l2 GROUP BY l2.customer.id) " +
+                        "(SELECT s.latestLedger.id FROM CustomerBalanceSnapshot s WHERE s.variant IS NULL) " +
                         "AND l.dueAmount IS NOT NULL AND l.dueAmount > 0 ORDER BY l.dueAmount DESC")
         Page<CustomerCylinderLedger> findLatestDuePerCustomerActive(Pageable pageable);
 
-        @Query("SELECT l.customer.id, l.customer.name, l.customer.mobile, l.customer.address, " +
-                        "COALESCE(SUM(l.totalAmount), 0), COALESCE(SUM(l.amountReceived), 0), " +
-                        "MAX(l.transactionDate), COUNT(l) " +
-                        "FROM CustomerCylinderLedger l " +
-                        "WHERE l.transactionDate >= COALESCE(:fromDate, l.transactionDate) " +
-                        "AND l.transactionDate <= COALESCE(:toDate, l.transactionDate) " +
-                        "AND l.customer.id = COALESCE(:customerId, l.customer.id) " +
-                        "GROUP BY l.customer.id, l.customer.name, l.customer.mobile, l.customer.address " +
-                        "HAVING (COALESCE(SUM(l.totalAmount), 0) - COALESCE(SUM(l.amountReceived), 0)) > 0 " +
-                        "AND (COALESCE(SUM(l.totalAmount), 0) - COALESCE(SUM(l.amountReceived), 0)) >= COALESCE(:minAmount, (COALESCE(SUM(l.totalAmount), 0) - COALESCE(SUM(l.amountReceived), 0))) " +
-                        "AND (COALESCE(SUM(l.totalAmount), 0) - COALESCE(SUM(l.amountReceived), 0)) <= COALESCE(:maxAmount, (COALESCE(SUM(l.totalAmount), 0) - COALESCE(SUM(l.amountReceived), 0))) " +
-                        "ORDER BY (COALESCE(SUM(l.totalAmount), 0) - COALESCE(SUM(l.amountReceived), 0)) DESC")
-        List<Object[]> findDuePaymentAggregates(
+        // Due per customer over the filtered ledger rows, computed once; customers with
+        // nothing due or outside [minAmount, maxAmount] are left out
+        String DUE_AGGREGATES_CTE = "WITH due AS (" +
+                        "SELECT l.customer_id, COALESCE(SUM(l.total_amount), 0) AS total_sales, " +
+                        "COALESCE(SUM(l.amount_received), 0) AS amount_received, " +
+                        "COALESCE(SUM(l.total_amount), 0) - COALESCE(SUM(l.amount_received), 0) AS due_amount, " +
+                        "MAX(l.transaction_date) AS last_transaction_date, COUNT(*) AS transaction_count " +
+                        "FROM customer_cylinder_ledger l " +
+                        "WHERE (CAST(:fromDate AS date) IS NULL OR l.transaction_date >= :fromDate) " +
+                        "AND (CAST(:toDate AS date) IS NULL OR l.transaction_date <= :toDate) " +
+                        "AND (CAST(:customerId AS bigint) IS NULL OR l.customer_id = :customerId) " +
+                        "GROUP BY l.customer_id), " +
+                        "filtered AS (SELECT * FROM due WHERE due_amount > 0 " +
+                        "AND (CAST(:minAmount AS numeric) IS NULL OR due_amount >= :minAmount) " +
+                        "AND (CAST(:maxAmount AS numeric) IS NULL OR due_amount <= :maxAmount)) ";
+
+        /**
+         * One page of the due payment report, largest due first.
+         * Columns: customerId, name, mobile, address, totalSales, amountReceived,
+         * lastTransactionDate, transactionCount, totalCount (rows over all pages)
+         */
+        @Query(value = DUE_AGGREGATES_CTE +
+                        "SELECT c.id, c.name, c.mobile, c.address, f.total_sales, f.amount_received, " +
+                        "f.last_transaction_date, f.transaction_count, COUNT(*) OVER () " +
+                        "FROM filtered f JOIN customer c ON c.id = f.customer_id " +
+                        "ORDER BY f.due_amount DESC, c.id LIMIT :limit OFFSET :offset",
+                        nativeQuery = true)
+        List<Object[]> findDuePaymentPage(
+                        @Param("fromDate") LocalDate fromDate,
+                        @Param("toDate") LocalDate toDate,
+                        @Param("customerId") Long customerId,
+                        @Param("minAmount") BigDecimal minAmount,
+                        @Param("maxAmount") BigDecimal maxAmount,
+                        @Param("limit") int limit,
+                        @Param("offset") long offset);
+
+        /**
+         * Totals of the due payment report.
+         * Columns: totalDue, totalSales, totalAmountReceived, customerCount
+         */
+        @Query(value = DUE_AGGREGATES_CTE +
+                        "SELECT COALESCE(SUM(due_amount), 0), COALESCE(SUM(total_sales), 0), " +
+                        "COALESCE(SUM(amount_received), 0), COUNT(*) FROM filtered",
+                        nativeQuery = true)
+        List<Object[]> summarizeDuePayments(
                         @Param("fromDate") LocalDate fromDate,
                         @Param("toDate") LocalDate toDate,
                         @Param("customerId") Long customerId,
@@ -330,7 +475,7 @@ public interface CustomerCylinderLedgerRepository extends JpaRepository<Customer
                         @Param("maxAmount") BigDecimal maxAmount);
 
         @Query("SELECT l FROM CustomerCylinderLedger l WHERE l.id IN " +
-                        "(SELECT MAX(l2.id) FROM CustomerCylinderLedger l2 GROUP BY l2.customer.id) " +
+                        "(SELECT s.latestLedger.id FROM CustomerBalanceSnapshot s WHERE s.variant IS NULL) " +
                         "AND l.dueAmount IS NOT NULL AND l.dueAmount >= :minDueAmount " +
                         "AND l.customer.active = true " +
                         "AND (:search IS NULL OR :search = '' OR " +
@@ -341,37 +486,28 @@ public interface CustomerCylinderLedgerRepository extends JpaRepository<Customer
                         @Param("search") String search,
                         Pageable pageable);
 
-        @Query("SELECT COALESCE(SUM(l.dueAmount), 0) FROM CustomerCylinderLedger l WHERE l.id IN " +
-                        "(SELECT MAX(l2.id) FROM CustomerCylinderLedger l2 GROUP BY l2.customer.id) " +
-                        "AND l.dueAmount IS NOT NULL AND l.dueAmount > 0")
-        BigDecimal sumLatestDueAmounts();
-
-        @Query("SELECT COUNT(l) FROM CustomerCylinderLedger l WHERE l.id IN " +
-                        "(SELECT MAX(l2.id) FROM CustomerCylinderLedger l2 GROUP BY l2.customer.id) " +
-                        "AND l.dueAmount IS NOT NULL AND l.dueAmount > 0")
-        long countLatestDueCustomers();
-
         @Query("SELECT l FROM CustomerCylinderLedger l WHERE l.id IN " +
-                        "(SELECT MAX(l2.id) FROM CustomerCylinderLedger l2 " +
-                        "GROUP BY l2.customer.id, l2.variant.id)")
+                        "(SELECT s.latestLedger.id FROM CustomerBalanceSnapshot s WHERE s.variant IS NOT NULL)")
         List<CustomerCylinderLedger> findLatestPerCustomerVariant();
 
         @Query("SELECT l FROM CustomerCylinderLedger l WHERE l.id IN " +
-                        "(SELECT MAX(l2.id) FROM CustomerCylinderLedger l2 " +
-                        "WHERE l2.customer IN :customers GROUP BY l2.customer.id, l2.variant.id)")
+                        "(SELECT s.latestLedger.id FROM CustomerBalanceSnapshot s " +
+                        "WHERE s.customer IN :customers AND s.variant IS NOT NULL)")
         List<CustomerCylinderLedger> findLatestPerCustomerVariantForCustomers(
                         @Param("customers") List<Customer> customers);
 
+        @EntityGraph(CustomerCylinderLedger.LIST_GRAPH)
         @Query("SELECT l FROM CustomerCylinderLedger l WHERE l.id IN " +
-                        "(SELECT MAX(l2.id) FROM CustomerCylinderLedger l2 " +
-                        "WHERE l2.customer IN :customers GROUP BY l2.customer.id, l2.variant.id) " +
+                        "(SELECT s.latestLedger.id FROM CustomerBalanceSnapshot s " +
+                        "WHERE s.customer IN :customers AND s.variant IS NOT NULL) " +
                         "AND l.balance > 0")
         List<CustomerCylinderLedger> findLatestPositiveBalancesForCustomers(
                         @Param("customers") List<Customer> customers);
 
+        @EntityGraph(CustomerCylinderLedger.LIST_GRAPH)
         @Query("SELECT l FROM CustomerCylinderLedger l WHERE l.id IN " +
-                        "(SELECT MAX(l2.id) FROM CustomerCylinderLedger l2 " +
-                        "WHERE l2.customer.active = true GROUP BY l2.customer.id, l2.variant.id) " +
+                        "(SELECT s.latestLedger.id FROM CustomerBalanceSnapshot s " +
+                        "WHERE s.variant IS NOT NULL AND s.customer.active = true AND s.balance > 0) " +
                         "AND COALESCE(l.balance, 0) > 0 " +
                         "AND l.customer.id = COALESCE(:customerId, l.customer.id) " +
                         "AND l.variant.id = COALESCE(:variantId, l.variant.id) " +
@@ -388,59 +524,9 @@ public interface CustomerCylinderLedgerRepository extends JpaRepository<Customer
                         @Param("threshold") Long threshold,
                         Pageable pageable);
 
-        @Query("SELECT COALESCE(SUM(l.balance), 0) FROM CustomerCylinderLedger l WHERE l.id IN " +
-                        "(SELECT MAX(l2.id) FROM CustomerCylinderLedger l2 " +
-                        "WHERE l2.customer.active = true GROUP BY l2.customer.id, l2.variant.id) " +
-                        "AND COALESCE(l.balance, 0) > 0 " +
-                        "AND l.customer.id = COALESCE(:customerId, l.customer.id) " +
-                        "AND l.variant.id = COALESCE(:variantId, l.variant.id) " +
-                        "AND (COALESCE(:search, '') = '' OR LOWER(l.customer.name) LIKE LOWER(CONCAT('%', :search, '%')) " +
-                        "OR l.customer.mobile LIKE CONCAT('%', :search, '%')) " +
-                        "AND (COALESCE(:status, '') = '' " +
-                        "OR (:status = 'PENDING' AND (:threshold IS NULL OR COALESCE(l.balance, 0) <= :threshold)) " +
-                        "OR (:status = 'HIGH_RISK' AND (:threshold IS NOT NULL AND COALESCE(l.balance, 0) > :threshold)))")
-        Long sumPendingReturnBalances(
-                        @Param("customerId") Long customerId,
-                        @Param("variantId") Long variantId,
-                        @Param("search") String search,
-                        @Param("status") String status,
-                        @Param("threshold") Long threshold);
-
-        @Query("SELECT COUNT(l) FROM CustomerCylinderLedger l WHERE l.id IN " +
-                        "(SELECT MAX(l2.id) FROM CustomerCylinderLedger l2 " +
-                        "WHERE l2.customer.active = true GROUP BY l2.customer.id, l2.variant.id) " +
-                        "AND COALESCE(l.balance, 0) > 0 " +
-                        "AND l.customer.id = COALESCE(:customerId, l.customer.id) " +
-                        "AND l.variant.id = COALESCE(:variantId, l.variant.id) " +
-                        "AND (COALESCE(:search, '') = '' OR LOWER(l.customer.name) LIKE LOWER(CONCAT('%', :search, '%')) " +
-                        "OR l.customer.mobile LIKE CONCAT('%', :search, '%')) " +
-                        "AND (COALESCE(:status, '') = '' " +
-                        "OR (:status = 'PENDING' AND (:threshold IS NULL OR COALESCE(l.balance, 0) <= :threshold)) " +
-                        "OR (:status = 'HIGH_RISK' AND (:threshold IS NOT NULL AND COALESCE(l.balance, 0) > :threshold)))")
-        long countPendingReturnBalances(
-                        @Param("customerId") Long customerId,
-                        @Param("variantId") Long variantId,
-                        @Param("search") String search,
-                        @Param("status") String status,
-                        @Param("threshold") Long threshold);
-
-        @Query("SELECT COUNT(l) FROM CustomerCylinderLedger l WHERE l.id IN " +
-                        "(SELECT MAX(l2.id) FROM CustomerCylinderLedger l2 " +
-                        "WHERE l2.customer.active = true GROUP BY l2.customer.id, l2.variant.id) " +
-                        "AND COALESCE(l.balance, 0) > :threshold " +
-                        "AND l.customer.id = COALESCE(:customerId, l.customer.id) " +
-                        "AND l.variant.id = COALESCE(:variantId, l.variant.id) " +
-                        "AND (COALESCE(:search, '') = '' OR LOWER(l.customer.name) LIKE LOWER(CONCAT('%', :search, '%')) " +
-                        "OR l.customer.mobile LIKE CONCAT('%', :search, '%'))")
-        long countHighRiskPendingReturnBalances(
-                        @Param("threshold") Long threshold,
-                        @Param("customerId") Long customerId,
-                        @Param("variantId") Long variantId,
-                        @Param("search") String search);
-
         @Query("SELECT l FROM CustomerCylinderLedger l WHERE l.id IN " +
-                        "(SELECT MAX(l2.id) FROM CustomerCylinderLedger l2 " +
-                        "WHERE l2.customer.id IN :customerIds GROUP BY l2.customer.id)")
+                        "(SELECT s.latestLedger.id FROM CustomerBalanceSnapshot s " +
+                        "WHERE s.customer.id IN :customerIds AND s.variant IS NULL)")
         List<CustomerCylinderLedger> findLatestLedgerForCustomerIds(
                         @Param("customerIds") List<Long> customerIds);
 
@@ -448,5 +534,105 @@ public interface CustomerCylinderLedgerRepository extends JpaRepository<Customer
                         "MAX(l.transactionDate), COUNT(l.id) " +
                         "FROM CustomerCylinderLedger l WHERE l.customer.id IN :customerIds GROUP BY l.customer.id")
         List<Object[]> getCustomerLedgerAggregates(@Param("customerIds") List<Long> customerIds);
-}
 
+        /**
+         * Latest ledger row per variant (and the NULL-variant PAYMENT chain) of a
+         * single customer, used to refresh the balance snapshot.
+         * Columns: ledgerId, variantId, balance, dueAmount, transactionDate
+         */
+        @Query("SELECT l.id, v.id, l.balance, l.dueAmount, l.transactionDate " +
+                        "FROM CustomerCylinderLedger l LEFT JOIN l.variant v WHERE l.id IN " +
+                        "(SELECT MAX(l2.id) FROM CustomerCylinderLedger l2 LEFT JOIN l2.variant v2 " +
+                        "WHERE l2.customer.id = :customerId GROUP BY v2.id)")
+        List<Object[]> findLatestPositionRowsForCustomer(@Param("customerId") Long customerId);
+
+        /**
+         * Latest ledger row per customer/variant across the whole ledger. Only used
+         * to (re)build the balance snapshot table.
+         * Columns: customerId, variantId, ledgerId, balance, dueAmount, transactionDate
+         */
+        @Query("SELECT l.customer.id, v.id, l.id, l.balance, l.dueAmount, l.transactionDate " +
+                        "FROM CustomerCylinderLedger l LEFT JOIN l.variant v WHERE l.id IN " +
+                        "(SELECT MAX(l2.id) FROM CustomerCylinderLedger l2 LEFT JOIN l2.variant v2 " +
+                        "GROUP BY l2.customer.id, v2.id)")
+        List<Object[]> findLatestPositionRows();
+
+        /**
+         * Balance of the variant-chain row immediately before an anchor entry.
+         * The variant chain is ordered by transaction date, then id.
+         */
+        @Query("SELECT l.balance FROM CustomerCylinderLedger l " +
+                        "WHERE l.customer.id = :customerId AND l.variant.id = :variantId " +
+                        "AND (l.transactionDate < :anchorDate OR (l.transactionDate = :anchorDate AND l.id < :anchorId)) " +
+                        "ORDER BY l.transactionDate DESC, l.id DESC")
+        List<Long> findVariantBalancesBefore(@Param("customerId") Long customerId,
+                        @Param("variantId") Long variantId,
+                        @Param("anchorDate") LocalDate anchorDate,
+                        @Param("anchorId") Long anchorId,
+                        Pageable pageable);
+
+        /**
+         * Variant-chain rows after an anchor entry.
+         * Columns: id, transactionDate, filledOut, emptyIn, balance
+         */
+        @Query("SELECT l.id, l.transactionDate, l.filledOut, l.emptyIn, l.balance FROM CustomerCylinderLedger l " +
+                        "WHERE l.customer.id = :customerId AND l.variant.id = :variantId " +
+                        "AND (l.transactionDate > :anchorDate OR (l.transactionDate = :anchorDate AND l.id > :anchorId)) " +
+                        "ORDER BY l.transactionDate ASC, l.id ASC")
+        List<Object[]> findVariantChainAfter(@Param("customerId") Long customerId,
+                        @Param("variantId") Long variantId,
+                        @Param("anchorDate") LocalDate anchorDate,
+                        @Param("anchorId") Long anchorId);
+
+        @Query("SELECT l.dueAmount FROM CustomerCylinderLedger l " +
+                        "WHERE l.customer.id = :customerId AND l.id < :anchorId ORDER BY l.id DESC")
+        List<BigDecimal> findDueAmountsBefore(@Param("customerId") Long customerId,
+                        @Param("anchorId") Long anchorId,
+                        Pageable pageable);
+
+        /**
+         * Due-chain (all variants, ordered by id) rows after an anchor entry.
+         * Columns: id, transactionDate, totalAmount, amountReceived, dueAmount
+         */
+        @Query("SELECT l.id, l.transactionDate, l.totalAmount, l.amountReceived, l.dueAmount " +
+                        "FROM CustomerCylinderLedger l " +
+                        "WHERE l.customer.id = :customerId AND l.id > :anchorId ORDER BY l.id ASC")
+        List<Object[]> findDueChainAfter(@Param("customerId") Long customerId,
+                        @Param("anchorId") Long anchorId);
+
+        // Set-based chain shifts used when every row of the tail that was read moves by the
+        // same delta. Limited to those ids, so the edited entry (already flushed with its new
+        // date) or rows inserted since are never shifted. The context is flushed first and
+        // cleared after, since the update bypasses the balances and versions it holds.
+        @Modifying(flushAutomatically = true, clearAutomatically = true)
+        @Query(value = "UPDATE customer_cylinder_ledger SET balance = balance + :delta, version = version + 1, " +
+                        "updated_date = CURRENT_TIMESTAMP WHERE id IN (:ids)", nativeQuery = true)
+        int shiftBalances(@Param("ids") List<Long> ids, @Param("delta") Long delta);
+
+        @Modifying(flushAutomatically = true, clearAutomatically = true)
+        @Query(value = "UPDATE customer_cylinder_ledger SET due_amount = due_amount + :delta, version = version + 1, " +
+                        "updated_date = CURRENT_TIMESTAMP WHERE id IN (:ids)", nativeQuery = true)
+        int shiftDueAmounts(@Param("ids") List<Long> ids, @Param("delta") BigDecimal delta);
+
+        // Balance repair: walk customers in id order and stream each chunk's variant chains
+        @Query("SELECT DISTINCT l.customer.id FROM CustomerCylinderLedger l " +
+                        "WHERE l.variant IS NOT NULL AND l.customer.id > :afterCustomerId ORDER BY l.customer.id")
+        List<Long> findCustomerIdsWithVariantRowsAfter(@Param("afterCustomerId") Long afterCustomerId,
+                        Pageable pageable);
+
+        @Query("SELECT COUNT(DISTINCT l.customer.id) FROM CustomerCylinderLedger l " +
+                        "WHERE l.variant IS NOT NULL AND l.customer.id > :afterCustomerId")
+        long countCustomersWithVariantRowsAfter(@Param("afterCustomerId") Long afterCustomerId);
+
+        /**
+         * Variant-chain rows of a customer id range, in chain order.
+         * Columns: id, customerId, variantId, filledOut, emptyIn, balance
+         */
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+        @Query("SELECT l.id, l.customer.id, l.variant.id, l.filledOut, l.emptyIn, l.balance " +
+                        "FROM CustomerCylinderLedger l WHERE l.variant IS NOT NULL " +
+                        "AND l.customer.id BETWEEN :fromCustomerId AND :toCustomerId " +
+                        "ORDER BY l.customer.id, l.variant.id, l.transactionDate, l.id")
+        Stream<Object[]> streamBalanceChainRows(@Param("fromCustomerId") Long fromCustomerId,
+                        @Param("toCustomerId") Long toCustomerId);
+}
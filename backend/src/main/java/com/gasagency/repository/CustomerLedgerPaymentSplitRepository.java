@@ -2,12 +2,20 @@ package com.gasagency.repository;
 
 import com.gasagency.entity.CustomerLedgerPaymentSplit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface CustomerLedgerPaymentSplitRepository extends JpaRepository<CustomerLedgerPaymentSplit, Long> {
     List<CustomerLedgerPaymentSplit> findByLedgerId(Long ledgerId);
     List<CustomerLedgerPaymentSplit> findByLedgerIdIn(List<Long> ledgerIds);
+
+    // Splits of several ledger entries with their bank accounts, for bulk DTO assembly
+    @Query("SELECT s FROM CustomerLedgerPaymentSplit s LEFT JOIN FETCH s.bankAccount " +
+            "WHERE s.ledger.id IN :ledgerIds ORDER BY s.id")
+    List<CustomerLedgerPaymentSplit> findWithBankAccountByLedgerIds(@Param("ledgerIds") Collection<Long> ledgerIds);
 }
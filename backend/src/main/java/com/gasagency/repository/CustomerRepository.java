@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import jakarta.persistence.LockModeType;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -34,6 +35,8 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
             "LOWER(c.address) LIKE LOWER(CONCAT('%', :search, '%'))")
     Page<Customer> searchAll(@Param("search") String search, Pageable pageable);
 
+    Page<Customer> findByActiveAndIdIn(Boolean active, Collection<Long> ids, Pageable pageable);
+
     Optional<Customer> findByMobile(String mobile);
 
     long countByActive(Boolean active);
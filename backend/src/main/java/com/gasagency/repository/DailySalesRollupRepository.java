@@ -0,0 +1,104 @@
+package com.gasagency.repository;
+
+import com.gasagency.entity.DailySalesRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailySalesRollupRepository extends JpaRepository<DailySalesRollup, Long> {
+
+        // ==================== MAINTENANCE ====================
+
+        @Modifying
+        @Query("DELETE FROM DailySalesRollup r WHERE r.saleDate = :saleDate " +
+                        "AND r.warehouse.id = :warehouseId AND r.customer.id = :customerId")
+        int deleteGroup(@Param("saleDate") LocalDate saleDate,
+                        @Param("warehouseId") Long warehouseId,
+                        @Param("customerId") Long customerId);
+
+        @Modifying
+        @Query("DELETE FROM DailySalesRollup r WHERE r.saleDate BETWEEN :fromDate AND :toDate")
+        int deleteBetween(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+        // Source aggregation: { saleDate, warehouseId, customerId, variantId, saleCount, qtyIssued,
+        // qtyEmptyReceived, totalAmount } per (date, warehouse, customer, variant)
+        @Query("SELECT s.saleDate, s.warehouse.id, s.customer.id, si.variant.id, COUNT(DISTINCT s.id), " +
+                        "COALESCE(SUM(si.qtyIssued), 0), COALESCE(SUM(si.qtyEmptyReceived), 0), " +
+                        "COALESCE(SUM(si.finalPrice), 0) " +
+                        "FROM SaleItem si JOIN si.sale s " +
+                        "WHERE s.saleDate BETWEEN :fromDate AND :toDate " +
+                        "AND (CAST(:warehouseId AS java.lang.Long) IS NULL OR s.warehouse.id = :warehouseId) " +
+                        "AND (CAST(:customerId AS java.lang.Long) IS NULL OR s.customer.id = :customerId) " +
+                        "GROUP BY s.saleDate, s.warehouse.id, s.customer.id, si.variant.id")
+        List<Object[]> aggregateSaleItems(@Param("fromDate") LocalDate fromDate,
+                        @Param("toDate") LocalDate toDate,
+                        @Param("warehouseId") Long warehouseId,
+                        @Param("customerId") Long customerId);
+
+        // Source receipts: { saleDate, warehouseId, customerId, splitTotal, legacyLedgerAmountReceived }
+        // per sale that has at least one item. Sales recorded before payment splits existed
+        // only carry the amount on their ledger rows.
+        @Query("SELECT s.saleDate, s.warehouse.id, s.customer.id, " +
+                        "(SELECT COALESCE(SUM(ps.amount), 0) FROM SalePaymentSplit ps WHERE ps.sale = s), " +
+                        "(SELECT MAX(l.amountReceived) FROM CustomerCylinderLedger l WHERE l.sale = s) " +
+                        "FROM Sale s " +
+                        "WHERE s.saleDate BETWEEN :fromDate AND :toDate " +
+                        "AND (CAST(:warehouseId AS java.lang.Long) IS NULL OR s.warehouse.id = :warehouseId) " +
+                        "AND (CAST(:customerId AS java.lang.Long) IS NULL OR s.customer.id = :customerId) " +
+                        "AND EXISTS (SELECT 1 FROM SaleItem si WHERE si.sale = s)")
+        List<Object[]> findSaleReceipts(@Param("fromDate") LocalDate fromDate,
+                        @Param("toDate") LocalDate toDate,
+                        @Param("warehouseId") Long warehouseId,
+                        @Param("customerId") Long customerId);
+
+        @Query("SELECT MIN(s.saleDate), MAX(s.saleDate) FROM Sale s")
+        List<Object[]> findSaleDateRange();
+
+        // ==================== READS ====================
+
+        // Without a variant the sale-level rows are summed, with one only that variant's rows.
+        // Returns { totalAmount, saleCount }.
+        @Query("SELECT COALESCE(SUM(r.totalAmount), 0), COALESCE(SUM(r.saleCount), 0) " +
+                        "FROM DailySalesRollup r " +
+                        "WHERE (CAST(:fromDate AS java.time.LocalDate) IS NULL OR r.saleDate >= :fromDate) " +
+                        "AND (CAST(:toDate AS java.time.LocalDate) IS NULL OR r.saleDate <= :toDate) " +
+                        "AND (CAST(:customerId AS java.lang.Long) IS NULL OR r.customer.id = :customerId) " +
+                        "AND ((CAST(:variantId AS java.lang.Long) IS NULL AND r.variant IS NULL) " +
+                        "OR r.variant.id = :variantId)")
+        List<Object[]> summarize(@Param("fromDate") LocalDate fromDate,
+                        @Param("toDate") LocalDate toDate,
+                        @Param("customerId") Long customerId,
+                        @Param("variantId") Long variantId);
+
+        @Query("SELECT c.name, SUM(r.totalAmount) FROM DailySalesRollup r JOIN r.customer c " +
+                        "WHERE (CAST(:fromDate AS java.time.LocalDate) IS NULL OR r.saleDate >= :fromDate) " +
+                        "AND (CAST(:toDate AS java.time.LocalDate) IS NULL OR r.saleDate <= :toDate) " +
+                        "AND (CAST(:customerId AS java.lang.Long) IS NULL OR r.customer.id = :customerId) " +
+                        "AND ((CAST(:variantId AS java.lang.Long) IS NULL AND r.variant IS NULL) " +
+                        "OR r.variant.id = :variantId) " +
+                        "GROUP BY c.name ORDER BY SUM(r.totalAmount) DESC")
+        List<Object[]> findTopCustomers(@Param("fromDate") LocalDate fromDate,
+                        @Param("toDate") LocalDate toDate,
+                        @Param("customerId") Long customerId,
+                        @Param("variantId") Long variantId,
+                        Pageable pageable);
+
+        @Query("SELECT v.name, COALESCE(SUM(r.qtyIssued), 0) FROM DailySalesRollup r JOIN r.variant v " +
+                        "WHERE r.saleDate BETWEEN :fromDate AND :toDate " +
+                        "GROUP BY v.name")
+        List<Object[]> sumQtyByVariantBetween(@Param("fromDate") LocalDate fromDate,
+                        @Param("toDate") LocalDate toDate);
+
+        @Query("SELECT r.saleDate, COALESCE(SUM(r.totalAmount), 0) FROM DailySalesRollup r " +
+                        "WHERE r.variant IS NULL AND r.saleDate BETWEEN :fromDate AND :toDate " +
+                        "GROUP BY r.saleDate")
+        List<Object[]> sumTotalAmountByDateBetween(@Param("fromDate") LocalDate fromDate,
+                        @Param("toDate") LocalDate toDate);
+}
@@ -0,0 +1,171 @@
+package com.gasagency.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Day book entries of one date, read as a single UNION ALL over the ledger,
+ * warehouse transfers, supplier transactions, bank deposits and expenses so
+ * ordering, paging and totals happen in the database.
+ */
+@Repository
+public class DayBookRepository {
+
+    public static final String SOURCE_LEDGER = "LEDGER";
+    public static final String SOURCE_WAREHOUSE_TRANSFER = "WAREHOUSE_TRANSFER";
+    public static final String SOURCE_SUPPLIER_TRANSACTION = "SUPPLIER_TRANSACTION";
+    public static final String SOURCE_BANK_DEPOSIT = "BANK_DEPOSIT";
+    public static final String SOURCE_EXPENSE = "EXPENSE";
+
+    // Newest first, as the day book has always been listed
+    private static final String ENTRY_ORDER = "created_date DESC NULLS LAST, transaction_date DESC NULLS LAST, "
+            + "LOWER(transaction_type), source, id DESC";
+
+    // Typed so the UNION resolves when the ledger branch is left out
+    private static final String NO_COUNTS = "CAST(NULL AS bigint), CAST(NULL AS bigint)";
+    private static final String NO_PAYMENT = "CAST(0 AS numeric), CAST(0 AS numeric)";
+    private static final String NO_CUSTOMER = "CAST(NULL AS bigint)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Which sources (and which ledger ref types) the day book includes.
+     * createdBy narrows every source to one user when not null.
+     */
+    public record DayBookFilter(LocalDate date, String createdBy, List<String> ledgerRefTypes,
+            boolean warehouseTransfers, boolean supplierTransactions, boolean bankDeposits, boolean expenses) {
+
+        boolean isEmpty() {
+            return ledgerRefTypes.isEmpty() && !warehouseTransfers && !supplierTransactions && !bankDeposits
+                    && !expenses;
+        }
+    }
+
+    /** Position of one entry; the entity is loaded from its source table by id. */
+    public record DayBookEntryRef(String source, Long id) {
+    }
+
+    public record DayBookEntryPage(List<DayBookEntryRef> entries, long totalCount) {
+    }
+
+    public record DayBookTotals(long filledCount, long emptyCount, BigDecimal totalAmount,
+            BigDecimal amountReceived, BigDecimal latestDueAmount, long entryCount) {
+    }
+
+    /**
+     * Entries in day book order; limit null returns all of them.
+     */
+    public DayBookEntryPage findEntries(DayBookFilter filter, Integer limit, long offset) {
+        if (filter.isEmpty()) {
+            return new DayBookEntryPage(List.of(), 0);
+        }
+        StringBuilder sql = new StringBuilder(entriesCte(filter))
+                .append("SELECT source, id, COUNT(*) OVER () FROM entries ORDER BY ").append(ENTRY_ORDER);
+        if (limit != null) {
+            sql.append(" LIMIT :limit OFFSET :offset");
+        }
+        Query query = entityManager.createNativeQuery(sql.toString());
+        bind(query, filter);
+        if (limit != null) {
+            query.setParameter("limit", limit);
+            query.setParameter("offset", offset);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.getResultList();
+        List<DayBookEntryRef> entries = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            entries.add(new DayBookEntryRef((String) row[0], ((Number) row[1]).longValue()));
+        }
+        long totalCount = rows.isEmpty() ? (offset == 0 ? 0 : countEntries(filter))
+                : ((Number) rows.get(0)[2]).longValue();
+        return new DayBookEntryPage(entries, totalCount);
+    }
+
+    /**
+     * Day book totals in one aggregate query. The due total adds the due amount
+     * of each customer's latest entry of the day.
+     */
+    public DayBookTotals summarize(DayBookFilter filter) {
+        if (filter.isEmpty()) {
+            return new DayBookTotals(0, 0, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, 0);
+        }
+        String sql = entriesCte(filter)
+                + "SELECT COALESCE(SUM(filled_count), 0), COALESCE(SUM(empty_count), 0), "
+                + "COALESCE(SUM(total_amount), 0), COALESCE(SUM(amount_received), 0), "
+                + "(SELECT COALESCE(SUM(due_amount), 0) FROM (SELECT DISTINCT ON (customer_id) customer_id, due_amount "
+                + "FROM entries WHERE customer_id IS NOT NULL ORDER BY customer_id, " + ENTRY_ORDER + ") latest), "
+                + "COUNT(*) FROM entries";
+        Query query = entityManager.createNativeQuery(sql);
+        bind(query, filter);
+        Object[] row = (Object[]) query.getSingleResult();
+        return new DayBookTotals(
+                ((Number) row[0]).longValue(),
+                ((Number) row[1]).longValue(),
+                (BigDecimal) row[2],
+                (BigDecimal) row[3],
+                (BigDecimal) row[4],
+                ((Number) row[5]).longValue());
+    }
+
+    private long countEntries(DayBookFilter filter) {
+        Query query = entityManager.createNativeQuery(entriesCte(filter) + "SELECT COUNT(*) FROM entries");
+        bind(query, filter);
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    private String entriesCte(DayBookFilter filter) {
+        List<String> branches = new ArrayList<>();
+        if (!filter.ledgerRefTypes().isEmpty()) {
+            branches.add("SELECT '" + SOURCE_LEDGER + "', l.id, l.created_date, l.transaction_date, l.ref_type, "
+                    + "CASE WHEN l.ref_type IN ('SALE', 'TRANSFER') THEN l.filled_out ELSE 0 END, "
+                    + "CASE WHEN l.ref_type = 'PAYMENT' THEN 0 ELSE l.empty_in END, "
+                    + "l.total_amount, l.amount_received, l.due_amount, l.customer_id "
+                    + "FROM customer_cylinder_ledger l WHERE l.transaction_date = :date "
+                    + "AND l.ref_type IN (:refTypes) " + createdByClause("l"));
+        }
+        if (filter.warehouseTransfers()) {
+            branches.add("SELECT '" + SOURCE_WAREHOUSE_TRANSFER + "', wt.id, wt.created_date, wt.transfer_date, "
+                    + "'WAREHOUSE_TRANSFER', " + NO_COUNTS + ", CAST(0 AS numeric), " + NO_PAYMENT + ", " + NO_CUSTOMER + " "
+                    + "FROM warehouse_transfer wt WHERE wt.transfer_date = :date " + createdByClause("wt"));
+        }
+        if (filter.supplierTransactions()) {
+            branches.add("SELECT '" + SOURCE_SUPPLIER_TRANSACTION + "', st.id, st.created_date, "
+                    + "st.transaction_date, 'SUPPLIER_TRANSACTION', " + NO_COUNTS + ", st.amount, " + NO_PAYMENT + ", " + NO_CUSTOMER + " "
+                    + "FROM supplier_transaction st WHERE st.transaction_date = :date " + createdByClause("st"));
+        }
+        if (filter.bankDeposits()) {
+            branches.add("SELECT '" + SOURCE_BANK_DEPOSIT + "', bd.id, bd.created_date, bd.deposit_date, "
+                    + "'BANK_DEPOSIT', " + NO_COUNTS + ", bd.deposit_amount, " + NO_PAYMENT + ", " + NO_CUSTOMER + " "
+                    + "FROM bank_deposit bd WHERE bd.deposit_date = :date " + createdByClause("bd"));
+        }
+        if (filter.expenses()) {
+            branches.add("SELECT '" + SOURCE_EXPENSE + "', e.id, e.created_date, e.expense_date, "
+                    + "'EXPENSE', " + NO_COUNTS + ", e.amount, " + NO_PAYMENT + ", " + NO_CUSTOMER + " "
+                    + "FROM expenses e WHERE e.expense_date = :date " + createdByClause("e"));
+        }
+        return "WITH entries (source, id, created_date, transaction_date, transaction_type, filled_count, "
+                + "empty_count, total_amount, amount_received, due_amount, customer_id) AS ("
+                + String.join(" UNION ALL ", branches) + ") ";
+    }
+
+    private String createdByClause(String alias) {
+        return "AND (CAST(:createdBy AS varchar) IS NULL OR " + alias + ".created_by = :createdBy)";
+    }
+
+    private void bind(Query query, DayBookFilter filter) {
+        query.setParameter("date", filter.date());
+        query.setParameter("createdBy", filter.createdBy());
+        if (!filter.ledgerRefTypes().isEmpty()) {
+            query.setParameter("refTypes", filter.ledgerRefTypes());
+        }
+    }
+}
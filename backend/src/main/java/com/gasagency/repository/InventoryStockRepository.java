@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import jakarta.persistence.LockModeType;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 import org.springframework.data.jpa.repository.Modifying;
@@ -34,6 +35,19 @@ public interface InventoryStockRepository extends JpaRepository<InventoryStock,
         Optional<InventoryStock> findByWarehouseAndVariantWithLock(@Param("warehouse") Warehouse warehouse,
                         @Param("variant") CylinderVariant variant);
 
+        // Locks several variants of one warehouse in a single statement, in id order
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        @Query("SELECT i FROM InventoryStock i WHERE i.warehouse.id = :warehouseId " +
+                        "AND i.variant.id IN :variantIds ORDER BY i.id")
+        List<InventoryStock> findByWarehouseAndVariantIdsWithLock(@Param("warehouseId") Long warehouseId,
+                        @Param("variantIds") Collection<Long> variantIds);
+
+        @Query("SELECT i FROM InventoryStock i JOIN FETCH i.warehouse JOIN FETCH i.variant " +
+                        "WHERE i.warehouse.id IN :warehouseIds AND i.variant.id IN :variantIds")
+        List<InventoryStock> findWithDetailsByWarehouseIdsAndVariantIds(
+                        @Param("warehouseIds") Collection<Long> warehouseIds,
+                        @Param("variantIds") Collection<Long> variantIds);
+
         // Pessimistic lock for variant-only query
         @Lock(LockModeType.PESSIMISTIC_WRITE)
         @Query("SELECT i FROM InventoryStock i WHERE i.variant = :variant")
@@ -2,11 +2,19 @@ package com.gasagency.repository;
 
 import com.gasagency.entity.SalePaymentSplit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface SalePaymentSplitRepository extends JpaRepository<SalePaymentSplit, Long> {
     List<SalePaymentSplit> findBySaleId(Long saleId);
+
+    // Splits of several sales with their bank accounts, for bulk DTO assembly
+    @Query("SELECT s FROM SalePaymentSplit s LEFT JOIN FETCH s.bankAccount " +
+            "WHERE s.sale.id IN :saleIds ORDER BY s.id")
+    List<SalePaymentSplit> findWithBankAccountBySaleIds(@Param("saleIds") Collection<Long> saleIds);
 }
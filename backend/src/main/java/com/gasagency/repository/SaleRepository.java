@@ -22,6 +22,10 @@ public interface SaleRepository extends JpaRepository<Sale, Long>, SaleRepositor
 
         Page<Sale> findByCustomerId(Long customerId, Pageable pageable);
 
+        @Query("SELECT s.customer.id, MAX(s.saleDate) FROM Sale s WHERE s.customer.id IN :customerIds " +
+                        "GROUP BY s.customer.id")
+        List<Object[]> findLastSaleDates(@Param("customerIds") List<Long> customerIds);
+
         @Query("SELECT s FROM Sale s WHERE s.referenceNumber = :referenceNumber")
         Optional<Sale> findByReferenceNumber(@Param("referenceNumber") String referenceNumber);
 
@@ -3,8 +3,11 @@ package com.gasagency.repository;
 import com.gasagency.entity.Sale;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 
 public interface SaleRepositoryCustom {
     Page<Sale> findFilteredSalesCustom(
@@ -18,6 +21,36 @@ public interface SaleRepositoryCustom {
             String createdBy,
             Pageable pageable);
 
+    /**
+     * Same filters as {@link #findFilteredSalesCustom} without the total count;
+     * the slice only reports whether a further page exists.
+     */
+    Slice<Sale> findFilteredSalesSliceCustom(
+            LocalDate from,
+            LocalDate to,
+            Long customerId,
+            Long variantId,
+            Double minAmount,
+            Double maxAmount,
+            String referenceNumber,
+            String createdBy,
+            Pageable pageable);
+
     Page<Sale> findByDateRange(LocalDate fromDate, LocalDate toDate, Pageable pageable);
+
+    /**
+     * Money received per payment mode across sale payment splits, legacy
+     * single-mode sales, empty-return payment splits and single-mode non-sale
+     * ledger receipts. Rows are { mode (trimmed, upper case), total, count }.
+     */
+    List<Object[]> sumReceiptsByPaymentMode(
+            LocalDate from,
+            LocalDate to,
+            Long customerId,
+            String paymentMode,
+            Long variantId,
+            Long bankAccountId,
+            BigDecimal minAmount,
+            BigDecimal maxAmount);
 }
 
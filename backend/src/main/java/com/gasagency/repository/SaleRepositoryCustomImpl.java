@@ -4,14 +4,20 @@ import com.gasagency.entity.Sale;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.support.PageableExecutionUtils;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.TypedQuery;
+import jakarta.persistence.Query;
 import jakarta.persistence.criteria.*;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class SaleRepositoryCustomImpl implements SaleRepositoryCustom {
 
@@ -21,123 +27,217 @@ public class SaleRepositoryCustomImpl implements SaleRepositoryCustom {
     @Override
     public Page<Sale> findFilteredSalesCustom(LocalDate from, LocalDate to, Long customerId, Long variantId,
             Double minAmount, Double maxAmount, String referenceNumber, String createdBy, Pageable pageable) {
+        SaleFilter filter = new SaleFilter(from, to, customerId, variantId, minAmount, maxAmount,
+                referenceNumber, createdBy);
+        if (pageable.isUnpaged()) {
+            List<Sale> all = findAllSales(filter);
+            return new PageImpl<>(all, pageable, all.size());
+        }
+        List<Long> ids = findSaleIds(filter, pageable, pageable.getPageSize());
+        return PageableExecutionUtils.getPage(loadSales(ids), pageable, () -> countSales(filter));
+    }
+
+    @Override
+    public Slice<Sale> findFilteredSalesSliceCustom(LocalDate from, LocalDate to, Long customerId, Long variantId,
+            Double minAmount, Double maxAmount, String referenceNumber, String createdBy, Pageable pageable) {
+        SaleFilter filter = new SaleFilter(from, to, customerId, variantId, minAmount, maxAmount,
+                referenceNumber, createdBy);
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(findAllSales(filter), pageable, false);
+        }
+        // One id beyond the page tells whether another page exists
+        List<Long> ids = findSaleIds(filter, pageable, pageable.getPageSize() + 1);
+        boolean hasNext = ids.size() > pageable.getPageSize();
+        if (hasNext) {
+            ids = ids.subList(0, pageable.getPageSize());
+        }
+        return new SliceImpl<>(loadSales(ids), pageable, hasNext);
+    }
+
+    @Override
+    public Page<Sale> findByDateRange(LocalDate fromDate, LocalDate toDate, Pageable pageable) {
+        return findFilteredSalesCustom(fromDate, toDate, null, null, null, null, null, null, pageable);
+    }
+
+    // Phase one of a paged read: the ids of one page, newest first, without joins
+    private List<Long> findSaleIds(SaleFilter filter, Pageable pageable, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+        Root<Sale> sale = cq.from(Sale.class);
+        cq.select(sale.get("id"))
+                .where(filter.toPredicates(cb, cq, sale))
+                .orderBy(cb.desc(sale.get("saleDate")), cb.desc(sale.get("id")));
+        return entityManager.createQuery(cq)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    // Phase two: the sales of one page with their items, customer and bank account
+    private List<Sale> loadSales(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Sale> sales = entityManager.createQuery(
+                "SELECT DISTINCT s FROM Sale s LEFT JOIN FETCH s.customer LEFT JOIN FETCH s.saleItems " +
+                        "LEFT JOIN FETCH s.bankAccount WHERE s.id IN :ids",
+                Sale.class)
+                .setParameter("ids", ids)
+                .getResultList();
+        Map<Long, Sale> byId = new HashMap<>();
+        for (Sale sale : sales) {
+            byId.put(sale.getId(), sale);
+        }
+        List<Sale> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Sale sale = byId.get(id);
+            if (sale != null) {
+                ordered.add(sale);
+            }
+        }
+        return ordered;
+    }
+
+    private List<Sale> findAllSales(SaleFilter filter) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<Sale> cq = cb.createQuery(Sale.class);
         Root<Sale> sale = cq.from(Sale.class);
         sale.fetch("customer", JoinType.LEFT);
         sale.fetch("saleItems", JoinType.LEFT);
         sale.fetch("bankAccount", JoinType.LEFT);
-        List<Predicate> predicates = new ArrayList<>();
+        cq.select(sale).distinct(true).where(filter.toPredicates(cb, cq, sale))
+                .orderBy(cb.desc(sale.get("saleDate")), cb.desc(sale.get("id")));
+        return entityManager.createQuery(cq).getResultList();
+    }
+
+    private long countSales(SaleFilter filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+        Root<Sale> countRoot = countQuery.from(Sale.class);
+        countQuery.select(cb.count(countRoot)).where(filter.toPredicates(cb, countQuery, countRoot));
+        return entityManager.createQuery(countQuery).getSingleResult();
+    }
+
+    private record SaleFilter(LocalDate from, LocalDate to, Long customerId, Long variantId,
+            Double minAmount, Double maxAmount, String referenceNumber, String createdBy) {
+
+        Predicate[] toPredicates(CriteriaBuilder cb, CriteriaQuery<?> query, Root<Sale> sale) {
+            List<Predicate> predicates = new ArrayList<>();
+            if (from != null) {
+                predicates.add(cb.greaterThanOrEqualTo(sale.get("saleDate"), from));
+            }
+            if (to != null) {
+                predicates.add(cb.lessThanOrEqualTo(sale.get("saleDate"), to));
+            }
+            if (customerId != null) {
+                predicates.add(cb.equal(sale.get("customer").get("id"), customerId));
+            }
+            if (variantId != null) {
+                Subquery<Long> subquery = query.subquery(Long.class);
+                Root<com.gasagency.entity.SaleItem> si2 = subquery.from(com.gasagency.entity.SaleItem.class);
+                subquery.select(cb.literal(1L))
+                        .where(cb.equal(si2.get("sale"), sale),
+                                cb.equal(si2.get("variant").get("id"), variantId));
+                predicates.add(cb.exists(subquery));
+            }
+            if (minAmount != null) {
+                predicates.add(cb.greaterThanOrEqualTo(sale.get("totalAmount"), minAmount));
+            }
+            if (maxAmount != null) {
+                predicates.add(cb.lessThanOrEqualTo(sale.get("totalAmount"), maxAmount));
+            }
+            if (referenceNumber != null && !referenceNumber.isEmpty()) {
+                predicates.add(cb.like(sale.get("referenceNumber"), "%" + referenceNumber + "%"));
+            }
+            if (createdBy != null && !createdBy.isEmpty()) {
+                predicates.add(cb.equal(sale.get("createdBy"), createdBy));
+            }
+            return predicates.toArray(new Predicate[0]);
+        }
+    }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Object[]> sumReceiptsByPaymentMode(LocalDate from, LocalDate to, Long customerId,
+            String paymentMode, Long variantId, Long bankAccountId, BigDecimal minAmount, BigDecimal maxAmount) {
+        Map<String, Object> params = new HashMap<>();
+
+        StringBuilder saleWhere = new StringBuilder();
+        StringBuilder ledgerWhere = new StringBuilder(" AND l.ref_type NOT IN ('INITIAL_STOCK', 'SALE')");
         if (from != null) {
-            predicates.add(cb.greaterThanOrEqualTo(sale.get("saleDate"), from));
+            saleWhere.append(" AND s.sale_date >= :fromDate");
+            ledgerWhere.append(" AND l.transaction_date >= :fromDate");
+            params.put("fromDate", from);
         }
         if (to != null) {
-            predicates.add(cb.lessThanOrEqualTo(sale.get("saleDate"), to));
+            saleWhere.append(" AND s.sale_date <= :toDate");
+            ledgerWhere.append(" AND l.transaction_date <= :toDate");
+            params.put("toDate", to);
         }
         if (customerId != null) {
-            predicates.add(cb.equal(sale.get("customer").get("id"), customerId));
+            saleWhere.append(" AND s.customer_id = :customerId");
+            ledgerWhere.append(" AND l.customer_id = :customerId");
+            params.put("customerId", customerId);
         }
         if (variantId != null) {
-            Subquery<Long> subquery = cq.subquery(Long.class);
-            Root<com.gasagency.entity.SaleItem> si2 = subquery.from(com.gasagency.entity.SaleItem.class);
-            subquery.select(cb.literal(1L))
-                    .where(cb.equal(si2.get("sale"), sale),
-                            cb.equal(si2.get("variant").get("id"), variantId));
-            predicates.add(cb.exists(subquery));
+            saleWhere.append(" AND EXISTS (SELECT 1 FROM sale_item si WHERE si.sale_id = s.id"
+                    + " AND si.variant_id = :variantId)");
+            ledgerWhere.append(" AND l.variant_id = :variantId");
+            params.put("variantId", variantId);
         }
+        // Sales are filtered on their total, ledger receipts on the amount received
         if (minAmount != null) {
-            predicates.add(cb.greaterThanOrEqualTo(sale.get("totalAmount"), minAmount));
+            saleWhere.append(" AND s.total_amount >= :minAmount");
+            ledgerWhere.append(" AND COALESCE(l.amount_received, 0) >= :minAmount");
+            params.put("minAmount", minAmount);
         }
         if (maxAmount != null) {
-            predicates.add(cb.lessThanOrEqualTo(sale.get("totalAmount"), maxAmount));
-        }
-        if (referenceNumber != null && !referenceNumber.isEmpty()) {
-            predicates.add(cb.like(sale.get("referenceNumber"), "%" + referenceNumber + "%"));
+            saleWhere.append(" AND s.total_amount <= :maxAmount");
+            ledgerWhere.append(" AND COALESCE(l.amount_received, 0) <= :maxAmount");
+            params.put("maxAmount", maxAmount);
         }
-        if (createdBy != null && !createdBy.isEmpty()) {
-            predicates.add(cb.equal(sale.get("createdBy"), createdBy));
+        String saleSplitBank = "";
+        String legacySaleBank = "";
+        String ledgerSplitBank = "";
+        if (bankAccountId != null) {
+            saleSplitBank = " AND ps.bank_account_id = :bankAccountId";
+            legacySaleBank = " AND s.bank_account_id = :bankAccountId";
+            ledgerSplitBank = " AND cs.bank_account_id = :bankAccountId";
+            ledgerWhere.append(" AND l.bank_account_id = :bankAccountId");
+            params.put("bankAccountId", bankAccountId);
         }
-
-        cq.select(sale).distinct(true).where(predicates.toArray(new Predicate[0]))
-                .orderBy(cb.desc(sale.get("saleDate")), cb.desc(sale.get("id")));
-
-        TypedQuery<Sale> query = entityManager.createQuery(cq);
-        List<Sale> resultList;
-        if (pageable.isUnpaged()) {
-            resultList = query.getResultList();
-        } else {
-            query.setFirstResult((int) pageable.getOffset());
-            query.setMaxResults(pageable.getPageSize());
-            resultList = query.getResultList();
+        String modeFilter = "";
+        if (paymentMode != null) {
+            modeFilter = " AND r.mode = :paymentMode";
+            params.put("paymentMode", paymentMode);
         }
 
-        // Count query
-        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
-        Root<Sale> countRoot = countQuery.from(Sale.class);
-        List<Predicate> countPredicates = new ArrayList<>();
-        if (from != null)
-            countPredicates.add(cb.greaterThanOrEqualTo(countRoot.get("saleDate"), from));
-        if (to != null)
-            countPredicates.add(cb.lessThanOrEqualTo(countRoot.get("saleDate"), to));
-        if (customerId != null)
-            countPredicates.add(cb.equal(countRoot.get("customer").get("id"), customerId));
-        if (variantId != null) {
-            Subquery<Long> subquery = countQuery.subquery(Long.class);
-            Root<com.gasagency.entity.SaleItem> si2 = subquery.from(com.gasagency.entity.SaleItem.class);
-            subquery.select(cb.literal(1L))
-                    .where(cb.equal(si2.get("sale"), countRoot),
-                            cb.equal(si2.get("variant").get("id"), variantId));
-            countPredicates.add(cb.exists(subquery));
-        }
-        if (minAmount != null)
-            countPredicates.add(cb.greaterThanOrEqualTo(countRoot.get("totalAmount"), minAmount));
-        if (maxAmount != null)
-            countPredicates.add(cb.lessThanOrEqualTo(countRoot.get("totalAmount"), maxAmount));
-        if (referenceNumber != null && !referenceNumber.isEmpty())
-            countPredicates.add(cb.like(countRoot.get("referenceNumber"), "%" + referenceNumber + "%"));
-        if (createdBy != null && !createdBy.isEmpty())
-            countPredicates.add(cb.equal(countRoot.get("createdBy"), createdBy));
-        countQuery.select(cb.countDistinct(countRoot)).where(countPredicates.toArray(new Predicate[0]));
-        Long total = entityManager.createQuery(countQuery).getSingleResult();
-
-        return new PageImpl<>(resultList, pageable, total);
-    }
-
-    @Override
-    public Page<Sale> findByDateRange(LocalDate fromDate, LocalDate toDate, Pageable pageable) {
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Sale> cq = cb.createQuery(Sale.class);
-        Root<Sale> sale = cq.from(Sale.class);
-        sale.fetch("customer", JoinType.LEFT);
-        sale.fetch("saleItems", JoinType.LEFT);
-
-        List<Predicate> predicates = new ArrayList<>();
-        predicates.add(cb.greaterThanOrEqualTo(sale.get("saleDate"), fromDate));
-        predicates.add(cb.lessThanOrEqualTo(sale.get("saleDate"), toDate));
-
-        cq.select(sale).distinct(true).where(predicates.toArray(new Predicate[0]))
-                .orderBy(cb.desc(sale.get("saleDate")), cb.desc(sale.get("id")));
-
-        TypedQuery<Sale> query = entityManager.createQuery(cq);
-        List<Sale> resultList;
-        if (pageable.isUnpaged()) {
-            resultList = query.getResultList();
-        } else {
-            query.setFirstResult((int) pageable.getOffset());
-            query.setMaxResults(pageable.getPageSize());
-            resultList = query.getResultList();
-        }
-
-        // Count query
-        CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
-        Root<Sale> countRoot = countQuery.from(Sale.class);
-        countQuery.select(cb.countDistinct(countRoot))
-                .where(cb.greaterThanOrEqualTo(countRoot.get("saleDate"), fromDate),
-                        cb.lessThanOrEqualTo(countRoot.get("saleDate"), toDate));
-        Long total = entityManager.createQuery(countQuery).getSingleResult();
-
-        return new PageImpl<>(resultList, pageable, total);
+        String sql = "SELECT r.mode, SUM(r.amount), COUNT(*) FROM ("
+                // Sales with payment splits: one receipt per split
+                + "SELECT UPPER(TRIM(ps.payment_mode)) AS mode, ps.amount AS amount"
+                + " FROM sale_payment_split ps JOIN sale s ON s.id = ps.sale_id"
+                + " WHERE 1 = 1" + saleWhere + saleSplitBank
+                // Legacy sales without splits: the sale's mode, amount from its first ledger row
+                + " UNION ALL SELECT UPPER(TRIM(s.payment_mode)),"
+                + " (SELECT lr.amount_received FROM customer_cylinder_ledger lr WHERE lr.id ="
+                + " (SELECT MIN(lf.id) FROM customer_cylinder_ledger lf"
+                + " WHERE lf.sale_id = s.id AND lf.amount_received IS NOT NULL))"
+                + " FROM sale s WHERE NOT EXISTS (SELECT 1 FROM sale_payment_split ps WHERE ps.sale_id = s.id)"
+                + saleWhere + legacySaleBank
+                // Empty returns paid in several modes: one receipt per split
+                + " UNION ALL SELECT UPPER(TRIM(cs.payment_mode)), cs.amount"
+                + " FROM customer_ledger_payment_split cs JOIN customer_cylinder_ledger l ON l.id = cs.ledger_id"
+                + " WHERE l.ref_type = 'EMPTY_RETURN' AND UPPER(TRIM(l.payment_mode)) = 'MULTIPLE'"
+                + ledgerWhere + ledgerSplitBank
+                // Other single-mode ledger receipts (payments, empty returns, ...)
+                + " UNION ALL SELECT UPPER(TRIM(l.payment_mode)), l.amount_received"
+                + " FROM customer_cylinder_ledger l WHERE UPPER(TRIM(l.payment_mode)) <> 'MULTIPLE'"
+                + ledgerWhere
+                + ") r WHERE r.mode IS NOT NULL AND r.mode <> '' AND r.amount > 0" + modeFilter
+                + " GROUP BY r.mode";
+
+        Query query = entityManager.createNativeQuery(sql);
+        params.forEach(query::setParameter);
+        return query.getResultList();
     }
 }
-
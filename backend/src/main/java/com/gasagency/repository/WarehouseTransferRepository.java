@@ -6,13 +6,20 @@ import com.gasagency.entity.CylinderVariant;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface WarehouseTransferRepository extends JpaRepository<WarehouseTransfer, Long> {
@@ -53,14 +60,122 @@ public interface WarehouseTransferRepository extends JpaRepository<WarehouseTran
         @Query("SELECT wt FROM WarehouseTransfer wt WHERE (wt.fromWarehouse = :warehouse OR wt.toWarehouse = :warehouse) ORDER BY wt.transferDate DESC")
         Page<WarehouseTransfer> findAllTransfersForWarehouse(@Param("warehouse") Warehouse warehouse, Pageable pageable);
 
-        @Query("SELECT wt FROM WarehouseTransfer wt WHERE (wt.fromWarehouse = :warehouse OR wt.toWarehouse = :warehouse) " +
-                        "AND (:variantId IS NULL OR wt.variant.id = :variantId) ORDER BY wt.transferDate DESC")
-        List<WarehouseTransfer> findAllTransfersForWarehouseAndVariant(@Param("warehouse") Warehouse warehouse,
-                        @Param("variantId") Long variantId);
+        // Keyset pages for the merged movement history; same ordering as
+        // CustomerCylinderLedgerRepository.findMovementsBefore
+        @Query("SELECT wt FROM WarehouseTransfer wt " +
+                        "JOIN FETCH wt.fromWarehouse JOIN FETCH wt.toWarehouse JOIN FETCH wt.variant " +
+                        "WHERE (:variantId IS NULL OR wt.variant.id = :variantId) " +
+                        "AND wt.transferDate <= :cursorDate " +
+                        "AND (wt.transferDate < :cursorDate OR (wt.transferDate = :cursorDate " +
+                        "AND (wt.createdDate < :cursorCreated " +
+                        "OR (wt.createdDate = :cursorCreated AND wt.id < :cursorId)))) " +
+                        "ORDER BY wt.transferDate DESC, wt.createdDate DESC, wt.id DESC")
+        List<WarehouseTransfer> findMovementsBefore(@Param("variantId") Long variantId,
+                        @Param("cursorDate") LocalDate cursorDate,
+                        @Param("cursorCreated") LocalDateTime cursorCreated,
+                        @Param("cursorId") Long cursorId,
+                        Pageable pageable);
+
+        @Query("SELECT wt FROM WarehouseTransfer wt " +
+                        "JOIN FETCH wt.fromWarehouse JOIN FETCH wt.toWarehouse JOIN FETCH wt.variant " +
+                        "WHERE (wt.fromWarehouse.id = :warehouseId OR wt.toWarehouse.id = :warehouseId) " +
+                        "AND (:variantId IS NULL OR wt.variant.id = :variantId) " +
+                        "AND wt.transferDate <= :cursorDate " +
+                        "AND (wt.transferDate < :cursorDate OR (wt.transferDate = :cursorDate " +
+                        "AND (wt.createdDate < :cursorCreated " +
+                        "OR (wt.createdDate = :cursorCreated AND wt.id < :cursorId)))) " +
+                        "ORDER BY wt.transferDate DESC, wt.createdDate DESC, wt.id DESC")
+        List<WarehouseTransfer> findMovementsBeforeByWarehouse(@Param("warehouseId") Long warehouseId,
+                        @Param("variantId") Long variantId,
+                        @Param("cursorDate") LocalDate cursorDate,
+                        @Param("cursorCreated") LocalDateTime cursorCreated,
+                        @Param("cursorId") Long cursorId,
+                        Pageable pageable);
+
+        // Transfers written before auditing was added take their transfer date
+        @Modifying
+        @Transactional
+        @Query(value = "UPDATE warehouse_transfer SET created_date = CAST(transfer_date AS timestamp) " +
+                        "WHERE created_date IS NULL", nativeQuery = true)
+        int backfillCreatedDates();
+
+        // ddl-auto=update never tightens an existing column; run only while it is still nullable
+        @Modifying
+        @Transactional
+        @Query(value = "ALTER TABLE warehouse_transfer ALTER COLUMN created_date SET NOT NULL", nativeQuery = true)
+        void requireCreatedDates();
+
+        @Query(value = "SELECT is_nullable FROM information_schema.columns " +
+                        "WHERE LOWER(table_name) = 'warehouse_transfer' AND LOWER(column_name) = 'created_date'",
+                        nativeQuery = true)
+        List<String> findCreatedDateNullability();
+
+        @Query("SELECT COUNT(wt) FROM WarehouseTransfer wt WHERE (:variantId IS NULL OR wt.variant.id = :variantId)")
+        long countMovements(@Param("variantId") Long variantId);
 
-        @Query("SELECT wt FROM WarehouseTransfer wt WHERE (:variantId IS NULL OR wt.variant.id = :variantId) " +
-                        "ORDER BY wt.transferDate DESC")
-        List<WarehouseTransfer> findByVariantId(@Param("variantId") Long variantId);
+        @Query("SELECT COUNT(wt) FROM WarehouseTransfer wt " +
+                        "WHERE (wt.fromWarehouse.id = :warehouseId OR wt.toWarehouse.id = :warehouseId) " +
+                        "AND (:variantId IS NULL OR wt.variant.id = :variantId)")
+        long countMovementsByWarehouse(@Param("warehouseId") Long warehouseId, @Param("variantId") Long variantId);
+
+        // Transfer history: date-bounded keyset pages, newest first (transferDate, id
+        // descending), resumed after (cursorDate, cursorId)
+        String HISTORY = "SELECT wt FROM WarehouseTransfer wt " +
+                        "JOIN FETCH wt.fromWarehouse JOIN FETCH wt.toWarehouse JOIN FETCH wt.variant " +
+                        "WHERE wt.transferDate BETWEEN :fromDate AND :toDate " +
+                        "AND wt.transferDate <= :cursorDate " +
+                        "AND (wt.transferDate < :cursorDate OR wt.id < :cursorId) ";
+        String HISTORY_ORDER = "ORDER BY wt.transferDate DESC, wt.id DESC";
+
+        @Query(HISTORY + HISTORY_ORDER)
+        List<WarehouseTransfer> findHistory(@Param("fromDate") LocalDate fromDate,
+                        @Param("toDate") LocalDate toDate,
+                        @Param("cursorDate") LocalDate cursorDate,
+                        @Param("cursorId") Long cursorId,
+                        Pageable pageable);
+
+        @Query(HISTORY + "AND wt.fromWarehouse.id = :warehouseId " + HISTORY_ORDER)
+        List<WarehouseTransfer> findHistoryFrom(@Param("warehouseId") Long warehouseId,
+                        @Param("fromDate") LocalDate fromDate,
+                        @Param("toDate") LocalDate toDate,
+                        @Param("cursorDate") LocalDate cursorDate,
+                        @Param("cursorId") Long cursorId,
+                        Pageable pageable);
+
+        @Query(HISTORY + "AND wt.toWarehouse.id = :warehouseId " + HISTORY_ORDER)
+        List<WarehouseTransfer> findHistoryTo(@Param("warehouseId") Long warehouseId,
+                        @Param("fromDate") LocalDate fromDate,
+                        @Param("toDate") LocalDate toDate,
+                        @Param("cursorDate") LocalDate cursorDate,
+                        @Param("cursorId") Long cursorId,
+                        Pageable pageable);
+
+        @Query(HISTORY + "AND (wt.fromWarehouse.id = :warehouseId OR wt.toWarehouse.id = :warehouseId) "
+                        + HISTORY_ORDER)
+        List<WarehouseTransfer> findHistoryForWarehouse(@Param("warehouseId") Long warehouseId,
+                        @Param("fromDate") LocalDate fromDate,
+                        @Param("toDate") LocalDate toDate,
+                        @Param("cursorDate") LocalDate cursorDate,
+                        @Param("cursorId") Long cursorId,
+                        Pageable pageable);
+
+        @Query(HISTORY + "AND wt.fromWarehouse.id = :fromWarehouseId AND wt.toWarehouse.id = :toWarehouseId "
+                        + HISTORY_ORDER)
+        List<WarehouseTransfer> findHistoryBetween(@Param("fromWarehouseId") Long fromWarehouseId,
+                        @Param("toWarehouseId") Long toWarehouseId,
+                        @Param("fromDate") LocalDate fromDate,
+                        @Param("toDate") LocalDate toDate,
+                        @Param("cursorDate") LocalDate cursorDate,
+                        @Param("cursorId") Long cursorId,
+                        Pageable pageable);
+
+        // Whole date range for exports, read through a cursor
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+        @Query("SELECT wt FROM WarehouseTransfer wt " +
+                        "JOIN FETCH wt.fromWarehouse JOIN FETCH wt.toWarehouse JOIN FETCH wt.variant " +
+                        "WHERE wt.transferDate BETWEEN :fromDate AND :toDate " + HISTORY_ORDER)
+        Stream<WarehouseTransfer> streamHistory(@Param("fromDate") LocalDate fromDate,
+                        @Param("toDate") LocalDate toDate);
 
         @Query("SELECT wt FROM WarehouseTransfer wt WHERE wt.referenceNumber = :referenceNumber")
         Optional<WarehouseTransfer> findByReferenceNumber(@Param("referenceNumber") String referenceNumber);
@@ -0,0 +1,20 @@
+package com.gasagency.search;
+
+import com.gasagency.entity.Customer;
+
+/**
+ * Published when a customer was created, changed or deleted. The search index
+ * applies it after the publishing transaction commits.
+ */
+public record CustomerChangedEvent(Long customerId, String name, String mobile, String address,
+        boolean active) {
+
+    public static CustomerChangedEvent of(Customer customer) {
+        return new CustomerChangedEvent(customer.getId(), customer.getName(), customer.getMobile(),
+                customer.getAddress(), Boolean.TRUE.equals(customer.getActive()));
+    }
+
+    public static CustomerChangedEvent deleted(Long customerId) {
+        return new CustomerChangedEvent(customerId, null, null, null, false);
+    }
+}
@@ -0,0 +1,258 @@
+package com.gasagency.search;
+
+import com.gasagency.entity.Customer;
+import com.gasagency.repository.CustomerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * In-memory trigram index over active customers' names and mobiles, so
+ * typeahead and search do not run LIKE '%term%' scans against the customer
+ * table on every keystroke.
+ *
+ * Terms of three or more characters are resolved through the trigram
+ * postings and verified against the stored fields; shorter terms scan the
+ * (small) set of indexed customers. Matches are ranked exact, prefix, word
+ * prefix, then substring.
+ *
+ * The index is loaded once the application is ready and rebuilt every hour;
+ * committed CustomerChangedEvents keep it current in between. Until the first
+ * load finishes isReady() is false and callers fall back to the database.
+ */
+@Component
+public class CustomerSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerSearchIndex.class);
+    private static final int GRAM = 3;
+
+    private final CustomerRepository customerRepository;
+    private final Executor executor;
+
+    private volatile Index index;
+    // Ids changed while a rebuild was loading; re-applied after the swap
+    private Map<Long, CustomerChangedEvent> changedDuringRebuild;
+
+    public CustomerSearchIndex(CustomerRepository customerRepository,
+            @Qualifier("ioExecutor") Executor executor) {
+        this.customerRepository = customerRepository;
+        this.executor = executor;
+    }
+
+    /** One indexed customer. */
+    public record Match(Long id, String name, String mobile, String address) {
+    }
+
+    private record Doc(Match match, String nameLower, int rank) {
+    }
+
+    private static final class Index {
+        private final Map<Long, Doc> docs = new ConcurrentHashMap<>();
+        private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * Active customers matching the term, best matches first.
+     */
+    public List<Match> search(String term, int limit) {
+        Index current = index;
+        String query = normalize(term);
+        if (current == null || query.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        List<Doc> ranked = new ArrayList<>();
+        for (Long id : candidates(current, query)) {
+            Doc doc = current.docs.get(id);
+            if (doc != null) {
+                int rank = rank(doc, query);
+                if (rank >= 0) {
+                    ranked.add(new Doc(doc.match(), doc.nameLower(), rank));
+                }
+            }
+        }
+        ranked.sort(Comparator.comparingInt(Doc::rank)
+                .thenComparing(Doc::nameLower)
+                .thenComparing(doc -> doc.match().id()));
+        List<Match> result = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            result.add(ranked.get(i).match());
+        }
+        return result;
+    }
+
+    /**
+     * Ids of all active customers matching the term, or null when there are
+     * more than maxIds of them (or the index is not loaded).
+     */
+    public List<Long> matchingIds(String term, int maxIds) {
+        Index current = index;
+        String query = normalize(term);
+        if (current == null) {
+            return null;
+        }
+        List<Long> ids = new ArrayList<>();
+        for (Long id : candidates(current, query)) {
+            Doc doc = current.docs.get(id);
+            if (doc != null && rank(doc, query) >= 0) {
+                if (ids.size() == maxIds) {
+                    return null;
+                }
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        executor.execute(this::rebuild);
+    }
+
+    @Scheduled(fixedRate = 3600000, initialDelay = 3600000) // Every hour
+    public void rebuild() {
+        synchronized (this) {
+            changedDuringRebuild = new ConcurrentHashMap<>();
+        }
+        try {
+            long started = System.currentTimeMillis();
+            Index rebuilt = new Index();
+            List<Customer> customers = customerRepository.findAllByActive(true);
+            for (Customer customer : customers) {
+                add(rebuilt, CustomerChangedEvent.of(customer));
+            }
+            synchronized (this) {
+                for (CustomerChangedEvent event : changedDuringRebuild.values()) {
+                    apply(rebuilt, event);
+                }
+                index = rebuilt;
+            }
+            logger.info("Customer search index loaded: {} customers, {} grams in {}ms", rebuilt.docs.size(),
+                    rebuilt.postings.size(), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            logger.error("Failed to build customer search index", e);
+        } finally {
+            synchronized (this) {
+                changedDuringRebuild = null;
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public synchronized void onCustomerChanged(CustomerChangedEvent event) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.put(event.customerId(), event);
+        }
+        if (index != null) {
+            apply(index, event);
+        }
+    }
+
+    private static void apply(Index target, CustomerChangedEvent event) {
+        remove(target, event.customerId());
+        if (event.active()) {
+            add(target, event);
+        }
+    }
+
+    private static void add(Index target, CustomerChangedEvent event) {
+        String nameLower = normalize(event.name());
+        String mobile = normalize(event.mobile());
+        Doc doc = new Doc(new Match(event.customerId(), event.name(), event.mobile(), event.address()),
+                nameLower, 0);
+        target.docs.put(event.customerId(), doc);
+        for (String gram : grams(nameLower, mobile)) {
+            target.postings.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(event.customerId());
+        }
+    }
+
+    private static void remove(Index target, Long customerId) {
+        Doc doc = target.docs.remove(customerId);
+        if (doc == null) {
+            return;
+        }
+        for (String gram : grams(doc.nameLower(), normalize(doc.match().mobile()))) {
+            target.postings.computeIfPresent(gram, (key, ids) -> {
+                ids.remove(customerId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private static Collection<Long> candidates(Index current, String query) {
+        if (query.length() < GRAM) {
+            return current.docs.keySet();
+        }
+        // Intersect the postings of every gram of the query, smallest first
+        List<Set<Long>> sets = new ArrayList<>();
+        for (String gram : grams(query)) {
+            Set<Long> ids = current.postings.get(gram);
+            if (ids == null) {
+                return List.of();
+            }
+            sets.add(ids);
+        }
+        sets.sort(Comparator.comparingInt(Set::size));
+        Set<Long> result = new HashSet<>(sets.get(0));
+        for (int i = 1; i < sets.size() && !result.isEmpty(); i++) {
+            result.retainAll(sets.get(i));
+        }
+        return result;
+    }
+
+    // 0 exact, 1 prefix, 2 prefix of a later word in the name, 3 substring, -1 no match
+    private static int rank(Doc doc, String query) {
+        String name = doc.nameLower();
+        String mobile = normalize(doc.match().mobile());
+        if (name.equals(query) || mobile.equals(query)) {
+            return 0;
+        }
+        if (name.startsWith(query) || mobile.startsWith(query)) {
+            return 1;
+        }
+        int at = name.indexOf(query);
+        if (at < 0) {
+            return mobile.contains(query) ? 3 : -1;
+        }
+        for (; at > 0; at = name.indexOf(query, at + 1)) {
+            if (!Character.isLetterOrDigit(name.charAt(at - 1))) {
+                return 2;
+            }
+        }
+        return 3;
+    }
+
+    private static Set<String> grams(String... values) {
+        Set<String> grams = new HashSet<>();
+        for (String value : values) {
+            for (int i = 0; i + GRAM <= value.length(); i++) {
+                grams.add(value.substring(i, i + GRAM));
+            }
+        }
+        return grams;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
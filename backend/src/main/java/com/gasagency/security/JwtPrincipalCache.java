@@ -0,0 +1,89 @@
+package com.gasagency.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verified JWTs and the principal they resolved to, so a token is parsed and
+ * its user loaded once rather than on every request.
+ *
+ * Entries are keyed by the SHA-256 of the token (the raw token is never kept)
+ * and expire together with the token. UserService evicts a user's entries
+ * when the user is changed, so role updates apply to the next request.
+ */
+@Component
+public class JwtPrincipalCache {
+
+    private final Cache<String, CachedPrincipal> cache;
+
+    public JwtPrincipalCache(@Value("${app.security.principal-cache.max-size:10000}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, CachedPrincipal>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedPrincipal value, long currentTime) {
+                        long remainingMillis = value.expiresAt().getTime() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedPrincipal value, long currentTime,
+                            long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedPrincipal value, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /** Principal of a verified token, valid until the token's expiry. */
+    public record CachedPrincipal(String username, Date expiresAt, UserDetails userDetails) {
+    }
+
+    public CachedPrincipal get(String token) {
+        CachedPrincipal principal = cache.getIfPresent(hash(token));
+        if (principal != null && !principal.expiresAt().after(new Date())) {
+            return null;
+        }
+        return principal;
+    }
+
+    public void put(String token, CachedPrincipal principal) {
+        cache.put(hash(token), principal);
+    }
+
+    /**
+     * Drop every cached token of a user; the next request re-loads the user.
+     */
+    public void evictUser(String username) {
+        if (username == null) {
+            return;
+        }
+        cache.asMap().values().removeIf(principal -> username.equals(principal.username()));
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
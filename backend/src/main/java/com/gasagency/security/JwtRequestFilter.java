@@ -1,9 +1,11 @@
 package com.gasagency.security;
 
+import com.gasagency.security.JwtPrincipalCache.CachedPrincipal;
 import com.gasagency.service.CustomUserDetailsService;
 import com.gasagency.util.JwtUtil;
 import com.gasagency.util.LoggerUtil;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -20,6 +22,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Date;
 
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
@@ -30,25 +33,25 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     private CustomUserDetailsService userDetailsService;
     @Autowired
     private JwtUtil jwtUtil;
+    @Autowired
+    private JwtPrincipalCache principalCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws ServletException, IOException {
         try {
             final String authorizationHeader = request.getHeader("Authorization");
-            String username = null;
             String jwt = null;
+            String source = null;
 
             if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
                 jwt = authorizationHeader.substring(7);
-                username = jwtUtil.extractUsername(jwt);
-                logger.info("JWT_TOKEN_FOUND | method=header | username={}", username);
+                source = "header";
             } else if (request.getCookies() != null) {
                 for (jakarta.servlet.http.Cookie cookie : request.getCookies()) {
                     if ("jwt_token".equals(cookie.getName())) {
                         jwt = cookie.getValue();
-                        username = jwtUtil.extractUsername(jwt);
-                        logger.info("JWT_TOKEN_FOUND | method=cookie | username={}", username);
+                        source = "cookie";
                     }
                 }
             }
@@ -61,33 +64,29 @@ public class JwtRequestFilter extends OncePerRequestFilter {
                         String[] parts = rawCookie.trim().split("=", 2);
                         if (parts.length == 2 && "jwt_token".equals(parts[0])) {
                             jwt = parts[1];
-                            username = jwtUtil.extractUsername(jwt);
-                            logger.info("JWT_TOKEN_FOUND | method=cookie_header | username={}", username);
+                            source = "cookie_header";
                             break;
                         }
                     }
                 }
             }
 
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsernameForJwt(username);
-                if (jwtUtil.validateToken(jwt, userDetails)) {
+            if (jwt != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                CachedPrincipal principal = principalCache.get(jwt);
+                if (principal == null) {
+                    principal = verify(jwt, request);
+                } else {
+                    logger.debug("JWT_TOKEN_CACHED | method={} | username={}", source, principal.username());
+                }
+                if (principal != null) {
+                    UserDetails userDetails = principal.userDetails();
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails, null, userDetails.getAuthorities());
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
-
-                    LoggerUtil.logAudit("AUTHENTICATION_SUCCESS", "JWT_VALIDATION",
-                            "username", username, "ip", request.getRemoteAddr());
-                    logger.info("AUTHENTICATION_SUCCESS | username={} | ip={}", username, request.getRemoteAddr());
-                } else {
-                    LoggerUtil.logAudit("AUTHENTICATION_FAILED", "JWT_VALIDATION",
-                            "username", username, "reason", "token_invalid", "ip", request.getRemoteAddr());
-                    logger.warn("AUTHENTICATION_FAILED | username={} | reason=token_invalid | ip={}",
-                            username, request.getRemoteAddr());
                 }
-            } else if (username == null) {
-                logger.info("NO_JWT_TOKEN_FOUND | uri={} | method={}",
+            } else if (jwt == null) {
+                logger.debug("NO_JWT_TOKEN_FOUND | uri={} | method={}",
                         request.getRequestURI(), request.getMethod());
             }
 
@@ -100,5 +99,29 @@ public class JwtRequestFilter extends OncePerRequestFilter {
             throw new ServletException("JWT Filter error", e);
         }
     }
-}
 
+    // Parse the token once, load its user and cache the result until the token expires
+    private CachedPrincipal verify(String jwt, HttpServletRequest request) {
+        Claims claims = jwtUtil.extractAllClaims(jwt);
+        String username = claims.getSubject();
+        Date expiresAt = claims.getExpiration();
+        logger.debug("JWT_TOKEN_FOUND | username={}", username);
+
+        UserDetails userDetails = this.userDetailsService.loadUserByUsernameForJwt(username);
+        if (username.equals(userDetails.getUsername()) && expiresAt != null && expiresAt.after(new Date())) {
+            CachedPrincipal principal = new CachedPrincipal(username, expiresAt, userDetails);
+            principalCache.put(jwt, principal);
+
+            LoggerUtil.logAudit("AUTHENTICATION_SUCCESS", "JWT_VALIDATION",
+                    "username", username, "ip", request.getRemoteAddr());
+            logger.debug("AUTHENTICATION_SUCCESS | username={} | ip={}", username, request.getRemoteAddr());
+            return principal;
+        }
+
+        LoggerUtil.logAudit("AUTHENTICATION_FAILED", "JWT_VALIDATION",
+                "username", username, "reason", "token_invalid", "ip", request.getRemoteAddr());
+        logger.warn("AUTHENTICATION_FAILED | username={} | reason=token_invalid | ip={}",
+                username, request.getRemoteAddr());
+        return null;
+    }
+}
@@ -11,7 +11,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -32,6 +36,11 @@ public class AlertNotificationService {
         this.sseService = sseService;
     }
 
+    /** One alert to raise, as passed to createOrUpdateAlerts. */
+    public record AlertSpec(String alertType, String alertKey, Long warehouseId, Long customerId,
+            String message, String severity) {
+    }
+
     /**
      * Create or update alert
      * If alert with same key already exists and is not dismissed, return existing
@@ -40,55 +49,81 @@ public class AlertNotificationService {
     public AlertNotification createOrUpdateAlert(String alertType, String alertKey,
             Long warehouseId, Long customerId,
             String message, String severity) {
-        // Check if alert already exists and is active
-        Optional<AlertNotification> existing = repository.findByAlertKey(alertKey);
-
-        if (existing.isPresent()) {
-            AlertNotification alert = existing.get();
-            LocalDateTime now = LocalDateTime.now();
-            if (!alert.getIsDismissed() && alert.getExpiresAt().isAfter(now)) {
-                // Alert already active: refresh message/severity if changed
-                boolean updated = false;
-                if (message != null && !message.equals(alert.getMessage())) {
-                    alert.setMessage(message);
-                    updated = true;
-                }
-                if (severity != null && !severity.equals(alert.getSeverity())) {
-                    alert.setSeverity(severity);
-                    updated = true;
-                }
-                if (updated) {
-                    alert.setExpiresAt(now.plusHours(24));
-                    AlertNotification saved = repository.save(alert);
-                    sseService.broadcastAlert(saved);
-                    logger.info("Updated active alert: {} - {}", alertKey, message);
-                    return saved;
-                }
-                return alert;
-            }
-            // Expired or dismissed: remove old record so a fresh one can be created
-            repository.delete(alert);
-            repository.flush();
-        }
+        return createOrUpdateAlerts(List.of(
+                new AlertSpec(alertType, alertKey, warehouseId, customerId, message, severity))).get(0);
+    }
 
-        // Create new alert
-        AlertNotification alert = new AlertNotification();
-        alert.setAlertType(alertType);
-        alert.setAlertKey(alertKey);
-        alert.setWarehouseId(warehouseId);
-        alert.setCustomerId(customerId);
-        alert.setMessage(message);
-        alert.setSeverity(severity);
-        alert.setIsDismissed(false);
-        alert.setExpiresAt(LocalDateTime.now().plusHours(24));
+    /**
+     * Batch form of createOrUpdateAlert: existing alerts are read with one query
+     * and the changes are written together. Returns the resulting alert per key.
+     */
+    public List<AlertNotification> createOrUpdateAlerts(List<AlertSpec> specs) {
+        if (specs.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<String, AlertSpec> byKey = new LinkedHashMap<>();
+        for (AlertSpec spec : specs) {
+            byKey.put(spec.alertKey(), spec);
+        }
+        Map<String, AlertNotification> existing = new HashMap<>();
+        for (AlertNotification alert : repository.findByAlertKeyIn(byKey.keySet())) {
+            existing.put(alert.getAlertKey(), alert);
+        }
 
-        AlertNotification saved = repository.save(alert);
-        logger.info("Created alert: {} - {}", alertKey, message);
+        LocalDateTime now = LocalDateTime.now();
+        List<AlertNotification> result = new ArrayList<>(byKey.size());
+        List<AlertNotification> toSave = new ArrayList<>();
+        List<AlertNotification> toDelete = new ArrayList<>();
+        for (AlertSpec spec : byKey.values()) {
+            AlertNotification alert = existing.get(spec.alertKey());
+            if (alert != null) {
+                if (!alert.getIsDismissed() && alert.getExpiresAt().isAfter(now)) {
+                    // Alert already active: refresh message/severity if changed
+                    boolean updated = false;
+                    if (spec.message() != null && !spec.message().equals(alert.getMessage())) {
+                        alert.setMessage(spec.message());
+                        updated = true;
+                    }
+                    if (spec.severity() != null && !spec.severity().equals(alert.getSeverity())) {
+                        alert.setSeverity(spec.severity());
+                        updated = true;
+                    }
+                    if (updated) {
+                        alert.setExpiresAt(now.plusHours(24));
+                        toSave.add(alert);
+                        logger.info("Updated active alert: {} - {}", spec.alertKey(), spec.message());
+                    }
+                    result.add(alert);
+                    continue;
+                }
+                // Expired or dismissed: remove old record so a fresh one can be created
+                toDelete.add(alert);
+            }
 
-        // Send via SSE (Real-time)
-        sseService.broadcastAlert(saved);
+            // Create new alert
+            AlertNotification created = new AlertNotification();
+            created.setAlertType(spec.alertType());
+            created.setAlertKey(spec.alertKey());
+            created.setWarehouseId(spec.warehouseId());
+            created.setCustomerId(spec.customerId());
+            created.setMessage(spec.message());
+            created.setSeverity(spec.severity());
+            created.setIsDismissed(false);
+            created.setExpiresAt(now.plusHours(24));
+            toSave.add(created);
+            result.add(created);
+            logger.info("Created alert: {} - {}", spec.alertKey(), spec.message());
+        }
 
-        return saved;
+        if (!toDelete.isEmpty()) {
+            repository.deleteAll(toDelete);
+            repository.flush();
+        }
+        if (!toSave.isEmpty()) {
+            // Send via SSE (Real-time)
+            repository.saveAll(toSave).forEach(sseService::broadcastAlert);
+        }
+        return result;
     }
 
     /**
@@ -111,6 +146,31 @@ public class AlertNotificationService {
         return summary;
     }
 
+    /**
+     * Active alerts of one type
+     */
+    @Transactional(readOnly = true)
+    public List<AlertNotification> getActiveAlerts(String alertType) {
+        return repository.findByAlertTypeAndIsDismissedFalseAndExpiresAtGreaterThan(alertType,
+                LocalDateTime.now());
+    }
+
+    /**
+     * Expire alerts whose condition no longer holds, in one batch
+     */
+    public void expireAlerts(List<AlertNotification> alerts) {
+        if (alerts.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (AlertNotification alert : alerts) {
+            alert.setExpiresAt(now);
+        }
+        repository.saveAll(alerts);
+        logger.info("Expired {} resolved alerts", alerts.size());
+        alerts.forEach(alert -> sseService.broadcastAlertDismissal(alert.getId()));
+    }
+
     /**
      * Get all active alerts count
      */
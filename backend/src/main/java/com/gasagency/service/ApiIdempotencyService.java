@@ -5,24 +5,80 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gasagency.entity.ApiIdempotencyRecord;
 import com.gasagency.exception.InvalidOperationException;
 import com.gasagency.repository.ApiIdempotencyRecordRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
+/**
+ * Replays or rejects repeated create requests that carry the same
+ * Idempotency-Key.
+ *
+ * Keys seen by this instance are kept in a local cache, so a duplicate is
+ * answered without touching the database. Otherwise the api_idempotency_record
+ * row is inserted at the start of the business transaction and completed at
+ * its end: a concurrent duplicate blocks on the unique key until the first
+ * request commits, and a failed request leaves no row behind, so it may be
+ * retried with the same key. Rows older than the retention are purged hourly.
+ *
+ * Operations that run their own transactions (isolation level, optimistic-lock
+ * retries) use {@link #executeInOwnTransaction} and apply the
+ * {@link RecordingStep} inside each attempt instead of being wrapped in one.
+ */
 @Service
 public class ApiIdempotencyService {
+    private static final Logger logger = LoggerFactory.getLogger(ApiIdempotencyService.class);
+    private static final String IN_PROGRESS_MESSAGE = "This request is already being processed. Please wait and retry.";
+
     private final ApiIdempotencyRecordRepository repository;
     private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+    private final Cache<LocalKey, LocalEntry> localEntries;
 
-    public ApiIdempotencyService(ApiIdempotencyRecordRepository repository, ObjectMapper objectMapper) {
+    public ApiIdempotencyService(ApiIdempotencyRecordRepository repository, ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.idempotency.retention-hours:48}") long retentionHours,
+            @Value("${app.idempotency.local-cache-size:10000}") long localCacheSize) {
         this.repository = repository;
         this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = Duration.ofHours(retentionHours);
+        this.localEntries = Caffeine.newBuilder()
+                .maximumSize(localCacheSize)
+                .expireAfterWrite(retention)
+                .build();
+    }
+
+    private record LocalKey(String endpoint, String username, String idempotencyKey) {
+    }
+
+    /** State of a key on this instance; resourceId is null while in flight. */
+    private record LocalEntry(String requestHash, Long resourceId) {
+    }
+
+    /**
+     * Records the key around a unit of work; must be called inside the
+     * transaction that performs the work.
+     */
+    @FunctionalInterface
+    public interface RecordingStep<T> {
+        T record(Supplier<T> work);
     }
 
     public <T> T execute(
@@ -37,90 +93,121 @@ public class ApiIdempotencyService {
         if (idempotencyKey == null || idempotencyKey.trim().isEmpty()) {
             return createOperation.get();
         }
+        return executeInOwnTransaction(endpoint, idempotencyKey, username, requestPayload,
+                step -> transactionTemplate.execute(status -> step.record(createOperation)),
+                resourceIdExtractor, resourceFetcher);
+    }
+
+    /**
+     * Like {@link #execute}, but the operation opens its own transaction(s) and
+     * runs the given step inside each of them, so the key is written and rolled
+     * back together with every attempt.
+     */
+    public <T> T executeInOwnTransaction(
+            String endpoint,
+            String idempotencyKey,
+            String username,
+            Object requestPayload,
+            Function<RecordingStep<T>, T> createOperation,
+            Function<T, Long> resourceIdExtractor,
+            Function<Long, T> resourceFetcher
+    ) {
+        if (idempotencyKey == null || idempotencyKey.trim().isEmpty()) {
+            return createOperation.apply(Supplier::get);
+        }
 
         final String key = idempotencyKey.trim();
         final String actor = (username == null || username.isBlank()) ? "anonymous" : username;
         final String requestHash = hashPayload(requestPayload);
+        final LocalKey localKey = new LocalKey(endpoint, actor, key);
 
-        ApiIdempotencyRecord record;
-        Optional<ApiIdempotencyRecord> existingRecord = repository
-                .findByIdempotencyKeyAndUsernameAndEndpoint(key, actor, endpoint);
-
-        if (existingRecord.isPresent()) {
-            record = existingRecord.get();
-            validateRequestHash(record, requestHash);
-
-            if (record.getStatus() == ApiIdempotencyRecord.Status.COMPLETED && record.getResourceId() != null) {
-                return resourceFetcher.apply(record.getResourceId());
-            }
-            if (record.getStatus() == ApiIdempotencyRecord.Status.IN_PROGRESS) {
-                throw new InvalidOperationException("This request is already being processed. Please wait and retry.");
-            }
-
-            // FAILED record: allow retry with same key and same payload.
-            record.setStatus(ApiIdempotencyRecord.Status.IN_PROGRESS);
-            record.setResourceId(null);
-            repository.save(record);
-        } else {
-            record = new ApiIdempotencyRecord();
-            record.setEndpoint(endpoint);
-            record.setIdempotencyKey(key);
-            record.setUsername(actor);
-            record.setRequestHash(requestHash);
-            record.setStatus(ApiIdempotencyRecord.Status.IN_PROGRESS);
-            record.setResourceId(null);
-            try {
-                record = repository.save(record);
-            } catch (DataIntegrityViolationException e) {
-                ApiIdempotencyRecord concurrentRecord = repository
-                        .findByIdempotencyKeyAndUsernameAndEndpoint(key, actor, endpoint)
-                        .orElseThrow(() -> e);
-                validateRequestHash(concurrentRecord, requestHash);
-                if (concurrentRecord.getStatus() == ApiIdempotencyRecord.Status.COMPLETED
-                        && concurrentRecord.getResourceId() != null) {
-                    return resourceFetcher.apply(concurrentRecord.getResourceId());
-                }
-                throw new InvalidOperationException("This request is already being processed. Please wait and retry.");
+        LocalEntry inFlight = new LocalEntry(requestHash, null);
+        LocalEntry known = localEntries.asMap().putIfAbsent(localKey, inFlight);
+        if (known != null) {
+            validateRequestHash(known.requestHash(), requestHash);
+            if (known.resourceId() != null) {
+                return resourceFetcher.apply(known.resourceId());
             }
+            throw new InvalidOperationException(IN_PROGRESS_MESSAGE);
         }
 
         try {
-            T created = createOperation.get();
-            Long resourceId = resourceIdExtractor.apply(created);
-            record.setStatus(ApiIdempotencyRecord.Status.COMPLETED);
-            record.setResourceId(resourceId);
-            repository.save(record);
+            T created = createOperation.apply(work -> {
+                ApiIdempotencyRecord record = new ApiIdempotencyRecord();
+                record.setEndpoint(endpoint);
+                record.setIdempotencyKey(key);
+                record.setUsername(actor);
+                record.setRequestHash(requestHash);
+                record.setStatus(ApiIdempotencyRecord.Status.IN_PROGRESS);
+                record = repository.saveAndFlush(record);
+
+                T result = work.get();
+                record.setStatus(ApiIdempotencyRecord.Status.COMPLETED);
+                record.setResourceId(resourceIdExtractor.apply(result));
+                return result;
+            });
+            localEntries.put(localKey, new LocalEntry(requestHash, resourceIdExtractor.apply(created)));
             return created;
+        } catch (DataIntegrityViolationException e) {
+            localEntries.invalidate(localKey);
+            return replayExisting(key, actor, endpoint, requestHash, resourceFetcher, e);
         } catch (RuntimeException ex) {
-            record.setStatus(ApiIdempotencyRecord.Status.FAILED);
-            repository.save(record);
+            localEntries.invalidate(localKey);
             throw ex;
         }
     }
 
-    private void validateRequestHash(ApiIdempotencyRecord record, String requestHash) {
-        if (!record.getRequestHash().equals(requestHash)) {
+    /**
+     * Delete records older than the retention (runs every hour).
+     */
+    @Scheduled(fixedRate = 3600000) // Every hour
+    public void purgeExpiredRecords() {
+        try {
+            int deleted = repository.deleteByCreatedAtBefore(LocalDateTime.now().minus(retention));
+            if (deleted > 0) {
+                logger.info("Cleanup: {} expired idempotency records removed", deleted);
+            }
+        } catch (Exception e) {
+            logger.error("Error purging expired idempotency records", e);
+        }
+    }
+
+    // The key was already recorded, by another instance or before a restart
+    private <T> T replayExisting(String key, String actor, String endpoint, String requestHash,
+            Function<Long, T> resourceFetcher, DataIntegrityViolationException conflict) {
+        ApiIdempotencyRecord existing = repository
+                .findByIdempotencyKeyAndUsernameAndEndpoint(key, actor, endpoint)
+                .orElseThrow(() -> conflict);
+        validateRequestHash(existing.getRequestHash(), requestHash);
+        if (existing.getStatus() == ApiIdempotencyRecord.Status.COMPLETED && existing.getResourceId() != null) {
+            return resourceFetcher.apply(existing.getResourceId());
+        }
+        if (existing.getStatus() == ApiIdempotencyRecord.Status.FAILED) {
+            // Left by an earlier failed attempt; once it is gone the key can be used again
+            repository.delete(existing);
+            throw new InvalidOperationException("The previous attempt with this idempotency key failed. Please retry.");
+        }
+        throw new InvalidOperationException(IN_PROGRESS_MESSAGE);
+    }
+
+    private void validateRequestHash(String recordedHash, String requestHash) {
+        if (!recordedHash.equals(requestHash)) {
             throw new InvalidOperationException(
                     "This idempotency key was already used with a different request payload.");
         }
     }
 
     private String hashPayload(Object payload) {
-        String json;
+        byte[] json;
         try {
-            json = objectMapper.writeValueAsString(payload);
+            json = objectMapper.writeValueAsBytes(payload);
         } catch (JsonProcessingException e) {
             throw new InvalidOperationException("Unable to process request payload for idempotency.");
         }
 
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(json.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder(hash.length * 2);
-            for (byte b : hash) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
+            return HexFormat.of().formatHex(digest.digest(json));
         } catch (NoSuchAlgorithmException e) {
             throw new InvalidOperationException("Idempotency hashing algorithm not available.");
         }
@@ -0,0 +1,373 @@
+package com.gasagency.service;
+
+import com.gasagency.dto.response.BalanceRepairProgressDTO;
+import com.gasagency.entity.BalanceRepairJob;
+import com.gasagency.exception.InvalidOperationException;
+import com.gasagency.repository.BalanceRepairJobRepository;
+import com.gasagency.repository.CustomerCylinderLedgerRepository;
+import com.gasagency.repository.CustomerRepository;
+import com.gasagency.util.LoggerUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Background repair of the per-variant cylinder balance chains
+ * (balance = previous balance + filledOut - emptyIn, ordered by date, id).
+ *
+ * Customers are processed in id order, CHUNK_SIZE at a time. Each chunk streams
+ * its ledger rows through a cursor and commits on its own, so memory use and
+ * lock time are bounded by the chunk, not the ledger. A real run locks the
+ * chunk's customers first, so ledger writes for them wait for the chunk. Each
+ * run is recorded in balance_repair_job, and its last customer id is written
+ * in the chunk's own transaction, so a failed, cancelled or interrupted run
+ * (including one lost to a restart) can be resumed after its last committed
+ * chunk. A dry run reports what would change without writing anything.
+ */
+@Service
+public class BalanceRepairJobService {
+    private static final Logger logger = LoggerFactory.getLogger(BalanceRepairJobService.class);
+    private static final int CHUNK_SIZE = 50;
+    private static final int MAX_SAMPLE_CORRECTIONS = 100;
+
+    public static final String STATUS_IDLE = "IDLE";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_CANCELLED = "CANCELLED";
+
+    private final CustomerCylinderLedgerRepository ledgerRepository;
+    private final CustomerRepository customerRepository;
+    private final BalanceRepairJobRepository jobRepository;
+    private final LedgerDeltaPropagationService deltaPropagationService;
+    private final CustomerBalanceSnapshotService balanceSnapshotService;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor executor;
+
+    private final Object lock = new Object();
+    private BalanceRepairProgressDTO current;
+    private volatile boolean cancelRequested;
+
+    public BalanceRepairJobService(CustomerCylinderLedgerRepository ledgerRepository,
+            CustomerRepository customerRepository,
+            BalanceRepairJobRepository jobRepository,
+            LedgerDeltaPropagationService deltaPropagationService,
+            CustomerBalanceSnapshotService balanceSnapshotService,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("ioExecutor") Executor executor) {
+        this.ledgerRepository = ledgerRepository;
+        this.customerRepository = customerRepository;
+        this.jobRepository = jobRepository;
+        this.deltaPropagationService = deltaPropagationService;
+        this.balanceSnapshotService = balanceSnapshotService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executor = executor;
+    }
+
+    /**
+     * A job still marked RUNNING died with the previous process; mark it failed
+     * so it can be resumed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedJobs() {
+        try {
+            int interrupted = jobRepository.failInterrupted(STATUS_RUNNING, STATUS_FAILED,
+                    "Interrupted by an application restart", LocalDateTime.now());
+            if (interrupted > 0) {
+                logger.info("Marked {} interrupted balance repair job(s) as failed", interrupted);
+            }
+        } catch (Exception e) {
+            LoggerUtil.logException(logger, "Failed to mark interrupted balance repair jobs", e);
+        }
+    }
+
+    /**
+     * Start a repair run in the background.
+     *
+     * @param dryRun only report the rows that would be corrected
+     * @param resume continue after the last committed customer of a failed or
+     *               cancelled run instead of starting over
+     */
+    public BalanceRepairProgressDTO start(boolean dryRun, boolean resume) {
+        BalanceRepairProgressDTO job;
+        synchronized (lock) {
+            if (current != null && STATUS_RUNNING.equals(current.getStatus())) {
+                throw new InvalidOperationException("A balance repair job is already running");
+            }
+            Long startAfter = 0L;
+            // After a restart only the persisted job is left
+            BalanceRepairProgressDTO previous = current != null ? current
+                    : jobRepository.findTopByOrderByIdDesc().map(this::toDTO).orElse(null);
+            if (resume) {
+                if (previous == null || (!STATUS_FAILED.equals(previous.getStatus())
+                        && !STATUS_CANCELLED.equals(previous.getStatus()))) {
+                    throw new InvalidOperationException("There is no failed or cancelled repair job to resume");
+                }
+                if (previous.isDryRun() != dryRun) {
+                    throw new InvalidOperationException("A resumed job must use the same dry-run mode");
+                }
+                startAfter = previous.getLastCustomerId() != null ? previous.getLastCustomerId() : 0L;
+            }
+
+            job = new BalanceRepairProgressDTO();
+            job.setJobId(UUID.randomUUID().toString());
+            job.setStatus(STATUS_RUNNING);
+            job.setDryRun(dryRun);
+            job.setStartedAt(LocalDateTime.now());
+            job.setLastCustomerId(startAfter);
+            if (resume) {
+                job.setProcessedCustomers(previous.getProcessedCustomers());
+                job.setRowsScanned(previous.getRowsScanned());
+                job.setRowsCorrected(previous.getRowsCorrected());
+                job.setSampleCorrections(new ArrayList<>(previous.getSampleCorrections()));
+            }
+            jobRepository.save(toEntity(job));
+            current = job;
+            cancelRequested = false;
+        }
+
+        LoggerUtil.logBusinessEntry(logger, "BALANCE_REPAIR", "jobId", job.getJobId(), "dryRun", dryRun,
+                "startAfterCustomerId", job.getLastCustomerId());
+        final BalanceRepairProgressDTO runningJob = job;
+        try {
+            executor.execute(() -> run(runningJob));
+        } catch (RejectedExecutionException e) {
+            // Never started: leave a failed job behind so a new one (or a resume) is allowed
+            synchronized (lock) {
+                job.setStatus(STATUS_FAILED);
+                job.setErrorMessage("Balance repair could not be scheduled: " + e.getMessage());
+                job.setFinishedAt(LocalDateTime.now());
+            }
+            persistFinish(job);
+            LoggerUtil.logException(logger, "Balance repair job was rejected by the executor", e,
+                    "jobId", job.getJobId());
+        }
+        return getProgress();
+    }
+
+    public BalanceRepairProgressDTO requestCancel() {
+        synchronized (lock) {
+            if (current == null || !STATUS_RUNNING.equals(current.getStatus())) {
+                throw new InvalidOperationException("No balance repair job is running");
+            }
+            cancelRequested = true;
+        }
+        return getProgress();
+    }
+
+    public BalanceRepairProgressDTO getProgress() {
+        synchronized (lock) {
+            if (current == null) {
+                // Nothing ran since startup; report the last persisted job, if any
+                return jobRepository.findTopByOrderByIdDesc().map(this::toDTO).orElseGet(() -> {
+                    BalanceRepairProgressDTO idle = new BalanceRepairProgressDTO();
+                    idle.setStatus(STATUS_IDLE);
+                    return idle;
+                });
+            }
+            return copyOf(current);
+        }
+    }
+
+    private void run(BalanceRepairProgressDTO job) {
+        long started = System.currentTimeMillis();
+        try {
+            long remaining = ledgerRepository.countCustomersWithVariantRowsAfter(job.getLastCustomerId());
+            synchronized (lock) {
+                job.setTotalCustomers(job.getProcessedCustomers() + remaining);
+            }
+            jobRepository.updateTotalCustomers(job.getJobId(), job.getTotalCustomers());
+
+            while (!cancelRequested) {
+                List<Long> customerIds = ledgerRepository.findCustomerIdsWithVariantRowsAfter(
+                        job.getLastCustomerId(), PageRequest.of(0, CHUNK_SIZE));
+                if (customerIds.isEmpty()) {
+                    break;
+                }
+                Long lastCustomerId = customerIds.get(customerIds.size() - 1);
+                ChunkResult result = transactionTemplate.execute(status -> {
+                    ChunkResult chunk = repairChunk(customerIds, job.isDryRun());
+                    jobRepository.recordChunk(job.getJobId(), lastCustomerId,
+                            job.getProcessedCustomers() + customerIds.size(),
+                            job.getRowsScanned() + chunk.rowsScanned,
+                            job.getRowsCorrected() + chunk.corrections.size());
+                    return chunk;
+                });
+                synchronized (lock) {
+                    job.setLastCustomerId(lastCustomerId);
+                    job.setProcessedCustomers(job.getProcessedCustomers() + customerIds.size());
+                    job.setRowsScanned(job.getRowsScanned() + result.rowsScanned);
+                    job.setRowsCorrected(job.getRowsCorrected() + result.corrections.size());
+                    for (BalanceRepairProgressDTO.Correction correction : result.corrections) {
+                        if (job.getSampleCorrections().size() >= MAX_SAMPLE_CORRECTIONS) {
+                            break;
+                        }
+                        job.getSampleCorrections().add(correction);
+                    }
+                }
+            }
+
+            synchronized (lock) {
+                job.setStatus(cancelRequested ? STATUS_CANCELLED : STATUS_COMPLETED);
+                job.setFinishedAt(LocalDateTime.now());
+            }
+            persistFinish(job);
+            LoggerUtil.logPerformance("BALANCE_REPAIR", System.currentTimeMillis() - started, job.getStatus(),
+                    "dryRun", job.isDryRun(), "customers", job.getProcessedCustomers(),
+                    "rowsScanned", job.getRowsScanned(), "rowsCorrected", job.getRowsCorrected());
+            LoggerUtil.logBusinessSuccess(logger, "BALANCE_REPAIR", "jobId", job.getJobId(),
+                    "status", job.getStatus(), "rowsCorrected", job.getRowsCorrected());
+        } catch (Exception e) {
+            synchronized (lock) {
+                job.setStatus(STATUS_FAILED);
+                job.setErrorMessage(e.getMessage());
+                job.setFinishedAt(LocalDateTime.now());
+            }
+            persistFinish(job);
+            LoggerUtil.logException(logger, "Balance repair job failed", e, "jobId", job.getJobId(),
+                    "lastCustomerId", job.getLastCustomerId());
+        }
+    }
+
+    /**
+     * Recompute the chains of the given customers (ascending ids) from a
+     * streamed, chain-ordered cursor and write the rows that differ.
+     */
+    private ChunkResult repairChunk(List<Long> customerIds, boolean dryRun) {
+        Long fromCustomerId = customerIds.get(0);
+        Long toCustomerId = customerIds.get(customerIds.size() - 1);
+        if (!dryRun) {
+            // Same customer lock ledger writers take, acquired in id order so two
+            // lockers never wait on each other; held until the chunk commits
+            for (Long customerId : customerIds) {
+                customerRepository.findByIdForUpdate(customerId);
+            }
+        }
+        ChunkResult result = new ChunkResult();
+        List<Object[]> updates = new ArrayList<>();
+        Set<Long> touchedCustomers = new HashSet<>();
+
+        Long chainCustomerId = null;
+        Long chainVariantId = null;
+        long runningBalance = 0;
+        try (Stream<Object[]> rows = ledgerRepository.streamBalanceChainRows(fromCustomerId, toCustomerId)) {
+            for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                Long ledgerId = (Long) row[0];
+                Long customerId = (Long) row[1];
+                Long variantId = (Long) row[2];
+                long filledOut = row[3] != null ? (Long) row[3] : 0L;
+                long emptyIn = row[4] != null ? (Long) row[4] : 0L;
+                Long storedBalance = (Long) row[5];
+
+                if (!Objects.equals(customerId, chainCustomerId) || !Objects.equals(variantId, chainVariantId)) {
+                    chainCustomerId = customerId;
+                    chainVariantId = variantId;
+                    runningBalance = 0;
+                }
+                runningBalance = runningBalance + filledOut - emptyIn;
+                result.rowsScanned++;
+
+                if (storedBalance == null || storedBalance != runningBalance) {
+                    result.corrections.add(new BalanceRepairProgressDTO.Correction(ledgerId, customerId, variantId,
+                            storedBalance, runningBalance));
+                    updates.add(new Object[] { runningBalance, ledgerId });
+                    touchedCustomers.add(customerId);
+                }
+            }
+        }
+
+        if (!dryRun && !updates.isEmpty()) {
+            deltaPropagationService.batchUpdateBalances(updates);
+            for (Long customerId : touchedCustomers) {
+                balanceSnapshotService.refreshCustomer(customerId);
+            }
+            logger.info("BALANCE_REPAIR_CHUNK: customers {}-{}, {} entries recalculated", fromCustomerId,
+                    toCustomerId, updates.size());
+        }
+        return result;
+    }
+
+    // A lost final status only leaves the job RUNNING, which the next startup marks failed
+    private void persistFinish(BalanceRepairProgressDTO job) {
+        try {
+            String errorMessage = job.getErrorMessage();
+            if (errorMessage != null && errorMessage.length() > 1000) {
+                errorMessage = errorMessage.substring(0, 1000);
+            }
+            jobRepository.finish(job.getJobId(), job.getStatus(), errorMessage, job.getFinishedAt());
+        } catch (Exception e) {
+            LoggerUtil.logException(logger, "Failed to record balance repair job status", e,
+                    "jobId", job.getJobId());
+        }
+    }
+
+    private BalanceRepairJob toEntity(BalanceRepairProgressDTO job) {
+        BalanceRepairJob entity = new BalanceRepairJob();
+        entity.setJobId(job.getJobId());
+        entity.setStatus(job.getStatus());
+        entity.setDryRun(job.isDryRun());
+        entity.setStartedAt(job.getStartedAt());
+        entity.setTotalCustomers(job.getTotalCustomers());
+        entity.setProcessedCustomers(job.getProcessedCustomers());
+        entity.setRowsScanned(job.getRowsScanned());
+        entity.setRowsCorrected(job.getRowsCorrected());
+        entity.setLastCustomerId(job.getLastCustomerId());
+        return entity;
+    }
+
+    // Sample corrections are kept in memory only
+    private BalanceRepairProgressDTO toDTO(BalanceRepairJob entity) {
+        BalanceRepairProgressDTO dto = new BalanceRepairProgressDTO();
+        dto.setJobId(entity.getJobId());
+        dto.setStatus(entity.getStatus());
+        dto.setDryRun(entity.isDryRun());
+        dto.setStartedAt(entity.getStartedAt());
+        dto.setFinishedAt(entity.getFinishedAt());
+        dto.setTotalCustomers(entity.getTotalCustomers());
+        dto.setProcessedCustomers(entity.getProcessedCustomers());
+        dto.setRowsScanned(entity.getRowsScanned());
+        dto.setRowsCorrected(entity.getRowsCorrected());
+        dto.setLastCustomerId(entity.getLastCustomerId());
+        dto.setErrorMessage(entity.getErrorMessage());
+        return dto;
+    }
+
+    private BalanceRepairProgressDTO copyOf(BalanceRepairProgressDTO job) {
+        BalanceRepairProgressDTO copy = new BalanceRepairProgressDTO();
+        copy.setJobId(job.getJobId());
+        copy.setStatus(job.getStatus());
+        copy.setDryRun(job.isDryRun());
+        copy.setStartedAt(job.getStartedAt());
+        copy.setFinishedAt(job.getFinishedAt());
+        copy.setTotalCustomers(job.getTotalCustomers());
+        copy.setProcessedCustomers(job.getProcessedCustomers());
+        copy.setRowsScanned(job.getRowsScanned());
+        copy.setRowsCorrected(job.getRowsCorrected());
+        copy.setLastCustomerId(job.getLastCustomerId());
+        copy.setErrorMessage(job.getErrorMessage());
+        copy.setSampleCorrections(new ArrayList<>(job.getSampleCorrections()));
+        return copy;
+    }
+
+    private static class ChunkResult {
+        private long rowsScanned;
+        private final List<BalanceRepairProgressDTO.Correction> corrections = new ArrayList<>();
+    }
+}
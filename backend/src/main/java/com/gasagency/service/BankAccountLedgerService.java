@@ -3,8 +3,16 @@ package com.gasagency.service;
 import com.gasagency.dto.response.BankAccountBalanceDTO;
 import com.gasagency.dto.response.BankAccountLedgerDTO;
 import com.gasagency.dto.response.BankAccountLedgerSummaryDTO;
+import com.gasagency.entity.BankAccount;
 import com.gasagency.entity.BankAccountLedger;
+import com.gasagency.exception.ResourceNotFoundException;
 import com.gasagency.repository.BankAccountLedgerRepository;
+import com.gasagency.repository.BankAccountRepository;
+import com.gasagency.util.LoggerUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -14,17 +22,27 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Service
 @Transactional
 public class BankAccountLedgerService {
 
+    private static final Logger logger = LoggerFactory.getLogger(BankAccountLedgerService.class);
+    private static final String DEPOSIT = "DEPOSIT";
+    private static final String WITHDRAWAL = "WITHDRAWAL";
+
     private final BankAccountLedgerRepository bankAccountLedgerRepository;
+    private final BankAccountRepository bankAccountRepository;
 
-    public BankAccountLedgerService(BankAccountLedgerRepository bankAccountLedgerRepository) {
+    public BankAccountLedgerService(BankAccountLedgerRepository bankAccountLedgerRepository,
+            BankAccountRepository bankAccountRepository) {
         this.bankAccountLedgerRepository = bankAccountLedgerRepository;
+        this.bankAccountRepository = bankAccountRepository;
     }
 
     @Transactional(readOnly = true)
@@ -59,81 +77,100 @@ public class BankAccountLedgerService {
                 .orElse(null);
     }
 
+    /**
+     * Append an entry to its account's ledger with the running balance after it.
+     * The account row is locked so concurrent entries of one account are
+     * numbered in order; the entry is dated now, under the lock, so the date
+     * order matches the balance order.
+     */
+    public BankAccountLedger record(BankAccountLedger entry) {
+        Long bankAccountId = entry.getBankAccount().getId();
+        bankAccountRepository.findByIdForUpdate(bankAccountId)
+                .orElseThrow(() -> new ResourceNotFoundException("Bank account not found with id: " + bankAccountId));
+        // Entries written before running balances existed have none until the backfill runs
+        BigDecimal previous = bankAccountLedgerRepository.findLatestBalanceAfter(bankAccountId)
+                .orElseGet(() -> bankAccountLedgerRepository.sumSignedAmounts(bankAccountId));
+        BigDecimal amount = entry.getAmount() != null ? entry.getAmount() : BigDecimal.ZERO;
+        entry.setTransactionDate(LocalDateTime.now());
+        entry.setBalanceAfter(WITHDRAWAL.equals(entry.getTransactionType())
+                ? previous.subtract(amount)
+                : previous.add(amount));
+        return bankAccountLedgerRepository.save(entry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillRunningBalances() {
+        try {
+            if (bankAccountLedgerRepository.existsByBalanceAfterIsNull()) {
+                int updated = bankAccountLedgerRepository.recomputeBalances();
+                logger.info("Recomputed running balances of {} bank ledger entries", updated);
+            }
+        } catch (Exception e) {
+            LoggerUtil.logException(logger, "Bank ledger running balance backfill failed", e);
+        }
+    }
+
+    /**
+     * Totals come from one GROUP BY (transaction type, account) query; bank-wise
+     * balances are the running balance of each account's latest entry up to
+     * toDate.
+     */
     @Transactional(readOnly = true)
     public BankAccountLedgerSummaryDTO getSummary(Long bankAccountId, String transactionType, LocalDate fromDate,
             LocalDate toDate, String referenceNumber) {
         LocalDateTime startDate = fromDate != null ? fromDate.atStartOfDay() : null;
         LocalDateTime endDate = toDate != null ? toDate.atTime(23, 59, 59) : null;
 
-        List<BankAccountLedger> transactions = bankAccountLedgerRepository.findByFilters(
+        List<Object[]> groups = bankAccountLedgerRepository.summarizeByFilters(
                 bankAccountId,
                 transactionType,
                 startDate,
                 endDate,
                 referenceNumber);
 
-        // Calculate summary
         BigDecimal totalDeposits = BigDecimal.ZERO;
         BigDecimal totalWithdrawals = BigDecimal.ZERO;
-        BigDecimal balanceAfter = BigDecimal.ZERO;
-
-        // Track balance by bank account for multiple banks
-        Map<Long, BigDecimal> bankBalances = new java.util.HashMap<>();
-        Map<Long, String> bankNames = new java.util.HashMap<>();
-
-        // Find the maximum balance (most recent transaction)
-        for (BankAccountLedger transaction : transactions) {
-            BigDecimal amount = transaction.getAmount();
-            if (amount == null) {
-                amount = BigDecimal.ZERO;
-            }
-
-            if ("DEPOSIT".equals(transaction.getTransactionType())) {
+        long transactionCount = 0;
+        Set<Long> bankIds = new LinkedHashSet<>();
+        for (Object[] group : groups) {
+            String type = (String) group[0];
+            BigDecimal amount = (BigDecimal) group[2];
+            if (DEPOSIT.equals(type)) {
                 totalDeposits = totalDeposits.add(amount);
-            } else if ("WITHDRAWAL".equals(transaction.getTransactionType())) {
+            } else if (WITHDRAWAL.equals(type)) {
                 totalWithdrawals = totalWithdrawals.add(amount);
             }
-
-            // Track balance by bank account
-            if (transaction.getBankAccount() != null && transaction.getBalanceAfter() != null) {
-                Long bankId = transaction.getBankAccount().getId();
-                BigDecimal currentBalance = bankBalances.getOrDefault(bankId, BigDecimal.ZERO);
-
-                // Update balance if this transaction is more recent
-                if (transaction.getBalanceAfter().compareTo(currentBalance) > 0) {
-                    bankBalances.put(bankId, transaction.getBalanceAfter());
-                }
-
-                // Store bank name
-                bankNames.put(bankId, transaction.getBankAccount().getBankName() + " - " +
-                        transaction.getBankAccount().getAccountNumber());
-            }
-
-            // Get the highest balance across all banks
-            if (transaction.getBalanceAfter() != null &&
-                    transaction.getBalanceAfter().compareTo(balanceAfter) > 0) {
-                balanceAfter = transaction.getBalanceAfter();
-            }
+            bankIds.add((Long) group[1]);
+            transactionCount += (Long) group[3];
         }
 
-        BigDecimal netBalance = totalDeposits.subtract(totalWithdrawals);
-
         BankAccountLedgerSummaryDTO summary = new BankAccountLedgerSummaryDTO();
         summary.setTotalDeposits(totalDeposits);
         summary.setTotalWithdrawals(totalWithdrawals);
-        summary.setNetBalance(netBalance);
-        summary.setBalanceAfter(balanceAfter);
-        summary.setTransactionCount(transactions.size());
-
-        if (!bankBalances.isEmpty()) {
+        summary.setNetBalance(totalDeposits.subtract(totalWithdrawals));
+        summary.setBalanceAfter(BigDecimal.ZERO);
+        summary.setTransactionCount((int) transactionCount);
+
+        if (!bankIds.isEmpty()) {
+            Map<Long, BankAccount> accounts = new HashMap<>();
+            for (BankAccount account : bankAccountRepository.findAllById(bankIds)) {
+                accounts.put(account.getId(), account);
+            }
+            BigDecimal totalBalance = BigDecimal.ZERO;
             List<BankAccountBalanceDTO> balances = new ArrayList<>();
-            for (Long bankId : bankBalances.keySet()) {
+            for (Object[] row : bankAccountLedgerRepository.findLatestBalances(bankIds, endDate)) {
+                BankAccount account = accounts.get(((Number) row[0]).longValue());
+                BigDecimal balance = row[1] != null ? (BigDecimal) row[1] : BigDecimal.ZERO;
                 BankAccountBalanceDTO dto = new BankAccountBalanceDTO();
-                dto.setBankName(bankNames.get(bankId));
-                dto.setBalance(bankBalances.get(bankId));
+                if (account != null) {
+                    dto.setBankName(account.getBankName() + " - " + account.getAccountNumber());
+                }
+                dto.setBalance(balance);
                 balances.add(dto);
+                totalBalance = totalBalance.add(balance);
             }
             summary.setBankwiseBalances(balances);
+            summary.setBalanceAfter(totalBalance);
         }
 
         return summary;
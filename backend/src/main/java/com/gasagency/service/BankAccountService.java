@@ -31,17 +31,20 @@ import java.util.stream.Collectors;
 public class BankAccountService {
         private final BankAccountRepository bankAccountRepository;
         private final BankAccountLedgerRepository bankAccountLedgerRepository;
+        private final BankAccountLedgerService bankAccountLedgerService;
         private final SaleRepository saleRepository;
         private final ReferenceNumberGenerator referenceNumberGenerator;
         private final CodeGenerator codeGenerator;
 
         public BankAccountService(BankAccountRepository bankAccountRepository,
                         BankAccountLedgerRepository bankAccountLedgerRepository,
+                        BankAccountLedgerService bankAccountLedgerService,
                         SaleRepository saleRepository,
                         ReferenceNumberGenerator referenceNumberGenerator,
                         CodeGenerator codeGenerator) {
                 this.bankAccountRepository = bankAccountRepository;
                 this.bankAccountLedgerRepository = bankAccountLedgerRepository;
+                this.bankAccountLedgerService = bankAccountLedgerService;
                 this.saleRepository = saleRepository;
                 this.referenceNumberGenerator = referenceNumberGenerator;
                 this.codeGenerator = codeGenerator;
@@ -155,7 +158,7 @@ public class BankAccountService {
 
         /**
          * Record a deposit to the bank account and create a ledger entry
-         * Note: This method no longer updates bank balance, only tracks the transaction
+         * The running balance is kept on the ledger entry, not on the account
          */
         @Transactional
         public BankAccountLedger recordDeposit(Long bankAccountId, BigDecimal amount, Long saleId,
@@ -176,8 +179,7 @@ public class BankAccountService {
                                 .info("Recording deposit for bank account: {} - Amount: {}",
                                                 bankAccount.getBankName(), amount);
 
-                // Create ledger entry with generated bank reference
-                // Note: balanceAfter is no longer calculated, set to null
+                // Create ledger entry with generated bank reference; record() sets balanceAfter
                 Sale sale = null;
                 if (saleId != null) {
                         sale = saleRepository.findById(saleId).orElse(null);
@@ -190,7 +192,7 @@ public class BankAccountService {
                                 sale,
                                 bankReference,
                                 description);
-                BankAccountLedger savedEntry = bankAccountLedgerRepository.save(ledgerEntry);
+                BankAccountLedger savedEntry = bankAccountLedgerService.record(ledgerEntry);
 
                 LoggerFactory.getLogger(this.getClass())
                                 .info("Bank account ledger entry created - ID: {}, Reference: {}", savedEntry.getId(),
@@ -201,7 +203,7 @@ public class BankAccountService {
 
         /**
          * Record a withdrawal from the bank account and create a ledger entry
-         * Note: This method no longer updates bank balance, only tracks the transaction
+         * The running balance is kept on the ledger entry, not on the account
          */
         @Transactional
         public BankAccountLedger recordWithdrawal(Long bankAccountId, BigDecimal amount,
@@ -222,8 +224,7 @@ public class BankAccountService {
                                 .info("Recording withdrawal for bank account: {} - Amount: {}",
                                                 bankAccount.getBankName(), amount);
 
-                // Create ledger entry with generated bank reference
-                // Note: balanceAfter is no longer calculated, set to null
+                // Create ledger entry with generated bank reference; record() sets balanceAfter
                 BankAccountLedger ledgerEntry = new BankAccountLedger(
                                 bankAccount,
                                 "WITHDRAWAL",
@@ -232,7 +233,7 @@ public class BankAccountService {
                                 null,
                                 bankReference,
                                 description);
-                BankAccountLedger savedEntry = bankAccountLedgerRepository.save(ledgerEntry);
+                BankAccountLedger savedEntry = bankAccountLedgerService.record(ledgerEntry);
 
                 LoggerFactory.getLogger(this.getClass())
                                 .info("Bank account ledger entry created - ID: {}, Reference: {}", savedEntry.getId(),
@@ -0,0 +1,244 @@
+package com.gasagency.service;
+
+import com.gasagency.entity.Customer;
+import com.gasagency.entity.CustomerBalanceSnapshot;
+import com.gasagency.entity.CustomerCylinderLedger;
+import com.gasagency.repository.CustomerBalanceSnapshotRepository;
+import com.gasagency.repository.CustomerCylinderLedgerRepository;
+import com.gasagency.repository.CustomerRepository;
+import com.gasagency.repository.CylinderVariantRepository;
+import com.gasagency.util.LoggerUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Maintains the customer_balance_snapshot table so that "latest row per
+ * customer / variant" reads do not have to scan the whole ledger.
+ *
+ * refreshCustomer() must run inside the transaction that wrote the ledger
+ * rows, so the snapshot commits (or rolls back) together with them.
+ */
+@Service
+public class CustomerBalanceSnapshotService {
+    private static final Logger logger = LoggerFactory.getLogger(CustomerBalanceSnapshotService.class);
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    private final CustomerBalanceSnapshotRepository snapshotRepository;
+    private final CustomerCylinderLedgerRepository ledgerRepository;
+    private final CustomerRepository customerRepository;
+    private final CylinderVariantRepository variantRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean postgres;
+
+    public CustomerBalanceSnapshotService(CustomerBalanceSnapshotRepository snapshotRepository,
+            CustomerCylinderLedgerRepository ledgerRepository,
+            CustomerRepository customerRepository,
+            CylinderVariantRepository variantRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${spring.jpa.properties.hibernate.dialect:}") String dialect) {
+        this.snapshotRepository = snapshotRepository;
+        this.ledgerRepository = ledgerRepository;
+        this.customerRepository = customerRepository;
+        this.variantRepository = variantRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.postgres = dialect.contains("PostgreSQL");
+    }
+
+    /**
+     * Re-derive the snapshot rows of one customer from the latest ledger row
+     * of each variant. Uses the (customer_id, variant_id, id) index, so the
+     * cost is independent of the customer's history length.
+     */
+    @Transactional
+    public void refreshCustomer(Long customerId) {
+        if (customerId == null) {
+            return;
+        }
+        List<Object[]> latestRows = ledgerRepository.findLatestPositionRowsForCustomer(customerId);
+        Map<Long, CustomerBalanceSnapshot> existing = new HashMap<>();
+        CustomerBalanceSnapshot customerRow = null;
+        for (CustomerBalanceSnapshot snapshot : snapshotRepository.findByCustomerId(customerId)) {
+            if (snapshot.getVariant() == null) {
+                customerRow = snapshot;
+            } else {
+                existing.put(snapshot.getVariant().getId(), snapshot);
+            }
+        }
+
+        Customer customer = customerRepository.getReferenceById(customerId);
+        List<CustomerBalanceSnapshot> toSave = new ArrayList<>();
+        Object[] overallLatest = null;
+        for (Object[] row : latestRows) {
+            Long ledgerId = (Long) row[0];
+            Long variantId = (Long) row[1];
+            if (overallLatest == null || ledgerId > (Long) overallLatest[0]) {
+                overallLatest = row;
+            }
+            if (variantId == null) {
+                continue;
+            }
+            CustomerBalanceSnapshot snapshot = existing.remove(variantId);
+            if (snapshot == null) {
+                snapshot = new CustomerBalanceSnapshot(customer, variantRepository.getReferenceById(variantId));
+            }
+            if (apply(snapshot, ledgerId, (Long) row[2], (BigDecimal) row[3], (LocalDate) row[4])) {
+                toSave.add(snapshot);
+            }
+        }
+
+        if (overallLatest != null) {
+            if (customerRow == null) {
+                customerRow = new CustomerBalanceSnapshot(customer, null);
+            }
+            if (apply(customerRow, (Long) overallLatest[0], 0L, (BigDecimal) overallLatest[3],
+                    (LocalDate) overallLatest[4])) {
+                toSave.add(customerRow);
+            }
+        } else if (customerRow != null) {
+            snapshotRepository.delete(customerRow);
+        }
+
+        if (!existing.isEmpty()) {
+            snapshotRepository.deleteAll(existing.values());
+        }
+        if (!toSave.isEmpty()) {
+            snapshotRepository.saveAll(toSave);
+        }
+    }
+
+    /**
+     * Rebuild every snapshot row from the ledger. Used after bulk repairs and
+     * to backfill an empty snapshot table.
+     */
+    @Transactional
+    public long rebuildAll() {
+        long started = System.currentTimeMillis();
+        snapshotRepository.deleteAllInBatch();
+
+        List<Object[]> latestRows = ledgerRepository.findLatestPositionRows();
+        Map<Long, Object[]> latestPerCustomer = new HashMap<>();
+        List<CustomerBalanceSnapshot> batch = new ArrayList<>(REBUILD_BATCH_SIZE);
+        long written = 0;
+
+        for (Object[] row : latestRows) {
+            Long customerId = (Long) row[0];
+            Long variantId = (Long) row[1];
+            Long ledgerId = (Long) row[2];
+            Object[] current = latestPerCustomer.get(customerId);
+            if (current == null || ledgerId > (Long) current[2]) {
+                latestPerCustomer.put(customerId, row);
+            }
+            if (variantId == null) {
+                continue;
+            }
+            CustomerBalanceSnapshot snapshot = new CustomerBalanceSnapshot(
+                    customerRepository.getReferenceById(customerId),
+                    variantRepository.getReferenceById(variantId));
+            apply(snapshot, ledgerId, (Long) row[3], (BigDecimal) row[4], (LocalDate) row[5]);
+            batch.add(snapshot);
+            written += flushIfFull(batch);
+        }
+
+        for (Map.Entry<Long, Object[]> entry : latestPerCustomer.entrySet()) {
+            Object[] row = entry.getValue();
+            CustomerBalanceSnapshot snapshot = new CustomerBalanceSnapshot(
+                    customerRepository.getReferenceById(entry.getKey()), null);
+            apply(snapshot, (Long) row[2], 0L, (BigDecimal) row[4], (LocalDate) row[5]);
+            batch.add(snapshot);
+            written += flushIfFull(batch);
+        }
+        if (!batch.isEmpty()) {
+            snapshotRepository.saveAll(batch);
+            written += batch.size();
+            batch.clear();
+        }
+
+        LoggerUtil.logPerformance("BALANCE_SNAPSHOT_REBUILD", System.currentTimeMillis() - started, "SUCCESS",
+                "rows", written);
+        logger.info("BALANCE_SNAPSHOT_REBUILD_COMPLETE: {} snapshot rows written", written);
+        return written;
+    }
+
+    /**
+     * Backfill on first start after the snapshot table was introduced.
+     * On PostgreSQL also enforces one customer-level (NULL variant) row per
+     * customer; other databases rely on refreshCustomer alone.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (postgres) {
+            enforceSingleCustomerRow();
+        }
+        try {
+            if (snapshotRepository.count() == 0 && ledgerRepository.count() > 0) {
+                logger.info("Customer balance snapshot table is empty, rebuilding from ledger");
+                transactionTemplate.executeWithoutResult(status -> rebuildAll());
+            }
+        } catch (Exception e) {
+            LoggerUtil.logException(logger, "Customer balance snapshot backfill failed", e);
+        }
+    }
+
+    private void enforceSingleCustomerRow() {
+        try {
+            int removed = snapshotRepository.deleteDuplicateCustomerRows();
+            if (removed > 0) {
+                logger.info("Removed {} duplicate customer-level balance snapshot rows", removed);
+            }
+            snapshotRepository.createCustomerRowIndex();
+        } catch (Exception e) {
+            LoggerUtil.logException(logger, "Customer balance snapshot customer-row index failed", e);
+        }
+    }
+
+    private int flushIfFull(List<CustomerBalanceSnapshot> batch) {
+        if (batch.size() < REBUILD_BATCH_SIZE) {
+            return 0;
+        }
+        snapshotRepository.saveAll(batch);
+        int size = batch.size();
+        batch.clear();
+        return size;
+    }
+
+    private boolean apply(CustomerBalanceSnapshot snapshot, Long ledgerId, Long balance, BigDecimal dueAmount,
+            LocalDate transactionDate) {
+        CustomerCylinderLedger currentLedger = snapshot.getLatestLedger();
+        boolean unchanged = snapshot.getId() != null
+                && currentLedger != null
+                && Objects.equals(currentLedger.getId(), ledgerId)
+                && Objects.equals(snapshot.getBalance(), balance)
+                && compareNullable(snapshot.getDueAmount(), dueAmount)
+                && Objects.equals(snapshot.getLastTransactionDate(), transactionDate);
+        if (unchanged) {
+            return false;
+        }
+        snapshot.setLatestLedger(ledgerRepository.getReferenceById(ledgerId));
+        snapshot.setBalance(balance != null ? balance : 0L);
+        snapshot.setDueAmount(dueAmount);
+        snapshot.setLastTransactionDate(transactionDate);
+        return true;
+    }
+
+    private boolean compareNullable(BigDecimal a, BigDecimal b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.compareTo(b) == 0;
+    }
+}
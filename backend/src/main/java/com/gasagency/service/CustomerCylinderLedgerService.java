@@ -1,5 +1,6 @@
 package com.gasagency.service;
 
+import com.gasagency.dto.response.CursorPageDTO;
 import com.gasagency.dto.response.CustomerCylinderLedgerDTO;
 import com.gasagency.dto.response.CustomerLedgerSummaryDTO;
 import com.gasagency.dto.response.CustomerLedgerVariantSummaryDTO;
@@ -25,6 +26,7 @@ import com.gasagency.entity.SalePaymentSplit;
 import com.gasagency.entity.WarehouseTransfer;
 import com.gasagency.entity.AlertConfiguration;
 import com.gasagency.entity.BankAccountLedger;
+import com.gasagency.repository.CustomerBalanceSnapshotRepository;
 import com.gasagency.repository.CustomerCylinderLedgerRepository;
 import com.gasagency.repository.CustomerRepository;
 import com.gasagency.repository.CylinderVariantRepository;
@@ -40,7 +42,10 @@ import com.gasagency.exception.ResourceNotFoundException;
 import com.gasagency.exception.InvalidOperationException;
 import com.gasagency.util.LoggerUtil;
 import com.gasagency.util.ReferenceNumberGenerator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -64,6 +69,8 @@ import java.util.stream.Collectors;
 public class CustomerCylinderLedgerService {
 
         private static final Logger logger = LoggerFactory.getLogger(CustomerCylinderLedgerService.class);
+        private static final int MAX_MOVEMENT_PAGE_SIZE = 200;
+
         private final CustomerCylinderLedgerRepository repository;
         private final CustomerRepository customerRepository;
         private final CylinderVariantRepository variantRepository;
@@ -75,11 +82,16 @@ public class CustomerCylinderLedgerService {
         private final SaleRepository saleRepository;
         private final WarehouseTransferRepository warehouseTransferRepository;
         private final BankAccountLedgerRepository bankAccountLedgerRepository;
+        private final BankAccountLedgerService bankAccountLedgerService;
         private final PaymentModeRepository paymentModeRepository;
         private final CustomerLedgerPaymentSplitRepository customerLedgerPaymentSplitRepository;
         private final SalePaymentSplitRepository salePaymentSplitRepository;
         private final AuditRecordService auditRecordService;
         private final AlertConfigurationService alertConfigurationService;
+        private final CustomerBalanceSnapshotService balanceSnapshotService;
+        private final CustomerBalanceSnapshotRepository snapshotRepository;
+        private final LedgerDeltaPropagationService deltaPropagationService;
+        private final DailySalesRollupService salesRollupService;
 
         public CustomerCylinderLedgerService(CustomerCylinderLedgerRepository repository,
                         CustomerRepository customerRepository,
@@ -92,11 +104,16 @@ public class CustomerCylinderLedgerService {
                         SaleRepository saleRepository,
                         WarehouseTransferRepository warehouseTransferRepository,
                         BankAccountLedgerRepository bankAccountLedgerRepository,
+                        BankAccountLedgerService bankAccountLedgerService,
                         PaymentModeRepository paymentModeRepository,
                         CustomerLedgerPaymentSplitRepository customerLedgerPaymentSplitRepository,
                         SalePaymentSplitRepository salePaymentSplitRepository,
                         AuditRecordService auditRecordService,
-                        AlertConfigurationService alertConfigurationService) {
+                        AlertConfigurationService alertConfigurationService,
+                        CustomerBalanceSnapshotService balanceSnapshotService,
+                        CustomerBalanceSnapshotRepository snapshotRepository,
+                        LedgerDeltaPropagationService deltaPropagationService,
+                        DailySalesRollupService salesRollupService) {
                 this.repository = repository;
                 this.customerRepository = customerRepository;
                 this.variantRepository = variantRepository;
@@ -108,60 +125,37 @@ public class CustomerCylinderLedgerService {
                 this.saleRepository = saleRepository;
                 this.warehouseTransferRepository = warehouseTransferRepository;
                 this.bankAccountLedgerRepository = bankAccountLedgerRepository;
+                this.bankAccountLedgerService = bankAccountLedgerService;
                 this.paymentModeRepository = paymentModeRepository;
                 this.customerLedgerPaymentSplitRepository = customerLedgerPaymentSplitRepository;
                 this.salePaymentSplitRepository = salePaymentSplitRepository;
                 this.auditRecordService = auditRecordService;
                 this.alertConfigurationService = alertConfigurationService;
+                this.balanceSnapshotService = balanceSnapshotService;
+                this.snapshotRepository = snapshotRepository;
+                this.deltaPropagationService = deltaPropagationService;
+                this.salesRollupService = salesRollupService;
         }
 
-        // Get all ledger entries sorted by date descending (for stock movement history)
-        @Transactional(readOnly = true)
-        public List<CustomerCylinderLedgerDTO> getAllMovements() {
-                List<CustomerCylinderLedgerDTO> ledgerMovements = repository.findAll().stream()
-                                .sorted((a, b) -> b.getTransactionDate().compareTo(a.getTransactionDate()))
-                                .map(this::toDTO)
-                                .collect(Collectors.toList());
-
-                // Get all warehouse transfers
+        /**
+         * One-time migration: fill created_date of entries older than auditing and
+         * make the column NOT NULL. Skipped once information_schema reports it as
+         * not nullable, so later starts neither scan the ledger nor lock the table.
+         */
+        @EventListener(ApplicationReadyEvent.class)
+        public void requireCreatedDates() {
                 try {
-                        List<WarehouseTransferDTO> allTransfers = warehouseTransferService
-                                        .getAllTransfers();
-                        if (allTransfers != null && !allTransfers.isEmpty()) {
-                                List<CustomerCylinderLedgerDTO> transferMovements = allTransfers.stream()
-                                                .map(this::transferToLedgerDTO)
-                                                .collect(Collectors.toList());
-
-                                // Combine and sort by date, then by createdDate (latest timestamp first)
-                                List<CustomerCylinderLedgerDTO> combined = new ArrayList<>();
-                                combined.addAll(ledgerMovements);
-                                combined.addAll(transferMovements);
-                                combined.sort((a, b) -> {
-                                        LocalDate dateA = a.getTransactionDate() != null ? a.getTransactionDate()
-                                                        : LocalDate.now();
-                                        LocalDate dateB = b.getTransactionDate() != null ? b.getTransactionDate()
-                                                        : LocalDate.now();
-                                        int dateComparison = dateB.compareTo(dateA);
-                                        if (dateComparison != 0) {
-                                                return dateComparison;
-                                        }
-                                        // If dates are equal, sort by createdDate descending (latest record first)
-                                        java.time.LocalDateTime timeA = a.getCreatedAt();
-                                        java.time.LocalDateTime timeB = b.getCreatedAt();
-                                        if (timeA == null)
-                                                timeA = java.time.LocalDateTime.MIN;
-                                        if (timeB == null)
-                                                timeB = java.time.LocalDateTime.MIN;
-                                        return timeB.compareTo(timeA);
-                                });
-
-                                return combined;
+                        if (!repository.findCreatedDateNullability().contains("YES")) {
+                                return;
+                        }
+                        int updated = repository.backfillCreatedDates();
+                        if (updated > 0) {
+                                logger.info("Backfilled created_date of {} ledger entries", updated);
                         }
+                        repository.requireCreatedDates();
                 } catch (Exception e) {
-                        LoggerUtil.logBusinessError(logger, "GET_ALL_MOVEMENTS", "Error fetching transfers");
+                        LoggerUtil.logException(logger, "Ledger created_date backfill failed", e);
                 }
-
-                return ledgerMovements;
         }
 
         /**
@@ -170,15 +164,13 @@ public class CustomerCylinderLedgerService {
          */
         @Transactional(readOnly = true)
         public Page<CustomerCylinderLedgerDTO> getAllMovements(Pageable pageable) {
-                return repository.findAll(pageable)
-                                .map(this::toDTO);
+                return toDTOPage(repository.findAll(pageable));
         }
 
         @Transactional(readOnly = true)
         public Page<CustomerCylinderLedgerDTO> getAllMovements(Pageable pageable, Long variantId,
                         CustomerCylinderLedger.TransactionType refType) {
-                return repository.findMovementsFiltered(variantId, refType, pageable)
-                                .map(this::toDTO);
+                return toDTOPage(repository.findMovementsFiltered(variantId, refType, pageable));
         }
 
         @Transactional(readOnly = true)
@@ -187,58 +179,14 @@ public class CustomerCylinderLedgerService {
         }
 
         /**
-         * Paginated movements including warehouse transfers (merged in memory)
-         * Use when Transfer entries must be shown alongside ledger entries.
+         * Paginated movements including warehouse transfers, merged from two
+         * date-ordered queries. Only offset + size rows are read from each side;
+         * prefer getMovementsByCursor for deep pages.
          */
         @Transactional(readOnly = true)
         public Page<CustomerCylinderLedgerDTO> getAllMovementsMerged(Pageable pageable, Long variantId,
                         CustomerCylinderLedger.TransactionType refType) {
-                List<CustomerCylinderLedgerDTO> combined = new ArrayList<>();
-
-                boolean includeTransfers = refType == null
-                                || refType == CustomerCylinderLedger.TransactionType.TRANSFER;
-                boolean includeLedgers = refType == null
-                                || refType != CustomerCylinderLedger.TransactionType.TRANSFER;
-
-                if (includeLedgers) {
-                        List<CustomerCylinderLedgerDTO> ledgers = repository
-                                        .findMovementsFiltered(variantId, refType, Pageable.unpaged())
-                                        .getContent()
-                                        .stream()
-                                        .map(this::toDTO)
-                                        .collect(Collectors.toList());
-                        combined.addAll(ledgers);
-                }
-
-                if (includeTransfers) {
-                        List<WarehouseTransferDTO> transfers = warehouseTransferService
-                                        .getAllTransfers(variantId);
-                        List<CustomerCylinderLedgerDTO> transferMovements = transfers.stream()
-                                        .map(this::transferToLedgerDTO)
-                                        .collect(Collectors.toList());
-                        combined.addAll(transferMovements);
-                }
-
-                combined.sort((a, b) -> {
-                        LocalDate dateA = a.getTransactionDate() != null ? a.getTransactionDate() : LocalDate.now();
-                        LocalDate dateB = b.getTransactionDate() != null ? b.getTransactionDate() : LocalDate.now();
-                        int dateComparison = dateB.compareTo(dateA);
-                        if (dateComparison != 0) {
-                                return dateComparison;
-                        }
-                        java.time.LocalDateTime timeA = a.getCreatedAt() != null ? a.getCreatedAt()
-                                        : java.time.LocalDateTime.MIN;
-                        java.time.LocalDateTime timeB = b.getCreatedAt() != null ? b.getCreatedAt()
-                                        : java.time.LocalDateTime.MIN;
-                        return timeB.compareTo(timeA);
-                });
-
-                int start = (int) pageable.getOffset();
-                int end = Math.min(start + pageable.getPageSize(), combined.size());
-                List<CustomerCylinderLedgerDTO> pageContent = start >= combined.size()
-                                ? java.util.Collections.emptyList()
-                                : combined.subList(start, end);
-                return new org.springframework.data.domain.PageImpl<>(pageContent, pageable, combined.size());
+                return mergedMovementsPage(null, pageable, variantId, refType);
         }
 
         @Transactional(readOnly = true)
@@ -246,71 +194,18 @@ public class CustomerCylinderLedgerService {
                 return getAllMovementsMerged(pageable, variantId, parseRefType(refType));
         }
 
-        // Get ledger entries for a specific warehouse sorted by date descending
-        @Transactional(readOnly = true)
-        public List<CustomerCylinderLedgerDTO> getMovementsByWarehouse(Long warehouseId) {
-                // Get customer ledger movements for this warehouse
-                List<CustomerCylinderLedgerDTO> ledgerMovements = repository.findByWarehouseId(warehouseId).stream()
-                                .sorted((a, b) -> b.getTransactionDate().compareTo(a.getTransactionDate()))
-                                .map(this::toDTO)
-                                .collect(Collectors.toList());
-
-                // Get warehouse transfers involving this warehouse
-                try {
-                        List<WarehouseTransferDTO> allTransfers = warehouseTransferService
-                                        .getTransfersForWarehouseAndVariant(warehouseId, null);
-                        if (allTransfers != null && !allTransfers.isEmpty()) {
-                                List<CustomerCylinderLedgerDTO> transferMovements = allTransfers.stream()
-                                                .map(this::transferToLedgerDTO)
-                                                .collect(Collectors.toList());
-
-                                // Combine and sort by date, then by createdDate (latest timestamp first)
-                                List<CustomerCylinderLedgerDTO> combined = new ArrayList<>();
-                                combined.addAll(ledgerMovements);
-                                combined.addAll(transferMovements);
-                                combined.sort((a, b) -> {
-                                        LocalDate dateA = a.getTransactionDate() != null ? a.getTransactionDate()
-                                                        : LocalDate.now();
-                                        LocalDate dateB = b.getTransactionDate() != null ? b.getTransactionDate()
-                                                        : LocalDate.now();
-                                        int dateComparison = dateB.compareTo(dateA);
-                                        if (dateComparison != 0) {
-                                                return dateComparison;
-                                        }
-                                        // If dates are equal, sort by createdDate descending (latest record first)
-                                        java.time.LocalDateTime timeA = a.getCreatedAt();
-                                        java.time.LocalDateTime timeB = b.getCreatedAt();
-                                        if (timeA == null)
-                                                timeA = java.time.LocalDateTime.MIN;
-                                        if (timeB == null)
-                                                timeB = java.time.LocalDateTime.MIN;
-                                        return timeB.compareTo(timeA);
-                                });
-
-                                return combined;
-                        }
-                } catch (Exception e) {
-                        LoggerUtil.logBusinessError(logger, "GET_MOVEMENTS_BY_WAREHOUSE", "Error fetching transfers",
-                                        "warehouseId", warehouseId);
-                }
-
-                return ledgerMovements;
-        }
-
         /**
          * Paginated ledger movements for a warehouse (ledger entries only)
          */
         @Transactional(readOnly = true)
         public Page<CustomerCylinderLedgerDTO> getMovementsByWarehouse(Long warehouseId, Pageable pageable) {
-                return repository.findByWarehouseId(warehouseId, pageable)
-                                .map(this::toDTO);
+                return toDTOPage(repository.findByWarehouseId(warehouseId, pageable));
         }
 
         @Transactional(readOnly = true)
         public Page<CustomerCylinderLedgerDTO> getMovementsByWarehouse(Long warehouseId, Pageable pageable,
                         Long variantId, CustomerCylinderLedger.TransactionType refType) {
-                return repository.findMovementsFilteredByWarehouse(warehouseId, variantId, refType, pageable)
-                                .map(this::toDTO);
+                return toDTOPage(repository.findMovementsFilteredByWarehouse(warehouseId, variantId, refType, pageable));
         }
 
         @Transactional(readOnly = true)
@@ -320,58 +215,13 @@ public class CustomerCylinderLedgerService {
         }
 
         /**
-         * Paginated movements including transfers for a warehouse (merged in memory)
+         * Paginated movements including transfers for a warehouse, merged from two
+         * date-ordered queries (see getAllMovementsMerged)
          */
         @Transactional(readOnly = true)
         public Page<CustomerCylinderLedgerDTO> getMovementsByWarehouseMerged(Long warehouseId, Pageable pageable,
                         Long variantId, CustomerCylinderLedger.TransactionType refType) {
-                List<CustomerCylinderLedgerDTO> combined = new ArrayList<>();
-
-                boolean includeTransfers = refType == null
-                                || refType == CustomerCylinderLedger.TransactionType.TRANSFER;
-                boolean includeLedgers = refType == null
-                                || refType != CustomerCylinderLedger.TransactionType.TRANSFER;
-
-                if (includeLedgers) {
-                        List<CustomerCylinderLedgerDTO> ledgers = repository
-                                        .findMovementsFilteredByWarehouse(warehouseId, variantId, refType,
-                                                        Pageable.unpaged())
-                                        .getContent()
-                                        .stream()
-                                        .map(this::toDTO)
-                                        .collect(Collectors.toList());
-                        combined.addAll(ledgers);
-                }
-
-                if (includeTransfers) {
-                        List<WarehouseTransferDTO> transfers = warehouseTransferService
-                                        .getTransfersForWarehouseAndVariant(warehouseId, variantId);
-                        List<CustomerCylinderLedgerDTO> transferMovements = transfers.stream()
-                                        .map(this::transferToLedgerDTO)
-                                        .collect(Collectors.toList());
-                        combined.addAll(transferMovements);
-                }
-
-                combined.sort((a, b) -> {
-                        LocalDate dateA = a.getTransactionDate() != null ? a.getTransactionDate() : LocalDate.now();
-                        LocalDate dateB = b.getTransactionDate() != null ? b.getTransactionDate() : LocalDate.now();
-                        int dateComparison = dateB.compareTo(dateA);
-                        if (dateComparison != 0) {
-                                return dateComparison;
-                        }
-                        java.time.LocalDateTime timeA = a.getCreatedAt() != null ? a.getCreatedAt()
-                                        : java.time.LocalDateTime.MIN;
-                        java.time.LocalDateTime timeB = b.getCreatedAt() != null ? b.getCreatedAt()
-                                        : java.time.LocalDateTime.MIN;
-                        return timeB.compareTo(timeA);
-                });
-
-                int start = (int) pageable.getOffset();
-                int end = Math.min(start + pageable.getPageSize(), combined.size());
-                List<CustomerCylinderLedgerDTO> pageContent = start >= combined.size()
-                                ? java.util.Collections.emptyList()
-                                : combined.subList(start, end);
-                return new org.springframework.data.domain.PageImpl<>(pageContent, pageable, combined.size());
+                return mergedMovementsPage(warehouseId, pageable, variantId, refType);
         }
 
         @Transactional(readOnly = true)
@@ -380,6 +230,149 @@ public class CustomerCylinderLedgerService {
                 return getMovementsByWarehouseMerged(warehouseId, pageable, variantId, parseRefType(refType));
         }
 
+        /**
+         * Keyset page of the movement history (newest first), optionally limited to
+         * one warehouse. Movements are ordered by (transactionDate, createdAt, source,
+         * id) descending, ledger entries before transfers on equal timestamps. Each
+         * page reads at most size + 1 rows from the ledger and from the transfers
+         * and merges them, so the cost does not grow with the page depth.
+         *
+         * @param cursor nextCursor of the previous page, or null for the first page
+         */
+        @Transactional(readOnly = true)
+        public CursorPageDTO<CustomerCylinderLedgerDTO> getMovementsByCursor(Long warehouseId, String cursor,
+                        int size, Long variantId, String refType, boolean includeTransfers) {
+                int pageSize = Math.max(1, Math.min(size, MAX_MOVEMENT_PAGE_SIZE));
+                MovementCursor after = cursor == null || cursor.isBlank() ? MovementCursor.FIRST
+                                : MovementCursor.decode(cursor);
+
+                List<MovementRow> rows = mergeMovements(warehouseId, variantId, parseRefType(refType),
+                                includeTransfers, after, pageSize + 1);
+                boolean hasMore = rows.size() > pageSize;
+                List<MovementRow> page = hasMore ? rows.subList(0, pageSize) : rows;
+                String nextCursor = hasMore ? page.get(page.size() - 1).cursor().encode() : null;
+                return new CursorPageDTO<>(page.stream().map(MovementRow::dto).collect(Collectors.toList()),
+                                nextCursor, hasMore, pageSize);
+        }
+
+        private Page<CustomerCylinderLedgerDTO> mergedMovementsPage(Long warehouseId, Pageable pageable,
+                        Long variantId, CustomerCylinderLedger.TransactionType refType) {
+                int offset = (int) pageable.getOffset();
+                List<MovementRow> rows = mergeMovements(warehouseId, variantId, refType, true,
+                                MovementCursor.FIRST, offset + pageable.getPageSize());
+                List<CustomerCylinderLedgerDTO> pageContent = offset >= rows.size()
+                                ? java.util.Collections.emptyList()
+                                : rows.subList(offset, rows.size()).stream().map(MovementRow::dto)
+                                                .collect(Collectors.toList());
+
+                long total = 0;
+                if (refType != CustomerCylinderLedger.TransactionType.TRANSFER) {
+                        total += warehouseId != null
+                                        ? repository.countMovementsByWarehouse(warehouseId, variantId, refType)
+                                        : repository.countMovements(variantId, refType);
+                }
+                if (refType == null || refType == CustomerCylinderLedger.TransactionType.TRANSFER) {
+                        total += warehouseTransferService.countTransfers(warehouseId, variantId);
+                }
+                return new org.springframework.data.domain.PageImpl<>(pageContent, pageable, total);
+        }
+
+        /**
+         * Merge the ledger and transfer streams after the given position, returning
+         * at most limit movements. Each side is read in index order, at most limit
+         * rows.
+         */
+        private List<MovementRow> mergeMovements(Long warehouseId, Long variantId,
+                        CustomerCylinderLedger.TransactionType refType, boolean includeTransfers,
+                        MovementCursor after, int limit) {
+                boolean withTransfers = includeTransfers && (refType == null
+                                || refType == CustomerCylinderLedger.TransactionType.TRANSFER);
+                boolean withLedgers = !includeTransfers || refType != CustomerCylinderLedger.TransactionType.TRANSFER;
+
+                // On an equal (date, createdAt) ledger entries sort before transfers, so after a
+                // transfer no ledger entry of that timestamp is left, and after a ledger entry
+                // every transfer of that timestamp still is
+                List<CustomerCylinderLedger> ledgers = withLedgers
+                                ? (warehouseId != null
+                                                ? repository.findMovementsBeforeByWarehouse(warehouseId, variantId,
+                                                                refType, after.date(), after.createdAt(),
+                                                                after.transfer() ? 0L : after.id(), PageRequest.of(0, limit))
+                                                : repository.findMovementsBefore(variantId, refType, after.date(),
+                                                                after.createdAt(), after.transfer() ? 0L : after.id(),
+                                                                PageRequest.of(0, limit)))
+                                : java.util.Collections.emptyList();
+                List<WarehouseTransferDTO> transfers = withTransfers
+                                ? warehouseTransferService.getTransfersBefore(warehouseId, variantId, after.date(),
+                                                after.createdAt(), after.transfer() ? after.id() : Long.MAX_VALUE,
+                                                limit)
+                                : java.util.Collections.emptyList();
+
+                List<CustomerCylinderLedgerDTO> ledgerDTOs = toDTOs(ledgers);
+                List<MovementRow> merged = new ArrayList<>(Math.min(limit, ledgers.size() + transfers.size()));
+                int i = 0;
+                int j = 0;
+                while (merged.size() < limit && (i < ledgers.size() || j < transfers.size())) {
+                        boolean takeTransfer = i >= ledgers.size() || (j < transfers.size()
+                                        && sortsBefore(transfers.get(j), ledgers.get(i)));
+                        if (takeTransfer) {
+                                WarehouseTransferDTO transfer = transfers.get(j++);
+                                merged.add(new MovementRow(transferToLedgerDTO(transfer),
+                                                new MovementCursor(transfer.getTransferDate(),
+                                                                transfer.getCreatedAt(), true,
+                                                                transfer.getId())));
+                        } else {
+                                CustomerCylinderLedger ledger = ledgers.get(i);
+                                merged.add(new MovementRow(ledgerDTOs.get(i++),
+                                                new MovementCursor(ledger.getTransactionDate(),
+                                                                ledger.getCreatedDate(), false,
+                                                                ledger.getId())));
+                        }
+                }
+                return merged;
+        }
+
+        // True when the transfer comes strictly before the ledger entry (newer date or timestamp)
+        private static boolean sortsBefore(WarehouseTransferDTO transfer, CustomerCylinderLedger ledger) {
+                int byDate = transfer.getTransferDate().compareTo(ledger.getTransactionDate());
+                if (byDate != 0) {
+                        return byDate > 0;
+                }
+                return transfer.getCreatedAt().isAfter(ledger.getCreatedDate());
+        }
+
+        private record MovementRow(CustomerCylinderLedgerDTO dto, MovementCursor cursor) {
+        }
+
+        /**
+         * Position in the merged movement history, exchanged with clients as an
+         * opaque base64url string.
+         */
+        private record MovementCursor(LocalDate date, LocalDateTime createdAt, boolean transfer, long id) {
+                static final MovementCursor FIRST = new MovementCursor(LocalDate.of(9999, 12, 31),
+                                LocalDateTime.of(9999, 12, 31, 23, 59, 59), false, Long.MAX_VALUE);
+
+                String encode() {
+                        String raw = date + "|" + createdAt + "|" + (transfer ? "T" : "L") + "|" + id;
+                        return java.util.Base64.getUrlEncoder().withoutPadding()
+                                        .encodeToString(raw.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+                }
+
+                static MovementCursor decode(String cursor) {
+                        try {
+                                String raw = new String(java.util.Base64.getUrlDecoder().decode(cursor),
+                                                java.nio.charset.StandardCharsets.UTF_8);
+                                String[] parts = raw.split("\\|");
+                                if (parts.length != 4 || !(parts[2].equals("L") || parts[2].equals("T"))) {
+                                        throw new IllegalArgumentException(raw);
+                                }
+                                return new MovementCursor(LocalDate.parse(parts[0]), LocalDateTime.parse(parts[1]),
+                                                parts[2].equals("T"), Long.parseLong(parts[3]));
+                        } catch (RuntimeException e) {
+                                throw new InvalidOperationException("Invalid movement cursor");
+                        }
+                }
+        }
+
         private CustomerCylinderLedger.TransactionType parseRefType(String refType) {
                 if (refType == null || refType.trim().isEmpty()) {
                         return null;
@@ -483,17 +476,11 @@ public class CustomerCylinderLedgerService {
         }
 
         public List<CustomerCylinderLedgerDTO> getAllPendingBalances() {
-                List<CustomerCylinderLedgerDTO> result = new java.util.ArrayList<>();
                 List<Customer> customers = customerRepository.findAllByActive(true);
                 if (customers.isEmpty()) {
-                        return result;
-                }
-                List<CustomerCylinderLedger> latestLedgers = repository
-                                .findLatestPositiveBalancesForCustomers(customers);
-                for (CustomerCylinderLedger ledger : latestLedgers) {
-                        result.add(toDTO(ledger));
+                        return new java.util.ArrayList<>();
                 }
-                return result;
+                return toDTOs(repository.findLatestPositiveBalancesForCustomers(customers));
         }
 
         @Transactional(readOnly = true)
@@ -504,7 +491,7 @@ public class CustomerCylinderLedgerService {
                 Long thresholdValue = threshold != null ? threshold.longValue() : null;
                 Page<CustomerCylinderLedger> page = repository.findPendingReturnBalancesPaged(
                                 customerId, variantId, search, normalizedStatus, thresholdValue, pageable);
-                return page.map(this::toDTO);
+                return toDTOPage(page);
         }
 
         @Transactional(readOnly = true)
@@ -514,9 +501,9 @@ public class CustomerCylinderLedgerService {
                 String normalizedStatus = normalizePendingStatus(status);
                 Long thresholdValue = threshold != null ? threshold.longValue() : null;
 
-                Long totalReturnPending = repository.sumPendingReturnBalances(
+                Long totalReturnPending = snapshotRepository.sumPendingReturnBalances(
                                 customerId, variantId, search, normalizedStatus, thresholdValue);
-                long customersWithReturnPending = repository.countPendingReturnBalances(
+                long customersWithReturnPending = snapshotRepository.countPendingReturnBalances(
                                 customerId, variantId, search, normalizedStatus, thresholdValue);
 
                 long highRiskCount = 0;
@@ -524,7 +511,7 @@ public class CustomerCylinderLedgerService {
                         highRiskCount = customersWithReturnPending;
                 } else if (normalizedStatus == null || normalizedStatus.isEmpty()) {
                         if (threshold != null) {
-                                highRiskCount = repository.countHighRiskPendingReturnBalances(
+                                highRiskCount = snapshotRepository.countHighRiskPendingReturnBalances(
                                                 threshold.longValue(), customerId, variantId, search);
                         }
                 }
@@ -715,6 +702,8 @@ public class CustomerCylinderLedgerService {
                         inventoryStockService.incrementEmptyQty(warehouse, variant, emptyIn);
                 }
 
+                balanceSnapshotService.refreshCustomer(customerId);
+
                 return toDTO(ledger);
         }
 
@@ -833,6 +822,7 @@ public class CustomerCylinderLedgerService {
                         if (shouldRecalculateDueChain(ledger.getCustomer(), ledger.getTransactionDate(), ledger.getId())) {
                                 recalculateDueChainForCustomer(ledger.getCustomer());
                         }
+                        balanceSnapshotService.refreshCustomer(customerId);
 
                         return toDTO(ledger);
                 }
@@ -932,17 +922,14 @@ public class CustomerCylinderLedgerService {
         public List<CustomerCylinderLedgerDTO> getAllLedger() {
                 LoggerUtil.logDatabaseOperation(logger, "SELECT_ALL", "LEDGER");
 
-                return repository.findAll().stream()
-                                .map(this::toDTO)
-                                .collect(Collectors.toList());
+                return toDTOs(repository.findAll());
         }
 
         public Page<CustomerCylinderLedgerDTO> getAllLedger(Pageable pageable) {
                 LoggerUtil.logDatabaseOperation(logger, "SELECT_PAGINATED", "LEDGER", "page", pageable.getPageNumber(),
                                 "size", pageable.getPageSize());
 
-                return repository.findAll(pageable)
-                                .map(this::toDTO);
+                return toDTOPage(repository.findAll(pageable));
         }
 
         public Page<CustomerCylinderLedgerDTO> getEmptyReturns(LocalDate fromDate, LocalDate toDate, Long customerId,
@@ -952,10 +939,9 @@ public class CustomerCylinderLedgerService {
                                 "variantId", variantId, "page", pageable.getPageNumber(), "size",
                                 pageable.getPageSize());
 
-                return repository.findEmptyReturns(fromDate, toDate, customerId, variantId,
+                return toDTOPage(repository.findEmptyReturns(fromDate, toDate, customerId, variantId,
                                 (createdBy != null && !createdBy.isEmpty()) ? createdBy : null,
-                                pageable)
-                                .map(this::toDTO);
+                                pageable));
         }
 
         public Page<CustomerCylinderLedgerDTO> getPayments(LocalDate fromDate, LocalDate toDate, Long customerId,
@@ -965,15 +951,14 @@ public class CustomerCylinderLedgerService {
                                 "paymentMode", paymentMode, "bankAccountId", bankAccountId,
                                 "page", pageable.getPageNumber(), "size", pageable.getPageSize());
 
-                return repository.findPayments(
+                return toDTOPage(repository.findPayments(
                                 fromDate,
                                 toDate,
                                 customerId,
                                 (paymentMode != null && !paymentMode.isEmpty()) ? paymentMode : null,
                                 bankAccountId,
                                 (createdBy != null && !createdBy.isEmpty()) ? createdBy : null,
-                                pageable)
-                                .map(this::toDTO);
+                                pageable));
         }
 
         public java.math.BigDecimal getPaymentsSummary(LocalDate fromDate, LocalDate toDate, Long customerId,
@@ -1001,7 +986,7 @@ public class CustomerCylinderLedgerService {
                 CustomerCylinderLedger.VerificationStatus status = parseVerificationStatus(verificationStatus);
                 CustomerCylinderLedger.TransactionType transactionType = parseTransactionType(refType);
                 String normalizedSearch = (search != null && !search.trim().isEmpty()) ? search.trim() : null;
-                return repository.findBankVerificationQueue(
+                return toDTOPage(repository.findBankVerificationQueue(
                                 fromDate,
                                 toDate,
                                 transactionType,
@@ -1010,8 +995,7 @@ public class CustomerCylinderLedgerService {
                                 bankAccountId,
                                 status,
                                 normalizedSearch,
-                                pageable)
-                                .map(this::toDTO);
+                                pageable));
         }
 
         public LedgerVerificationSummaryDTO getBankVerificationSummary(
@@ -1197,9 +1181,7 @@ public class CustomerCylinderLedgerService {
                                         return new ResourceNotFoundException(
                                                         "Customer not found with id: " + customerId);
                                 });
-                return repository.findByCustomer(customer).stream()
-                                .map(this::toDTO)
-                                .collect(Collectors.toList());
+                return toDTOs(repository.findByCustomer(customer));
         }
 
         @Transactional(readOnly = true)
@@ -1214,8 +1196,7 @@ public class CustomerCylinderLedgerService {
                                         return new ResourceNotFoundException(
                                                         "Customer not found with id: " + customerId);
                                 });
-                return repository.findByCustomer(customer, pageable)
-                                .map(this::toDTO);
+                return toDTOPage(repository.findByCustomer(customer, pageable));
         }
 
         public List<CustomerCylinderLedgerDTO> getLedgerByCustomerAndVariant(Long customerId, Long variantId) {
@@ -1236,9 +1217,7 @@ public class CustomerCylinderLedgerService {
                                         return new ResourceNotFoundException(
                                                         "Variant not found with id: " + variantId);
                                 });
-                return repository.findByCustomerAndVariant(customer, variant).stream()
-                                .map(this::toDTO)
-                                .collect(Collectors.toList());
+                return toDTOs(repository.findByCustomerAndVariant(customer, variant));
         }
 
         public List<CustomerCylinderLedgerDTO> getLedgerByVariant(Long variantId) {
@@ -1251,9 +1230,7 @@ public class CustomerCylinderLedgerService {
                                         return new ResourceNotFoundException(
                                                         "Variant not found with id: " + variantId);
                                 });
-                return repository.findByVariant(variant).stream()
-                                .map(this::toDTO)
-                                .collect(Collectors.toList());
+                return toDTOs(repository.findByVariant(variant));
         }
 
         @Transactional(readOnly = true)
@@ -1292,20 +1269,12 @@ public class CustomerCylinderLedgerService {
                                                         "Variant not found with id: " + variantId);
                                 });
 
-                List<CustomerCylinderLedger> ledgers = repository.findByCustomerAndVariant(customer, variant);
-                if (ledgers.isEmpty()) {
-                        return 0L;
-                }
-                return ledgers.get(ledgers.size() - 1).getBalance();
+                return repository.findLatestBalance(customer.getId(), variant.getId()).orElse(0L);
         }
 
         public Long getPreviousBalance(Long customerId, Long variantId) {
-                // Use findLatestLedger for deterministic balance calculation
-                List<CustomerCylinderLedger> latestLedgers = repository.findLatestLedger(customerId, variantId);
-                if (latestLedgers.isEmpty()) {
-                        return 0L;
-                }
-                return latestLedgers.get(0).getBalance();
+                // Balance on the latest (highest id) row of the customer and variant
+                return repository.findLatestBalance(customerId, variantId).orElse(0L);
         }
 
         /**
@@ -1341,6 +1310,74 @@ public class CustomerCylinderLedgerService {
         }
 
         private CustomerCylinderLedgerDTO toDTO(CustomerCylinderLedger ledger) {
+                CustomerCylinderLedgerDTO dto = toBaseDTO(ledger);
+                if (ledger.getRefType() == CustomerCylinderLedger.TransactionType.EMPTY_RETURN) {
+                        dto.setPaymentSplits(customerLedgerPaymentSplitRepository.findByLedgerId(ledger.getId())
+                                        .stream()
+                                        .map(this::toSplitDTO)
+                                        .collect(Collectors.toList()));
+                } else if (ledger.getRefType() == CustomerCylinderLedger.TransactionType.SALE
+                                && ledger.getRefId() != null) {
+                        dto.setPaymentSplits(salePaymentSplitRepository.findBySaleId(ledger.getRefId())
+                                        .stream()
+                                        .map(this::toSplitDTO)
+                                        .collect(Collectors.toList()));
+                }
+                return dto;
+        }
+
+        private Page<CustomerCylinderLedgerDTO> toDTOPage(Page<CustomerCylinderLedger> page) {
+                return new PageImpl<>(toDTOs(page.getContent()), page.getPageable(), page.getTotalElements());
+        }
+
+        /**
+         * Map a batch of ledger entries, loading the payment splits of the whole batch
+         * with one query per split table instead of one per row.
+         */
+        private List<CustomerCylinderLedgerDTO> toDTOs(List<CustomerCylinderLedger> ledgers) {
+                List<Long> ledgerIds = new ArrayList<>();
+                List<Long> saleIds = new ArrayList<>();
+                for (CustomerCylinderLedger ledger : ledgers) {
+                        if (ledger.getRefType() == CustomerCylinderLedger.TransactionType.EMPTY_RETURN) {
+                                ledgerIds.add(ledger.getId());
+                        } else if (ledger.getRefType() == CustomerCylinderLedger.TransactionType.SALE
+                                        && ledger.getRefId() != null) {
+                                saleIds.add(ledger.getRefId());
+                        }
+                }
+
+                Map<Long, List<SalePaymentSplitDTO>> splitsByLedger = ledgerIds.isEmpty()
+                                ? Map.of()
+                                : customerLedgerPaymentSplitRepository.findWithBankAccountByLedgerIds(ledgerIds)
+                                                .stream()
+                                                .collect(Collectors.groupingBy(split -> split.getLedger().getId(),
+                                                                Collectors.mapping(this::toSplitDTO,
+                                                                                Collectors.toList())));
+                Map<Long, List<SalePaymentSplitDTO>> splitsBySale = saleIds.isEmpty()
+                                ? Map.of()
+                                : salePaymentSplitRepository.findWithBankAccountBySaleIds(saleIds)
+                                                .stream()
+                                                .collect(Collectors.groupingBy(split -> split.getSale().getId(),
+                                                                Collectors.mapping(this::toSplitDTO,
+                                                                                Collectors.toList())));
+
+                List<CustomerCylinderLedgerDTO> result = new ArrayList<>(ledgers.size());
+                for (CustomerCylinderLedger ledger : ledgers) {
+                        CustomerCylinderLedgerDTO dto = toBaseDTO(ledger);
+                        if (ledger.getRefType() == CustomerCylinderLedger.TransactionType.EMPTY_RETURN) {
+                                dto.setPaymentSplits(new ArrayList<>(
+                                                splitsByLedger.getOrDefault(ledger.getId(), List.of())));
+                        } else if (ledger.getRefType() == CustomerCylinderLedger.TransactionType.SALE
+                                        && ledger.getRefId() != null) {
+                                dto.setPaymentSplits(new ArrayList<>(
+                                                splitsBySale.getOrDefault(ledger.getRefId(), List.of())));
+                        }
+                        result.add(dto);
+                }
+                return result;
+        }
+
+        private CustomerCylinderLedgerDTO toBaseDTO(CustomerCylinderLedger ledger) {
                 Long variantId = ledger.getVariant() != null ? ledger.getVariant().getId() : null;
                 String variantName = ledger.getVariant() != null ? ledger.getVariant().getName() : null;
 
@@ -1382,42 +1419,35 @@ public class CustomerCylinderLedgerService {
                         dto.setBankAccountName(ledger.getBankAccount().getBankName());
                         dto.setBankAccountNumber(ledger.getBankAccount().getAccountNumber());
                 }
-                if (ledger.getRefType() == CustomerCylinderLedger.TransactionType.EMPTY_RETURN) {
-                        List<SalePaymentSplitDTO> splitDTOs = customerLedgerPaymentSplitRepository
-                                        .findByLedgerId(ledger.getId())
-                                        .stream()
-                                        .map(split -> new SalePaymentSplitDTO(
-                                                        split.getId(),
-                                                        split.getPaymentMode(),
-                                                        split.getAmount(),
-                                                        split.getBankAccount() != null ? split.getBankAccount().getId() : null,
-                                                        split.getBankAccount() != null
-                                                                        ? split.getBankAccount().getBankName() + " - "
-                                                                                        + split.getBankAccount().getAccountNumber()
-                                                                        : null,
-                                                        split.getNote()))
-                                        .collect(Collectors.toList());
-                        dto.setPaymentSplits(splitDTOs);
-                } else if (ledger.getRefType() == CustomerCylinderLedger.TransactionType.SALE
-                                && ledger.getRefId() != null) {
-                        List<SalePaymentSplitDTO> splitDTOs = salePaymentSplitRepository.findBySaleId(ledger.getRefId())
-                                        .stream()
-                                        .map(split -> new SalePaymentSplitDTO(
-                                                        split.getId(),
-                                                        split.getPaymentMode(),
-                                                        split.getAmount(),
-                                                        split.getBankAccount() != null ? split.getBankAccount().getId() : null,
-                                                        split.getBankAccount() != null
-                                                                        ? split.getBankAccount().getBankName() + " - "
-                                                                                        + split.getBankAccount().getAccountNumber()
-                                                                        : null,
-                                                        split.getNote()))
-                                        .collect(Collectors.toList());
-                        dto.setPaymentSplits(splitDTOs);
-                }
                 return dto;
         }
 
+        private SalePaymentSplitDTO toSplitDTO(CustomerLedgerPaymentSplit split) {
+                return new SalePaymentSplitDTO(
+                                split.getId(),
+                                split.getPaymentMode(),
+                                split.getAmount(),
+                                split.getBankAccount() != null ? split.getBankAccount().getId() : null,
+                                split.getBankAccount() != null
+                                                ? split.getBankAccount().getBankName() + " - "
+                                                                + split.getBankAccount().getAccountNumber()
+                                                : null,
+                                split.getNote());
+        }
+
+        private SalePaymentSplitDTO toSplitDTO(SalePaymentSplit split) {
+                return new SalePaymentSplitDTO(
+                                split.getId(),
+                                split.getPaymentMode(),
+                                split.getAmount(),
+                                split.getBankAccount() != null ? split.getBankAccount().getId() : null,
+                                split.getBankAccount() != null
+                                                ? split.getBankAccount().getBankName() + " - "
+                                                                + split.getBankAccount().getAccountNumber()
+                                                : null,
+                                split.getNote());
+        }
+
         private CustomerCylinderLedgerDTO transferToLedgerDTO(WarehouseTransferDTO transfer) {
                 // Convert transfer to ledger DTO format for display
                 CustomerCylinderLedgerDTO dto = new CustomerCylinderLedgerDTO(
@@ -1548,6 +1578,7 @@ public class CustomerCylinderLedgerService {
                 if (shouldRecalculateDueChain(customer, savedLedger.getTransactionDate(), savedLedger.getId())) {
                         recalculateDueChainForCustomer(customer);
                 }
+                balanceSnapshotService.refreshCustomer(customer.getId());
 
                 // Record bank account transaction if required by payment mode configuration
                 if (paymentRequest.bankAccountId != null && paymentRequest.paymentMode != null) {
@@ -1575,7 +1606,7 @@ public class CustomerCylinderLedgerService {
                                                         referenceNumberGenerator.generateBankTransactionReference(
                                                                         bankAccount.getCode(), "DEP"),
                                                         "Due payment received from customer: " + customer.getName());
-                                        bankAccountLedgerRepository.save(ledgerEntry);
+                                        bankAccountLedgerService.record(ledgerEntry);
                                         logger.info("Bank account ledger entry recorded for due payment - Customer: {}, Amount: {}",
                                                         customer.getName(), paymentRequest.amount);
                                 } catch (Exception e) {
@@ -2001,7 +2032,7 @@ public class CustomerCylinderLedgerService {
                                         null,
                                         referenceNumber,
                                         description);
-                        bankAccountLedgerRepository.save(ledgerEntry);
+                        bankAccountLedgerService.record(ledgerEntry);
                         logger.info("Bank account ledger entry recorded - BankAccountId: {}, Amount: {}, Reference: {}",
                                         bankAccountId, amount, referenceNumber);
                 } catch (Exception e) {
@@ -2042,7 +2073,7 @@ public class CustomerCylinderLedgerService {
                                         null,
                                         referenceNumber,
                                         description);
-                        bankAccountLedgerRepository.save(ledgerEntry);
+                        bankAccountLedgerService.record(ledgerEntry);
                         logger.info("Bank account ledger entry recorded - BankAccountId: {}, Amount: {}, Reference: {}",
                                         bankAccountId, amount, referenceNumber);
                 } catch (Exception e) {
@@ -2060,44 +2091,13 @@ public class CustomerCylinderLedgerService {
          * @return Previous due amount, or ZERO if no previous entries exist
          */
         public BigDecimal getCustomerPreviousDue(Long customerId) {
-                Customer customer = customerRepository.findById(customerId)
-                                .orElseThrow(() -> new ResourceNotFoundException(
-                                                "Customer not found with id: " + customerId));
-
-                List<CustomerCylinderLedger> ledgerEntries = repository.findByCustomer(customer);
-
-                logger.info("getCustomerPreviousDue - customerId: {}, total entries found: {}", customerId,
-                                ledgerEntries != null ? ledgerEntries.size() : 0);
-
-                if (ledgerEntries == null || ledgerEntries.isEmpty()) {
-                        logger.info("No ledger entries found for customer {}", customerId);
-                        return BigDecimal.ZERO;
-                }
-
-                // Get the most recent entry (highest ID - latest created)
-                CustomerCylinderLedger latestEntry = null;
-                Long maxId = -1L;
-                for (CustomerCylinderLedger entry : ledgerEntries) {
-                        if (entry.getId() > maxId) {
-                                maxId = entry.getId();
-                                latestEntry = entry;
-                        }
-                }
-
-                if (latestEntry == null) {
-                        logger.info("No valid latest entry found for customer {}", customerId);
-                        return BigDecimal.ZERO;
-                }
-
-                BigDecimal dueAmount = latestEntry.getDueAmount();
-                if (dueAmount == null) {
-                        dueAmount = BigDecimal.ZERO;
+                if (!customerRepository.existsById(customerId)) {
+                        throw new ResourceNotFoundException("Customer not found with id: " + customerId);
                 }
 
-                logger.info("Latest ledger for customer {} - Entry ID: {}, Due Amount: {}, Total Amount: {}, Amount Received: {}",
-                                customerId, latestEntry.getId(), dueAmount, latestEntry.getTotalAmount(),
-                                latestEntry.getAmountReceived());
-
+                // Due amount of the most recent entry (highest ID - latest created)
+                BigDecimal dueAmount = repository.findLatestDueAmount(customerId).orElse(BigDecimal.ZERO);
+                logger.debug("getCustomerPreviousDue - customerId: {}, due amount: {}", customerId, dueAmount);
                 return dueAmount;
         }
 
@@ -2412,52 +2412,27 @@ public class CustomerCylinderLedgerService {
                 }
                 // ==================== SIMULATION: CHECK CHAIN RECALCULATION
                 // ====================
-                // Get entries SAME VARIANT ONLY for balance calculation (only for
-                // SALE/EMPTY_RETURN)
-                List<CustomerCylinderLedger> variantEntries = new ArrayList<>();
+                // Only the rows AFTER this entry are read, as lightweight projections:
+                // the per-variant chain (ordered by date, id) drives the cylinder balance,
+                // the all-variant chain (ordered by id) drives the cumulative due.
+                Long customerId = customer.getId();
+                List<LedgerDeltaPropagationService.BalanceRow> variantTail = new ArrayList<>();
                 if (variant != null) {
-                        variantEntries = repository.findByCustomerAndVariantOrdered(customer, variant);
+                        variantTail = deltaPropagationService.findBalanceChainAfter(customerId, variant.getId(),
+                                        oldTransactionDate, ledgerId);
                 }
-
-                // Get entries for ALL VARIANTS for due amount calculation (cumulative debt)
-                List<CustomerCylinderLedger> allEntries = repository.findByCustomerOrderedById(customer);
+                List<LedgerDeltaPropagationService.DueRow> dueTail = deltaPropagationService
+                                .findDueChainAfter(customerId, ledgerId);
 
                 // Check if entry is within the latest 15 records (per variant)
-                if (variantEntries.size() > 15) {
-                        int earliestEditableIndex = variantEntries.size() - 15;
-                        int currentIndex = -1;
-                        for (int i = 0; i < variantEntries.size(); i++) {
-                                if (variantEntries.get(i).getId().equals(ledgerId)) {
-                                        currentIndex = i;
-                                        break;
-                                }
-                        }
-
-                        if (currentIndex < earliestEditableIndex) {
-                                throw new InvalidOperationException(
-                                                "Cannot edit entries older than the latest 15 records. " +
-                                                                "This entry is #"
-                                                                + (variantEntries.size() - currentIndex)
-                                                                + " from the latest. " +
-                                                                "Only the latest 15 entries (per variant) can be edited.");
-                        }
-                }
-
-                // Find entry index in VARIANT list for balance calculation
-                int entryIndex = -1;
-                if (!variantEntries.isEmpty()) {
-                        for (int i = 0; i < variantEntries.size(); i++) {
-                                if (variantEntries.get(i).getId().equals(ledgerId)) {
-                                        entryIndex = i;
-                                        break;
-                                }
-                        }
-
-                        if (entryIndex == -1) {
-                                throw new ResourceNotFoundException("Entry not found in variant ledger chain");
-                        }
+                if (variantTail.size() >= 15) {
+                        throw new InvalidOperationException(
+                                        "Cannot edit entries older than the latest 15 records. " +
+                                                        "This entry is #"
+                                                        + (variantTail.size() + 1)
+                                                        + " from the latest. " +
+                                                        "Only the latest 15 entries (per variant) can be edited.");
                 }
-                // For PAYMENT transactions, entryIndex will be -1 (no variant entries)
 
                 // Calculate balance change for this entry (PER VARIANT) - only if variant
                 // exists
@@ -2467,11 +2442,11 @@ public class CustomerCylinderLedgerService {
                 long oldBalance = 0;
                 long newBalance = 0;
 
-                if (variant != null && entryIndex >= 0) {
-                        oldBalance = (entryIndex > 0 ? variantEntries.get(entryIndex - 1).getBalance() : 0)
-                                        + oldFilledOut - oldEmptyIn;
-                        newBalance = (entryIndex > 0 ? variantEntries.get(entryIndex - 1).getBalance() : 0)
-                                        + newFilledOut - newEmptyIn;
+                if (variant != null) {
+                        long previousBalance = deltaPropagationService.findPreviousBalance(customerId,
+                                        variant.getId(), oldTransactionDate, ledgerId);
+                        oldBalance = previousBalance + oldFilledOut - oldEmptyIn;
+                        newBalance = previousBalance + newFilledOut - newEmptyIn;
 
                         // Validate balance won't go negative
                         if (newBalance < 0) {
@@ -2486,29 +2461,10 @@ public class CustomerCylinderLedgerService {
                 // Calculate due contribution for this entry
                 BigDecimal newDueContribution = newTotalAmount.subtract(newAmountReceived);
 
-                // Variables for chain validation and recalculation
-                // Find entry index in ALL list for due amount calculation
-                int allEntriesIndex = -1;
-                for (int i = 0; i < allEntries.size(); i++) {
-                        if (allEntries.get(i).getId().equals(ledgerId)) {
-                                allEntriesIndex = i;
-                                break;
-                        }
-                }
-
-                List<Long> affectedEntries = new ArrayList<>();
-                BigDecimal newCumulativeDue = BigDecimal.ZERO;
-
                 // Get previous cumulative due to calculate this entry's new cumulative due
                 // (from ALL VARIANTS chain)
-                BigDecimal prevCumulativeDue = BigDecimal.ZERO;
-                if (allEntriesIndex > 0) {
-                        prevCumulativeDue = allEntries.get(allEntriesIndex - 1).getDueAmount();
-                        if (prevCumulativeDue == null) {
-                                prevCumulativeDue = BigDecimal.ZERO;
-                        }
-                }
-                newCumulativeDue = prevCumulativeDue.add(newDueContribution);
+                BigDecimal prevCumulativeDue = deltaPropagationService.findPreviousDue(customerId, ledgerId);
+                BigDecimal newCumulativeDue = prevCumulativeDue.add(newDueContribution);
 
                 // Validate the updated entry's due does not go negative (post-edit)
                 if (newCumulativeDue.compareTo(BigDecimal.ZERO) < 0) {
@@ -2518,41 +2474,42 @@ public class CustomerCylinderLedgerService {
                                                         + newCumulativeDue + ").");
                 }
 
-                // Validation loop for both balance (per variant) and due (all variants)
-                BigDecimal runningDue = newCumulativeDue;
+                // Validation loop for both balance (per variant) and due (all variants).
+                // The recalculated values are kept so the writes below do not recompute them.
+                List<Long> affectedEntries = new ArrayList<>();
+                List<Long> recalculatedBalances = new ArrayList<>(variantTail.size());
+                List<BigDecimal> recalculatedDues = new ArrayList<>(dueTail.size());
                 long runningBalance = newBalance;
                 StringBuilder validationErrors = new StringBuilder();
 
-                // Validate balance chain (per-variant entries after this one in variantEntries)
-                for (int i = entryIndex + 1; i < variantEntries.size(); i++) {
-                        CustomerCylinderLedger nextEntry = variantEntries.get(i);
-
+                // Validate balance chain (per-variant entries after this one)
+                for (LedgerDeltaPropagationService.BalanceRow nextEntry : variantTail) {
                         // Calculate what balance would be (per variant)
                         // balance = previousBalance + filledOut - emptyIn
-                        long nextBalance = runningBalance + nextEntry.getFilledOut() - nextEntry.getEmptyIn();
+                        long nextBalance = runningBalance + nextEntry.filledOut() - nextEntry.emptyIn();
 
                         // Check if balance would go negative
                         if (nextBalance < 0) {
-                                validationErrors.append("Entry ").append(nextEntry.getId())
-                                                .append(" (dated ").append(nextEntry.getTransactionDate())
+                                validationErrors.append("Entry ").append(nextEntry.id())
+                                                .append(" (dated ").append(nextEntry.transactionDate())
                                                 .append(") would have negative balance: ").append(nextBalance)
                                                 .append(" cylinders. ");
                         }
 
                         if (validationErrors.length() == 0) {
                                 runningBalance = nextBalance;
-                                affectedEntries.add(nextEntry.getId());
+                                affectedEntries.add(nextEntry.id());
                         }
+                        recalculatedBalances.add(runningBalance);
                 }
 
-                // Validate due chain (all variant entries after this one in allEntries)
-                runningDue = newCumulativeDue;
-                for (int i = allEntriesIndex + 1; i < allEntries.size(); i++) {
-                        CustomerCylinderLedger nextEntry = allEntries.get(i);
-                        BigDecimal nextTotalAmount = nextEntry.getTotalAmount() != null ? nextEntry.getTotalAmount()
+                // Validate due chain (all variant entries after this one)
+                BigDecimal runningDue = newCumulativeDue;
+                for (LedgerDeltaPropagationService.DueRow nextEntry : dueTail) {
+                        BigDecimal nextTotalAmount = nextEntry.totalAmount() != null ? nextEntry.totalAmount()
                                         : BigDecimal.ZERO;
-                        BigDecimal nextAmountReceived = nextEntry.getAmountReceived() != null
-                                        ? nextEntry.getAmountReceived()
+                        BigDecimal nextAmountReceived = nextEntry.amountReceived() != null
+                                        ? nextEntry.amountReceived()
                                         : BigDecimal.ZERO;
 
                         BigDecimal nextEntryDue = nextTotalAmount.subtract(nextAmountReceived);
@@ -2560,8 +2517,8 @@ public class CustomerCylinderLedgerService {
 
                         // Check if due would go negative
                         if (nextCumulativeDue.compareTo(BigDecimal.ZERO) < 0) {
-                                validationErrors.append("Entry ").append(nextEntry.getId())
-                                                .append(" (dated ").append(nextEntry.getTransactionDate())
+                                validationErrors.append("Entry ").append(nextEntry.id())
+                                                .append(" (dated ").append(nextEntry.transactionDate())
                                                 .append(") would have negative due: Rs ").append(nextCumulativeDue)
                                                 .append(". ");
                         }
@@ -2569,6 +2526,7 @@ public class CustomerCylinderLedgerService {
                         if (validationErrors.length() == 0) {
                                 runningDue = nextCumulativeDue;
                         }
+                        recalculatedDues.add(runningDue.max(BigDecimal.ZERO));
                 }
 
                 // If validation failed, reject the update
@@ -2685,8 +2643,9 @@ public class CustomerCylinderLedgerService {
 
                 // If this is a SALE transaction, update the Sale and SaleItem records
                 if (entry.getRefType() == CustomerCylinderLedger.TransactionType.SALE && entry.getRefId() != null) {
+                        Sale sale = saleRepository.findById(entry.getRefId()).orElse(null);
+                        LocalDate oldSaleDate = sale != null ? sale.getSaleDate() : null;
                         try {
-                                Sale sale = saleRepository.findById(entry.getRefId()).orElse(null);
                                 if (sale != null) {
                                         // Update the sale with new total amount
                                         sale.setTotalAmount(newTotalAmount);
@@ -2722,69 +2681,40 @@ public class CustomerCylinderLedgerService {
                                 logger.error("Failed to update Sale/SaleItem records: {}", e.getMessage());
                                 // Continue anyway - ledger is updated even if sale update fails
                         }
-                }
-
-                // ==================== RECALCULATE BALANCE FOR SUBSEQUENT VARIANT ENTRIES
-                // ====================
-
-                // Reset runningBalance for per-variant recalculation (only if variant exists)
-                if (variant != null && entryIndex >= 0) {
-                        runningBalance = newBalance;
-
-                        logger.info("RECALC_BALANCE_START: entry={}, newBalance={}", ledgerId, newBalance);
-
-                        for (int i = entryIndex + 1; i < variantEntries.size(); i++) {
-                                CustomerCylinderLedger nextEntry = variantEntries.get(i);
-
-                                // Recalculate balance (inventory count) - per variant only
-                                runningBalance = runningBalance + nextEntry.getFilledOut() - nextEntry.getEmptyIn();
 
-                                logger.info("RECALC_BALANCE: id={}, oldBalance={}, newBalance={}, filled={}, empty={}",
-                                                nextEntry.getId(), nextEntry.getBalance(), runningBalance,
-                                                nextEntry.getFilledOut(), nextEntry.getEmptyIn());
-
-                                nextEntry.setBalance(runningBalance);
-                                repository.save(nextEntry);
-
-                                LoggerUtil.logBusinessEntry(logger, "UPDATE_LEDGER_RECALC_BALANCE",
-                                                "entryId", nextEntry.getId(), "newBalance", runningBalance);
+                        // Re-aggregate the day(s) this sale is counted in. This joins the edit's
+                        // transaction, so a failure here must fail the edit, not be swallowed above.
+                        if (sale != null) {
+                                Long saleWarehouseId = sale.getWarehouse().getId();
+                                salesRollupService.refreshGroup(oldSaleDate, saleWarehouseId,
+                                                sale.getCustomer().getId());
+                                if (!oldSaleDate.equals(newTransactionDate)) {
+                                        salesRollupService.refreshGroup(newTransactionDate, saleWarehouseId,
+                                                        sale.getCustomer().getId());
+                                }
                         }
                 }
 
-                // ==================== RECALCULATE DUE FOR SUBSEQUENT ALL-VARIANT ENTRIES
-                // ====================
-
-                // Reset runningDue for all-variant recalculation
-                runningDue = newCumulativeDue;
-
-                logger.info("RECALC_DUE_START: entry={}, newDue={}", ledgerId, newCumulativeDue);
-
-                for (int i = allEntriesIndex + 1; i < allEntries.size(); i++) {
-                        CustomerCylinderLedger nextEntry = allEntries.get(i);
-                        BigDecimal nextTotalAmount = nextEntry.getTotalAmount() != null ? nextEntry.getTotalAmount()
-                                        : BigDecimal.ZERO;
-                        BigDecimal nextAmountReceived = nextEntry.getAmountReceived() != null
-                                        ? nextEntry.getAmountReceived()
-                                        : BigDecimal.ZERO;
-
-                        // Recalculate due (cumulative across ALL variants)
-                        BigDecimal nextEntryDue = nextTotalAmount.subtract(nextAmountReceived);
-                        BigDecimal nextCumulativeDue = runningDue.add(nextEntryDue);
-                        if (nextCumulativeDue.compareTo(BigDecimal.ZERO) < 0) {
-                                nextCumulativeDue = BigDecimal.ZERO;
-                        }
-
-                        logger.info("RECALC_DUE: id={}, oldDue={}, newDue={}",
-                                        nextEntry.getId(), nextEntry.getDueAmount(), nextCumulativeDue);
-
-                        nextEntry.setDueAmount(nextCumulativeDue);
-                        repository.save(nextEntry);
-
-                        LoggerUtil.logBusinessEntry(logger, "UPDATE_LEDGER_RECALC_DUE",
-                                        "entryId", nextEntry.getId(), "newDue", nextCumulativeDue);
+                // ==================== PROPAGATE TO SUBSEQUENT ENTRIES ====================
 
-                        runningDue = nextCumulativeDue;
+                // Per-variant balances, then the all-variant due chain. Each is one
+                // set-based shift when the whole tail moves by the same delta, otherwise a
+                // JDBC batch of the rows that changed (e.g. where the due clamps at zero).
+                int balanceRowsWritten = 0;
+                if (variant != null) {
+                        balanceRowsWritten = deltaPropagationService.applyBalances(customerId, variant.getId(),
+                                        ledgerId, variantTail, recalculatedBalances);
                 }
+                int dueRowsWritten = deltaPropagationService.applyDueAmounts(customerId, ledgerId, dueTail,
+                                recalculatedDues);
+                // A set-based shift clears the persistence context; re-read the saved entry
+                entry = repository.findById(ledgerId)
+                                .orElseThrow(() -> new ResourceNotFoundException("Ledger entry not found"));
+
+                LoggerUtil.logBusinessEntry(logger, "UPDATE_LEDGER_RECALC",
+                                "ledgerId", ledgerId, "newBalance", newBalance, "newDue", newCumulativeDue,
+                                "balanceRowsWritten", balanceRowsWritten, "dueRowsWritten", dueRowsWritten);
+                balanceSnapshotService.refreshCustomer(customer.getId());
 
                 LoggerUtil.logBusinessSuccess(logger, "UPDATE_LEDGER", "ledgerId", ledgerId,
                                 "affectedEntries", affectedEntries.size());
@@ -2996,43 +2926,6 @@ public class CustomerCylinderLedgerService {
                 customerLedgerPaymentSplitRepository.save(split);
         }
 
-        // Repair function to recalculate all balances with correct formula
-        @Transactional
-        public void recalculateAllBalances() {
-                List<CustomerCylinderLedger> allEntries = repository.findAll();
-
-                // Group by customer and variant for separate recalculation
-                Map<String, List<CustomerCylinderLedger>> groupedEntries = allEntries.stream()
-                                .collect(Collectors.groupingBy(
-                                                e -> e.getCustomer().getId() + "_" + e.getVariant().getId()));
-
-                int totalUpdated = 0;
-
-                for (List<CustomerCylinderLedger> entries : groupedEntries.values()) {
-                        // Sort by transaction date
-                        entries.sort((a, b) -> a.getTransactionDate().compareTo(b.getTransactionDate()));
-
-                        long runningBalance = 0;
-                for (CustomerCylinderLedger entry : entries) {
-                        // balance = previousBalance + filledOut - emptyIn
-                        long newBalance = runningBalance + entry.getFilledOut() - entry.getEmptyIn();
-
-                                if (newBalance != entry.getBalance()) {
-                                        long oldBalance = entry.getBalance();
-                                        entry.setBalance(newBalance);
-                                        repository.save(entry);
-                                        totalUpdated++;
-                                        logger.info("BALANCE_REPAIR: Entry {} balance recalculated from {} to {}",
-                                                        entry.getId(), oldBalance, newBalance);
-                                }
-
-                                runningBalance = newBalance;
-                        }
-                }
-
-                logger.info("BALANCE_REPAIR_COMPLETE: Total entries recalculated: {}", totalUpdated);
-        }
-
         /**
          * Update initial due amount and recalculate the entire due chain.
          * Validates that due never goes negative at any step.
@@ -3129,6 +3022,7 @@ public class CustomerCylinderLedgerService {
                                 repository.save(entry);
                         }
                 }
+                balanceSnapshotService.refreshCustomer(customerId);
 
                 auditRecordService.recordChange(
                                 "Customer",
@@ -2,6 +2,7 @@ package com.gasagency.service;
 
 import com.gasagency.dto.response.CustomerDuePaymentDTO;
 import com.gasagency.entity.CustomerCylinderLedger;
+import com.gasagency.repository.CustomerBalanceSnapshotRepository;
 import com.gasagency.repository.CustomerCylinderLedgerRepository;
 import com.gasagency.util.LoggerUtil;
 import org.springframework.data.domain.Page;
@@ -16,7 +17,6 @@ import org.slf4j.LoggerFactory;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Collections;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -26,9 +26,12 @@ public class CustomerDuePaymentService {
     private static final Logger logger = LoggerFactory.getLogger(CustomerDuePaymentService.class);
 
     private final CustomerCylinderLedgerRepository ledgerRepository;
+    private final CustomerBalanceSnapshotRepository snapshotRepository;
 
-    public CustomerDuePaymentService(CustomerCylinderLedgerRepository ledgerRepository) {
+    public CustomerDuePaymentService(CustomerCylinderLedgerRepository ledgerRepository,
+            CustomerBalanceSnapshotRepository snapshotRepository) {
         this.ledgerRepository = ledgerRepository;
+        this.snapshotRepository = snapshotRepository;
     }
 
     /**
@@ -94,55 +97,41 @@ public class CustomerDuePaymentService {
             BigDecimal minDue = minAmount != null ? BigDecimal.valueOf(minAmount) : null;
             BigDecimal maxDue = maxAmount != null ? BigDecimal.valueOf(maxAmount) : null;
 
-            // Fetch aggregated due payment data with DB-side filters
-            List<Object[]> aggregates = ledgerRepository.findDuePaymentAggregates(
-                    fromDate, toDate, customerId, minDue, maxDue);
+            // Only the requested page leaves the database; each row carries the total count
+            List<Object[]> rows = ledgerRepository.findDuePaymentPage(
+                    fromDate, toDate, customerId, minDue, maxDue, pageable.getPageSize(), pageable.getOffset());
 
-            List<CustomerDuePaymentDTO> duePaymentData = aggregates.stream()
+            List<CustomerDuePaymentDTO> pageData = rows.stream()
                     .map(row -> {
-                        Long id = (Long) row[0];
-                        String name = (String) row[1];
-                        String mobile = (String) row[2];
-                        String address = (String) row[3];
                         BigDecimal totalSalesAmount = (BigDecimal) row[4];
                         BigDecimal amountReceived = (BigDecimal) row[5];
-                        LocalDate lastTransactionDate = (LocalDate) row[6];
-                        Long transactionCount = (Long) row[7];
-
-                        BigDecimal dueAmount = totalSalesAmount.subtract(amountReceived);
-                        if (dueAmount.signum() < 0) {
-                            dueAmount = BigDecimal.ZERO;
-                        }
-
                         return new CustomerDuePaymentDTO(
-                                id,
-                                name,
-                                mobile,
-                                address,
+                                ((Number) row[0]).longValue(),
+                                (String) row[1],
+                                (String) row[2],
+                                (String) row[3],
                                 totalSalesAmount,
                                 amountReceived,
-                                dueAmount,
-                                lastTransactionDate,
-                                transactionCount);
+                                totalSalesAmount.subtract(amountReceived),
+                                toLocalDate(row[6]),
+                                ((Number) row[7]).longValue());
                     })
                     .collect(Collectors.toList());
 
-            // Apply pagination at application level (since data is filtered)
-            int totalSize = duePaymentData.size();
-            int start = (int) pageable.getOffset();
-            int end = Math.min(start + pageable.getPageSize(), totalSize);
-
-            List<CustomerDuePaymentDTO> paginatedData;
-            if (start >= totalSize) {
-                paginatedData = new ArrayList<>();
+            long totalSize;
+            if (!rows.isEmpty()) {
+                totalSize = ((Number) rows.get(0)[8]).longValue();
+            } else if (pageable.getOffset() == 0) {
+                totalSize = 0;
             } else {
-                paginatedData = new ArrayList<>(duePaymentData.subList(start, end));
+                // Past the last page: no row to read the window count from
+                totalSize = ((Number) summarize(fromDate, toDate, customerId, minDue, maxDue)[3]).longValue();
             }
 
             LoggerUtil.logBusinessSuccess(logger, "GET_DUE_PAYMENT_REPORT",
-                    "totalRecords", totalSize, "returnedRecords", paginatedData.size());
+                    "totalRecords", totalSize, "returnedRecords", pageData.size());
 
-            return new PageImpl<>(paginatedData, pageable, totalSize);
+            return new PageImpl<>(pageData, pageable, totalSize);
 
         } catch (Exception e) {
             LoggerUtil.logBusinessError(logger, "GET_DUE_PAYMENT_REPORT", "Error fetching due payment report",
@@ -177,13 +166,13 @@ public class CustomerDuePaymentService {
 
     @Transactional(readOnly = true)
     public BigDecimal getTotalDueAmount() {
-        BigDecimal total = ledgerRepository.sumLatestDueAmounts();
+        BigDecimal total = snapshotRepository.sumDueAmounts();
         return total != null ? total : BigDecimal.ZERO;
     }
 
     @Transactional(readOnly = true)
     public long getCustomersWithDueCount() {
-        return ledgerRepository.countLatestDueCustomers();
+        return snapshotRepository.countCustomersWithDue();
     }
 
     @Transactional(readOnly = true)
@@ -198,44 +187,11 @@ public class CustomerDuePaymentService {
             BigDecimal minDue = minAmount != null ? BigDecimal.valueOf(minAmount) : null;
             BigDecimal maxDue = maxAmount != null ? BigDecimal.valueOf(maxAmount) : null;
 
-            List<Object[]> aggregates = ledgerRepository.findDuePaymentAggregates(
-                    fromDate, toDate, customerId, minDue, maxDue);
-
-            List<CustomerDuePaymentDTO> duePaymentData = aggregates.stream()
-                    .map(row -> {
-                        BigDecimal totalSalesAmount = (BigDecimal) row[4];
-                        BigDecimal amountReceived = (BigDecimal) row[5];
-                        BigDecimal dueAmount = totalSalesAmount.subtract(amountReceived);
-                        if (dueAmount.signum() < 0) {
-                            dueAmount = BigDecimal.ZERO;
-                        }
-                        return new CustomerDuePaymentDTO(
-                                (Long) row[0],
-                                (String) row[1],
-                                (String) row[2],
-                                (String) row[3],
-                                totalSalesAmount,
-                                amountReceived,
-                                dueAmount,
-                                (LocalDate) row[6],
-                                (Long) row[7]);
-                    })
-                    .collect(Collectors.toList());
-
-            // Calculate summary
-            BigDecimal totalDueAmount = duePaymentData.stream()
-                    .map(CustomerDuePaymentDTO::getDueAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            BigDecimal totalSalesAmount = duePaymentData.stream()
-                    .map(CustomerDuePaymentDTO::getTotalSalesAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            BigDecimal totalAmountReceived = duePaymentData.stream()
-                    .map(CustomerDuePaymentDTO::getAmountReceived)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            Long totalCustomers = (long) duePaymentData.size();
+            Object[] totals = summarize(fromDate, toDate, customerId, minDue, maxDue);
+            BigDecimal totalDueAmount = (BigDecimal) totals[0];
+            BigDecimal totalSalesAmount = (BigDecimal) totals[1];
+            BigDecimal totalAmountReceived = (BigDecimal) totals[2];
+            Long totalCustomers = ((Number) totals[3]).longValue();
             Double avgDueAmount = totalCustomers > 0
                     ? totalDueAmount.doubleValue() / totalCustomers
                     : 0.0;
@@ -254,6 +210,18 @@ public class CustomerDuePaymentService {
         }
     }
 
+    private Object[] summarize(LocalDate fromDate, LocalDate toDate, Long customerId,
+            BigDecimal minDue, BigDecimal maxDue) {
+        return ledgerRepository.summarizeDuePayments(fromDate, toDate, customerId, minDue, maxDue).get(0);
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate();
+        }
+        return (LocalDate) value;
+    }
+
     // Summary DTO for report aggregation
     public static class CustomerDuePaymentReportSummaryDTO {
         private BigDecimal totalDueAmount;
@@ -12,9 +12,13 @@ import com.gasagency.repository.SaleRepository;
 import com.gasagency.repository.CustomerCylinderLedgerRepository;
 import com.gasagency.exception.ResourceNotFoundException;
 import com.gasagency.exception.InvalidOperationException;
+import com.gasagency.search.CustomerChangedEvent;
+import com.gasagency.search.CustomerSearchIndex;
 import com.gasagency.util.LoggerUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -23,7 +27,10 @@ import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -35,17 +42,28 @@ public class CustomerService {
     private final CustomerCylinderLedgerRepository ledgerRepository;
     private final CylinderVariantRepository cylinderVariantRepository;
     private final CustomerCylinderLedgerService ledgerService;
+    private final CustomerSearchIndex searchIndex;
+    private final ApplicationEventPublisher eventPublisher;
     private final ObjectMapper objectMapper;
 
+    // Searches matching more customers than this use the LIKE query instead
+    private static final int MAX_INDEXED_SEARCH_IDS = 1000;
+    // Customers per grouped lookup; keeps IN lists far below the 32767 bind limit
+    private static final int ID_BATCH_SIZE = 1000;
+
     public CustomerService(CustomerRepository repository,
             SaleRepository saleRepository,
             CustomerCylinderLedgerRepository ledgerRepository, CylinderVariantRepository cylinderVariantRepository,
-            CustomerCylinderLedgerService ledgerService) {
+            CustomerCylinderLedgerService ledgerService,
+            CustomerSearchIndex searchIndex,
+            ApplicationEventPublisher eventPublisher) {
         this.repository = repository;
         this.saleRepository = saleRepository;
         this.ledgerRepository = ledgerRepository;
         this.cylinderVariantRepository = cylinderVariantRepository;
         this.ledgerService = ledgerService;
+        this.searchIndex = searchIndex;
+        this.eventPublisher = eventPublisher;
         this.objectMapper = new ObjectMapper();
     }
 
@@ -86,6 +104,7 @@ public class CustomerService {
         customer.setGstNo(dto.getGstNo());
         customer.setConfiguredVariants(convertVariantListToJson(dto.getConfiguredVariants()));
         customer = repository.save(customer);
+        eventPublisher.publishEvent(CustomerChangedEvent.of(customer));
 
         // Create initial ledger entries for all configured variants with
         // variant-specific filled counts
@@ -161,9 +180,7 @@ public class CustomerService {
 
     public List<CustomerDTO> getAllCustomers() {
         LoggerUtil.logDatabaseOperation(logger, "SELECT_ALL", "CUSTOMER");
-        return repository.findAll().stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return toDTOs(repository.findAll());
     }
 
     public Page<CustomerDTO> getAllCustomers(Pageable pageable) {
@@ -174,17 +191,33 @@ public class CustomerService {
         LoggerUtil.logDatabaseOperation(logger, "SELECT_PAGINATED", "CUSTOMER", "page", pageable.getPageNumber(),
                 "size", pageable.getPageSize(), "search", search);
         if (search == null || search.trim().isEmpty()) {
-            return repository.findAll(pageable)
-                    .map(this::toDTO);
+            return toDTOPage(repository.findAll(pageable));
         }
-        return repository.searchAll(search.trim(), pageable)
-                .map(this::toDTO);
+        return toDTOPage(repository.searchAll(search.trim(), pageable));
     }
 
     public List<CustomerDTO> getActiveCustomers() {
         LoggerUtil.logDatabaseOperation(logger, "SELECT", "CUSTOMER", "filter", "active=true");
-        return repository.findAllByActive(true).stream()
-                .map(this::toDTO)
+        return toDTOs(repository.findAllByActive(true));
+    }
+
+    /**
+     * Typeahead over active customers: id, name, mobile and address only,
+     * best matches first. Served from the search index once it is loaded.
+     */
+    public List<CustomerDTO> searchActiveCustomers(String search, int limit) {
+        if (search == null || search.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (!searchIndex.isReady()) {
+            return repository.searchActiveList(search.trim()).stream()
+                    .limit(limit)
+                    .map(customer -> new CustomerDTO(customer.getId(), customer.getName(), customer.getMobile(),
+                            customer.getAddress(), customer.getActive()))
+                    .collect(Collectors.toList());
+        }
+        return searchIndex.search(search, limit).stream()
+                .map(match -> new CustomerDTO(match.id(), match.name(), match.mobile(), match.address(), true))
                 .collect(Collectors.toList());
     }
 
@@ -194,11 +227,14 @@ public class CustomerService {
                 "minDueAmount", minDueAmount);
         if (minDueAmount == null) {
             if (search == null || search.trim().isEmpty()) {
-                return repository.findAllByActive(true, pageable)
-                        .map(this::toDTO);
+                return toDTOPage(repository.findAllByActive(true, pageable));
+            }
+            List<Long> matchingIds = searchIndex.matchingIds(search, MAX_INDEXED_SEARCH_IDS);
+            if (matchingIds != null) {
+                return matchingIds.isEmpty() ? Page.empty(pageable)
+                        : toDTOPage(repository.findByActiveAndIdIn(true, matchingIds, pageable));
             }
-            return repository.searchActive(search.trim(), pageable)
-                    .map(this::toDTO);
+            return toDTOPage(repository.searchActive(search.trim(), pageable));
         }
         Page<CustomerCylinderLedger> page = ledgerRepository.findLatestDuePerCustomerWithSearch(
                 minDueAmount,
@@ -276,6 +312,7 @@ public class CustomerService {
         customer.setConfiguredVariants(configuredVariantsJson);
         customer.setActive(dto.getActive());
         customer = repository.save(customer);
+        eventPublisher.publishEvent(CustomerChangedEvent.of(customer));
 
         // Create ledger entries for newly added variants (those in
         // variantFilledCylinders but not in existing ledger)
@@ -355,81 +392,97 @@ public class CustomerService {
         }
 
         repository.delete(customer);
+        eventPublisher.publishEvent(CustomerChangedEvent.deleted(id));
 
         LoggerUtil.logBusinessSuccess(logger, "DELETE_CUSTOMER", "id", id);
         LoggerUtil.logAudit("DELETE", "CUSTOMER", "customerId", id);
     }
 
     private CustomerDTO toDTO(Customer customer) {
-        CustomerDTO dto = new CustomerDTO(customer.getId(), customer.getName(),
-                customer.getMobile(), customer.getAddress(), customer.getActive());
-
-        // Set pricing fields
-        dto.setSalePrice(customer.getSalePrice());
-        dto.setDiscountPrice(customer.getDiscountPrice());
-        dto.setSecurityDeposit(customer.getSecurityDeposit());
-        dto.setGstNo(customer.getGstNo());
-        dto.setCreatedBy(customer.getCreatedBy());
-        dto.setCreatedDate(customer.getCreatedDate());
-        dto.setUpdatedBy(customer.getUpdatedBy());
-        dto.setUpdatedDate(customer.getUpdatedDate());
-        dto.setConfiguredVariants(convertJsonToVariantList(customer.getConfiguredVariants()));
-
-        // Get last sale date
-        List<Sale> sales = saleRepository.findByCustomer(customer);
-        if (!sales.isEmpty()) {
-            sales.sort((s1, s2) -> s2.getSaleDate().compareTo(s1.getSaleDate()));
-            dto.setLastSaleDate(sales.get(0).getSaleDate());
-        }
+        return toDTOs(List.of(customer)).get(0);
+    }
 
-        // Get total pending units: ONLY from ledger (filledOut - emptyIn balance)
-        long totalPending = 0L;
-        long totalFilledCylinders = 0L;
-        BigDecimal totalDueAmount = BigDecimal.ZERO;
+    private Page<CustomerDTO> toDTOPage(Page<Customer> page) {
+        return new PageImpl<>(toDTOs(page.getContent()), page.getPageable(), page.getTotalElements());
+    }
 
-        // Get customer's configured variants
-        List<Long> configuredVariantIds = convertJsonToVariantList(customer.getConfiguredVariants());
+    /**
+     * Map customers ID_BATCH_SIZE at a time, reading last sale date, latest
+     * variant balances and latest due of each batch with one grouped query each
+     * instead of several per customer.
+     */
+    private List<CustomerDTO> toDTOs(List<Customer> customers) {
+        List<CustomerDTO> dtos = new ArrayList<>(customers.size());
+        for (int i = 0; i < customers.size(); i += ID_BATCH_SIZE) {
+            dtos.addAll(toDTOBatch(customers.subList(i, Math.min(i + ID_BATCH_SIZE, customers.size()))));
+        }
+        return dtos;
+    }
 
-        if (configuredVariantIds != null && !configuredVariantIds.isEmpty()) {
-            for (Long variantId : configuredVariantIds) {
-                CylinderVariant variant = cylinderVariantRepository.findById(variantId).orElse(null);
-                if (variant != null) {
-                    List<CustomerCylinderLedger> latestLedger = ledgerRepository
-                            .findLatestLedger(customer.getId(), variant.getId());
-                    if (!latestLedger.isEmpty()) {
-                        CustomerCylinderLedger ledger = latestLedger.get(0);
-                        if (ledger.getBalance() != null) {
-                            totalPending += ledger.getBalance();
-                        }
-                        // For INITIAL_STOCK entries, capture the filled value
-                        if (ledger.getRefType() == CustomerCylinderLedger.TransactionType.INITIAL_STOCK) {
-                            totalFilledCylinders += ledger.getFilledOut() != null ? ledger.getFilledOut() : 0L;
-                        }
-                    }
-                }
-            }
+    private List<CustomerDTO> toDTOBatch(List<Customer> customers) {
+        List<Long> customerIds = customers.stream().map(Customer::getId).collect(Collectors.toList());
+
+        Map<Long, LocalDate> lastSaleDates = new HashMap<>();
+        for (Object[] row : saleRepository.findLastSaleDates(customerIds)) {
+            lastSaleDates.put((Long) row[0], (LocalDate) row[1]);
         }
 
-        // Get due amount from the chronologically LATEST ledger entry across ALL
-        // transactions
-        // This ensures payments and empty returns with amountReceived reduce the
-        // cumulative due amount
-        List<CustomerCylinderLedger> allLedgers = ledgerRepository.findByCustomer(customer);
-        if (!allLedgers.isEmpty()) {
-            // Sort by ID (descending) to get the chronologically latest entry
-            CustomerCylinderLedger latestEntry = allLedgers.stream()
-                    .max((a, b) -> a.getId().compareTo(b.getId()))
-                    .orElse(null);
-            if (latestEntry != null && latestEntry.getDueAmount() != null) {
-                totalDueAmount = latestEntry.getDueAmount();
+        // Due amount from the chronologically LATEST ledger entry across ALL
+        // transactions, so payments and empty returns reduce the cumulative due
+        Map<Long, BigDecimal> dueAmounts = new HashMap<>();
+        for (Object[] row : ledgerRepository.findLatestDueAmounts(customerIds)) {
+            if (row[1] != null) {
+                dueAmounts.put((Long) row[0], (BigDecimal) row[1]);
             }
         }
 
-        dto.setTotalPending(totalPending);
-        dto.setFilledCylinder(totalFilledCylinders);
-        dto.setDueAmount(totalDueAmount);
+        Map<Long, List<Object[]>> variantPositions = ledgerRepository.findLatestVariantPositions(customerIds)
+                .stream()
+                .collect(Collectors.groupingBy(row -> (Long) row[0]));
+
+        List<CustomerDTO> dtos = new ArrayList<>(customers.size());
+        for (Customer customer : customers) {
+            CustomerDTO dto = new CustomerDTO(customer.getId(), customer.getName(),
+                    customer.getMobile(), customer.getAddress(), customer.getActive());
+
+            // Set pricing fields
+            dto.setSalePrice(customer.getSalePrice());
+            dto.setDiscountPrice(customer.getDiscountPrice());
+            dto.setSecurityDeposit(customer.getSecurityDeposit());
+            dto.setGstNo(customer.getGstNo());
+            dto.setCreatedBy(customer.getCreatedBy());
+            dto.setCreatedDate(customer.getCreatedDate());
+            dto.setUpdatedBy(customer.getUpdatedBy());
+            dto.setUpdatedDate(customer.getUpdatedDate());
+            List<Long> configuredVariantIds = convertJsonToVariantList(customer.getConfiguredVariants());
+            dto.setConfiguredVariants(configuredVariantIds);
+            dto.setLastSaleDate(lastSaleDates.get(customer.getId()));
+
+            // Total pending units: ONLY from ledger (filledOut - emptyIn balance) of the
+            // configured variants
+            long totalPending = 0L;
+            long totalFilledCylinders = 0L;
+            if (configuredVariantIds != null && !configuredVariantIds.isEmpty()) {
+                for (Object[] position : variantPositions.getOrDefault(customer.getId(), List.of())) {
+                    if (!configuredVariantIds.contains((Long) position[1])) {
+                        continue;
+                    }
+                    if (position[2] != null) {
+                        totalPending += (Long) position[2];
+                    }
+                    // For INITIAL_STOCK entries, capture the filled value
+                    if (position[3] == CustomerCylinderLedger.TransactionType.INITIAL_STOCK) {
+                        totalFilledCylinders += position[4] != null ? (Long) position[4] : 0L;
+                    }
+                }
+            }
 
-        return dto;
+            dto.setTotalPending(totalPending);
+            dto.setFilledCylinder(totalFilledCylinders);
+            dto.setDueAmount(dueAmounts.getOrDefault(customer.getId(), BigDecimal.ZERO));
+            dtos.add(dto);
+        }
+        return dtos;
     }
 
     // Validate mobile number format
@@ -484,8 +537,10 @@ public class CustomerService {
         }
 
         customer.setActive(true);
+        customer = repository.save(customer);
+        eventPublisher.publishEvent(CustomerChangedEvent.of(customer));
         LoggerUtil.logBusinessSuccess(logger, "REACTIVATE_CUSTOMER", "id", id);
-        return toDTO(repository.save(customer));
+        return toDTO(customer);
     }
 }
 
@@ -0,0 +1,274 @@
+package com.gasagency.service;
+
+import com.gasagency.dto.response.SaleSummaryDTO;
+import com.gasagency.entity.DailySalesRollup;
+import com.gasagency.exception.InvalidOperationException;
+import com.gasagency.repository.CustomerRepository;
+import com.gasagency.repository.CylinderVariantRepository;
+import com.gasagency.repository.DailySalesRollupRepository;
+import com.gasagency.repository.WarehouseRepository;
+import com.gasagency.util.LoggerUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Maintains the daily_sales_rollup table, grouped by (sale date, warehouse,
+ * customer), and serves sales totals from it.
+ *
+ * A sale create or edit re-aggregates only the group(s) it touches, under the
+ * customer row lock, so concurrent sales of one customer cannot interleave.
+ * rebuildAll() re-derives the whole table one month per transaction; until the
+ * table has been backfilled, isReady() is false and callers should read from
+ * the sale tables instead.
+ */
+@Service
+public class DailySalesRollupService {
+    private static final Logger logger = LoggerFactory.getLogger(DailySalesRollupService.class);
+    private static final int SAVE_BATCH_SIZE = 500;
+
+    private final DailySalesRollupRepository rollupRepository;
+    private final CustomerRepository customerRepository;
+    private final WarehouseRepository warehouseRepository;
+    private final CylinderVariantRepository variantRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor executor;
+
+    private volatile boolean ready;
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    // Groups refreshed while a rebuild is running; re-refreshed once it finishes
+    private final Set<GroupKey> touchedDuringRebuild = ConcurrentHashMap.newKeySet();
+
+    public DailySalesRollupService(DailySalesRollupRepository rollupRepository,
+            CustomerRepository customerRepository,
+            WarehouseRepository warehouseRepository,
+            CylinderVariantRepository variantRepository,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("ioExecutor") Executor executor) {
+        this.rollupRepository = rollupRepository;
+        this.customerRepository = customerRepository;
+        this.warehouseRepository = warehouseRepository;
+        this.variantRepository = variantRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executor = executor;
+    }
+
+    private record GroupKey(LocalDate saleDate, Long warehouseId, Long customerId) {
+    }
+
+    public boolean isReady() {
+        return ready && !rebuilding.get();
+    }
+
+    /**
+     * Re-aggregate the rollup rows of one (date, warehouse, customer) group
+     * from its sales. Joins the caller's transaction when there is one.
+     */
+    @Transactional
+    public void refreshGroup(LocalDate saleDate, Long warehouseId, Long customerId) {
+        if (saleDate == null || warehouseId == null || customerId == null) {
+            return;
+        }
+        customerRepository.findByIdForUpdate(customerId);
+        if (rebuilding.get()) {
+            touchedDuringRebuild.add(new GroupKey(saleDate, warehouseId, customerId));
+        }
+
+        rollupRepository.deleteGroup(saleDate, warehouseId, customerId);
+        List<DailySalesRollup> rows = aggregate(saleDate, saleDate, warehouseId, customerId);
+        if (!rows.isEmpty()) {
+            rollupRepository.saveAll(rows);
+        }
+        LoggerUtil.logDatabaseOperation(logger, "REFRESH_SALES_ROLLUP", "DailySalesRollup",
+                "saleDate", saleDate, "warehouseId", warehouseId, "customerId", customerId, "rows", rows.size());
+    }
+
+    /**
+     * Rebuild the whole table, one calendar month per transaction.
+     *
+     * @return number of rollup rows written
+     */
+    public long rebuildAll() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new InvalidOperationException("A sales rollup rebuild is already running");
+        }
+        long started = System.currentTimeMillis();
+        long written = 0;
+        try {
+            touchedDuringRebuild.clear();
+            List<Object[]> range = rollupRepository.findSaleDateRange();
+            Object[] bounds = range.isEmpty() ? null : range.get(0);
+            if (bounds != null && bounds[0] != null) {
+                LocalDate first = ((LocalDate) bounds[0]).withDayOfMonth(1);
+                LocalDate last = (LocalDate) bounds[1];
+                for (LocalDate monthStart = first; !monthStart.isAfter(last); monthStart = monthStart.plusMonths(1)) {
+                    LocalDate from = monthStart;
+                    LocalDate to = monthStart.withDayOfMonth(monthStart.lengthOfMonth());
+                    Integer monthRows = transactionTemplate.execute(status -> rebuildRange(from, to));
+                    written += monthRows != null ? monthRows : 0;
+                }
+            }
+            ready = true;
+        } finally {
+            rebuilding.set(false);
+        }
+
+        // Sales written while the rebuild ran may have raced with it; re-derive their groups
+        List<GroupKey> touched = new ArrayList<>(touchedDuringRebuild);
+        touchedDuringRebuild.clear();
+        for (GroupKey key : touched) {
+            transactionTemplate.executeWithoutResult(
+                    status -> refreshGroup(key.saleDate(), key.warehouseId(), key.customerId()));
+        }
+
+        LoggerUtil.logPerformance("SALES_ROLLUP_REBUILD", System.currentTimeMillis() - started, "SUCCESS",
+                "rows", written, "refreshedAfterRebuild", touched.size());
+        logger.info("SALES_ROLLUP_REBUILD_COMPLETE: {} rollup rows written", written);
+        return written;
+    }
+
+    /**
+     * Start rebuildAll() in the background.
+     */
+    public void startRebuild() {
+        if (rebuilding.get()) {
+            throw new InvalidOperationException("A sales rollup rebuild is already running");
+        }
+        executor.execute(() -> {
+            try {
+                rebuildAll();
+            } catch (Exception e) {
+                LoggerUtil.logException(logger, "Sales rollup rebuild failed", e);
+            }
+        });
+    }
+
+    /**
+     * Backfill on first start after the rollup table was introduced.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        try {
+            if (rollupRepository.count() == 0) {
+                logger.info("Daily sales rollup table is empty, rebuilding from sales");
+                rebuildAll();
+            } else {
+                ready = true;
+            }
+        } catch (Exception e) {
+            LoggerUtil.logException(logger, "Daily sales rollup backfill failed", e);
+        }
+    }
+
+    // ==================== READS ====================
+
+    /**
+     * Sales totals for a date range, optionally narrowed to one customer and/or
+     * variant. With a variant, amounts and counts cover only the items and
+     * sales of that variant.
+     */
+    @Transactional(readOnly = true)
+    public SaleSummaryDTO getSalesSummary(LocalDate from, LocalDate to, Long customerId, Long variantId) {
+        List<Object[]> totals = rollupRepository.summarize(from, to, customerId, variantId);
+        Object[] row = totals.isEmpty() ? null : totals.get(0);
+        double totalSalesAmount = row != null && row[0] != null ? ((BigDecimal) row[0]).doubleValue() : 0;
+        int transactionCount = row != null && row[1] != null ? ((Number) row[1]).intValue() : 0;
+        double avgSaleValue = transactionCount > 0 ? totalSalesAmount / transactionCount : 0;
+
+        String topCustomer = "N/A";
+        if (transactionCount > 0) {
+            List<Object[]> top = rollupRepository.findTopCustomers(from, to, customerId, variantId,
+                    PageRequest.of(0, 1));
+            if (!top.isEmpty() && top.get(0)[0] != null) {
+                topCustomer = (String) top.get(0)[0];
+            }
+        }
+        return new SaleSummaryDTO(totalSalesAmount, transactionCount, avgSaleValue, topCustomer);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Object[]> sumQtyByVariantBetween(LocalDate fromDate, LocalDate toDate) {
+        return rollupRepository.sumQtyByVariantBetween(fromDate, toDate);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Object[]> sumTotalAmountByDateBetween(LocalDate fromDate, LocalDate toDate) {
+        return rollupRepository.sumTotalAmountByDateBetween(fromDate, toDate);
+    }
+
+    // ==================== AGGREGATION ====================
+
+    private int rebuildRange(LocalDate from, LocalDate to) {
+        rollupRepository.deleteBetween(from, to);
+        List<DailySalesRollup> rows = aggregate(from, to, null, null);
+        for (int i = 0; i < rows.size(); i += SAVE_BATCH_SIZE) {
+            rollupRepository.saveAll(rows.subList(i, Math.min(i + SAVE_BATCH_SIZE, rows.size())));
+        }
+        return rows.size();
+    }
+
+    /**
+     * Build variant rows plus one sale-level row per group for the sales in
+     * [from, to], optionally narrowed to one warehouse / customer.
+     */
+    private List<DailySalesRollup> aggregate(LocalDate from, LocalDate to, Long warehouseId, Long customerId) {
+        Map<GroupKey, DailySalesRollup> saleRows = new LinkedHashMap<>();
+        List<DailySalesRollup> rows = new ArrayList<>();
+
+        for (Object[] row : rollupRepository.aggregateSaleItems(from, to, warehouseId, customerId)) {
+            GroupKey key = new GroupKey((LocalDate) row[0], (Long) row[1], (Long) row[2]);
+            DailySalesRollup variantRow = newRow(key, (Long) row[3]);
+            variantRow.setSaleCount(((Number) row[4]).longValue());
+            variantRow.setQtyIssued(((Number) row[5]).longValue());
+            variantRow.setQtyEmptyReceived(((Number) row[6]).longValue());
+            variantRow.setTotalAmount((BigDecimal) row[7]);
+            rows.add(variantRow);
+
+            DailySalesRollup saleRow = saleRows.computeIfAbsent(key, k -> newRow(k, null));
+            saleRow.setQtyIssued(saleRow.getQtyIssued() + variantRow.getQtyIssued());
+            saleRow.setQtyEmptyReceived(saleRow.getQtyEmptyReceived() + variantRow.getQtyEmptyReceived());
+            saleRow.setTotalAmount(saleRow.getTotalAmount().add(variantRow.getTotalAmount()));
+        }
+
+        for (Object[] row : rollupRepository.findSaleReceipts(from, to, warehouseId, customerId)) {
+            DailySalesRollup saleRow = saleRows.get(new GroupKey((LocalDate) row[0], (Long) row[1], (Long) row[2]));
+            if (saleRow == null) {
+                continue;
+            }
+            BigDecimal received = row[3] != null ? (BigDecimal) row[3] : BigDecimal.ZERO;
+            if (received.signum() == 0 && row[4] != null) {
+                received = (BigDecimal) row[4];
+            }
+            saleRow.setSaleCount(saleRow.getSaleCount() + 1);
+            saleRow.setAmountReceived(saleRow.getAmountReceived().add(received));
+        }
+
+        rows.addAll(saleRows.values());
+        return rows;
+    }
+
+    private DailySalesRollup newRow(GroupKey key, Long variantId) {
+        return new DailySalesRollup(key.saleDate(),
+                warehouseRepository.getReferenceById(key.warehouseId()),
+                customerRepository.getReferenceById(key.customerId()),
+                variantId != null ? variantRepository.getReferenceById(variantId) : null);
+    }
+}
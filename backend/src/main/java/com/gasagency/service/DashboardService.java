@@ -7,25 +7,42 @@ import com.gasagency.dto.response.DashboardSummaryDTO.BusinessInsightsDTO;
 import com.gasagency.entity.CustomerCylinderLedger;
 import com.gasagency.entity.AlertNotification;
 import com.gasagency.repository.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
+import java.beans.PropertyDescriptor;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * Dashboard Service - Provides comprehensive business analytics with
  * optimizations:
  * - Caching for dashboard data (2-minute TTL)
- * - Parallel async execution for independent calculations
+ * - Parallel execution of independent sections on dashboardExecutor, each in
+ *   its own read-only transaction, with a shared deadline (partial results are
+ *   returned when a section is slow) and per-section Micrometer timers
  * - Proper JPA queries to prevent N+1 problems
  * - Pagination at database level
  */
@@ -34,9 +51,11 @@ import java.util.stream.Collectors;
 public class DashboardService {
     private static final Logger logger = LoggerFactory.getLogger(DashboardService.class);
     private static final BigDecimal ZERO = BigDecimal.ZERO;
+    private static final Set<String> MERGE_EXCLUDED_PROPERTIES = Set.of("class", "businessInsights");
 
     // Services
     private final SaleService saleService;
+    private final DailySalesRollupService salesRollupService;
     private final ExpenseService expenseService;
     private final CustomerDuePaymentService customerDuePaymentService;
     private final InventoryStockService inventoryStockService;
@@ -46,9 +65,14 @@ public class DashboardService {
     private final SaleItemRepository saleItemRepository;
     private final CustomerCylinderLedgerRepository customerCylinderLedgerRepository;
     private final AlertNotificationService alertNotificationService;
+    private final Executor dashboardExecutor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final MeterRegistry meterRegistry;
+    private final long sectionTimeoutMs;
 
     public DashboardService(
             SaleService saleService,
+            DailySalesRollupService salesRollupService,
             ExpenseService expenseService,
             CustomerDuePaymentService customerDuePaymentService,
             InventoryStockService inventoryStockService,
@@ -57,8 +81,13 @@ public class DashboardService {
             SaleRepository saleRepository,
             SaleItemRepository saleItemRepository,
             CustomerCylinderLedgerRepository customerCylinderLedgerRepository,
-            AlertNotificationService alertNotificationService) {
+            AlertNotificationService alertNotificationService,
+            @Qualifier("dashboardExecutor") Executor dashboardExecutor,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.dashboard.section-timeout-ms:8000}") long sectionTimeoutMs) {
         this.saleService = saleService;
+        this.salesRollupService = salesRollupService;
         this.expenseService = expenseService;
         this.customerDuePaymentService = customerDuePaymentService;
         this.inventoryStockService = inventoryStockService;
@@ -68,13 +97,26 @@ public class DashboardService {
         this.saleItemRepository = saleItemRepository;
         this.customerCylinderLedgerRepository = customerCylinderLedgerRepository;
         this.alertNotificationService = alertNotificationService;
+        this.dashboardExecutor = dashboardExecutor;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+        this.sectionTimeoutMs = sectionTimeoutMs;
+    }
+
+    /** An independent part of the dashboard, computed into its own DTO. */
+    private record Section(String name, Consumer<DashboardSummaryDTO> body) {
     }
 
     /**
      * OPTIMIZED: Get comprehensive dashboard summary
-     * No caching to ensure real-time dashboard updates
+     * No caching to ensure real-time dashboard updates.
+     * Runs without a transaction of its own; every section opens one on its
+     * worker thread.
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public DashboardSummaryDTO getDashboardSummary(Integer year, Integer month) {
+        Timer.Sample total = Timer.start(meterRegistry);
         DashboardSummaryDTO dto = new DashboardSummaryDTO();
 
         try {
@@ -91,18 +133,15 @@ public class DashboardService {
             LocalDate monthStart = targetMonth.atDay(1);
             LocalDate monthEnd = targetMonth.atEndOfMonth();
 
-            // Execute independent calculations in parallel
-            CompletableFuture<Void> todayMetrics = calculateTodayMetricsAsync(dto, today);
-            CompletableFuture<Void> monthlyMetrics = calculateMonthlyMetricsAsync(dto, monthStart, monthEnd);
-            CompletableFuture<Void> customerMetrics = calculateCustomerMetricsAsync(dto);
-            CompletableFuture<Void> breakdowns = calculateBreakdownsAsync(dto, monthStart, monthEnd);
-            CompletableFuture<Void> dailyTrend = calculateDailySalesTrendAsync(dto, monthStart, monthEnd);
-            CompletableFuture<Void> topDebtors = getTopDebtorsAsync(dto);
-
-            // Wait for all parallel operations to complete
-            CompletableFuture.allOf(
-                    todayMetrics, monthlyMetrics, customerMetrics,
-                    breakdowns, dailyTrend, topDebtors).join();
+            // Execute independent calculations in parallel. Merge order matters where
+            // two sections set the same field (todayReturnsPending): later wins.
+            runSections(dto, List.of(
+                    new Section("today", part -> calculateTodayMetrics(part, today)),
+                    new Section("monthly", part -> calculateMonthlyMetrics(part, monthStart, monthEnd)),
+                    new Section("customers", this::calculateCustomerMetrics),
+                    new Section("breakdowns", part -> calculateBreakdowns(part, monthStart, monthEnd)),
+                    new Section("dailyTrend", part -> calculateDailySalesTrend(part, monthStart, monthEnd)),
+                    new Section("topDebtors", this::loadTopDebtors)));
 
             // Business insights (depends on other calculations)
             calculateBusinessInsights(dto);
@@ -114,71 +153,88 @@ public class DashboardService {
             logger.error("Error loading dashboard summary", e);
         }
 
+        total.stop(meterRegistry.timer("dashboard.summary"));
         return dto;
     }
 
     /**
      * Default method without year/month (uses current)
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public DashboardSummaryDTO getDashboardSummary() {
         return getDashboardSummary(null, null);
     }
 
-    @Async("dashboardExecutor")
-    private CompletableFuture<Void> calculateTodayMetricsAsync(DashboardSummaryDTO dto, LocalDate today) {
-        try {
-            calculateTodayMetrics(dto, today);
-        } catch (Exception e) {
-            logger.warn("Error calculating today metrics", e);
+    /**
+     * Start every section on dashboardExecutor and merge the ones that finish
+     * before the deadline. A section that misses it is left out of the response
+     * (its fields stay null) and finishes in the background into a DTO nobody
+     * reads.
+     */
+    private void runSections(DashboardSummaryDTO dto, List<Section> sections) {
+        Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+        List<CompletableFuture<DashboardSummaryDTO>> futures = new ArrayList<>(sections.size());
+        for (Section section : sections) {
+            futures.add(CompletableFuture.supplyAsync(() -> runSection(section, mdcContext), dashboardExecutor));
         }
-        return CompletableFuture.completedFuture(null);
-    }
 
-    @Async("dashboardExecutor")
-    private CompletableFuture<Void> calculateMonthlyMetricsAsync(DashboardSummaryDTO dto, LocalDate monthStart,
-            LocalDate monthEnd) {
-        try {
-            calculateMonthlyMetrics(dto, monthStart, monthEnd);
-        } catch (Exception e) {
-            logger.warn("Error calculating monthly metrics", e);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sectionTimeoutMs);
+        for (int i = 0; i < sections.size(); i++) {
+            Section section = sections.get(i);
+            try {
+                long remaining = Math.max(0L, deadline - System.nanoTime());
+                mergeSection(futures.get(i).get(remaining, TimeUnit.NANOSECONDS), dto);
+            } catch (TimeoutException e) {
+                meterRegistry.counter("dashboard.section.timeouts", "section", section.name()).increment();
+                logger.warn("Dashboard section '{}' did not finish within {} ms, returning partial dashboard",
+                        section.name(), sectionTimeoutMs);
+            } catch (ExecutionException e) {
+                logger.warn("Error calculating dashboard section '{}'", section.name(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Interrupted while waiting for dashboard section '{}'", section.name());
+                return;
+            }
         }
-        return CompletableFuture.completedFuture(null);
     }
 
-    @Async("dashboardExecutor")
-    private CompletableFuture<Void> calculateCustomerMetricsAsync(DashboardSummaryDTO dto) {
-        try {
-            calculateCustomerMetrics(dto);
-        } catch (Exception e) {
-            logger.warn("Error calculating customer metrics", e);
+    private DashboardSummaryDTO runSection(Section section, Map<String, String> mdcContext) {
+        if (mdcContext != null) {
+            MDC.setContextMap(mdcContext);
         }
-        return CompletableFuture.completedFuture(null);
-    }
-
-    @Async("dashboardExecutor")
-    private CompletableFuture<Void> calculateBreakdownsAsync(DashboardSummaryDTO dto, LocalDate monthStart,
-            LocalDate monthEnd) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
         try {
-            calculateBreakdowns(dto, monthStart, monthEnd);
-        } catch (Exception e) {
-            logger.warn("Error calculating breakdowns", e);
+            DashboardSummaryDTO part = new DashboardSummaryDTO();
+            readOnlyTransaction.executeWithoutResult(status -> section.body().accept(part));
+            return part;
+        } catch (RuntimeException e) {
+            outcome = "error";
+            throw e;
+        } finally {
+            sample.stop(meterRegistry.timer("dashboard.section", "section", section.name(), "outcome", outcome));
+            MDC.clear();
         }
-        return CompletableFuture.completedFuture(null);
     }
 
-    @Async("dashboardExecutor")
-    private CompletableFuture<Void> calculateDailySalesTrendAsync(DashboardSummaryDTO dto, LocalDate monthStart,
-            LocalDate monthEnd) {
-        try {
-            calculateDailySalesTrend(dto, monthStart, monthEnd);
-        } catch (Exception e) {
-            logger.warn("Error calculating daily sales trend", e);
+    // Sections only set their own fields, so copying the non-null ones is a merge
+    private void mergeSection(DashboardSummaryDTO part, DashboardSummaryDTO target) {
+        BeanWrapper source = new BeanWrapperImpl(part);
+        BeanWrapper destination = new BeanWrapperImpl(target);
+        for (PropertyDescriptor property : source.getPropertyDescriptors()) {
+            String name = property.getName();
+            if (MERGE_EXCLUDED_PROPERTIES.contains(name) || !source.isReadableProperty(name)
+                    || !destination.isWritableProperty(name)) {
+                continue;
+            }
+            Object value = source.getPropertyValue(name);
+            if (value != null) {
+                destination.setPropertyValue(name, value);
+            }
         }
-        return CompletableFuture.completedFuture(null);
     }
 
-    @Async("dashboardExecutor")
-    private CompletableFuture<Void> getTopDebtorsAsync(DashboardSummaryDTO dto) {
+    private void loadTopDebtors(DashboardSummaryDTO dto) {
         try {
             List<CustomerDuePaymentDTO> debtors = customerDuePaymentService.getTopDebtors(10);
             List<DashboardSummaryDTO.CustomerDuePaymentDTO> topDebtorsList = debtors.stream()
@@ -195,7 +251,6 @@ public class DashboardService {
             logger.warn("Error fetching top debtors", e);
             dto.setTopDebtors(new ArrayList<>());
         }
-        return CompletableFuture.completedFuture(null);
     }
 
     private void calculateTodayMetrics(DashboardSummaryDTO dto, LocalDate today) {
@@ -508,7 +563,10 @@ public class DashboardService {
 
                 Map<String, Long> variantTotals = new HashMap<>();
                 long totalQty = 0;
-                for (Object[] row : saleItemRepository.sumQtyByVariantBetween(monthStart, monthEnd)) {
+                List<Object[]> variantRows = salesRollupService.isReady()
+                        ? salesRollupService.sumQtyByVariantBetween(monthStart, monthEnd)
+                        : saleItemRepository.sumQtyByVariantBetween(monthStart, monthEnd);
+                for (Object[] row : variantRows) {
                     if (row == null || row.length < 2) {
                         continue;
                     }
@@ -585,7 +643,8 @@ public class DashboardService {
             insights.setAverageCollectionRate(dto.getMonthlyCollectionRate());
 
             // Average order value
-            if (dto.getMonthlySalesCount() > 0) {
+            // Monthly section may be missing from a partial dashboard
+            if (dto.getMonthlySalesCount() != null && dto.getMonthlySalesCount() > 0) {
                 double aov = dto.getMonthlyTotalSales().doubleValue() / dto.getMonthlySalesCount();
                 insights.setAverageOrderValue(aov);
             }
@@ -650,7 +709,10 @@ public class DashboardService {
             // Get all sales for the month
             Map<LocalDate, BigDecimal> dailySalesMap = new HashMap<>();
             Map<LocalDate, BigDecimal> dailyExpensesMap = new HashMap<>();
-            for (Object[] row : saleRepository.sumTotalAmountByDateBetween(monthStart, monthEnd)) {
+            List<Object[]> dailyRows = salesRollupService.isReady()
+                    ? salesRollupService.sumTotalAmountByDateBetween(monthStart, monthEnd)
+                    : saleRepository.sumTotalAmountByDateBetween(monthStart, monthEnd);
+            for (Object[] row : dailyRows) {
                 if (row == null || row.length < 2) {
                     continue;
                 }
@@ -13,6 +13,11 @@ import com.gasagency.repository.CustomerCylinderLedgerRepository;
 import com.gasagency.repository.CustomerLedgerPaymentSplitRepository;
 import com.gasagency.repository.ExpenseRepository;
 import com.gasagency.repository.BankDepositRepository;
+import com.gasagency.repository.DayBookRepository;
+import com.gasagency.repository.DayBookRepository.DayBookEntryPage;
+import com.gasagency.repository.DayBookRepository.DayBookEntryRef;
+import com.gasagency.repository.DayBookRepository.DayBookFilter;
+import com.gasagency.repository.DayBookRepository.DayBookTotals;
 import com.gasagency.repository.SupplierTransactionRepository;
 import com.gasagency.repository.WarehouseTransferRepository;
 import org.springframework.data.domain.Page;
@@ -23,7 +28,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -37,19 +42,22 @@ public class DayBookService {
     private final BankDepositRepository bankDepositRepository;
     private final ExpenseRepository expenseRepository;
     private final CustomerLedgerPaymentSplitRepository customerLedgerPaymentSplitRepository;
+    private final DayBookRepository dayBookRepository;
 
     public DayBookService(CustomerCylinderLedgerRepository ledgerRepository,
             WarehouseTransferRepository warehouseTransferRepository,
             SupplierTransactionRepository supplierTransactionRepository,
             BankDepositRepository bankDepositRepository,
             ExpenseRepository expenseRepository,
-            CustomerLedgerPaymentSplitRepository customerLedgerPaymentSplitRepository) {
+            CustomerLedgerPaymentSplitRepository customerLedgerPaymentSplitRepository,
+            DayBookRepository dayBookRepository) {
         this.ledgerRepository = ledgerRepository;
         this.warehouseTransferRepository = warehouseTransferRepository;
         this.supplierTransactionRepository = supplierTransactionRepository;
         this.bankDepositRepository = bankDepositRepository;
         this.expenseRepository = expenseRepository;
         this.customerLedgerPaymentSplitRepository = customerLedgerPaymentSplitRepository;
+        this.dayBookRepository = dayBookRepository;
     }
 
     /**
@@ -64,151 +72,121 @@ public class DayBookService {
 
     /**
      * Get all transactions for a specific date with pagination
+     * Ordering and paging happen in the database; only the entries of the
+     * requested page are loaded.
      */
     @Transactional(readOnly = true)
     public Page<DayBookDTO> getTransactionsByDate(LocalDate date, Pageable pageable, String createdBy, String transactionType) {
-        List<DayBookDTO> dayBookList = new ArrayList<>();
+        DayBookFilter filter = buildFilter(date, createdBy, transactionType);
+        DayBookEntryPage page = pageable.isUnpaged()
+                ? dayBookRepository.findEntries(filter, null, 0)
+                : dayBookRepository.findEntries(filter, pageable.getPageSize(), pageable.getOffset());
+        return new PageImpl<>(loadEntries(page.entries()), pageable, page.totalCount());
+    }
+
+    /**
+     * Get summary for a specific date. Totals come from one aggregate query;
+     * the full transaction list is only built when requested.
+     */
+    @Transactional(readOnly = true)
+    public DayBookSummaryDTO getTransactionsByDateSummary(LocalDate date, String createdBy, String transactionType,
+            boolean includeTransactions) {
+        DayBookFilter filter = buildFilter(date, createdBy, transactionType);
+        DayBookTotals totals = dayBookRepository.summarize(filter);
+        List<DayBookDTO> transactions = includeTransactions
+                ? loadEntries(dayBookRepository.findEntries(filter, null, 0).entries())
+                : List.of();
 
+        return new DayBookSummaryDTO(
+                transactions,
+                totals.filledCount(),
+                totals.emptyCount(),
+                totals.totalAmount(),
+                totals.amountReceived(),
+                totals.latestDueAmount(),
+                (int) totals.entryCount());
+    }
+
+    private DayBookFilter buildFilter(LocalDate date, String createdBy, String transactionType) {
         String typeFilter = transactionType != null && !transactionType.isEmpty()
                 ? transactionType.trim().toUpperCase()
                 : null;
         boolean staffCoreOnly = "STAFF_CORE".equals(typeFilter);
 
         // Ledger entries: sales, empty returns, payments, and transfers
-        List<CustomerCylinderLedger.TransactionType> refTypes = new ArrayList<>();
+        List<String> refTypes = new ArrayList<>();
         if (staffCoreOnly || typeFilter == null || "SALE".equals(typeFilter)) {
-            refTypes.add(CustomerCylinderLedger.TransactionType.SALE);
+            refTypes.add(CustomerCylinderLedger.TransactionType.SALE.name());
         }
         if (staffCoreOnly || typeFilter == null || "EMPTY_RETURN".equals(typeFilter)) {
-            refTypes.add(CustomerCylinderLedger.TransactionType.EMPTY_RETURN);
+            refTypes.add(CustomerCylinderLedger.TransactionType.EMPTY_RETURN.name());
         }
         if (staffCoreOnly || typeFilter == null || "PAYMENT".equals(typeFilter)) {
-            refTypes.add(CustomerCylinderLedger.TransactionType.PAYMENT);
+            refTypes.add(CustomerCylinderLedger.TransactionType.PAYMENT.name());
         }
         if (!staffCoreOnly && (typeFilter == null || "TRANSFER".equals(typeFilter))) {
-            refTypes.add(CustomerCylinderLedger.TransactionType.TRANSFER);
-        }
-
-        if (!refTypes.isEmpty()) {
-            List<CustomerCylinderLedger> ledgers = ledgerRepository.findByTransactionDateAndRefTypeInAndCreatedBy(
-                    date,
-                    refTypes,
-                    createdBy);
-
-            Map<Long, List<CustomerLedgerPaymentSplit>> paymentSplitMap = ledgers.isEmpty()
-                    ? Map.of()
-                    : customerLedgerPaymentSplitRepository.findByLedgerIdIn(
-                                    ledgers.stream().map(CustomerCylinderLedger::getId).collect(Collectors.toList()))
-                            .stream()
-                            .collect(Collectors.groupingBy(split -> split.getLedger().getId()));
-            ledgers.stream()
-                    .map(ledger -> convertLedgerToDayBook(ledger, paymentSplitMap))
-                    .forEach(dayBookList::add);
-        }
-
-        // Warehouse transfers
-        if (!staffCoreOnly && (typeFilter == null || "WAREHOUSE_TRANSFER".equals(typeFilter))) {
-            List<WarehouseTransfer> transfers = warehouseTransferRepository.findByDateRangeAndCreatedBy(
-                    date, date, createdBy);
-            transfers.stream()
-                    .map(this::convertWarehouseTransferToDayBook)
-                    .forEach(dayBookList::add);
-        }
-
-        // Supplier transactions
-        if (!staffCoreOnly && (typeFilter == null || "SUPPLIER_TRANSACTION".equals(typeFilter))) {
-            List<SupplierTransaction> supplierTransactions = supplierTransactionRepository
-                    .findByTransactionDateAndCreatedBy(date, createdBy);
-            supplierTransactions.stream()
-                    .map(this::convertSupplierTransactionToDayBook)
-                    .forEach(dayBookList::add);
-        }
-
-        // Bank deposits
-        if (!staffCoreOnly && (typeFilter == null || "BANK_DEPOSIT".equals(typeFilter))) {
-            List<BankDeposit> deposits = bankDepositRepository.findByDepositDateAndCreatedBy(date, createdBy);
-            deposits.stream()
-                    .map(this::convertBankDepositToDayBook)
-                    .forEach(dayBookList::add);
-        }
-
-        // Expenses
-        if (!staffCoreOnly && (typeFilter == null || "EXPENSE".equals(typeFilter))) {
-            List<Expense> expenses = expenseRepository.findByExpenseDateBetweenAndCreatedBy(date, date, createdBy);
-            expenses.stream()
-                    .map(this::convertExpenseToDayBook)
-                    .forEach(dayBookList::add);
+            refTypes.add(CustomerCylinderLedger.TransactionType.TRANSFER.name());
         }
 
-        // Sort newest first (createdDate if available, else transactionDate)
-        dayBookList.sort(
-                Comparator.comparing(DayBookDTO::getCreatedDate, Comparator.nullsLast(Comparator.reverseOrder()))
-                        .thenComparing(DayBookDTO::getTransactionDate, Comparator.nullsLast(Comparator.reverseOrder()))
-                        .thenComparing(DayBookDTO::getTransactionType, Comparator.nullsLast(String::compareToIgnoreCase)));
-
-        if (pageable.isUnpaged()) {
-            return new PageImpl<>(dayBookList, pageable, dayBookList.size());
-        }
-
-        // Apply pagination manually
-        int pageNumber = pageable.getPageNumber();
-        int pageSize = pageable.getPageSize();
-        int start = pageNumber * pageSize;
-        int end = Math.min(start + pageSize, dayBookList.size());
-
-        List<DayBookDTO> pageContent = dayBookList.subList(start, Math.min(end, dayBookList.size()));
-
-        return new PageImpl<>(pageContent, pageable, dayBookList.size());
+        return new DayBookFilter(
+                date,
+                createdBy != null && !createdBy.isBlank() ? createdBy : null,
+                refTypes,
+                !staffCoreOnly && (typeFilter == null || "WAREHOUSE_TRANSFER".equals(typeFilter)),
+                !staffCoreOnly && (typeFilter == null || "SUPPLIER_TRANSACTION".equals(typeFilter)),
+                !staffCoreOnly && (typeFilter == null || "BANK_DEPOSIT".equals(typeFilter)),
+                !staffCoreOnly && (typeFilter == null || "EXPENSE".equals(typeFilter)));
     }
 
     /**
-     * Get all transactions for a specific date without pagination (for summary)
+     * Load and convert the given entries, one query per source, keeping their order.
      */
-    @Transactional(readOnly = true)
-    public DayBookSummaryDTO getTransactionsByDateSummary(LocalDate date, String createdBy, String transactionType) {
-        List<DayBookDTO> dayBookList = getTransactionsByDate(date, Pageable.unpaged(), createdBy, transactionType).getContent();
-
-        // Calculate summary statistics
-        long totalFilledCount = dayBookList.stream()
-                .mapToLong(dto -> dto.getFilledCount() != null ? dto.getFilledCount() : 0)
-                .sum();
-
-        long totalEmptyCount = dayBookList.stream()
-                .mapToLong(dto -> dto.getEmptyCount() != null ? dto.getEmptyCount() : 0)
-                .sum();
-
-        BigDecimal totalAmount = dayBookList.stream()
-                .map(DayBookDTO::getTotalAmount)
-                .filter(amount -> amount != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal totalAmountReceived = dayBookList.stream()
-                .map(DayBookDTO::getAmountReceived)
-                .filter(amount -> amount != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // For total due amount, get the latest due amount per customer by ID (first
-        // occurrence since list is sorted by latest first)
-        Map<Long, DayBookDTO> latestPerCustomer = dayBookList.stream()
-                .filter(dto -> dto.getCustomerId() != null)
-                .collect(Collectors.toMap(
-                        DayBookDTO::getCustomerId,
-                        dto -> dto,
-                        (existing, replacement) -> existing));
-
-        BigDecimal totalDueAmount = latestPerCustomer.values().stream()
-                .map(DayBookDTO::getDueAmount)
-                .filter(amount -> amount != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        return new DayBookSummaryDTO(
-                dayBookList,
-                totalFilledCount,
-                totalEmptyCount,
-                totalAmount,
-                totalAmountReceived,
-                totalDueAmount,
-                dayBookList.size());
+    private List<DayBookDTO> loadEntries(List<DayBookEntryRef> entries) {
+        Map<String, List<Long>> idsBySource = entries.stream()
+                .collect(Collectors.groupingBy(DayBookEntryRef::source,
+                        Collectors.mapping(DayBookEntryRef::id, Collectors.toList())));
+        Map<DayBookEntryRef, DayBookDTO> converted = new HashMap<>();
+
+        List<Long> ledgerIds = idsBySource.getOrDefault(DayBookRepository.SOURCE_LEDGER, List.of());
+        if (!ledgerIds.isEmpty()) {
+            List<CustomerCylinderLedger> ledgers = ledgerRepository.findWithDetailsByIdIn(ledgerIds);
+            Map<Long, List<CustomerLedgerPaymentSplit>> paymentSplitMap = customerLedgerPaymentSplitRepository
+                    .findByLedgerIdIn(ledgerIds)
+                    .stream()
+                    .collect(Collectors.groupingBy(split -> split.getLedger().getId()));
+            ledgers.forEach(ledger -> converted.put(
+                    new DayBookEntryRef(DayBookRepository.SOURCE_LEDGER, ledger.getId()),
+                    convertLedgerToDayBook(ledger, paymentSplitMap)));
+        }
+        warehouseTransferRepository.findAllById(
+                idsBySource.getOrDefault(DayBookRepository.SOURCE_WAREHOUSE_TRANSFER, List.of()))
+                .forEach(transfer -> converted.put(
+                        new DayBookEntryRef(DayBookRepository.SOURCE_WAREHOUSE_TRANSFER, transfer.getId()),
+                        convertWarehouseTransferToDayBook(transfer)));
+        supplierTransactionRepository.findAllById(
+                idsBySource.getOrDefault(DayBookRepository.SOURCE_SUPPLIER_TRANSACTION, List.of()))
+                .forEach(transaction -> converted.put(
+                        new DayBookEntryRef(DayBookRepository.SOURCE_SUPPLIER_TRANSACTION, transaction.getId()),
+                        convertSupplierTransactionToDayBook(transaction)));
+        bankDepositRepository.findAllById(
+                idsBySource.getOrDefault(DayBookRepository.SOURCE_BANK_DEPOSIT, List.of()))
+                .forEach(deposit -> converted.put(
+                        new DayBookEntryRef(DayBookRepository.SOURCE_BANK_DEPOSIT, deposit.getId()),
+                        convertBankDepositToDayBook(deposit)));
+        expenseRepository.findAllById(
+                idsBySource.getOrDefault(DayBookRepository.SOURCE_EXPENSE, List.of()))
+                .forEach(expense -> converted.put(
+                        new DayBookEntryRef(DayBookRepository.SOURCE_EXPENSE, expense.getId()),
+                        convertExpenseToDayBook(expense)));
+
+        List<DayBookDTO> result = new ArrayList<>(entries.size());
+        for (DayBookEntryRef entry : entries) {
+            DayBookDTO dto = converted.get(entry);
+            if (dto != null) {
+                result.add(dto);
+            }
+        }
+        return result;
     }
 
     /**
@@ -2,8 +2,8 @@ package com.gasagency.service;
 
 import com.gasagency.dto.response.ExpenseCategoryDTO;
 import com.gasagency.entity.ExpenseCategory;
+import com.gasagency.mapper.ExpenseCategoryMapper;
 import com.gasagency.repository.ExpenseCategoryRepository;
-import org.modelmapper.ModelMapper;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
@@ -16,23 +16,23 @@ import java.util.stream.Collectors;
 public class ExpenseCategoryService {
 
     private final ExpenseCategoryRepository repository;
-    private final ModelMapper modelMapper;
+    private final ExpenseCategoryMapper expenseCategoryMapper;
 
-    public ExpenseCategoryService(ExpenseCategoryRepository repository, ModelMapper modelMapper) {
+    public ExpenseCategoryService(ExpenseCategoryRepository repository, ExpenseCategoryMapper expenseCategoryMapper) {
         this.repository = repository;
-        this.modelMapper = modelMapper;
+        this.expenseCategoryMapper = expenseCategoryMapper;
     }
 
     public Page<ExpenseCategoryDTO> getAllCategories(Pageable pageable) {
         return repository.findAll(pageable)
-                .map(category -> modelMapper.map(category, ExpenseCategoryDTO.class));
+                .map(category -> expenseCategoryMapper.toDTO(category));
     }
 
     @Cacheable("expenseCategoriesActive")
     public List<ExpenseCategoryDTO> getActiveCategories() {
         return repository.findByIsActiveTrue()
                 .stream()
-                .map(category -> modelMapper.map(category, ExpenseCategoryDTO.class))
+                .map(category -> expenseCategoryMapper.toDTO(category))
                 .collect(Collectors.toList());
     }
 
@@ -44,7 +44,7 @@ public class ExpenseCategoryService {
     public ExpenseCategoryDTO getCategoryById(Long id) {
         ExpenseCategory category = repository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Category not found with id: " + id));
-        return modelMapper.map(category, ExpenseCategoryDTO.class);
+        return expenseCategoryMapper.toDTO(category);
     }
 
     @CacheEvict(value = { "expenseCategoriesActive", "expenseCategoryNames" }, allEntries = true)
@@ -54,11 +54,11 @@ public class ExpenseCategoryService {
             throw new RuntimeException("Category with name '" + dto.getName() + "' already exists");
         }
 
-        ExpenseCategory category = modelMapper.map(dto, ExpenseCategory.class);
+        ExpenseCategory category = expenseCategoryMapper.toEntity(dto);
         category.setIsActive(true);
 
         ExpenseCategory saved = repository.save(category);
-        return modelMapper.map(saved, ExpenseCategoryDTO.class);
+        return expenseCategoryMapper.toDTO(saved);
     }
 
     @CacheEvict(value = { "expenseCategoriesActive", "expenseCategoryNames" }, allEntries = true)
@@ -79,7 +79,7 @@ public class ExpenseCategoryService {
         }
 
         ExpenseCategory updated = repository.save(category);
-        return modelMapper.map(updated, ExpenseCategoryDTO.class);
+        return expenseCategoryMapper.toDTO(updated);
     }
 
     @CacheEvict(value = { "expenseCategoriesActive", "expenseCategoryNames" }, allEntries = true)
@@ -98,7 +98,7 @@ public class ExpenseCategoryService {
         category.setIsActive(isActive);
 
         ExpenseCategory updated = repository.save(category);
-        return modelMapper.map(updated, ExpenseCategoryDTO.class);
+        return expenseCategoryMapper.toDTO(updated);
     }
 }
 
@@ -4,12 +4,12 @@ import com.gasagency.dto.response.ExpenseDTO;
 import com.gasagency.dto.response.ExpenseSummaryDTO;
 import com.gasagency.entity.Expense;
 import com.gasagency.entity.ExpenseCategory;
+import com.gasagency.mapper.ExpenseMapper;
 import com.gasagency.repository.ExpenseRepository;
 import com.gasagency.repository.ExpenseCategoryRepository;
 import com.gasagency.repository.BankAccountRepository;
 import com.gasagency.repository.PaymentModeRepository;
 import com.gasagency.exception.ConcurrencyConflictException;
-import org.modelmapper.ModelMapper;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -32,16 +32,16 @@ public class ExpenseService {
         private final ExpenseCategoryRepository categoryRepository;
         private final BankAccountRepository bankAccountRepository;
         private final PaymentModeRepository paymentModeRepository;
-        private final ModelMapper modelMapper;
+        private final ExpenseMapper expenseMapper;
 
         public ExpenseService(ExpenseRepository repository, ExpenseCategoryRepository categoryRepository,
                         BankAccountRepository bankAccountRepository, PaymentModeRepository paymentModeRepository,
-                        ModelMapper modelMapper) {
+                        ExpenseMapper expenseMapper) {
                 this.repository = repository;
                 this.categoryRepository = categoryRepository;
                 this.bankAccountRepository = bankAccountRepository;
                 this.paymentModeRepository = paymentModeRepository;
-                this.modelMapper = modelMapper;
+                this.expenseMapper = expenseMapper;
         }
 
         @Transactional(readOnly = true)
@@ -279,16 +279,6 @@ public class ExpenseService {
         }
 
         private ExpenseDTO convertToDTO(Expense expense) {
-                ExpenseDTO dto = modelMapper.map(expense, ExpenseDTO.class);
-                dto.setCategory(expense.getCategory().getName());
-                dto.setCategoryId(expense.getCategory().getId());
-                dto.setPaymentMode(expense.getPaymentMode());
-                if (expense.getBankAccount() != null) {
-                        dto.setBankAccountId(expense.getBankAccount().getId());
-                        dto.setBankAccountName(expense.getBankAccount().getBankName());
-                        dto.setBankAccountNumber(expense.getBankAccount().getAccountNumber());
-                }
-                return dto;
+                return expenseMapper.toDTO(expense);
         }
 }
-
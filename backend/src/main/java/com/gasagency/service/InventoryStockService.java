@@ -19,7 +19,12 @@ import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -611,6 +616,78 @@ public class InventoryStockService {
                 return stock;
         }
 
+        /**
+         * Lock the stock rows of several variants in one warehouse with a single
+         * SELECT ... FOR UPDATE taken in id order, so concurrent multi-item sales
+         * acquire their locks in the same sequence. Result is keyed by variant id.
+         */
+        @Transactional
+        public Map<Long, InventoryStock> lockStocks(Warehouse warehouse, Collection<CylinderVariant> variants) {
+                Map<Long, CylinderVariant> variantsById = new LinkedHashMap<>();
+                for (CylinderVariant variant : variants) {
+                        variantsById.put(variant.getId(), variant);
+                }
+                LoggerUtil.logDatabaseOperation(logger, "SELECT_WITH_LOCK", "INVENTORY_STOCK",
+                                "warehouseId", warehouse.getId(),
+                                "variantIds", variantsById.keySet());
+
+                Map<Long, InventoryStock> stocks = new HashMap<>();
+                for (InventoryStock stock : repository.findByWarehouseAndVariantIdsWithLock(warehouse.getId(),
+                                variantsById.keySet())) {
+                        stocks.put(stock.getVariant().getId(), stock);
+                }
+                for (CylinderVariant variant : variantsById.values()) {
+                        if (!stocks.containsKey(variant.getId())) {
+                                LoggerUtil.logBusinessError(logger, "LOCK_STOCKS", "Stock not found for warehouse",
+                                                "warehouseId", warehouse.getId(),
+                                                "variantId", variant.getId());
+                                throw new ResourceNotFoundException(
+                                                "Variant '" + variant.getName()
+                                                                + "' is not available in warehouse '" +
+                                                                warehouse.getName()
+                                                                + "'. Please check inventory or select a different warehouse.");
+                        }
+                }
+                return stocks;
+        }
+
+        /**
+         * Apply filled/empty quantity changes, keyed by variant id, to rows locked
+         * by lockStocks. The UPDATEs are written together when the transaction
+         * flushes.
+         */
+        @Transactional
+        public void applyStockDeltas(Map<Long, InventoryStock> stocks, Map<Long, Long> filledDeltas,
+                        Map<Long, Long> emptyDeltas) {
+                List<InventoryStock> changed = new ArrayList<>();
+                for (Map.Entry<Long, InventoryStock> entry : stocks.entrySet()) {
+                        long filledDelta = filledDeltas.getOrDefault(entry.getKey(), 0L);
+                        long emptyDelta = emptyDeltas.getOrDefault(entry.getKey(), 0L);
+                        if (filledDelta == 0 && emptyDelta == 0) {
+                                continue;
+                        }
+                        InventoryStock stock = entry.getValue();
+                        long newFilled = (stock.getFilledQty() != null ? stock.getFilledQty() : 0L) + filledDelta;
+                        long newEmpty = (stock.getEmptyQty() != null ? stock.getEmptyQty() : 0L) + emptyDelta;
+                        if (newFilled < 0 || newEmpty < 0) {
+                                LoggerUtil.logBusinessError(logger, "APPLY_STOCK_DELTAS", "Insufficient quantity",
+                                                "stockId", stock.getId(),
+                                                "filledDelta", filledDelta,
+                                                "emptyDelta", emptyDelta);
+                                throw new IllegalArgumentException(
+                                                "Operation would result in negative stock quantity. Filled: "
+                                                                + newFilled + ", Empty: " + newEmpty);
+                        }
+                        stock.setFilledQty(newFilled);
+                        stock.setEmptyQty(newEmpty);
+                        stock.setLastUpdated(LocalDateTime.now());
+                        changed.add(stock);
+                }
+                if (!changed.isEmpty()) {
+                        repository.saveAll(changed);
+                }
+        }
+
         /**
          * Increment filled quantity for a warehouse and variant (warehouse-aware)
          * Used for supplier transactions in specific warehouses
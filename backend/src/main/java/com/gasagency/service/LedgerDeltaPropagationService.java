@@ -0,0 +1,222 @@
+package com.gasagency.service;
+
+import com.gasagency.repository.CustomerCylinderLedgerRepository;
+import com.gasagency.util.LoggerUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pushes a balance / due change of one ledger entry down the rows that follow
+ * it, without loading the customer's history as entities.
+ *
+ * Callers read the tail of a chain as lightweight rows, compute the new values
+ * (including any clamp-to-zero rules) and hand them back here. When every row
+ * moves by the same delta the write is a set-based UPDATE over the ids that
+ * were read; otherwise only the rows that actually changed are written in one
+ * JDBC batch.
+ *
+ * Must run inside the caller's transaction. A set-based shift flushes and then
+ * clears the persistence context, so callers must re-read any entity they use
+ * afterwards.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class LedgerDeltaPropagationService {
+    private static final Logger logger = LoggerFactory.getLogger(LedgerDeltaPropagationService.class);
+
+    private static final String UPDATE_BALANCE_SQL = "UPDATE customer_cylinder_ledger SET balance = ?, "
+            + "version = version + 1, updated_date = CURRENT_TIMESTAMP WHERE id = ?";
+    private static final String UPDATE_DUE_SQL = "UPDATE customer_cylinder_ledger SET due_amount = ?, "
+            + "version = version + 1, updated_date = CURRENT_TIMESTAMP WHERE id = ?";
+    // Keeps the IN list of a shift within common database bind limits
+    private static final int SHIFT_BATCH_SIZE = 1000;
+
+    private final CustomerCylinderLedgerRepository ledgerRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    public LedgerDeltaPropagationService(CustomerCylinderLedgerRepository ledgerRepository,
+            JdbcTemplate jdbcTemplate) {
+        this.ledgerRepository = ledgerRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** A ledger row after the anchor entry in the per-variant balance chain. */
+    public record BalanceRow(Long id, LocalDate transactionDate, long filledOut, long emptyIn, Long balance) {
+    }
+
+    /** A ledger row after the anchor entry in the customer-wide due chain. */
+    public record DueRow(Long id, LocalDate transactionDate, BigDecimal totalAmount, BigDecimal amountReceived,
+            BigDecimal dueAmount) {
+    }
+
+    public long findPreviousBalance(Long customerId, Long variantId, LocalDate anchorDate, Long anchorId) {
+        List<Long> balances = ledgerRepository.findVariantBalancesBefore(customerId, variantId, anchorDate,
+                anchorId, PageRequest.of(0, 1));
+        if (balances.isEmpty() || balances.get(0) == null) {
+            return 0L;
+        }
+        return balances.get(0);
+    }
+
+    public BigDecimal findPreviousDue(Long customerId, Long anchorId) {
+        List<BigDecimal> dues = ledgerRepository.findDueAmountsBefore(customerId, anchorId, PageRequest.of(0, 1));
+        if (dues.isEmpty() || dues.get(0) == null) {
+            return BigDecimal.ZERO;
+        }
+        return dues.get(0);
+    }
+
+    public List<BalanceRow> findBalanceChainAfter(Long customerId, Long variantId, LocalDate anchorDate,
+            Long anchorId) {
+        List<Object[]> rows = ledgerRepository.findVariantChainAfter(customerId, variantId, anchorDate, anchorId);
+        List<BalanceRow> chain = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            chain.add(new BalanceRow((Long) row[0], (LocalDate) row[1],
+                    row[2] != null ? (Long) row[2] : 0L,
+                    row[3] != null ? (Long) row[3] : 0L,
+                    (Long) row[4]));
+        }
+        return chain;
+    }
+
+    public List<DueRow> findDueChainAfter(Long customerId, Long anchorId) {
+        List<Object[]> rows = ledgerRepository.findDueChainAfter(customerId, anchorId);
+        List<DueRow> chain = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            chain.add(new DueRow((Long) row[0], (LocalDate) row[1], (BigDecimal) row[2], (BigDecimal) row[3],
+                    (BigDecimal) row[4]));
+        }
+        return chain;
+    }
+
+    /**
+     * Write recomputed balances for the rows returned by
+     * {@link #findBalanceChainAfter}. newBalances is index-aligned with chain.
+     *
+     * @return number of rows written
+     */
+    public int applyBalances(Long customerId, Long variantId, Long anchorId, List<BalanceRow> chain,
+            List<Long> newBalances) {
+        if (chain.isEmpty()) {
+            return 0;
+        }
+        Long delta = null;
+        boolean uniform = true;
+        List<Object[]> changed = new ArrayList<>();
+        for (int i = 0; i < chain.size(); i++) {
+            BalanceRow row = chain.get(i);
+            long newBalance = newBalances.get(i);
+            if (row.balance() == null) {
+                uniform = false;
+                changed.add(new Object[] { newBalance, row.id() });
+                continue;
+            }
+            long rowDelta = newBalance - row.balance();
+            if (delta == null) {
+                delta = rowDelta;
+            } else if (delta != rowDelta) {
+                uniform = false;
+            }
+            if (rowDelta != 0) {
+                changed.add(new Object[] { newBalance, row.id() });
+            }
+        }
+        if (changed.isEmpty()) {
+            return 0;
+        }
+
+        int written;
+        if (uniform) {
+            List<Long> ids = chain.stream().map(BalanceRow::id).toList();
+            written = 0;
+            for (int i = 0; i < ids.size(); i += SHIFT_BATCH_SIZE) {
+                written += ledgerRepository.shiftBalances(ids.subList(i, Math.min(i + SHIFT_BATCH_SIZE, ids.size())),
+                        delta);
+            }
+        } else {
+            written = batchUpdateBalances(changed);
+        }
+        LoggerUtil.logDatabaseOperation(logger, "PROPAGATE_BALANCE", "CustomerCylinderLedger",
+                "customerId", customerId, "variantId", variantId, "anchorId", anchorId,
+                "mode", uniform ? "SHIFT" : "BATCH", "delta", uniform ? delta : "n/a", "rows", written);
+        return written;
+    }
+
+    /**
+     * Write explicit balances in one JDBC batch.
+     *
+     * @param balanceAndIds rows of { newBalance, ledgerId }
+     * @return number of rows written
+     */
+    public int batchUpdateBalances(List<Object[]> balanceAndIds) {
+        if (balanceAndIds.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_BALANCE_SQL, balanceAndIds);
+        return balanceAndIds.size();
+    }
+
+    /**
+     * Write recomputed due amounts for the rows returned by
+     * {@link #findDueChainAfter}. newDues is index-aligned with chain.
+     *
+     * @return number of rows written
+     */
+    public int applyDueAmounts(Long customerId, Long anchorId, List<DueRow> chain, List<BigDecimal> newDues) {
+        if (chain.isEmpty()) {
+            return 0;
+        }
+        BigDecimal delta = null;
+        boolean uniform = true;
+        List<Object[]> changed = new ArrayList<>();
+        for (int i = 0; i < chain.size(); i++) {
+            DueRow row = chain.get(i);
+            BigDecimal newDue = newDues.get(i);
+            if (row.dueAmount() == null) {
+                uniform = false;
+                changed.add(new Object[] { newDue, row.id() });
+                continue;
+            }
+            BigDecimal rowDelta = newDue.subtract(row.dueAmount());
+            if (delta == null) {
+                delta = rowDelta;
+            } else if (delta.compareTo(rowDelta) != 0) {
+                uniform = false;
+            }
+            if (rowDelta.signum() != 0) {
+                changed.add(new Object[] { newDue, row.id() });
+            }
+        }
+        if (changed.isEmpty()) {
+            return 0;
+        }
+
+        int written;
+        if (uniform) {
+            List<Long> ids = chain.stream().map(DueRow::id).toList();
+            written = 0;
+            for (int i = 0; i < ids.size(); i += SHIFT_BATCH_SIZE) {
+                written += ledgerRepository.shiftDueAmounts(ids.subList(i, Math.min(i + SHIFT_BATCH_SIZE, ids.size())),
+                        delta);
+            }
+        } else {
+            // Clamped or drifted rows do not share one delta; write them individually
+            jdbcTemplate.batchUpdate(UPDATE_DUE_SQL, changed);
+            written = changed.size();
+        }
+        LoggerUtil.logDatabaseOperation(logger, "PROPAGATE_DUE", "CustomerCylinderLedger",
+                "customerId", customerId, "anchorId", anchorId,
+                "mode", uniform ? "SHIFT" : "BATCH", "delta", uniform ? delta : "n/a", "rows", written);
+        return written;
+    }
+}
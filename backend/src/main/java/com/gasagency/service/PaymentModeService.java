@@ -2,8 +2,8 @@ package com.gasagency.service;
 
 import com.gasagency.dto.response.PaymentModeDTO;
 import com.gasagency.entity.PaymentMode;
+import com.gasagency.mapper.PaymentModeMapper;
 import com.gasagency.repository.PaymentModeRepository;
-import org.modelmapper.ModelMapper;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
@@ -16,23 +16,23 @@ import java.util.stream.Collectors;
 public class PaymentModeService {
 
     private final PaymentModeRepository repository;
-    private final ModelMapper modelMapper;
+    private final PaymentModeMapper paymentModeMapper;
 
-    public PaymentModeService(PaymentModeRepository repository, ModelMapper modelMapper) {
+    public PaymentModeService(PaymentModeRepository repository, PaymentModeMapper paymentModeMapper) {
         this.repository = repository;
-        this.modelMapper = modelMapper;
+        this.paymentModeMapper = paymentModeMapper;
     }
 
     public Page<PaymentModeDTO> getAllPaymentModes(Pageable pageable) {
         return repository.findAll(pageable)
-                .map(mode -> modelMapper.map(mode, PaymentModeDTO.class));
+                .map(mode -> paymentModeMapper.toDTO(mode));
     }
 
     @Cacheable("paymentModesActive")
     public List<PaymentModeDTO> getActivePaymentModes() {
         return repository.findByIsActiveTrue()
                 .stream()
-                .map(mode -> modelMapper.map(mode, PaymentModeDTO.class))
+                .map(mode -> paymentModeMapper.toDTO(mode))
                 .collect(Collectors.toList());
     }
 
@@ -44,7 +44,7 @@ public class PaymentModeService {
     public PaymentModeDTO getPaymentModeById(Long id) {
         PaymentMode mode = repository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Payment mode not found with id: " + id));
-        return modelMapper.map(mode, PaymentModeDTO.class);
+        return paymentModeMapper.toDTO(mode);
     }
 
     @CacheEvict(value = { "paymentModesActive", "paymentModeNames" }, allEntries = true)
@@ -59,7 +59,7 @@ public class PaymentModeService {
             throw new RuntimeException("Payment mode with code '" + dto.getCode() + "' already exists");
         }
 
-        PaymentMode mode = modelMapper.map(dto, PaymentMode.class);
+        PaymentMode mode = paymentModeMapper.toEntity(dto);
         mode.setIsActive(true);
         // Ensure isBankAccountRequired has a default value if null
         if (mode.getIsBankAccountRequired() == null) {
@@ -67,7 +67,7 @@ public class PaymentModeService {
         }
 
         PaymentMode saved = repository.save(mode);
-        return modelMapper.map(saved, PaymentModeDTO.class);
+        return paymentModeMapper.toDTO(saved);
     }
 
     @CacheEvict(value = { "paymentModesActive", "paymentModeNames" }, allEntries = true)
@@ -98,7 +98,7 @@ public class PaymentModeService {
         }
 
         PaymentMode updated = repository.save(mode);
-        return modelMapper.map(updated, PaymentModeDTO.class);
+        return paymentModeMapper.toDTO(updated);
     }
 
     @CacheEvict(value = { "paymentModesActive", "paymentModeNames" }, allEntries = true)
@@ -117,7 +117,7 @@ public class PaymentModeService {
         mode.setIsActive(isActive);
 
         PaymentMode updated = repository.save(mode);
-        return modelMapper.map(updated, PaymentModeDTO.class);
+        return paymentModeMapper.toDTO(updated);
     }
 }
 
@@ -2,35 +2,136 @@ package com.gasagency.service;
 
 import com.gasagency.entity.ReferenceSequence;
 import com.gasagency.repository.ReferenceSequenceRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hands out reference sequence numbers per key.
+ *
+ * By default values come from blocks reserved in their own short transaction:
+ * the reference_sequence row holds the highest value reserved so far, and the
+ * rest of the block is served from memory. Values left in a block when the
+ * application stops, or taken by a transaction that rolls back, are skipped.
+ * Keys starting with one of the configured gap-free prefixes keep the locked
+ * read-increment inside the caller's transaction, so they never skip a value,
+ * but every caller then queues on that key's row until it commits. None are
+ * gap-free unless a deployment opts in. Blocks of past months are dropped
+ * hourly, since every key ends in its month (yyyyMM).
+ */
 @Service
 public class ReferenceSequenceService {
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyyMM");
+
     private final ReferenceSequenceRepository repository;
+    private final TransactionTemplate reserveTransaction;
+    private final TransactionTemplate callerTransaction;
+    private final int blockSize;
+    private final List<String> gapFreePrefixes;
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+    private final Map<String, Object> refillLocks = new ConcurrentHashMap<>();
 
-    public ReferenceSequenceService(ReferenceSequenceRepository repository) {
+    public ReferenceSequenceService(ReferenceSequenceRepository repository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.reference-sequence.block-size:20}") int blockSize,
+            @Value("${app.reference-sequence.gap-free-prefixes:}") List<String> gapFreePrefixes) {
         this.repository = repository;
+        this.reserveTransaction = new TransactionTemplate(transactionManager);
+        this.reserveTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.callerTransaction = new TransactionTemplate(transactionManager);
+        this.blockSize = Math.max(1, blockSize);
+        this.gapFreePrefixes = gapFreePrefixes.stream()
+                .map(String::trim)
+                .filter(prefix -> !prefix.isEmpty())
+                .toList();
+    }
+
+    /** Range of values [next, limit] reserved for one key. */
+    private static final class Block {
+        private final AtomicLong next;
+        private final long limit;
+
+        private Block(long first, long limit) {
+            this.next = new AtomicLong(first);
+            this.limit = limit;
+        }
     }
 
-    @Transactional
     public long next(String seqKey) {
+        if (isGapFree(seqKey)) {
+            return callerTransaction.execute(status -> withRetries(() -> increment(seqKey, 1L)));
+        }
+        while (true) {
+            Block block = blocks.get(seqKey);
+            if (block != null) {
+                long value = block.next.getAndIncrement();
+                if (value <= block.limit) {
+                    return value;
+                }
+            }
+            synchronized (refillLocks.computeIfAbsent(seqKey, key -> new Object())) {
+                // Another thread may have refilled the key while we waited
+                if (blocks.get(seqKey) == block) {
+                    long limit = withRetries(
+                            () -> reserveTransaction.execute(status -> increment(seqKey, blockSize)));
+                    blocks.put(seqKey, new Block(limit - blockSize + 1, limit));
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop the blocks of keys from past months (runs every hour).
+     */
+    @Scheduled(fixedRate = 3600000) // Every hour
+    public void evictStaleBlocks() {
+        String currentMonth = ":" + LocalDate.now().format(MONTH_FORMATTER);
+        blocks.keySet().removeIf(key -> !key.endsWith(currentMonth));
+        refillLocks.keySet().removeIf(key -> !key.endsWith(currentMonth));
+    }
+
+    private boolean isGapFree(String seqKey) {
+        for (String prefix : gapFreePrefixes) {
+            if (seqKey.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Raise the stored high-water mark of the key by count and return the new mark
+    private long increment(String seqKey, long count) {
+        ReferenceSequence seq = repository.findBySeqKeyForUpdate(seqKey).orElse(null);
+        if (seq == null) {
+            seq = new ReferenceSequence(seqKey, 0L);
+            seq = repository.save(seq);
+        }
+
+        long next = (seq.getValue() != null ? seq.getValue() : 0L) + count;
+        seq.setValue(next);
+        repository.save(seq);
+        return next;
+    }
+
+    private long withRetries(Supplier<Long> attempt) {
         int attempts = 0;
         while (attempts < 3) {
             attempts++;
             try {
-                ReferenceSequence seq = repository.findBySeqKeyForUpdate(seqKey).orElse(null);
-                if (seq == null) {
-                    seq = new ReferenceSequence(seqKey, 0L);
-                    seq = repository.save(seq);
-                }
-
-                long next = (seq.getValue() != null ? seq.getValue() : 0L) + 1L;
-                seq.setValue(next);
-                repository.save(seq);
-                return next;
+                return attempt.get();
             } catch (DataIntegrityViolationException | ObjectOptimisticLockingFailureException e) {
                 if (attempts >= 3) {
                     throw e;
@@ -41,4 +142,3 @@ public class ReferenceSequenceService {
         throw new IllegalStateException("Failed to generate reference sequence after retries.");
     }
 }
-
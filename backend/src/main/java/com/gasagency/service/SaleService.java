@@ -1,12 +1,12 @@
 
 package com.gasagency.service;
 
+import com.gasagency.alert.StockChangedEvent;
 import com.gasagency.dto.request.CreateSaleRequestDTO;
 import com.gasagency.dto.response.SaleDTO;
 import com.gasagency.dto.response.SaleItemDTO;
 import com.gasagency.dto.response.SaleSummaryDTO;
 import com.gasagency.dto.response.PaymentModeSummaryDTO;
-import com.gasagency.dto.response.InventoryStockDTO;
 import com.gasagency.dto.response.SalePaymentSplitDTO;
 import com.gasagency.entity.*;
 import com.gasagency.repository.*;
@@ -17,13 +17,18 @@ import com.gasagency.util.AuditLogger;
 import com.gasagency.util.PerformanceTracker;
 import com.gasagency.util.ReferenceNumberGenerator;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,6 +41,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -52,16 +58,16 @@ public class SaleService {
         private final InventoryStockService inventoryStockService;
         private final CustomerCylinderLedgerService ledgerService;
         private final CustomerCylinderLedgerRepository ledgerRepository;
-        private final CustomerLedgerPaymentSplitRepository customerLedgerPaymentSplitRepository;
         private final WarehouseService warehouseService;
         private final BankAccountRepository bankAccountRepository;
-        private final BankAccountLedgerRepository bankAccountLedgerRepository;
+        private final BankAccountLedgerService bankAccountLedgerService;
         private final PaymentModeRepository paymentModeRepository;
         private final AuditLogger auditLogger;
         private final PerformanceTracker performanceTracker;
         private final ReferenceNumberGenerator referenceNumberGenerator;
-        private final AlertConfigurationService alertConfigService;
-        private final AlertNotificationService alertNotificationService;
+        private final ApplicationEventPublisher eventPublisher;
+        private final DailySalesRollupService salesRollupService;
+        private final TransactionTemplate saleTransaction;
 
         public SaleService(SaleRepository saleRepository,
                         SalePaymentSplitRepository salePaymentSplitRepository,
@@ -72,16 +78,16 @@ public class SaleService {
                         InventoryStockService inventoryStockService,
                         CustomerCylinderLedgerService ledgerService,
                         CustomerCylinderLedgerRepository ledgerRepository,
-                        CustomerLedgerPaymentSplitRepository customerLedgerPaymentSplitRepository,
                         WarehouseService warehouseService,
                         BankAccountRepository bankAccountRepository,
-                        BankAccountLedgerRepository bankAccountLedgerRepository,
+                        BankAccountLedgerService bankAccountLedgerService,
                         PaymentModeRepository paymentModeRepository,
                         AuditLogger auditLogger,
                         PerformanceTracker performanceTracker,
                         ReferenceNumberGenerator referenceNumberGenerator,
-                        AlertConfigurationService alertConfigService,
-                        AlertNotificationService alertNotificationService) {
+                        ApplicationEventPublisher eventPublisher,
+                        DailySalesRollupService salesRollupService,
+                        PlatformTransactionManager transactionManager) {
                 this.saleRepository = saleRepository;
                 this.salePaymentSplitRepository = salePaymentSplitRepository;
                 this.saleItemRepository = saleItemRepository;
@@ -91,16 +97,18 @@ public class SaleService {
                 this.inventoryStockService = inventoryStockService;
                 this.ledgerService = ledgerService;
                 this.ledgerRepository = ledgerRepository;
-                this.customerLedgerPaymentSplitRepository = customerLedgerPaymentSplitRepository;
                 this.warehouseService = warehouseService;
                 this.bankAccountRepository = bankAccountRepository;
-                this.bankAccountLedgerRepository = bankAccountLedgerRepository;
+                this.bankAccountLedgerService = bankAccountLedgerService;
                 this.paymentModeRepository = paymentModeRepository;
                 this.auditLogger = auditLogger;
                 this.performanceTracker = performanceTracker;
                 this.referenceNumberGenerator = referenceNumberGenerator;
-                this.alertConfigService = alertConfigService;
-                this.alertNotificationService = alertNotificationService;
+                this.eventPublisher = eventPublisher;
+                this.salesRollupService = salesRollupService;
+                // Each attempt of createSale runs in its own transaction so a retry starts clean
+                this.saleTransaction = new TransactionTemplate(transactionManager);
+                this.saleTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
         }
 
         @Transactional(readOnly = true)
@@ -114,17 +122,15 @@ public class SaleService {
 
         public SaleSummaryDTO getSalesSummary(String fromDate, String toDate, Long customerId,
                         Long variantId, Double minAmount, Double maxAmount, String referenceNumber, String createdBy) {
-                LocalDate from = null;
-                LocalDate to = null;
-                try {
-                        if (fromDate != null && !fromDate.isEmpty()) {
-                                from = LocalDate.parse(fromDate);
-                        }
-                        if (toDate != null && !toDate.isEmpty()) {
-                                to = LocalDate.parse(toDate);
-                        }
-                } catch (DateTimeParseException e) {
-                        // Optionally log or handle parse error
+                LocalDate from = parseDateFilter(fromDate, "fromDate");
+                LocalDate to = parseDateFilter(toDate, "toDate");
+                // Date / customer / variant filters are answered from the daily rollup; amount,
+                // reference and creator filters need the individual sales
+                boolean rollupFilters = minAmount == null && maxAmount == null
+                                && (referenceNumber == null || referenceNumber.isEmpty())
+                                && (createdBy == null || createdBy.isEmpty());
+                if (rollupFilters && salesRollupService.isReady()) {
+                        return salesRollupService.getSalesSummary(from, to, customerId, variantId);
                 }
                 // Fetch all filtered sales (no paging)
                 List<Sale> sales = saleRepository.findFilteredSalesCustom(from, to, customerId, variantId,
@@ -180,12 +186,26 @@ public class SaleService {
         }
 
         public SaleDTO createSale(CreateSaleRequestDTO request) {
+                return createSale(request, Supplier::get);
+        }
+
+        // The idempotency step runs inside every attempt's transaction, so the key is
+        // recorded under the same isolation level and rolled back with a failed attempt
+        public SaleDTO createSale(CreateSaleRequestDTO request,
+                        ApiIdempotencyService.RecordingStep<SaleDTO> idempotencyStep) {
+                // Inside a caller's transaction a failed attempt dooms that transaction, so the
+                // caller has to retry instead
+                if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                        return saleTransaction.execute(
+                                        status -> idempotencyStep.record(() -> createSaleInternal(request)));
+                }
                 int maxRetries = 3;
                 int attempt = 0;
 
                 while (attempt < maxRetries) {
                         try {
-                                return createSaleInternal(request);
+                                return saleTransaction.execute(
+                                                status -> idempotencyStep.record(() -> createSaleInternal(request)));
                         } catch (ObjectOptimisticLockingFailureException e) {
                                 attempt++;
                                 if (attempt >= maxRetries) {
@@ -208,7 +228,6 @@ public class SaleService {
                 throw new ConcurrencyConflictException("Failed to create sale after maximum retries.");
         }
 
-        @Transactional(isolation = Isolation.REPEATABLE_READ)
         private SaleDTO createSaleInternal(CreateSaleRequestDTO request) {
                 String transactionId = UUID.randomUUID().toString();
                 MDC.put("transactionId", transactionId);
@@ -281,7 +300,9 @@ public class SaleService {
                         }
                 }
 
-                // Validate and lock all inventory items upfront
+                // Validate all items and resolve their variants
+                List<CylinderVariant> itemVariants = new ArrayList<>();
+                Map<Long, Long> requestedFilled = new java.util.HashMap<>();
                 for (CreateSaleRequestDTO.SaleItemRequestDTO itemRequest : request.getItems()) {
                         // Validate item request
                         if (itemRequest.getVariantId() == null) {
@@ -306,23 +327,33 @@ public class SaleService {
                                                                 "Variant not found with id: "
                                                                                 + itemRequest.getVariantId());
                                         });
+                        itemVariants.add(variant);
+                        requestedFilled.merge(variant.getId(), Long.valueOf(itemRequest.getQtyIssued()), Long::sum);
+                }
 
-                        // Check inventory sufficiency with lock - WAREHOUSE-SPECIFIC
-                        InventoryStock inventoryStock = inventoryStockService
-                                        .getStockByWarehouseAndVariantWithLock(warehouse, variant);
+                // Lock the stock rows of every variant in one ordered statement - WAREHOUSE-SPECIFIC
+                Map<Long, InventoryStock> stocks = inventoryStockService.lockStocks(warehouse, itemVariants);
+
+                for (int index = 0; index < request.getItems().size(); index++) {
+                        CreateSaleRequestDTO.SaleItemRequestDTO itemRequest = request.getItems().get(index);
+                        CylinderVariant variant = itemVariants.get(index);
+
+                        // Check inventory sufficiency against everything this sale takes of the variant
+                        InventoryStock inventoryStock = stocks.get(variant.getId());
+                        long requested = requestedFilled.get(variant.getId());
                         logger.debug("Warehouse: {}, Variant: {}, Available filled: {}, Requested: {}",
                                         warehouse.getName(), variant.getName(), inventoryStock.getFilledQty(),
-                                        itemRequest.getQtyIssued());
+                                        requested);
 
-                        if (inventoryStock.getFilledQty() < itemRequest.getQtyIssued()) {
+                        if (inventoryStock.getFilledQty() < requested) {
                                 logger.error("Insufficient inventory in warehouse {} for variant: {}. Available: {}, Requested: {}",
                                                 warehouse.getName(), variant.getName(), inventoryStock.getFilledQty(),
-                                                itemRequest.getQtyIssued());
+                                                requested);
                                 throw new InvalidOperationException(
                                                 "Insufficient inventory in warehouse " + warehouse.getName() +
                                                                 " for variant: " + variant.getName() +
                                                                 ". Available: " + inventoryStock.getFilledQty() +
-                                                                ", Requested: " + itemRequest.getQtyIssued());
+                                                                ", Requested: " + requested);
                         }
 
                         // Get customer-specific pricing - required for sales
@@ -469,7 +500,7 @@ public class SaleService {
                                                                                                         "DEP"),
                                                                         "Payment received from customer: "
                                                                                         + customer.getName());
-                                                        bankAccountLedgerRepository.save(ledger);
+                                                        bankAccountLedgerService.record(ledger);
                                                         logger.info("Bank ledger entry recorded for sale id: {} - Amount: {}",
                                                                         finalSale.getId(), split.amount());
                                                 });
@@ -479,6 +510,8 @@ public class SaleService {
                 }
 
                 // Now attach sale items and persist
+                Map<Long, Long> filledDeltas = new java.util.HashMap<>();
+                Map<Long, Long> emptyDeltas = new java.util.HashMap<>();
                 for (int i = 0; i < saleItems.size(); i++) {
                         saleItems.get(i).setSale(sale);
                         saleItemRepository.save(saleItems.get(i));
@@ -489,14 +522,9 @@ public class SaleService {
                         logger.debug("Processing sale item - Variant: {}, Qty: {}", variant.getName(),
                                         itemRequest.getQtyIssued());
 
-                        // Update inventory (decrement filled, increment empty) - WAREHOUSE-SPECIFIC
-                        inventoryStockService.decrementFilledQty(warehouse, variant,
-                                        Long.valueOf(itemRequest.getQtyIssued()));
-                        inventoryStockService.incrementEmptyQty(warehouse, variant,
-                                        Long.valueOf(itemRequest.getQtyEmptyReceived()));
-                        logger.debug("Inventory updated in warehouse {} - Variant: {}, Filled qty decrement: {}, Empty qty increment: {}",
-                                        warehouse.getName(), variant.getName(), itemRequest.getQtyIssued(),
-                                        itemRequest.getQtyEmptyReceived());
+                        // Inventory change (decrement filled, increment empty), applied after all items
+                        filledDeltas.merge(variant.getId(), -Long.valueOf(itemRequest.getQtyIssued()), Long::sum);
+                        emptyDeltas.merge(variant.getId(), Long.valueOf(itemRequest.getQtyEmptyReceived()), Long::sum);
 
                         // Create ledger entry
                         ledgerService.createLedgerEntry(
@@ -521,10 +549,17 @@ public class SaleService {
                         logger.debug("Ledger entry created for sale item");
                 }
 
+                // Update the locked stock rows of all items together - WAREHOUSE-SPECIFIC
+                inventoryStockService.applyStockDeltas(stocks, filledDeltas, emptyDeltas);
+                logger.debug("Inventory updated in warehouse {} - Filled deltas: {}, Empty deltas: {}",
+                                warehouse.getName(), filledDeltas, emptyDeltas);
+
+                salesRollupService.refreshGroup(sale.getSaleDate(), warehouse.getId(), customer.getId());
+
                 logger.info("Sale {} completed successfully for customer {}", sale.getId(), customer.getName());
 
-                // Check for low stock alerts in real-time after sale
-                checkAndCreateLowStockAlerts(warehouse);
+                // Low stock alerts for the sold variants are evaluated once the sale commits
+                eventPublisher.publishEvent(new StockChangedEvent(warehouse.getId(), filledDeltas.keySet()));
 
                 // Track performance and audit
                 long txnDuration = System.currentTimeMillis() - txnStartTime;
@@ -555,131 +590,14 @@ public class SaleService {
                 return toDTO(sale);
         }
 
-        /**
-         * Check for low stock after sale and create alerts if thresholds exceeded
-         * This runs immediately after sale to provide real-time alerts
-         */
-        private void checkAndCreateLowStockAlerts(Warehouse warehouse) {
-                try {
-                        logger.debug("Starting real-time low stock check for warehouse: {}", warehouse.getName());
-
-                        // Get alert configuration for LOW_STOCK_WAREHOUSE
-                        java.util.Optional<com.gasagency.entity.AlertConfiguration> configOpt = alertConfigService
-                                        .getConfigOptional("LOW_STOCK_WAREHOUSE");
-
-                        if (configOpt.isEmpty()) {
-                                logger.warn("Alert configuration for LOW_STOCK_WAREHOUSE not found");
-                                return;
-                        }
-
-                        com.gasagency.entity.AlertConfiguration config = configOpt.get();
-                        if (!config.getEnabled()) {
-                                logger.debug("LOW_STOCK_WAREHOUSE alerts are disabled");
-                                return;
-                        }
-
-                        int filledThreshold = config.getFilledCylinderThreshold() != null
-                                        ? config.getFilledCylinderThreshold()
-                                        : 50;
-                        int emptyThreshold = config.getEmptyCylinderThreshold() != null
-                                        ? config.getEmptyCylinderThreshold()
-                                        : 50;
-
-                        logger.debug("Alert thresholds - Filled: {}, Empty: {}", filledThreshold, emptyThreshold);
-
-                        // Get current stock for this warehouse
-                        java.util.List<InventoryStockDTO> warehouseStocks = inventoryStockService
-                                        .getStockDTOsByWarehouse(warehouse);
-
-                        if (warehouseStocks == null || warehouseStocks.isEmpty()) {
-                                logger.warn("No stock found for warehouse: {}", warehouse.getName());
-                                return;
-                        }
-
-                        Long warehouseId = warehouse.getId();
-                        String warehouseName = warehouse.getName();
-
-                        // Check EACH variant individually (per-variant checking, not warehouse totals)
-                        for (InventoryStockDTO stock : warehouseStocks) {
-                                String variantName = stock.getVariantName() != null ? stock.getVariantName()
-                                                : "Variant " + stock.getVariantId();
-                                long filledQty = stock.getFilledQty() != null ? stock.getFilledQty() : 0;
-                                long emptyQty = stock.getEmptyQty() != null ? stock.getEmptyQty() : 0;
-
-                                logger.debug("Checking variant {} - Filled: {} (threshold: {}), Empty: {} (threshold: {})",
-                                                variantName, filledQty, filledThreshold, emptyQty, emptyThreshold);
-
-                                // Check filled cylinders for this variant
-                                if (filledQty < filledThreshold) {
-                                        String alertKey = "LOW_STOCK_FILLED_WH_" + warehouseId + "_VAR_"
-                                                        + stock.getVariantId();
-                                        String message = warehouseName + " - " + variantName + ": Only " + filledQty +
-                                                        " filled cylinders (threshold: " + filledThreshold + ")";
-
-                                        try {
-                                                alertNotificationService.createOrUpdateAlert(
-                                                                "LOW_STOCK_WAREHOUSE",
-                                                                alertKey,
-                                                                warehouseId,
-                                                                null,
-                                                                message,
-                                                                "warning");
-                                                logger.warn("ALERT: Real-time low filled stock alert created - {}",
-                                                                message);
-                                        } catch (Exception e) {
-                                                logger.error("Error creating filled stock alert for warehouse {} variant {}",
-                                                                warehouseId, stock.getVariantId(), e);
-                                        }
-                                }
-
-                                // Check empty cylinders for this variant
-                                if (emptyQty < emptyThreshold) {
-                                        String alertKey = "LOW_STOCK_EMPTY_WH_" + warehouseId + "_VAR_"
-                                                        + stock.getVariantId();
-                                        String message = warehouseName + " - " + variantName + ": Only " + emptyQty +
-                                                        " empty cylinders (threshold: " + emptyThreshold + ")";
-
-                                        try {
-                                                alertNotificationService.createOrUpdateAlert(
-                                                                "LOW_STOCK_WAREHOUSE",
-                                                                alertKey,
-                                                                warehouseId,
-                                                                null,
-                                                                message,
-                                                                "warning");
-                                                logger.warn("ALERT: Real-time low empty stock alert created - {}",
-                                                                message);
-                                        } catch (Exception e) {
-                                                logger.error("Error creating empty stock alert for warehouse {} variant {}",
-                                                                warehouseId, stock.getVariantId(), e);
-                                        }
-                                }
-                        }
-
-                        logger.debug("Low stock check completed for warehouse: {}", warehouseName);
-                } catch (Exception e) {
-                        logger.error("Error checking for low stock alerts after sale", e);
-                }
-        }
-
         @Transactional(readOnly = true)
         public Page<SaleDTO> getAllSales(Pageable pageable, String fromDate, String toDate, Long customerId,
                         Long variantId, Double minAmount, Double maxAmount, String referenceNumber, String createdBy) {
                 logger.debug("Fetching all sales with filters: page={}, size={}, customerId={}, variantId={}, minAmount={}, maxAmount={}, referenceNumber={}",
                                 pageable.getPageNumber(), pageable.getPageSize(), customerId, variantId, minAmount,
                                 maxAmount, referenceNumber);
-                LocalDate from = null;
-                LocalDate to = null;
-                try {
-                        if (fromDate != null && !fromDate.isEmpty()) {
-                                from = LocalDate.parse(fromDate);
-                        }
-                        if (toDate != null && !toDate.isEmpty()) {
-                                to = LocalDate.parse(toDate);
-                        }
-                } catch (DateTimeParseException e) {
-                        // Optionally log or handle parse error
-                }
+                LocalDate from = parseDateFilter(fromDate, "fromDate");
+                LocalDate to = parseDateFilter(toDate, "toDate");
                 // Use custom repository method for filtering
                 return saleRepository
                                 .findFilteredSalesCustom(from, to, customerId, variantId, minAmount, maxAmount,
@@ -688,6 +606,20 @@ public class SaleService {
                                 .map(this::toDTO);
         }
 
+        // Count-less variant of getAllSales for infinite scroll
+        @Transactional(readOnly = true)
+        public Slice<SaleDTO> getAllSalesSlice(Pageable pageable, String fromDate, String toDate, Long customerId,
+                        Long variantId, Double minAmount, Double maxAmount, String referenceNumber, String createdBy) {
+                logger.debug("Fetching sales slice with filters: page={}, size={}, customerId={}, variantId={}",
+                                pageable.getPageNumber(), pageable.getPageSize(), customerId, variantId);
+                LocalDate from = parseDateFilter(fromDate, "fromDate");
+                LocalDate to = parseDateFilter(toDate, "toDate");
+                return saleRepository
+                                .findFilteredSalesSliceCustom(from, to, customerId, variantId, minAmount, maxAmount,
+                                                referenceNumber, createdBy, pageable)
+                                .map(this::toDTO);
+        }
+
         public Page<SaleDTO> getSalesByCustomer(Long customerId, Pageable pageable) {
                 logger.debug("Fetching sales for customer: {} with pagination", customerId);
                 return saleRepository.findByCustomerId(customerId, pageable)
@@ -706,205 +638,33 @@ public class SaleService {
                         Long customerId,
                         String paymentMode, Long variantId, Long bankAccountId, Double minAmount, Double maxAmount,
                         Integer minTransactionCount) {
-                LocalDate from = null;
-                LocalDate to = null;
-                try {
-                        if (fromDate != null && !fromDate.isEmpty()) {
-                                from = LocalDate.parse(fromDate);
-                        }
-                        if (toDate != null && !toDate.isEmpty()) {
-                                to = LocalDate.parse(toDate);
-                        }
-                } catch (DateTimeParseException e) {
-                        // Optionally log or handle parse error
-                }
+                LocalDate from = parseDateFilter(fromDate, "fromDate");
+                LocalDate to = parseDateFilter(toDate, "toDate");
 
                 PaymentModeSummaryDTO summary = new PaymentModeSummaryDTO();
                 Map<String, PaymentModeSummaryDTO.PaymentModeStats> stats = new java.util.HashMap<>();
                 double totalAmount = 0;
                 int totalTransactions = 0;
 
-                List<Sale> sales = saleRepository.findFilteredSalesCustom(
-                                from,
-                                to,
-                                customerId,
-                                variantId,
-                                minAmount,
-                                maxAmount,
-                                null,
-                                null,
-                                Pageable.unpaged()).getContent();
-
+                // One grouped query over sale splits, legacy sales, empty-return splits and
+                // single-mode ledger receipts
                 String normalizedPaymentMode = paymentMode != null ? paymentMode.trim().toUpperCase() : null;
-                for (Sale sale : sales) {
-                        List<SalePaymentSplit> saleSplits = getPaymentSplitsForSale(sale);
-                        if (saleSplits.isEmpty()) {
-                                String legacyMode = sale.getPaymentMode() != null ? sale.getPaymentMode().trim().toUpperCase() : null;
-                                if (legacyMode == null || legacyMode.isEmpty()) {
-                                        continue;
-                                }
-                                if (normalizedPaymentMode != null && !normalizedPaymentMode.equals(legacyMode)) {
-                                        continue;
-                                }
-                                if (bankAccountId != null) {
-                                        Long legacyBankId = sale.getBankAccount() != null ? sale.getBankAccount().getId() : null;
-                                        if (!bankAccountId.equals(legacyBankId)) {
-                                                continue;
-                                        }
-                                }
-                                BigDecimal legacyReceived = ledgerRepository.findBySaleId(sale.getId()).stream()
-                                                .map(CustomerCylinderLedger::getAmountReceived)
-                                                .filter(value -> value != null)
-                                                .findFirst()
-                                                .orElse(BigDecimal.ZERO);
-                                if (legacyReceived.compareTo(BigDecimal.ZERO) <= 0) {
-                                        continue;
-                                }
-                                double amount = legacyReceived.doubleValue();
-                                stats.computeIfAbsent(legacyMode,
-                                                key -> new PaymentModeSummaryDTO.PaymentModeStats(key, key, 0, 0))
-                                                .setTotalAmount(stats.get(legacyMode).getTotalAmount() + amount);
-                                stats.get(legacyMode).setTransactionCount(stats.get(legacyMode).getTransactionCount() + 1);
-                                totalAmount += amount;
-                                totalTransactions++;
-                                continue;
-                        }
-                        for (SalePaymentSplit split : saleSplits) {
-                                String splitMode = split.getPaymentMode() != null
-                                                ? split.getPaymentMode().trim().toUpperCase()
-                                                : null;
-                                if (splitMode == null || splitMode.isEmpty()) {
-                                        continue;
-                                }
-                                if (normalizedPaymentMode != null && !normalizedPaymentMode.equals(splitMode)) {
-                                        continue;
-                                }
-                                if (bankAccountId != null) {
-                                        Long splitBankAccountId = split.getBankAccount() != null
-                                                        ? split.getBankAccount().getId()
-                                                        : null;
-                                        if (!bankAccountId.equals(splitBankAccountId)) {
-                                                continue;
-                                        }
-                                }
-                                BigDecimal splitAmount = split.getAmount() != null ? split.getAmount() : BigDecimal.ZERO;
-                                if (splitAmount.compareTo(BigDecimal.ZERO) <= 0) {
-                                        continue;
-                                }
-                                double amount = splitAmount.doubleValue();
-
-                                stats.computeIfAbsent(splitMode,
-                                                key -> new PaymentModeSummaryDTO.PaymentModeStats(key, key, 0, 0))
-                                                .setTotalAmount(stats.get(splitMode).getTotalAmount() + amount);
-                                stats.get(splitMode)
-                                                .setTransactionCount(stats.get(splitMode).getTransactionCount() + 1);
-
-                                totalAmount += amount;
-                                totalTransactions++;
-                        }
-                }
-
-                // Include non-sale ledger receipts (payment collection, empty returns etc.)
-                List<CustomerCylinderLedger> ledgerReceipts = ledgerRepository.findForPaymentModeSummary(
+                List<Object[]> rows = saleRepository.sumReceiptsByPaymentMode(
                                 from,
                                 to,
                                 customerId,
-                                null,
-                                bankAccountId,
+                                normalizedPaymentMode,
                                 variantId,
+                                bankAccountId,
                                 minAmount != null ? BigDecimal.valueOf(minAmount) : null,
                                 maxAmount != null ? BigDecimal.valueOf(maxAmount) : null);
-
-                List<Long> ledgerIdsForSplitLookup = ledgerReceipts.stream()
-                                .filter(l -> l != null
-                                                && l.getRefType() == CustomerCylinderLedger.TransactionType.EMPTY_RETURN
-                                                && "MULTIPLE".equalsIgnoreCase(
-                                                                l.getPaymentMode() != null ? l.getPaymentMode().trim()
-                                                                                : null))
-                                .map(CustomerCylinderLedger::getId)
-                                .collect(Collectors.toList());
-
-                Map<Long, List<CustomerLedgerPaymentSplit>> ledgerSplitMap = ledgerIdsForSplitLookup.isEmpty()
-                                ? Map.of()
-                                : customerLedgerPaymentSplitRepository.findByLedgerIdIn(ledgerIdsForSplitLookup)
-                                                .stream()
-                                                .collect(Collectors.groupingBy(split -> split.getLedger().getId()));
-
-                for (CustomerCylinderLedger ledger : ledgerReceipts) {
-                        if (ledger == null || ledger.getRefType() == null
-                                        || ledger.getRefType() == CustomerCylinderLedger.TransactionType.SALE) {
-                                continue; // Sale already handled above using sale payment split data
-                        }
-
-                        List<CustomerLedgerPaymentSplit> ledgerSplits = ledgerSplitMap.get(ledger.getId());
-                        if (ledgerSplits != null && !ledgerSplits.isEmpty()) {
-                                for (CustomerLedgerPaymentSplit split : ledgerSplits) {
-                                        String splitMode = split.getPaymentMode() != null
-                                                        ? split.getPaymentMode().trim().toUpperCase()
-                                                        : null;
-                                        if (splitMode == null || splitMode.isEmpty()) {
-                                                continue;
-                                        }
-                                        if (normalizedPaymentMode != null
-                                                        && !normalizedPaymentMode.equals(splitMode)) {
-                                                continue;
-                                        }
-                                        if (bankAccountId != null) {
-                                                Long splitBankId = split.getBankAccount() != null
-                                                                ? split.getBankAccount().getId()
-                                                                : null;
-                                                if (!bankAccountId.equals(splitBankId)) {
-                                                        continue;
-                                                }
-                                        }
-                                        BigDecimal splitAmount = split.getAmount() != null
-                                                        ? split.getAmount()
-                                                        : BigDecimal.ZERO;
-                                        if (splitAmount.compareTo(BigDecimal.ZERO) <= 0) {
-                                                continue;
-                                        }
-
-                                        double amount = splitAmount.doubleValue();
-                                        stats.computeIfAbsent(splitMode,
-                                                        key -> new PaymentModeSummaryDTO.PaymentModeStats(key, key, 0,
-                                                                        0))
-                                                        .setTotalAmount(stats.get(splitMode).getTotalAmount() + amount);
-                                        stats.get(splitMode)
-                                                        .setTransactionCount(stats.get(splitMode).getTransactionCount()
-                                                                        + 1);
-                                        totalAmount += amount;
-                                        totalTransactions++;
-                                }
-                                continue;
-                        }
-
-                        String mode = ledger.getPaymentMode() != null ? ledger.getPaymentMode().trim().toUpperCase() : null;
-                        if (mode == null || mode.isEmpty() || "MULTIPLE".equals(mode)) {
-                                continue;
-                        }
-                        if (normalizedPaymentMode != null && !normalizedPaymentMode.equals(mode)) {
-                                continue;
-                        }
-                        if (bankAccountId != null) {
-                                Long ledgerBankAccountId = ledger.getBankAccount() != null ? ledger.getBankAccount().getId()
-                                                : null;
-                                if (!bankAccountId.equals(ledgerBankAccountId)) {
-                                        continue;
-                                }
-                        }
-                        BigDecimal amountReceived = ledger.getAmountReceived() != null ? ledger.getAmountReceived()
-                                        : BigDecimal.ZERO;
-                        if (amountReceived.compareTo(BigDecimal.ZERO) <= 0) {
-                                continue;
-                        }
-
-                        double amount = amountReceived.doubleValue();
-                        stats.computeIfAbsent(mode,
-                                        key -> new PaymentModeSummaryDTO.PaymentModeStats(key, key, 0, 0))
-                                        .setTotalAmount(stats.get(mode).getTotalAmount() + amount);
-                        stats.get(mode).setTransactionCount(stats.get(mode).getTransactionCount() + 1);
+                for (Object[] row : rows) {
+                        String mode = (String) row[0];
+                        double amount = row[1] != null ? ((Number) row[1]).doubleValue() : 0;
+                        int count = row[2] != null ? ((Number) row[2]).intValue() : 0;
+                        stats.put(mode, new PaymentModeSummaryDTO.PaymentModeStats(mode, mode, amount, count));
                         totalAmount += amount;
-                        totalTransactions++;
+                        totalTransactions += count;
                 }
 
                 // Apply min transaction count filter
@@ -1112,6 +872,18 @@ public class SaleService {
                 return salePaymentSplitRepository.findBySaleId(sale.getId());
         }
 
+        // Blank means no filter; a malformed date is a bad request rather than a silently dropped filter
+        private LocalDate parseDateFilter(String value, String name) {
+                if (value == null || value.isEmpty()) {
+                        return null;
+                }
+                try {
+                        return LocalDate.parse(value);
+                } catch (DateTimeParseException e) {
+                        throw new InvalidOperationException("Invalid " + name + " '" + value + "', expected yyyy-MM-dd");
+                }
+        }
+
         private List<ResolvedPaymentSplit> validateAndResolvePaymentSplits(CreateSaleRequestDTO request) {
                 List<CreateSaleRequestDTO.PaymentSplitRequestDTO> splitRequests = request.getPaymentSplits();
                 BigDecimal requestAmount = request.getAmountReceived() != null ? request.getAmountReceived() : BigDecimal.ZERO;
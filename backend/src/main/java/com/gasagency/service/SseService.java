@@ -1,6 +1,9 @@
 package com.gasagency.service;
 
 import com.gasagency.entity.AlertNotification;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -8,137 +11,292 @@ import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * SSE (Server-Sent Events) Service for real-time alert notifications
  * Manages persistent connections with clients and broadcasts alerts
+ *
+ * Broadcasting only queues the event on each connection; a small fixed pool
+ * of writer threads does the actual sends, so callers (often inside a
+ * transaction) never wait on a client. A writer sends at most DRAIN_BATCH
+ * events of one connection before yielding to the others. One scheduler
+ * thread sends the keep-alives for all connections. A user may hold several
+ * connections (one per open tab).
+ *
+ * Slow consumers: a keep-alive that does not fit in a full queue is dropped;
+ * an alert that does not fit disconnects the client, which reconnects and
+ * reloads the active alerts. A send blocked for longer than SEND_TIMEOUT_SECONDS
+ * stops the connection from receiving further events. The blocked write itself
+ * is ended by the container: the connector's write timeout
+ * (server.tomcat.connection-timeout) or, at the latest, the emitter's async
+ * request timeout fails it, and the writer then completes the emitter.
  */
 @Service
 public class SseService {
 
     private static final Logger logger = LoggerFactory.getLogger(SseService.class);
-    private final Map<String, SseEmitter> emitters = new ConcurrentHashMap<>();
+    // 30 minute timeout - increased from 5 minutes to allow longer connections
+    private static final long EMITTER_TIMEOUT_MS = 1800000L;
+    // Send keep-alive frequently to avoid proxy/server idle timeouts
+    private static final long KEEP_ALIVE_INTERVAL_SECONDS = 15;
+    private static final int QUEUE_CAPACITY = 100;
+    private static final long SEND_TIMEOUT_SECONDS = 10;
+    private static final int WRITER_THREADS = 4;
+    private static final int DRAIN_BATCH = 20;
+
+    private final Map<String, Set<Connection>> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final ScheduledExecutorService keepAliveScheduler;
+    private final ExecutorService writers;
+    private final MeterRegistry meterRegistry;
+    private final Timer sendTimer;
+
+    public SseService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.keepAliveScheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("sse-keepalive-"));
+        this.writers = Executors.newFixedThreadPool(WRITER_THREADS, daemonThreads("sse-writer-"));
+        this.sendTimer = meterRegistry.timer("sse.send");
+        meterRegistry.gauge("sse.connections", connectionCount);
+        meterRegistry.gauge("sse.queue.depth", this, SseService::totalQueueDepth);
+        keepAliveScheduler.scheduleAtFixedRate(this::sendKeepAlives, KEEP_ALIVE_INTERVAL_SECONDS,
+                KEEP_ALIVE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /** One open stream of a user, with its pending events. */
+    private static final class Connection {
+        private final String userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        // Start (System.nanoTime) of the send in progress; 0 when idle
+        private volatile long sendStartedNanos;
+
+        private Connection(String userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+    }
 
     /**
      * Subscribe user to alert stream
-     * Each user gets their own SSE emitter connection
+     * Each call opens a separate connection, so several tabs of one user all
+     * receive the events
      */
     public SseEmitter subscribe(String userId) {
         logger.info("User {} subscribing to alerts", userId);
 
-        // 30 minute timeout - increased from 5 minutes to allow longer connections
-        SseEmitter emitter = new SseEmitter(1800000L);
-        emitters.put(userId, emitter);
-
-        // Send initial connection confirmation
-        try {
-            emitter.send(SseEmitter.event()
-                    .name("connected")
-                    .data("Connected to alert stream")
-                    .build());
-        } catch (IOException e) {
-            logger.warn("Failed to send connection confirmation to user {}: {}", userId, e.getMessage());
-            emitters.remove(userId);
-        }
-
-        // Start a keep-alive thread to prevent timeout
-        startKeepAlive(userId, emitter);
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        Connection connection = new Connection(userId, emitter);
+        connections.compute(userId, (key, userConnections) -> {
+            Set<Connection> updated = userConnections != null ? userConnections : ConcurrentHashMap.newKeySet();
+            updated.add(connection);
+            return updated;
+        });
+        connectionCount.incrementAndGet();
 
         // Auto cleanup on completion
         emitter.onCompletion(() -> {
             logger.info("User {} SSE completed", userId);
-            emitters.remove(userId);
+            remove(connection);
         });
 
         // Auto cleanup on timeout
         emitter.onTimeout(() -> {
             logger.info("User {} SSE timeout", userId);
-            emitters.remove(userId);
+            remove(connection);
         });
 
         // Auto cleanup on error
         emitter.onError(throwable -> {
             logger.warn("User {} SSE error: {}", userId, throwable.getMessage());
-            emitters.remove(userId);
+            remove(connection);
         });
 
-        return emitter;
-    }
+        // Send initial connection confirmation
+        enqueue(connection, SseEmitter.event()
+                .name("connected")
+                .data("Connected to alert stream"), false);
 
-    /**
-     * Send keep-alive messages to prevent connection timeout
-     */
-    private void startKeepAlive(String userId, SseEmitter emitter) {
-        Thread keepAliveThread = new Thread(() -> {
-            try {
-                while (emitters.containsKey(userId)) {
-                    // Send keep-alive frequently to avoid proxy/server idle timeouts
-                    Thread.sleep(15000);
-                    try {
-                        emitter.send(SseEmitter.event()
-                                .name("keep-alive")
-                                .data("Connection active")
-                                .build());
-                    } catch (IOException e) {
-                        logger.debug("Failed to send keep-alive to user {}: {}", userId, e.getMessage());
-                        break;
-                    }
-                }
-            } catch (InterruptedException e) {
-                logger.debug("Keep-alive thread interrupted for user {}", userId);
-                Thread.currentThread().interrupt();
-            }
-        });
-        keepAliveThread.setDaemon(true);
-        keepAliveThread.setName("SSE-KeepAlive-" + userId);
-        keepAliveThread.start();
+        return emitter;
     }
 
     /**
      * Broadcast alert to all connected clients in real-time
      */
     public void broadcastAlert(AlertNotification alert) {
-        logger.debug("Broadcasting alert: {} to {} connected users", alert.getAlertKey(), emitters.size());
-
-        emitters.forEach((userId, emitter) -> {
-            try {
-                emitter.send(SseEmitter.event()
-                        .id(alert.getId().toString())
-                        .name("alert")
-                        .data(alert)
-                        .build());
-            } catch (IOException e) {
-                logger.warn("Failed to send alert to user {}: {}", userId, e.getMessage());
-                emitters.remove(userId);
-            }
-        });
+        logger.debug("Broadcasting alert: {} to {} connections", alert.getAlertKey(), connectionCount.get());
+        broadcast(() -> SseEmitter.event()
+                .id(alert.getId().toString())
+                .name("alert")
+                .data(alert));
     }
 
     /**
      * Broadcast alert dismissal to all connected clients
      */
     public void broadcastAlertDismissal(Long alertId) {
-        logger.debug("Broadcasting alert dismissal: {} to {} connected users", alertId, emitters.size());
-
-        emitters.forEach((userId, emitter) -> {
-            try {
-                emitter.send(SseEmitter.event()
-                        .name("alert-dismissed")
-                        .data(alertId)
-                        .build());
-            } catch (IOException e) {
-                logger.warn("Failed to send dismissal notification to user {}: {}", userId, e.getMessage());
-                emitters.remove(userId);
-            }
-        });
+        logger.debug("Broadcasting alert dismissal: {} to {} connections", alertId, connectionCount.get());
+        broadcast(() -> SseEmitter.event()
+                .name("alert-dismissed")
+                .data(alertId));
     }
 
     /**
      * Get count of active connections
      */
     public int getActiveConnections() {
-        return emitters.size();
+        return connectionCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        keepAliveScheduler.shutdownNow();
+        writers.shutdownNow();
     }
-}
 
+    // Each connection gets its own builder; a builder is consumed by the send
+    private void broadcast(Supplier<SseEmitter.SseEventBuilder> events) {
+        for (Set<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                enqueue(connection, events.get(), false);
+            }
+        }
+    }
+
+    private void sendKeepAlives() {
+        try {
+            long now = System.nanoTime();
+            for (Set<Connection> userConnections : connections.values()) {
+                for (Connection connection : userConnections) {
+                    long sendStarted = connection.sendStartedNanos;
+                    if (sendStarted != 0 && now - sendStarted > TimeUnit.SECONDS.toNanos(SEND_TIMEOUT_SECONDS)) {
+                        dropStalled(connection);
+                        continue;
+                    }
+                    enqueue(connection, SseEmitter.event()
+                            .name("keep-alive")
+                            .data("Connection active"), true);
+                }
+            }
+        } catch (Exception e) {
+            // Never let an exception cancel the periodic task
+            logger.warn("Failed to schedule SSE keep-alives: {}", e.getMessage());
+        }
+    }
+
+    // complete() would wait on the emitter for the blocked send, so the connection is only
+    // dropped from broadcasts here; the failed write completes it
+    private void dropStalled(Connection connection) {
+        logger.warn("Disconnecting stalled SSE client of user {}: send blocked for over {}s", connection.userId,
+                SEND_TIMEOUT_SECONDS);
+        meterRegistry.counter("sse.dropped", "reason", "send-timeout").increment();
+        remove(connection);
+    }
+
+    private void enqueue(Connection connection, SseEmitter.SseEventBuilder event, boolean droppable) {
+        if (connection.closed.get()) {
+            return;
+        }
+        if (!connection.queue.offer(event)) {
+            if (droppable) {
+                meterRegistry.counter("sse.dropped", "reason", "keep-alive").increment();
+                return;
+            }
+            logger.warn("Disconnecting slow SSE client of user {}: {} events pending", connection.userId,
+                    connection.queue.size());
+            meterRegistry.counter("sse.dropped", "reason", "slow-consumer").increment();
+            close(connection);
+            return;
+        }
+        if (connection.draining.compareAndSet(false, true)) {
+            writers.execute(() -> drain(connection));
+        }
+    }
+
+    // At most one drain runs per connection, so sends on an emitter never overlap
+    private void drain(Connection connection) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            int sent = 0;
+            while (sent++ < DRAIN_BATCH && (event = connection.queue.poll()) != null) {
+                long started = System.nanoTime();
+                connection.sendStartedNanos = started;
+                try {
+                    connection.emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    logger.debug("Failed to send SSE event to user {}: {}", connection.userId, e.getMessage());
+                    close(connection);
+                    return;
+                } finally {
+                    connection.sendStartedNanos = 0;
+                    sendTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                }
+                if (connection.closed.get()) {
+                    // Dropped as stalled while this send was blocked; end the stream too
+                    close(connection);
+                    return;
+                }
+            }
+        } finally {
+            connection.draining.set(false);
+            // Events left after a full batch, or queued after the last poll but before the flag was cleared
+            if (!connection.closed.get() && !connection.queue.isEmpty()
+                    && connection.draining.compareAndSet(false, true)) {
+                writers.execute(() -> drain(connection));
+            }
+        }
+    }
+
+    private void close(Connection connection) {
+        remove(connection);
+        try {
+            connection.emitter.complete();
+        } catch (Exception e) {
+            logger.debug("Failed to complete SSE emitter of user {}: {}", connection.userId, e.getMessage());
+        }
+    }
+
+    private void remove(Connection connection) {
+        if (!connection.closed.compareAndSet(false, true)) {
+            return;
+        }
+        connection.queue.clear();
+        connectionCount.decrementAndGet();
+        connections.computeIfPresent(connection.userId, (userId, userConnections) -> {
+            userConnections.remove(connection);
+            return userConnections.isEmpty() ? null : userConnections;
+        });
+    }
+
+    private double totalQueueDepth() {
+        int depth = 0;
+        for (Set<Connection> userConnections : connections.values()) {
+            for (Connection connection : userConnections) {
+                depth += connection.queue.size();
+            }
+        }
+        return depth;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -6,6 +6,7 @@ import com.gasagency.repository.UserRepository;
 import com.gasagency.repository.BusinessInfoRepository;
 import com.gasagency.dto.response.UserDTO;
 import com.gasagency.dto.request.UserUpdateRequestDTO;
+import com.gasagency.security.JwtPrincipalCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -26,6 +27,9 @@ public class UserService {
     @Autowired
     private BusinessInfoRepository businessInfoRepository;
 
+    @Autowired
+    private JwtPrincipalCache principalCache;
+
     @CacheEvict(value = { "usersActive", "usersAll" }, allEntries = true)
     public UserDTO createUser(UserDTO userDTO) {
         User newUser = new User();
@@ -91,6 +95,7 @@ public class UserService {
     @CacheEvict(value = { "usersActive", "usersAll" }, allEntries = true)
     public Optional<UserDTO> updateUser(Long id, UserUpdateRequestDTO updatedUser) {
         return userRepository.findById(id).map(user -> {
+            String previousUsername = user.getUsername();
             if (updatedUser.getUsername() != null && !updatedUser.getUsername().isEmpty()) {
                 user.setUsername(updatedUser.getUsername());
             }
@@ -117,7 +122,10 @@ public class UserService {
             if (updatedUser.getActive() != null) {
                 user.setActive(updatedUser.getActive());
             }
-            return userRepository.save(user);
+            User saved = userRepository.save(user);
+            // Tokens of the user must pick up the new role on their next request
+            principalCache.evictUser(previousUsername);
+            return saved;
         }).map(this::convertToDTO);
     }
 
@@ -126,6 +134,7 @@ public class UserService {
         return userRepository.findById(id).map(user -> {
             user.setActive(false);
             userRepository.save(user);
+            principalCache.evictUser(user.getUsername());
             return true;
         }).orElse(false);
     }
@@ -164,6 +173,7 @@ public class UserService {
 
         user.setActive(true);
         User saved = userRepository.save(user);
+        principalCache.evictUser(saved.getUsername());
         return Optional.of(convertToDTO(saved));
     }
 
@@ -1,5 +1,6 @@
 package com.gasagency.service;
 
+import com.gasagency.dto.response.CursorPageDTO;
 import com.gasagency.dto.response.WarehouseTransferDTO;
 import com.gasagency.entity.WarehouseTransfer;
 import com.gasagency.entity.Warehouse;
@@ -8,17 +9,30 @@ import com.gasagency.entity.InventoryStock;
 import com.gasagency.exception.ResourceNotFoundException;
 import com.gasagency.exception.InvalidOperationException;
 import com.gasagency.repository.WarehouseTransferRepository;
+import com.gasagency.util.LoggerUtil;
 import com.gasagency.util.ReferenceNumberGenerator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * WarehouseTransferService - Manages cylinder transfers between warehouses
@@ -33,6 +47,13 @@ import java.util.stream.Collectors;
 public class WarehouseTransferService {
 
     private static final Logger logger = LoggerFactory.getLogger(WarehouseTransferService.class);
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    // Open ends of the history date range
+    private static final LocalDate HISTORY_START = LocalDate.of(1970, 1, 1);
+    private static final LocalDate HISTORY_END = LocalDate.of(9999, 12, 31);
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Autowired
     private WarehouseTransferRepository warehouseTransferRepository;
@@ -145,26 +166,9 @@ public class WarehouseTransferService {
     }
 
     /**
-     * Get all transfers (audit trail)
+     * Get transfers one page at a time (audit trail); the full list is served
+     * by getTransferHistory or the streamed export
      */
-    @Transactional(readOnly = true)
-    public List<WarehouseTransferDTO> getAllTransfers() {
-        return warehouseTransferRepository.findAll()
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-    }
-
-    @Transactional(readOnly = true)
-    public List<WarehouseTransferDTO> getAllTransfers(Long variantId) {
-        List<WarehouseTransfer> transfers = variantId != null
-                ? warehouseTransferRepository.findByVariantId(variantId)
-                : warehouseTransferRepository.findAll();
-        return transfers.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-    }
-
     @Transactional(readOnly = true)
     public Page<WarehouseTransferDTO> getAllTransfers(Pageable pageable) {
         return warehouseTransferRepository.findAll(pageable)
@@ -184,15 +188,6 @@ public class WarehouseTransferService {
                 .collect(Collectors.toList());
     }
 
-    @Transactional(readOnly = true)
-    public List<WarehouseTransferDTO> getTransfersForWarehouseAndVariant(Long warehouseId, Long variantId) {
-        Warehouse warehouse = warehouseService.getWarehouseEntity(warehouseId);
-        return warehouseTransferRepository.findAllTransfersForWarehouseAndVariant(warehouse, variantId)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-    }
-
     @Transactional(readOnly = true)
     public Page<WarehouseTransferDTO> getTransfersForWarehouse(Long warehouseId, Pageable pageable) {
         Warehouse warehouse = warehouseService.getWarehouseEntity(warehouseId);
@@ -268,6 +263,148 @@ public class WarehouseTransferService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Keyset page of the transfer history between fromDate and toDate (either
+     * may be null for an open end), newest first. With both fromWarehouseId and
+     * toWarehouseId only transfers between the two are listed; warehouseId
+     * matches either side. Each page reads size + 1 rows through the
+     * (warehouse, transfer_date) indexes regardless of how deep it is.
+     *
+     * @param cursor nextCursor of the previous page, or null for the first page
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<WarehouseTransferDTO> getTransferHistory(Long warehouseId, Long fromWarehouseId,
+            Long toWarehouseId, LocalDate fromDate, LocalDate toDate, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_HISTORY_PAGE_SIZE));
+        LocalDate from = fromDate != null ? fromDate : HISTORY_START;
+        LocalDate to = toDate != null ? toDate : HISTORY_END;
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("fromDate must not be after toDate");
+        }
+        TransferCursor after = cursor == null || cursor.isBlank() ? TransferCursor.FIRST
+                : TransferCursor.decode(cursor);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+
+        List<WarehouseTransfer> rows;
+        if (fromWarehouseId != null && toWarehouseId != null) {
+            rows = warehouseTransferRepository.findHistoryBetween(fromWarehouseId, toWarehouseId, from, to,
+                    after.date(), after.id(), limit);
+        } else if (fromWarehouseId != null) {
+            rows = warehouseTransferRepository.findHistoryFrom(fromWarehouseId, from, to, after.date(), after.id(),
+                    limit);
+        } else if (toWarehouseId != null) {
+            rows = warehouseTransferRepository.findHistoryTo(toWarehouseId, from, to, after.date(), after.id(),
+                    limit);
+        } else if (warehouseId != null) {
+            rows = warehouseTransferRepository.findHistoryForWarehouse(warehouseId, from, to, after.date(),
+                    after.id(), limit);
+        } else {
+            rows = warehouseTransferRepository.findHistory(from, to, after.date(), after.id(), limit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<WarehouseTransfer> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            WarehouseTransfer last = page.get(page.size() - 1);
+            nextCursor = new TransferCursor(last.getTransferDate(), last.getId()).encode();
+        }
+        return new CursorPageDTO<>(page.stream().map(this::convertToDTO).collect(Collectors.toList()),
+                nextCursor, hasMore, pageSize);
+    }
+
+    /**
+     * Hand every transfer between fromDate and toDate, newest first, to the
+     * consumer. Rows are read through a database cursor and detached once
+     * mapped, so an export never holds the whole range in memory.
+     */
+    @Transactional(readOnly = true)
+    public void exportTransfers(LocalDate fromDate, LocalDate toDate, Consumer<WarehouseTransferDTO> consumer) {
+        if (fromDate == null || toDate == null || fromDate.isAfter(toDate)) {
+            throw new IllegalArgumentException("A valid fromDate and toDate are required for an export");
+        }
+        try (Stream<WarehouseTransfer> transfers = warehouseTransferRepository.streamHistory(fromDate, toDate)) {
+            transfers.forEach(transfer -> {
+                consumer.accept(convertToDTO(transfer));
+                entityManager.detach(transfer);
+            });
+        }
+    }
+
+    /**
+     * Position in the transfer history, exchanged with clients as an opaque
+     * base64url string.
+     */
+    private record TransferCursor(LocalDate date, long id) {
+        static final TransferCursor FIRST = new TransferCursor(HISTORY_END, Long.MAX_VALUE);
+
+        String encode() {
+            String raw = date + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static TransferCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\\|");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException(raw);
+                }
+                return new TransferCursor(LocalDate.parse(parts[0]), Long.parseLong(parts[1]));
+            } catch (RuntimeException e) {
+                throw new InvalidOperationException("Invalid transfer cursor");
+            }
+        }
+    }
+
+    /**
+     * Backfill and tighten warehouse_transfer.created_date, once: a no-op after
+     * the column is NOT NULL.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void requireCreatedDates() {
+        try {
+            if (!warehouseTransferRepository.findCreatedDateNullability().contains("YES")) {
+                return;
+            }
+            int updated = warehouseTransferRepository.backfillCreatedDates();
+            if (updated > 0) {
+                logger.info("Backfilled created_date of {} warehouse transfers", updated);
+            }
+            warehouseTransferRepository.requireCreatedDates();
+        } catch (Exception e) {
+            LoggerUtil.logException(logger, "Warehouse transfer created_date backfill failed", e);
+        }
+    }
+
+    /**
+     * Transfers strictly after the given position in movement-history order
+     * (transferDate, createdDate, id descending), optionally limited to one
+     * warehouse (either side) and variant. Used to merge transfers into the
+     * keyset-paginated ledger movements.
+     */
+    @Transactional(readOnly = true)
+    public List<WarehouseTransferDTO> getTransfersBefore(Long warehouseId, Long variantId, LocalDate cursorDate,
+            LocalDateTime cursorCreated, Long cursorId, int limit) {
+        Pageable firstRows = PageRequest.of(0, limit);
+        List<WarehouseTransfer> transfers = warehouseId != null
+                ? warehouseTransferRepository.findMovementsBeforeByWarehouse(warehouseId, variantId, cursorDate,
+                        cursorCreated, cursorId, firstRows)
+                : warehouseTransferRepository.findMovementsBefore(variantId, cursorDate, cursorCreated, cursorId,
+                        firstRows);
+        return transfers.stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public long countTransfers(Long warehouseId, Long variantId) {
+        return warehouseId != null
+                ? warehouseTransferRepository.countMovementsByWarehouse(warehouseId, variantId)
+                : warehouseTransferRepository.countMovements(variantId);
+    }
+
     /**
      * Validate transfer input
      */
@@ -0,0 +1,176 @@
+package com.gasagency.tracing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Head-sampled tracing of the controller -> service flow of one thread.
+ *
+ * The outermost traced call decides whether the whole trace is sampled.
+ * Unsampled traces only mark the thread, so nested calls cost one ThreadLocal
+ * read. Sampled spans are timed into the flow.span timer, tagged by span name
+ * and outcome. Sampled traces slower than the threshold are kept, with all
+ * their spans, in a fixed-size ring buffer served by the slowtraces actuator
+ * endpoint.
+ */
+@Component
+public class FlowTracer {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlowTracer.class);
+    private static final int MAX_SPANS_PER_TRACE = 200;
+    // Marks a thread inside an unsampled trace
+    private static final Trace UNSAMPLED = new Trace(0);
+
+    private final ThreadLocal<Trace> current = new ThreadLocal<>();
+    private final Map<SpanKey, Timer> timers = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+    private final AtomicReferenceArray<SlowTrace> slowTraces;
+    private final AtomicLong slowTraceCount = new AtomicLong();
+
+    public FlowTracer(MeterRegistry meterRegistry,
+            @Value("${app.tracing.sample-rate:0.1}") double sampleRate,
+            @Value("${app.tracing.slow-threshold-ms:1000}") long slowThresholdMs,
+            @Value("${app.tracing.slow-trace-capacity:50}") int slowTraceCapacity) {
+        this.meterRegistry = meterRegistry;
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        this.slowTraces = new AtomicReferenceArray<>(Math.max(1, slowTraceCapacity));
+    }
+
+    private record SpanKey(String name, boolean error) {
+    }
+
+    /** One finished span; offset and duration are relative to the trace start. */
+    public record SpanRecord(String name, int depth, long offsetMicros, long durationMicros, boolean error) {
+    }
+
+    /** A sampled trace that exceeded the slow threshold. */
+    public record SlowTrace(String root, Instant startedAt, long durationMillis, boolean truncated,
+            List<SpanRecord> spans) {
+    }
+
+    /** Spans of the trace running on one thread. */
+    private static final class Trace {
+        private final long startNanos;
+        private final Instant startedAt = Instant.now();
+        private final List<SpanRecord> spans = new ArrayList<>();
+        private int depth;
+        private boolean truncated;
+
+        private Trace(long startNanos) {
+            this.startNanos = startNanos;
+        }
+    }
+
+    /**
+     * Run one traced call. The span name is only computed when the trace is
+     * sampled.
+     */
+    public Object trace(Supplier<String> spanName, TracedCall call) throws Throwable {
+        Trace trace = current.get();
+        if (trace == UNSAMPLED) {
+            return call.proceed();
+        }
+        if (trace == null) {
+            if (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+                current.set(UNSAMPLED);
+                try {
+                    return call.proceed();
+                } finally {
+                    current.remove();
+                }
+            }
+            trace = new Trace(System.nanoTime());
+            current.set(trace);
+            try {
+                return span(trace, spanName.get(), call);
+            } finally {
+                current.remove();
+                finish(trace);
+            }
+        }
+        return span(trace, spanName.get(), call);
+    }
+
+    /**
+     * Most recent slow traces, newest first.
+     */
+    public List<SlowTrace> getSlowTraces() {
+        long count = slowTraceCount.get();
+        int size = (int) Math.min(count, slowTraces.length());
+        List<SlowTrace> result = new ArrayList<>(size);
+        for (long i = count - 1; i >= count - size; i--) {
+            SlowTrace slowTrace = slowTraces.get((int) (i % slowTraces.length()));
+            if (slowTrace != null) {
+                result.add(slowTrace);
+            }
+        }
+        return result;
+    }
+
+    private Object span(Trace trace, String name, TracedCall call) throws Throwable {
+        int depth = trace.depth++;
+        long started = System.nanoTime();
+        boolean error = false;
+        try {
+            return call.proceed();
+        } catch (Throwable ex) {
+            error = true;
+            throw ex;
+        } finally {
+            long duration = System.nanoTime() - started;
+            trace.depth--;
+            timers.computeIfAbsent(new SpanKey(name, error), key -> Timer.builder("flow.span")
+                    .tag("span", key.name())
+                    .tag("outcome", key.error() ? "error" : "success")
+                    .register(meterRegistry))
+                    .record(duration, TimeUnit.NANOSECONDS);
+            // The root span is always kept; it finishes last
+            if (depth == 0 || trace.spans.size() < MAX_SPANS_PER_TRACE) {
+                trace.spans.add(new SpanRecord(name, depth, (started - trace.startNanos) / 1_000,
+                        duration / 1_000, error));
+            } else {
+                trace.truncated = true;
+            }
+        }
+    }
+
+    private void finish(Trace trace) {
+        long duration = System.nanoTime() - trace.startNanos;
+        if (duration < slowThresholdNanos || trace.spans.isEmpty()) {
+            return;
+        }
+        // Spans finish innermost first; list them in call order
+        List<SpanRecord> spans = new ArrayList<>(trace.spans);
+        spans.sort(Comparator.comparingLong(SpanRecord::offsetMicros).thenComparingInt(SpanRecord::depth));
+        String root = spans.get(0).name();
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(duration);
+        slowTraces.set((int) (slowTraceCount.getAndIncrement() % slowTraces.length()), new SlowTrace(root,
+                trace.startedAt, durationMillis, trace.truncated, List.copyOf(spans)));
+        logger.warn("SLOW_TRACE | root={} | duration={}ms | spans={}", root, durationMillis, spans.size());
+    }
+
+    /** The traced call itself. */
+    @FunctionalInterface
+    public interface TracedCall {
+        Object proceed() throws Throwable;
+    }
+}
@@ -0,0 +1,27 @@
+package com.gasagency.tracing;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint (/actuator/slowtraces) listing the slow sampled traces
+ * kept by FlowTracer, newest first.
+ */
+@Component
+@Endpoint(id = "slowtraces")
+public class SlowTraceEndpoint {
+
+    private final FlowTracer tracer;
+
+    public SlowTraceEndpoint(FlowTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @ReadOperation
+    public List<FlowTracer.SlowTrace> slowTraces() {
+        return tracer.getSlowTraces();
+    }
+}
@@ -2,8 +2,10 @@ package com.gasagency.util;
 
 import org.slf4j.MDC;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import com.gasagency.dto.response.PagedResponseDTO;
+import com.gasagency.dto.response.SliceResponseDTO;
 
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
@@ -32,6 +34,18 @@ public final class ApiResponseUtil {
         return response;
     }
 
+    public static <T> ApiResponse<SliceResponseDTO<T>> success(String message, Slice<T> slice) {
+        SliceResponseDTO<T> sliced = new SliceResponseDTO<>(
+                slice.getContent(),
+                slice.getNumber(),
+                slice.getSize(),
+                slice.isFirst(),
+                slice.hasNext());
+        ApiResponse<SliceResponseDTO<T>> response = new ApiResponse<>(message, sliced);
+        applyMeta(response);
+        return response;
+    }
+
     public static <T> ApiResponse<T> success(String message) {
         ApiResponse<T> response = new ApiResponse<>(message, null);
         applyMeta(response);
@@ -0,0 +1,229 @@
+package com.gasagency.benchmark;
+
+import com.gasagency.dto.response.ExpenseCategoryDTO;
+import com.gasagency.dto.response.ExpenseDTO;
+import com.gasagency.dto.response.PaymentModeDTO;
+import com.gasagency.entity.BankAccount;
+import com.gasagency.entity.Expense;
+import com.gasagency.entity.ExpenseCategory;
+import com.gasagency.entity.PaymentMode;
+import com.gasagency.mapper.ExpenseCategoryMapperImpl;
+import com.gasagency.mapper.ExpenseMapperImpl;
+import com.gasagency.mapper.PaymentModeMapperImpl;
+import org.modelmapper.ModelMapper;
+import org.modelmapper.PropertyMap;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Compares the generated MapStruct mappers with the ModelMapper setup they
+ * replaced: first checks that both produce the same DTOs, then times both on
+ * the same entities.
+ *
+ * Usage (from backend directory):
+ *   mvn -q -DskipTests test-compile
+ *   java -cp "target/test-classes:target/classes:$(cat cp.txt)" com.gasagency.benchmark.MapperComparisonRunner \
+ *     --entities=10000 --rounds=20 --warmup-rounds=10
+ * (write cp.txt once with: mvn -q dependency:build-classpath -Dmdep.outputFile=cp.txt)
+ */
+public class MapperComparisonRunner {
+
+    public static void main(String[] args) {
+        Args config = Args.parse(args);
+        ModelMapper modelMapper = legacyModelMapper();
+        ExpenseMapperImpl expenseMapper = new ExpenseMapperImpl();
+        ExpenseCategoryMapperImpl categoryMapper = new ExpenseCategoryMapperImpl();
+        PaymentModeMapperImpl paymentModeMapper = new PaymentModeMapperImpl();
+
+        List<Expense> expenses = new ArrayList<>(config.entities);
+        List<ExpenseCategory> categories = new ArrayList<>(config.entities);
+        List<PaymentMode> paymentModes = new ArrayList<>(config.entities);
+        for (int i = 0; i < config.entities; i++) {
+            ExpenseCategory category = category(i);
+            categories.add(category);
+            expenses.add(expense(i, category));
+            paymentModes.add(paymentMode(i));
+        }
+
+        System.out.println("Entities per round: " + config.entities + ", rounds: " + config.rounds
+                + " (+" + config.warmupRounds + " warm-up)");
+        compare(config, "Expense", expenses,
+                expense -> legacyExpenseDTO(modelMapper, expense), expenseMapper::toDTO,
+                List.of(ExpenseDTO::getId, ExpenseDTO::getDescription, ExpenseDTO::getAmount,
+                        ExpenseDTO::getCategory, ExpenseDTO::getCategoryId, ExpenseDTO::getExpenseDate,
+                        ExpenseDTO::getNotes, ExpenseDTO::getPaymentMode, ExpenseDTO::getBankAccountId,
+                        ExpenseDTO::getBankAccountName, ExpenseDTO::getBankAccountNumber,
+                        ExpenseDTO::getCreatedDate, ExpenseDTO::getCreatedBy, ExpenseDTO::getUpdatedDate,
+                        ExpenseDTO::getUpdatedBy));
+        compare(config, "ExpenseCategory", categories,
+                category -> modelMapper.map(category, ExpenseCategoryDTO.class), categoryMapper::toDTO,
+                List.of(ExpenseCategoryDTO::getId, ExpenseCategoryDTO::getName,
+                        ExpenseCategoryDTO::getDescription, ExpenseCategoryDTO::getIsActive,
+                        ExpenseCategoryDTO::getCreatedDate, ExpenseCategoryDTO::getCreatedBy,
+                        ExpenseCategoryDTO::getUpdatedDate, ExpenseCategoryDTO::getUpdatedBy));
+        compare(config, "PaymentMode", paymentModes,
+                mode -> modelMapper.map(mode, PaymentModeDTO.class), paymentModeMapper::toDTO,
+                List.of(PaymentModeDTO::getId, PaymentModeDTO::getName, PaymentModeDTO::getCode,
+                        PaymentModeDTO::getDescription, PaymentModeDTO::getIsActive,
+                        PaymentModeDTO::getIsBankAccountRequired, PaymentModeDTO::getCreatedDate,
+                        PaymentModeDTO::getCreatedBy, PaymentModeDTO::getUpdatedDate,
+                        PaymentModeDTO::getUpdatedBy));
+    }
+
+    private static <E, D> void compare(Args config, String name, List<E> entities, Function<E, D> baseline,
+            Function<E, D> candidate, List<Function<D, Object>> fields) {
+        int mismatches = 0;
+        for (E entity : entities) {
+            D expected = baseline.apply(entity);
+            D actual = candidate.apply(entity);
+            for (Function<D, Object> field : fields) {
+                if (!Objects.equals(field.apply(expected), field.apply(actual))) {
+                    mismatches++;
+                    break;
+                }
+            }
+        }
+
+        double baselineNanos = medianNanosPerEntity(config, entities, baseline);
+        double candidateNanos = medianNanosPerEntity(config, entities, candidate);
+        System.out.printf("%-16s mismatches=%d  modelmapper=%.1f ns/op  mapstruct=%.1f ns/op  speedup=%.1fx%n",
+                name, mismatches, baselineNanos, candidateNanos, baselineNanos / candidateNanos);
+    }
+
+    private static <E, D> double medianNanosPerEntity(Args config, List<E> entities, Function<E, D> mapper) {
+        double[] perEntity = new double[config.rounds];
+        long sink = 0;
+        for (int round = -config.warmupRounds; round < config.rounds; round++) {
+            long started = System.nanoTime();
+            for (E entity : entities) {
+                sink += System.identityHashCode(mapper.apply(entity));
+            }
+            if (round >= 0) {
+                perEntity[round] = (double) (System.nanoTime() - started) / entities.size();
+            }
+        }
+        if (sink == 42) {
+            // Keeps the mapped objects observable so the loop is not optimized away
+            System.out.println();
+        }
+        Arrays.sort(perEntity);
+        return perEntity[perEntity.length / 2];
+    }
+
+    // Same configuration and fix-ups ExpenseService used before the MapStruct mappers
+    private static ModelMapper legacyModelMapper() {
+        ModelMapper mapper = new ModelMapper();
+        mapper.addMappings(new PropertyMap<ExpenseCategory, ExpenseCategoryDTO>() {
+            @Override
+            protected void configure() {
+                map().setId(source.getId());
+                map().setName(source.getName());
+                map().setDescription(source.getDescription());
+                map().setIsActive(source.getIsActive());
+                map().setCreatedDate(source.getCreatedDate());
+                map().setCreatedBy(source.getCreatedBy());
+                map().setUpdatedDate(source.getUpdatedDate());
+                map().setUpdatedBy(source.getUpdatedBy());
+            }
+        });
+        mapper.addMappings(new PropertyMap<Expense, ExpenseDTO>() {
+            @Override
+            protected void configure() {
+                map().setId(source.getId());
+                map().setDescription(source.getDescription());
+                map().setAmount(source.getAmount());
+                map().setExpenseDate(source.getExpenseDate());
+                map().setNotes(source.getNotes());
+                map().setPaymentMode(source.getPaymentMode());
+                map().setCreatedDate(source.getCreatedDate());
+                map().setCreatedBy(source.getCreatedBy());
+                map().setUpdatedDate(source.getUpdatedDate());
+                map().setUpdatedBy(source.getUpdatedBy());
+                skip().setBankAccountId(null);
+                skip().setBankAccountName(null);
+            }
+        });
+        return mapper;
+    }
+
+    private static ExpenseDTO legacyExpenseDTO(ModelMapper modelMapper, Expense expense) {
+        ExpenseDTO dto = modelMapper.map(expense, ExpenseDTO.class);
+        dto.setCategory(expense.getCategory().getName());
+        dto.setCategoryId(expense.getCategory().getId());
+        dto.setPaymentMode(expense.getPaymentMode());
+        if (expense.getBankAccount() != null) {
+            dto.setBankAccountId(expense.getBankAccount().getId());
+            dto.setBankAccountName(expense.getBankAccount().getBankName());
+            dto.setBankAccountNumber(expense.getBankAccount().getAccountNumber());
+        }
+        return dto;
+    }
+
+    private static ExpenseCategory category(int i) {
+        ExpenseCategory category = new ExpenseCategory((long) i, "Category " + i, "Description " + i, i % 5 != 0);
+        audit(category, i);
+        return category;
+    }
+
+    private static Expense expense(int i, ExpenseCategory category) {
+        Expense expense = new Expense();
+        expense.setId((long) i);
+        expense.setDescription("Expense " + i);
+        expense.setAmount(BigDecimal.valueOf(100 + i % 900, 2));
+        expense.setCategory(category);
+        expense.setExpenseDate(LocalDate.of(2026, 1, 1).plusDays(i % 365));
+        expense.setNotes(i % 3 == 0 ? null : "Note " + i);
+        // Every other expense is paid from a bank account
+        if (i % 2 == 0) {
+            BankAccount bankAccount = new BankAccount("BA" + i, "Bank " + i % 4, "ACC" + i, "Agency");
+            bankAccount.setId((long) i % 4);
+            expense.setPaymentMode("UPI");
+            expense.setBankAccount(bankAccount);
+        } else {
+            expense.setPaymentMode("CASH");
+        }
+        audit(expense, i);
+        return expense;
+    }
+
+    private static PaymentMode paymentMode(int i) {
+        PaymentMode mode = new PaymentMode("Mode " + i, "M" + i, "Description " + i, i % 4 != 0, i % 2 == 0);
+        mode.setId((long) i);
+        audit(mode, i);
+        return mode;
+    }
+
+    private static void audit(com.gasagency.entity.Auditable entity, int i) {
+        entity.setCreatedBy("user" + i % 7);
+        entity.setCreatedDate(LocalDateTime.of(2026, 1, 1, 9, 0).plusMinutes(i));
+        entity.setUpdatedBy(i % 2 == 0 ? null : "user" + i % 3);
+        entity.setUpdatedDate(i % 2 == 0 ? null : LocalDateTime.of(2026, 2, 1, 9, 0).plusMinutes(i));
+    }
+
+    private static final class Args {
+        private int entities = 10000;
+        private int rounds = 20;
+        private int warmupRounds = 10;
+
+        static Args parse(String[] args) {
+            Args parsed = new Args();
+            for (String arg : args) {
+                if (arg.startsWith("--entities=")) {
+                    parsed.entities = Integer.parseInt(arg.substring("--entities=".length()));
+                } else if (arg.startsWith("--rounds=")) {
+                    parsed.rounds = Integer.parseInt(arg.substring("--rounds=".length()));
+                } else if (arg.startsWith("--warmup-rounds=")) {
+                    parsed.warmupRounds = Integer.parseInt(arg.substring("--warmup-rounds=".length()));
+                }
+            }
+            return parsed;
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.gasagency.repository;
+
+import com.gasagency.config.AuditorAwareConfig;
+import com.gasagency.entity.BankAccount;
+import com.gasagency.entity.BusinessInfo;
+import com.gasagency.entity.Customer;
+import com.gasagency.entity.CustomerCylinderLedger;
+import com.gasagency.entity.CustomerLedgerPaymentSplit;
+import com.gasagency.entity.CylinderVariant;
+import com.gasagency.entity.Sale;
+import com.gasagency.entity.SaleItem;
+import com.gasagency.entity.SalePaymentSplit;
+import com.gasagency.entity.Warehouse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Checks that the grouped SQL behind the payment-mode summary returns the same
+ * totals as the per-sale fold it replaced, on one fixture and across the
+ * report's filter combinations.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:payment_mode_summary;NON_KEYWORDS=VALUE",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(AuditorAwareConfig.class)
+class SaleRepositoryPaymentModeSummaryTest {
+
+    private static final LocalDate FROM = LocalDate.of(2026, 3, 1);
+    private static final LocalDate TO = LocalDate.of(2026, 3, 31);
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private SalePaymentSplitRepository salePaymentSplitRepository;
+
+    @Autowired
+    private CustomerCylinderLedgerRepository ledgerRepository;
+
+    @Autowired
+    private CustomerLedgerPaymentSplitRepository ledgerSplitRepository;
+
+    private Customer alice;
+    private Customer bob;
+    private CylinderVariant small;
+    private CylinderVariant large;
+    private BankAccount hdfc;
+    private BankAccount sbi;
+    private int saleCount;
+
+    private record Filter(LocalDate from, LocalDate to, Long customerId, String paymentMode, Long variantId,
+            Long bankAccountId, Double minAmount, Double maxAmount) {
+    }
+
+    private record ModeTotal(double amount, long count) {
+    }
+
+    @BeforeEach
+    void setUpFixture() {
+        BusinessInfo business = new BusinessInfo();
+        business.setAgencyName("Test Agency");
+        em.persist(business);
+        Warehouse warehouse = new Warehouse("Main");
+        warehouse.setCode("WH001");
+        warehouse.setBusiness(business);
+        em.persist(warehouse);
+
+        alice = em.persist(new Customer("Alice", "9000000001", "Street 1"));
+        bob = em.persist(new Customer("Bob", "9000000002", "Street 2"));
+        small = em.persist(new CylinderVariant("5KG", 5.0));
+        large = em.persist(new CylinderVariant("19KG", 19.0));
+        hdfc = em.persist(new BankAccount("BA001", "HDFC", "111", "Agency"));
+        sbi = em.persist(new BankAccount("BA002", "SBI", "222", "Agency"));
+
+        // Split sale on the first day of the range, one split without a bank account
+        Sale splitSale = sale(warehouse, alice, small, FROM, "500", null, null);
+        split(splitSale, "Cash", "200", null);
+        split(splitSale, " upi ", "300", hdfc);
+        ledger(alice, small, FROM, CustomerCylinderLedger.TransactionType.SALE, "UPI", "500", hdfc, splitSale);
+
+        // Legacy sale on the last day: the amount comes from its first ledger row with one
+        Sale legacySale = sale(warehouse, bob, large, TO, "1200", " cash ", null);
+        ledger(bob, large, TO, CustomerCylinderLedger.TransactionType.SALE, "CASH", null, null, legacySale);
+        ledger(bob, large, TO, CustomerCylinderLedger.TransactionType.SALE, "CASH", "900", null, legacySale);
+        ledger(bob, large, TO, CustomerCylinderLedger.TransactionType.SALE, "CASH", "50", null, legacySale);
+
+        // Legacy sales that must be skipped: no payment mode, nothing received
+        Sale noModeSale = sale(warehouse, alice, large, TO, "800", null, null);
+        ledger(alice, large, TO, CustomerCylinderLedger.TransactionType.SALE, null, "800", null, noModeSale);
+        Sale unpaidSale = sale(warehouse, bob, small, FROM, "400", "UPI", hdfc);
+        ledger(bob, small, FROM, CustomerCylinderLedger.TransactionType.SALE, "UPI", "0", hdfc, unpaidSale);
+
+        // Sales one day outside the range on either side
+        Sale before = sale(warehouse, alice, small, FROM.minusDays(1), "250", null, null);
+        split(before, "CASH", "250", null);
+        Sale after = sale(warehouse, bob, large, TO.plusDays(1), "700", "CHEQUE", sbi);
+        ledger(bob, large, TO.plusDays(1), CustomerCylinderLedger.TransactionType.SALE, "CHEQUE", "700", sbi, after);
+
+        // Empty return paid in several modes
+        CustomerCylinderLedger multi = ledger(alice, small, TO, CustomerCylinderLedger.TransactionType.EMPTY_RETURN,
+                "Multiple", "170", null, null);
+        ledgerSplit(multi, "cash", "50", null);
+        ledgerSplit(multi, "CHEQUE", "120", sbi);
+
+        // Single-mode receipts, including rows without a mode or amount
+        ledger(bob, large, FROM, CustomerCylinderLedger.TransactionType.PAYMENT, "upi", "350", hdfc, null);
+        ledger(alice, small, TO, CustomerCylinderLedger.TransactionType.EMPTY_RETURN, "Cash", "75", null, null);
+        ledger(alice, large, FROM, CustomerCylinderLedger.TransactionType.PAYMENT, null, "60", null, null);
+        ledger(bob, small, FROM, CustomerCylinderLedger.TransactionType.PAYMENT, "  ", "40", null, null);
+        ledger(bob, small, TO, CustomerCylinderLedger.TransactionType.PAYMENT, "CASH", null, null, null);
+        ledger(alice, small, FROM.minusDays(1), CustomerCylinderLedger.TransactionType.PAYMENT, "CASH", "30", null,
+                null);
+        ledger(bob, large, TO.plusDays(1), CustomerCylinderLedger.TransactionType.PAYMENT, "UPI", "20", hdfc, null);
+        ledger(alice, small, FROM, CustomerCylinderLedger.TransactionType.INITIAL_STOCK, "CASH", "999", null, null);
+
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void groupedQueryMatchesInMemoryFoldForEveryFilter() {
+        List<Filter> filters = List.of(
+                new Filter(null, null, null, null, null, null, null, null),
+                new Filter(FROM, TO, null, null, null, null, null, null),
+                new Filter(FROM, null, null, null, null, null, null, null),
+                new Filter(null, TO, null, null, null, null, null, null),
+                new Filter(TO, TO, null, null, null, null, null, null),
+                new Filter(null, null, alice.getId(), null, null, null, null, null),
+                new Filter(FROM, TO, bob.getId(), null, null, null, null, null),
+                new Filter(null, null, null, "CASH", null, null, null, null),
+                new Filter(FROM, TO, null, "UPI", null, null, null, null),
+                new Filter(null, null, null, null, small.getId(), null, null, null),
+                new Filter(FROM, TO, null, null, large.getId(), null, null, null),
+                new Filter(null, null, null, null, null, hdfc.getId(), null, null),
+                new Filter(null, null, null, "CHEQUE", null, sbi.getId(), null, null),
+                new Filter(null, null, null, null, null, null, 100.0, null),
+                new Filter(null, null, null, null, null, null, null, 500.0),
+                new Filter(FROM, TO, alice.getId(), "CASH", small.getId(), null, 50.0, 1000.0));
+
+        for (Filter filter : filters) {
+            assertEquals(inMemoryFold(filter), groupedQuery(filter), filter.toString());
+        }
+    }
+
+    @Test
+    void fixtureProducesReceiptsInEveryMode() {
+        Map<String, ModeTotal> all = groupedQuery(new Filter(null, null, null, null, null, null, null, null));
+        assertFalse(all.isEmpty());
+        assertEquals(List.of("CASH", "CHEQUE", "UPI"), new ArrayList<>(all.keySet()));
+    }
+
+    private Map<String, ModeTotal> groupedQuery(Filter f) {
+        List<Object[]> rows = saleRepository.sumReceiptsByPaymentMode(f.from(), f.to(), f.customerId(),
+                f.paymentMode(), f.variantId(), f.bankAccountId(),
+                f.minAmount() != null ? BigDecimal.valueOf(f.minAmount()) : null,
+                f.maxAmount() != null ? BigDecimal.valueOf(f.maxAmount()) : null);
+        Map<String, ModeTotal> totals = new TreeMap<>();
+        for (Object[] row : rows) {
+            totals.put((String) row[0],
+                    new ModeTotal(((Number) row[1]).doubleValue(), ((Number) row[2]).longValue()));
+        }
+        return totals;
+    }
+
+    // The per-sale fold getPaymentModeSummary used before the grouped query
+    private Map<String, ModeTotal> inMemoryFold(Filter f) {
+        Map<String, ModeTotal> totals = new TreeMap<>();
+        List<Sale> sales = saleRepository.findFilteredSalesCustom(f.from(), f.to(), f.customerId(), f.variantId(),
+                f.minAmount(), f.maxAmount(), null, null, Pageable.unpaged()).getContent();
+        for (Sale sale : sales) {
+            List<SalePaymentSplit> splits = salePaymentSplitRepository.findBySaleId(sale.getId());
+            if (splits.isEmpty()) {
+                BigDecimal received = ledgerRepository.findBySaleId(sale.getId()).stream()
+                        .sorted((a, b) -> a.getId().compareTo(b.getId()))
+                        .map(CustomerCylinderLedger::getAmountReceived)
+                        .filter(value -> value != null)
+                        .findFirst()
+                        .orElse(BigDecimal.ZERO);
+                add(totals, f, sale.getPaymentMode(), sale.getBankAccount(), received);
+                continue;
+            }
+            for (SalePaymentSplit split : splits) {
+                add(totals, f, split.getPaymentMode(), split.getBankAccount(), split.getAmount());
+            }
+        }
+
+        for (CustomerCylinderLedger ledger : ledgerReceipts(f)) {
+            if (ledger.getRefType() == CustomerCylinderLedger.TransactionType.SALE) {
+                continue;
+            }
+            boolean multiple = ledger.getRefType() == CustomerCylinderLedger.TransactionType.EMPTY_RETURN
+                    && "MULTIPLE".equalsIgnoreCase(
+                            ledger.getPaymentMode() != null ? ledger.getPaymentMode().trim() : null);
+            List<CustomerLedgerPaymentSplit> splits = multiple
+                    ? ledgerSplitRepository.findByLedgerIdIn(List.of(ledger.getId()))
+                    : List.of();
+            if (!splits.isEmpty()) {
+                for (CustomerLedgerPaymentSplit split : splits) {
+                    add(totals, f, split.getPaymentMode(), split.getBankAccount(), split.getAmount());
+                }
+                continue;
+            }
+            String mode = ledger.getPaymentMode() != null ? ledger.getPaymentMode().trim().toUpperCase() : null;
+            if ("MULTIPLE".equals(mode)) {
+                continue;
+            }
+            add(totals, f, mode, ledger.getBankAccount(), ledger.getAmountReceived());
+        }
+        return totals;
+    }
+
+    // The ledger query the fold read its non-sale receipts from
+    private List<CustomerCylinderLedger> ledgerReceipts(Filter f) {
+        return em.getEntityManager().createQuery("SELECT l FROM CustomerCylinderLedger l "
+                + "WHERE l.refType <> 'INITIAL_STOCK' "
+                + "AND l.transactionDate >= COALESCE(:fromDate, l.transactionDate) "
+                + "AND l.transactionDate <= COALESCE(:toDate, l.transactionDate) "
+                + "AND l.customer.id = COALESCE(:customerId, l.customer.id) "
+                + "AND COALESCE(l.bankAccount.id, -1) = COALESCE(:bankAccountId, COALESCE(l.bankAccount.id, -1)) "
+                + "AND COALESCE(l.variant.id, -1) = COALESCE(:variantId, COALESCE(l.variant.id, -1)) "
+                + "AND COALESCE(l.amountReceived, 0) >= COALESCE(:minAmount, COALESCE(l.amountReceived, 0)) "
+                + "AND COALESCE(l.amountReceived, 0) <= COALESCE(:maxAmount, COALESCE(l.amountReceived, 0)) "
+                + "ORDER BY l.transactionDate DESC, l.id DESC", CustomerCylinderLedger.class)
+                .setParameter("fromDate", f.from())
+                .setParameter("toDate", f.to())
+                .setParameter("customerId", f.customerId())
+                .setParameter("bankAccountId", f.bankAccountId())
+                .setParameter("variantId", f.variantId())
+                .setParameter("minAmount", f.minAmount() != null ? BigDecimal.valueOf(f.minAmount()) : null)
+                .setParameter("maxAmount", f.maxAmount() != null ? BigDecimal.valueOf(f.maxAmount()) : null)
+                .getResultList();
+    }
+
+    private void add(Map<String, ModeTotal> totals, Filter f, String rawMode, BankAccount bankAccount,
+            BigDecimal amount) {
+        String mode = rawMode != null ? rawMode.trim().toUpperCase() : null;
+        if (mode == null || mode.isEmpty()) {
+            return;
+        }
+        if (f.paymentMode() != null && !f.paymentMode().equals(mode)) {
+            return;
+        }
+        if (f.bankAccountId() != null
+                && !f.bankAccountId().equals(bankAccount != null ? bankAccount.getId() : null)) {
+            return;
+        }
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            return;
+        }
+        ModeTotal current = totals.getOrDefault(mode, new ModeTotal(0, 0));
+        totals.put(mode, new ModeTotal(current.amount() + amount.doubleValue(), current.count() + 1));
+    }
+
+    private Sale sale(Warehouse warehouse, Customer customer, CylinderVariant variant, LocalDate date,
+            String total, String paymentMode, BankAccount bankAccount) {
+        Sale sale = new Sale(warehouse, customer, date, new BigDecimal(total));
+        sale.setReferenceNumber(String.format("SO-WH001-%tY%<tm-%06d", date, ++saleCount));
+        sale.setPaymentMode(paymentMode);
+        sale.setBankAccount(bankAccount);
+        em.persist(sale);
+        em.persist(new SaleItem(sale, warehouse, variant, 1L, 0L, new BigDecimal(total), BigDecimal.ZERO,
+                new BigDecimal(total)));
+        return sale;
+    }
+
+    private void split(Sale sale, String mode, String amount, BankAccount bankAccount) {
+        SalePaymentSplit split = new SalePaymentSplit();
+        split.setSale(sale);
+        split.setPaymentMode(mode);
+        split.setAmount(new BigDecimal(amount));
+        split.setBankAccount(bankAccount);
+        em.persist(split);
+    }
+
+    private CustomerCylinderLedger ledger(Customer customer, CylinderVariant variant, LocalDate date,
+            CustomerCylinderLedger.TransactionType type, String mode, String received, BankAccount bankAccount,
+            Sale sale) {
+        CustomerCylinderLedger ledger = new CustomerCylinderLedger(customer, null, variant, date, type, null,
+                0L, 0L, 0L);
+        ledger.setPaymentMode(mode);
+        ledger.setAmountReceived(received != null ? new BigDecimal(received) : null);
+        ledger.setBankAccount(bankAccount);
+        ledger.setSale(sale);
+        return em.persist(ledger);
+    }
+
+    private void ledgerSplit(CustomerCylinderLedger ledger, String mode, String amount, BankAccount bankAccount) {
+        CustomerLedgerPaymentSplit split = new CustomerLedgerPaymentSplit();
+        split.setLedger(ledger);
+        split.setPaymentMode(mode);
+        split.setAmount(new BigDecimal(amount));
+        split.setBankAccount(bankAccount);
+        em.persist(split);
+    }
+}
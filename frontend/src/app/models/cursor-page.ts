@@ -0,0 +1,6 @@
+export interface CursorPage<T> {
+  items: T[];
+  nextCursor: string | null;
+  hasMore: boolean;
+  size: number;
+}
@@ -30,6 +30,7 @@ export * from './ledger-update-request.model';
 export * from './loading-state.model';
 export * from './monthly-price.model';
 export * from './page-response';
+export * from './cursor-page';
 export * from './payment-mode-summary.model';
 export * from './payment-mode.model';
 export * from './payments-summary.model';
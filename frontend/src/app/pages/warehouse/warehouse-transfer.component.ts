@@ -17,7 +17,7 @@ import { CylinderVariantService } from '../../services/cylinder-variant.service'
 import { Warehouse } from '../../models/warehouse.model';
 import { WarehouseTransfer } from '../../models/warehouse-transfer.model';
 import { CylinderVariant } from '../../models/cylinder-variant.model';
-import { PageResponse } from '../../models/page-response';
+import { CursorPage } from '../../models/cursor-page';
 
 @Component({
   selector: 'app-warehouse-transfer',
@@ -42,6 +42,9 @@ export class WarehouseTransferComponent implements OnInit, OnDestroy {
   warehouses: Warehouse[] = [];
   variants: CylinderVariant[] = [];
   transfers: WarehouseTransfer[] = [];
+  transfersCursor: string | null = null;
+  transfersHasMore = false;
+  isLoadingTransfers = false;
   
   isLoading = false;
   isTransferring = false;
@@ -122,18 +125,39 @@ export class WarehouseTransferComponent implements OnInit, OnDestroy {
   }
 
   /**
-   * Load transfer history
+   * Load transfer history (first page, newest first)
    */
   private loadTransfers(): void {
-    this.warehouseTransferService.getAllTransfers()
+    this.transfers = [];
+    this.transfersCursor = null;
+    this.transfersHasMore = false;
+    this.fetchTransfers();
+  }
+
+  /**
+   * Append the next page of transfer history
+   */
+  loadMoreTransfers(): void {
+    if (!this.transfersHasMore || this.isLoadingTransfers) {
+      return;
+    }
+    this.fetchTransfers();
+  }
+
+  private fetchTransfers(): void {
+    this.isLoadingTransfers = true;
+    this.warehouseTransferService.getTransferHistory(this.transfersCursor)
       .pipe(takeUntil(this.destroy$))
       .subscribe(
-        (response: PageResponse<WarehouseTransfer>) => {
-          const content = response?.items ?? response ?? [];
-          this.transfers = content;
+        (page: CursorPage<WarehouseTransfer>) => {
+          this.transfers = [...this.transfers, ...(page?.items ?? [])];
+          this.transfersCursor = page?.nextCursor ?? null;
+          this.transfersHasMore = !!page?.hasMore;
+          this.isLoadingTransfers = false;
         },
         (error: unknown) => {
           this.toastr.error('Error loading transfer history');
+          this.isLoadingTransfers = false;
         }
       );
   }
@@ -22,11 +22,6 @@ import { unwrapApiResponse } from '../utils/api-response.util';
 })
 export class CustomerCylinderLedgerService {
       private verificationApiUrl = getApiUrl('/ledger-verification');
-      getAllMovements(): Observable<CustomerCylinderLedger[]> {
-        return this.http.get<any>(`${this.apiUrl}/movements`, { withCredentials: true })
-          .pipe(applyTimeout(), unwrapApiResponse<CustomerCylinderLedger[]>());
-      }
-
       getAllMovementsPaged(
         page: number = 0,
         size: number = 20,
@@ -48,11 +43,6 @@ export class CustomerCylinderLedgerService {
           .pipe(applyTimeout(), unwrapApiResponse<PageResponse<CustomerCylinderLedger>>());
       }
 
-      getMovementsByWarehouse(warehouseId: number): Observable<CustomerCylinderLedger[]> {
-        return this.http.get<any>(`${this.apiUrl}/movements/warehouse/${warehouseId}`, { withCredentials: true })
-          .pipe(applyTimeout(), unwrapApiResponse<CustomerCylinderLedger[]>());
-      }
-
       getMovementsByWarehousePaged(
         warehouseId: number,
         page: number = 0,
@@ -3,6 +3,7 @@ import { HttpClient, HttpParams } from '@angular/common/http';
 import { Observable } from 'rxjs';
 import { WarehouseTransfer } from '../models/warehouse-transfer.model';
 import { PageResponse } from '../models/page-response';
+import { CursorPage } from '../models/cursor-page';
 import { getApiUrl } from '../config/api.config';
 import { applyTimeout } from '../config/http.config';
 import { unwrapApiResponse } from '../utils/api-response.util';
@@ -25,11 +26,14 @@ export class WarehouseTransferService {
   }
 
   /**
-   * Get all warehouse transfers (audit trail)
+   * Get one page of transfer history, newest first (keyset paginated)
+   * Pass nextCursor from the previous page to continue
    */
-  getAllTransfers(): Observable<WarehouseTransfer[]> {
-    return this.http.get<any>(this.apiUrl, { withCredentials: true })
-      .pipe(applyTimeout(), unwrapApiResponse<WarehouseTransfer[]>());
+  getTransferHistory(cursor: string | null = null, size: number = 20): Observable<CursorPage<WarehouseTransfer>> {
+    let params = new HttpParams().set('size', size.toString());
+    if (cursor) params = params.set('cursor', cursor);
+    return this.http.get<any>(`${this.apiUrl}/history`, { params, withCredentials: true })
+      .pipe(applyTimeout(), unwrapApiResponse<CursorPage<WarehouseTransfer>>());
   }
 
   /**